@@ -1,4 +1,4 @@
-package dregex.impl.database;
+package dregex.generator;
 
 import java.io.BufferedReader;
 import java.io.IOException;
@@ -119,8 +119,4 @@ public class UnicodeDatabaseReader {
         }
         return ret;
     }
-
-    public static String canonicalizeBlockName(String name) {
-        return name.replaceAll("[-_\\s]+", "").toUpperCase();
-    }
 }
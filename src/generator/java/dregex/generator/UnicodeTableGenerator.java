@@ -0,0 +1,126 @@
+package dregex.generator;
+
+import dregex.impl.database.JvmUnicode;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+import java.util.stream.Collectors;
+
+/**
+ * Generates the binary Unicode tables that are included as resources in the library, so they do not have to be
+ * computed at runtime. Run as part of the build; the only argument is the output directory.
+ */
+public class UnicodeTableGenerator {
+
+    /**
+     * Version of the Unicode database files of the resources (see {@code README.md}).
+     */
+    private static final String databaseVersion = "16.0";
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            throw new IllegalArgumentException("usage: UnicodeTableGenerator <output directory>");
+        }
+        var outputDir = Path.of(args[0]);
+        Files.createDirectories(outputDir);
+        writeCodePointTable(outputDir.resolve("NfdDecompositions.bin"), allCodePoints(JvmUnicode::nfdDecomposition));
+        writeCodePointTable(outputDir.resolve("UnicodeCaseFoldings.bin"), allCodePoints(JvmUnicode::caseFolding));
+
+        SortedMap<String, List<UnicodeDatabaseReader.Range>> blocks = new TreeMap<>();
+        try (var reader = openResource("/Blocks.txt")) {
+            for (var entry : UnicodeDatabaseReader.getBlocks(reader).entrySet()) {
+                blocks.put(entry.getKey(), List.of(entry.getValue()));
+            }
+        }
+        writeRangeTable(outputDir.resolve("UnicodeBlocks.bin"), databaseVersion, blocks);
+        try (var reader = openResource("/Scripts.txt")) {
+            writeRangeTable(
+                    outputDir.resolve("UnicodeScripts.bin"), databaseVersion, UnicodeDatabaseReader.getScripts(reader));
+        }
+        try (var reader = openResource("/DerivedGeneralCategory.txt")) {
+            writeRangeTable(
+                    outputDir.resolve("UnicodeGeneralCategories.bin"),
+                    databaseVersion,
+                    UnicodeDatabaseReader.getGeneralCategories(reader));
+        }
+        writeRangeTable(
+                outputDir.resolve("UnicodeBinaryProperties.bin"),
+                JvmUnicode.version,
+                scanProperties(JvmUnicode.binaryProperties));
+        writeRangeTable(
+                outputDir.resolve("JavaProperties.bin"), JvmUnicode.version, scanProperties(JvmUnicode.javaProperties));
+    }
+
+    private static SortedMap<String, List<UnicodeDatabaseReader.Range>> scanProperties(
+            Map<String, IntPredicate> properties) {
+        SortedMap<String, List<UnicodeDatabaseReader.Range>> ret = new TreeMap<>();
+        for (var entry : properties.entrySet()) {
+            var ranges = JvmUnicode.scan(entry.getValue()).stream()
+                    .map(range -> new UnicodeDatabaseReader.Range(range.from(), range.to()))
+                    .collect(Collectors.toList());
+            ret.put(entry.getKey(), ranges);
+        }
+        return ret;
+    }
+
+    private static SortedMap<Integer, int[]> allCodePoints(IntFunction<int[]> mapping) {
+        return JvmUnicode.scan(mapping, Character.MIN_CODE_POINT, Character.MAX_CODE_POINT);
+    }
+
+    private static Reader openResource(String name) {
+        return new InputStreamReader(UnicodeTableGenerator.class.getResourceAsStream(name), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Write a table of named lists of ranges, generated from the given version of Unicode.
+     * <p>
+     * Format: the version (as modified UTF-8), the number of entries, and then, for each entry, its name (as modified
+     * UTF-8), the number of ranges, and the ranges, as pairs of ints (inclusive).
+     */
+    private static void writeRangeTable(
+            Path file, String version, SortedMap<String, List<UnicodeDatabaseReader.Range>> table) throws IOException {
+        try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeUTF(version);
+            out.writeInt(table.size());
+            for (var entry : table.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeInt(entry.getValue().size());
+                for (var range : entry.getValue()) {
+                    out.writeInt(range.from);
+                    out.writeInt(range.to);
+                }
+            }
+        }
+    }
+
+    /**
+     * Write a table of code points, each one with a list of code points, generated from the Unicode data of the JVM.
+     * <p>
+     * Format: the version of Unicode of the JVM (as modified UTF-8), the number of entries, and then, for each entry,
+     * the code point, the number of values and the values, all as ints.
+     */
+    private static void writeCodePointTable(Path file, SortedMap<Integer, int[]> table) throws IOException {
+        try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeUTF(JvmUnicode.version);
+            out.writeInt(table.size());
+            for (var entry : table.entrySet()) {
+                out.writeInt(entry.getKey());
+                out.writeInt(entry.getValue().length);
+                for (int value : entry.getValue()) {
+                    out.writeInt(value);
+                }
+            }
+        }
+    }
+}
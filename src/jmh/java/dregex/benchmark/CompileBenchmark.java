@@ -0,0 +1,94 @@
+package dregex.benchmark;
+
+import dregex.Regex;
+import dregex.impl.Compiler;
+import dregex.impl.Dfa;
+import dregex.impl.RegexParser;
+import dregex.impl.Universe;
+import dregex.impl.tree.Node;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The stages of the compilation after parsing: construction of the universe (alphabet partitioning), and of the DFA
+ * from the tree, as well as the whole compilation, with Java's {@link Pattern#compile(String)} as a baseline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CompileBenchmark {
+
+    @Param({"literal", "email", "alternation", "lookaround", "unicode", "repetition"})
+    private String pattern;
+
+    /**
+     * Number of invocations of {@link #fromTree()} measured together, each one with a compiler of its own. The score
+     * of that benchmark is the time of the whole batch.
+     */
+    private static final int compilerBatchSize = 100;
+
+    private String regex;
+    private Node tree;
+
+    /**
+     * A new compiler for every invocation, as the universe caches the DFAs of the lookarounds it compiles. They are
+     * created before every batch, instead of before every invocation, which would distort the measurement.
+     */
+    private Compiler[] compilers;
+
+    private int nextCompiler;
+
+    @Setup
+    public void setUp() {
+        regex = Patterns.byName.get(pattern);
+        tree = RegexParser.parse(regex, new RegexParser.Flags()).getTree();
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpCompilers() {
+        compilers = new Compiler[compilerBatchSize];
+        for (int i = 0; i < compilers.length; i++) {
+            compilers[i] = new Compiler(new Universe(List.of(tree), false));
+        }
+        nextCompiler = 0;
+    }
+
+    @Benchmark
+    public Universe universe() {
+        return new Universe(List.of(tree), false);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 3, batchSize = compilerBatchSize)
+    @Measurement(iterations = 5, batchSize = compilerBatchSize)
+    public Dfa fromTree() {
+        return compilers[nextCompiler++].fromTree(tree);
+    }
+
+    @Benchmark
+    public Regex compile() {
+        return Regex.compile(regex);
+    }
+
+    @Benchmark
+    public Pattern javaCompile() {
+        return Pattern.compile(regex);
+    }
+}
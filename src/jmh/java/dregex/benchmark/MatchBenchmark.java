@@ -0,0 +1,97 @@
+package dregex.benchmark;
+
+import dregex.Regex;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Matching throughput, for inputs of different lengths, made of code points of different ranges: ASCII (which is
+ * classified with a direct lookup), the rest of the Basic Multilingual Plane, and supplementary code points (that take
+ * two chars). The regex is a character class that covers the alphabet, followed by a terminator, so the whole input is
+ * always consumed. Java's {@link Pattern} is included as a baseline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MatchBenchmark {
+
+    @Param({"ascii", "bmp", "supplementary"})
+    private String alphabet;
+
+    @Param({"16", "256", "4096"})
+    private int length;
+
+    private String input;
+    private Regex regex;
+    private Predicate<CharSequence> nativeMatcher;
+    private Pattern javaPattern;
+
+    private static int[][] ranges(String alphabet) {
+        switch (alphabet) {
+            case "ascii":
+                return new int[][] {{'a', 'z'}, {'A', 'Z'}, {'0', '9'}};
+            case "bmp":
+                // Greek, Cyrillic and Hiragana
+                return new int[][] {{0x3B1, 0x3C9}, {0x430, 0x44F}, {0x3041, 0x3096}};
+            case "supplementary":
+                // Mathematical Alphanumeric Symbols
+                return new int[][] {{0x1D400, 0x1D433}, {0x1D7CE, 0x1D7FF}};
+            default:
+                throw new IllegalArgumentException("unknown alphabet: " + alphabet);
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        var ranges = ranges(alphabet);
+        var random = new Random(0);
+        var inputBuilder = new StringBuilder();
+        for (int i = 0; i < length - 1; i++) {
+            var range = ranges[random.nextInt(ranges.length)];
+            inputBuilder.appendCodePoint(range[0] + random.nextInt(range[1] - range[0] + 1));
+        }
+        input = inputBuilder.append('!').toString();
+        var regexBuilder = new StringBuilder("[");
+        for (var range : ranges) {
+            regexBuilder.append(String.format("\\x{%X}-\\x{%X}", range[0], range[1]));
+        }
+        var regexString = regexBuilder.append("]*!").toString();
+        regex = Regex.compile(regexString);
+        nativeMatcher = regex.toNativeMatcher();
+        javaPattern = Pattern.compile(regexString);
+        if (!regex.matches(input) || !nativeMatcher.test(input) || !javaPattern.matcher(input).matches()) {
+            throw new IllegalStateException("input not matched");
+        }
+    }
+
+    @Benchmark
+    public boolean matches() {
+        return regex.matches(input);
+    }
+
+    @Benchmark
+    public boolean nativeMatches() {
+        return nativeMatcher.test(input);
+    }
+
+    @Benchmark
+    public boolean javaMatches() {
+        return javaPattern.matcher(input).matches();
+    }
+}
@@ -0,0 +1,67 @@
+package dregex.benchmark;
+
+import dregex.Regex;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Matching throughput of the generated native matchers (see {@link Regex#toNativeMatcher()}), compared with the
+ * interpreted table, for DFAs of different sizes, from a few states to the ones that need several methods. Every
+ * input is matched, so it is always consumed completely.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class NativeMatchBenchmark {
+
+    private static final Map<String, String> inputs = Map.of(
+            "literal", "qwertyuiopasd",
+            "email", "some.user+tag@subdomain.example.com",
+            "alternation", "delete/api/v2/orders/12345",
+            "routes", "delete /api/v2/payments/12345/attachments",
+            "lookaround", "/users/abc123",
+            "unicode", "αβγ λόγος",
+            "repetition", "abbabaabbababbbaabababaab");
+
+    @Param({"literal", "email", "alternation", "routes", "lookaround", "unicode", "repetition"})
+    private String pattern;
+
+    private String input;
+    private Regex regex;
+    private Predicate<CharSequence> nativeMatcher;
+
+    @Setup
+    public void setUp() {
+        input = inputs.get(pattern);
+        regex = Regex.compile(Patterns.byName.get(pattern));
+        nativeMatcher = regex.toNativeMatcher();
+        if (!regex.matches(input) || !nativeMatcher.test(input)) {
+            throw new IllegalStateException("input not matched");
+        }
+    }
+
+    @Benchmark
+    public boolean matches() {
+        return regex.matches(input);
+    }
+
+    @Benchmark
+    public boolean nativeMatches() {
+        return nativeMatcher.test(input);
+    }
+}
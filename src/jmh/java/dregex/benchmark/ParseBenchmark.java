@@ -0,0 +1,50 @@
+package dregex.benchmark;
+
+import dregex.impl.ParsedRegex;
+import dregex.impl.RegexParser;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parsing of patterns into trees. Java's {@link Pattern#compile(String)} is included as a baseline, although it also
+ * builds its matcher, which is a direct translation of the tree.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ParseBenchmark {
+
+    @Param({"literal", "email", "alternation", "lookaround", "unicode", "repetition"})
+    private String pattern;
+
+    private String regex;
+
+    @Setup
+    public void setUp() {
+        regex = Patterns.byName.get(pattern);
+    }
+
+    @Benchmark
+    public ParsedRegex parse() {
+        return RegexParser.parse(regex, new RegexParser.Flags());
+    }
+
+    @Benchmark
+    public Pattern javaCompile() {
+        return Pattern.compile(regex);
+    }
+}
@@ -0,0 +1,26 @@
+package dregex.benchmark;
+
+import java.util.Map;
+
+/**
+ * Patterns used by the benchmarks, by name, so that they can be selected with JMH parameters. All of them are
+ * supported by both dregex and {@link java.util.regex.Pattern}, so that the latter can be used as a baseline.
+ */
+final class Patterns {
+
+    private Patterns() {}
+
+    static final Map<String, String> byName = Map.of(
+            "literal", "qwertyuiopasd",
+            "email", "[a-zA-Z0-9._%+-]+@[a-zA-Z0-9.-]+\\.[a-zA-Z]{2,6}",
+            "alternation", "(get|post|put|delete|head|options)/api/v[0-9]+/(users|orders|items)/[0-9]+",
+            // too large for a single method of a native matcher
+            "routes",
+                    "(get|post|put|delete|patch) /api/v[1-3]/"
+                            + "(users|orders|products|invoices|customers|payments|shipments|reports|settings)"
+                            + "/[0-9]+(/(items|history|notes|attachments|comments|events))?",
+            "lookaround", "(?!.*admin)/[a-z]+/(?!xx)[a-z0-9]{4,12}",
+            "unicode", "\\p{IsGreek}+\\s\\p{L}{2,10}",
+            // the DFA of this one is exponentially larger than the NFA
+            "repetition", "(a|b)*a(a|b){8}");
+}
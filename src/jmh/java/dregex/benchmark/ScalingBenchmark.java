@@ -0,0 +1,104 @@
+package dregex.benchmark;
+
+import dregex.Regex;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Throughput of matching with a regex shared by all the threads, and of compiling concurrently, which shares the
+ * global state of the library (such as the counter of state ids and the Unicode tables). Run by the {@link #main}
+ * method, it is measured with an increasing number of threads, to report how throughput scales with them: ideally,
+ * linearly, up to the number of cores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ScalingBenchmark {
+
+    private Regex regex;
+    private String input;
+    private String compiledPattern;
+
+    @Setup
+    public void setUp() {
+        regex = Regex.compile(Patterns.byName.get("email"));
+        input = "some.user+tag@subdomain.example.com";
+        compiledPattern = Patterns.byName.get("alternation");
+    }
+
+    @Benchmark
+    public boolean matches() {
+        return regex.matches(input);
+    }
+
+    @Benchmark
+    public Regex compile() {
+        return Regex.compile(compiledPattern);
+    }
+
+    /**
+     * Run the benchmarks with 1, 2, 4... threads, up to a maximum, and print the throughput for every number of
+     * threads, with the speedup over one thread and the efficiency (the speedup divided by the threads).
+     *
+     * @param args the maximum number of threads (by default, the number of available processors), and the kind of
+     *     threads: "platform" (the default) or "virtual" (which requires Java 21)
+     */
+    public static void main(String[] args) throws RunnerException {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        var kind = args.length > 1 ? args[1] : "platform";
+        if (!kind.equals("platform") && !kind.equals("virtual")) {
+            throw new IllegalArgumentException("unknown kind of threads: " + kind);
+        }
+        var threadCounts = new ArrayList<Integer>();
+        for (int threads = 1; threads < maxThreads; threads *= 2) {
+            threadCounts.add(threads);
+        }
+        threadCounts.add(maxThreads);
+        // benchmark name -> thread count -> operations per second
+        Map<String, Map<Integer, Double>> scores = new TreeMap<>();
+        for (int threads : threadCounts) {
+            var options = new OptionsBuilder()
+                    .include("^" + Pattern.quote(ScalingBenchmark.class.getName()) + "\\.")
+                    .threads(threads)
+                    .jvmArgsAppend("-Djmh.executor=" + (kind.equals("virtual") ? "VIRTUAL" : "PLATFORM"))
+                    .build();
+            for (var result : new Runner(options).run()) {
+                var benchmark = result.getParams().getBenchmark();
+                var name = benchmark.substring(benchmark.lastIndexOf('.') + 1);
+                scores.computeIfAbsent(name, k -> new TreeMap<>())
+                        .put(threads, result.getPrimaryResult().getScore());
+            }
+        }
+        System.out.printf("%nScaling with %s threads:%n", kind);
+        for (var entry : scores.entrySet()) {
+            System.out.printf("%n%s%n", entry.getKey());
+            System.out.printf("%8s %14s %8s %11s%n", "threads", "ops/s", "speedup", "efficiency");
+            double base = entry.getValue().get(1);
+            for (var score : entry.getValue().entrySet()) {
+                double speedup = score.getValue() / base;
+                System.out.printf(
+                        "%8d %14.1f %8.2f %10.0f%%%n",
+                        score.getKey(), score.getValue(), speedup, speedup / score.getKey() * 100);
+            }
+        }
+    }
+}
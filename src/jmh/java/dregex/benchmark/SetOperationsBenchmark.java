@@ -0,0 +1,63 @@
+package dregex.benchmark;
+
+import dregex.Regex;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Set operations between pairs of regexes compiled together, with different degrees of overlap.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SetOperationsBenchmark {
+
+    private static final Map<String, List<String>> pairs = Map.of(
+            "disjoint", List.of("[a-z]+@example\\.com", "[0-9]+@example\\.com"),
+            "overlapping", List.of(Patterns.byName.get("email"), "[a-z]{3,10}@[a-z]+\\.(com|org)"),
+            "lookaround", List.of(Patterns.byName.get("lookaround"), "/[a-z]+/[a-z]{4,8}"),
+            "repetition", List.of(Patterns.byName.get("repetition"), "(a|b)*b(a|b){7}"));
+
+    @Param({"disjoint", "overlapping", "lookaround", "repetition"})
+    private String pair;
+
+    private Regex left;
+    private Regex right;
+
+    @Setup
+    public void setUp() {
+        var regexes = Regex.compile(pairs.get(pair));
+        left = regexes.get(0);
+        right = regexes.get(1);
+    }
+
+    @Benchmark
+    public Regex intersect() {
+        return left.intersect(right);
+    }
+
+    @Benchmark
+    public Regex diff() {
+        return left.diff(right);
+    }
+
+    @Benchmark
+    public boolean equiv() {
+        return left.equiv(right);
+    }
+}
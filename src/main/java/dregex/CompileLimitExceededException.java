@@ -0,0 +1,108 @@
+package dregex;
+
+import java.time.Duration;
+
+/**
+ * Exception thrown to indicate that the compilation of a regex was stopped because it exceeded one of its limits (see
+ * {@link CompileLimits}), or because the compiling thread was interrupted. It reports how far the compilation got.
+ */
+public class CompileLimitExceededException extends RuntimeException {
+
+    private static final long serialVersionUID = 1;
+
+    /**
+     * The reason why a compilation was stopped.
+     */
+    public enum Limit {
+        /**
+         * An automaton had more states than allowed (see {@link CompileLimits#withMaxDfaStates(int)}).
+         */
+        DfaStates,
+        /**
+         * The NFA had (or was about to have) more states than allowed, which is a fixed multiple of the maximum number
+         * of DFA states (see {@link CompileLimits#withMaxDfaStates(int)}).
+         */
+        NfaStates,
+        /**
+         * The alphabet had more intervals than allowed (see {@link CompileLimits#withMaxAlphabetSize(int)}).
+         */
+        AlphabetSize,
+        /**
+         * The compilation took longer than allowed (see {@link CompileLimits#withTimeout(Duration)}).
+         */
+        Timeout,
+        /**
+         * The compiling thread was interrupted.
+         */
+        Interrupted
+    }
+
+    private final Limit limit;
+    private final String stage;
+    private final long size;
+    private final Duration elapsed;
+
+    /**
+     * Constructs a new instance of this class.
+     *
+     * @param limit the limit that was exceeded
+     * @param stage the stage of the compilation that was running, such as "subset construction"
+     * @param size the size reached by the stage: the number of states of the automaton being built, or the size of the
+     *     alphabet
+     * @param elapsed the time elapsed since the compilation started
+     */
+    public CompileLimitExceededException(Limit limit, String stage, long size, Duration elapsed) {
+        super(String.format(
+                "compilation stopped (%s) in %s, after reaching size %d in %s", describe(limit), stage, size, elapsed));
+        this.limit = limit;
+        this.stage = stage;
+        this.size = size;
+        this.elapsed = elapsed;
+    }
+
+    private static String describe(Limit limit) {
+        switch (limit) {
+            case DfaStates:
+                return "too many DFA states";
+            case NfaStates:
+                return "too many NFA states";
+            case AlphabetSize:
+                return "alphabet too large";
+            case Timeout:
+                return "timeout";
+            case Interrupted:
+                return "interrupted";
+            default:
+                throw new IllegalArgumentException();
+        }
+    }
+
+    /**
+     * @return the limit that was exceeded
+     */
+    public Limit getLimit() {
+        return limit;
+    }
+
+    /**
+     * @return the stage of the compilation that was running, such as "subset construction"
+     */
+    public String getStage() {
+        return stage;
+    }
+
+    /**
+     * @return the size reached by the stage: the number of states of the automaton being built, or the size of the
+     *     alphabet
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * @return the time elapsed since the compilation started
+     */
+    public Duration getElapsed() {
+        return elapsed;
+    }
+}
@@ -0,0 +1,131 @@
+package dregex;
+
+import dregex.impl.CompileBudget;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Limits of the compilation of regexes (see {@link Regex#compile(String, int, CompileLimits)}), for compiling
+ * untrusted expressions. The size of a DFA can be exponential in the length of the expression (as in
+ * {@code (a|b)*a(a|b){25}}), so without limits, a compilation can take very long, or exhaust the heap.
+ * <p>
+ * The algorithms that build automata check the limits periodically, as well as the interrupt status of the thread, so
+ * a compilation with limits is also stopped promptly when its thread is interrupted. In both cases, a
+ * {@link CompileLimitExceededException} is thrown (the interrupt status is not cleared).
+ * <p>
+ * Instances are immutable.
+ */
+public final class CompileLimits {
+
+    private static final CompileLimits none = new CompileLimits(Integer.MAX_VALUE, Integer.MAX_VALUE, null);
+
+    private final int maxDfaStates;
+    private final int maxAlphabetSize;
+    private final Duration timeout;
+
+    private CompileLimits(int maxDfaStates, int maxAlphabetSize, Duration timeout) {
+        this.maxDfaStates = maxDfaStates;
+        this.maxAlphabetSize = maxAlphabetSize;
+        this.timeout = timeout;
+    }
+
+    /**
+     * @return limits that do not limit anything, to be restricted with the other methods of this class
+     */
+    public static CompileLimits none() {
+        return none;
+    }
+
+    /**
+     * Return these limits, with a maximum number of states of any of the automata built by the compilation, which
+     * include the DFAs of the lookarounds and the products used to combine them, as well as the final one. The NFAs
+     * from which the DFAs are built are limited too, to a fixed multiple of this number, as they are built before
+     * their DFA states can be counted.
+     *
+     * @param maxDfaStates the maximum number of states
+     *
+     * @return the new limits
+     */
+    public CompileLimits withMaxDfaStates(int maxDfaStates) {
+        if (maxDfaStates < 1) {
+            throw new IllegalArgumentException("maximum number of states must be positive");
+        }
+        return new CompileLimits(maxDfaStates, maxAlphabetSize, timeout);
+    }
+
+    /**
+     * Return these limits, with a maximum size of the alphabet, that is, the number of disjoint intervals in which the
+     * expressions compiled together partition the code points. Every state of a DFA can have a transition for every
+     * interval.
+     *
+     * @param maxAlphabetSize the maximum number of intervals
+     *
+     * @return the new limits
+     */
+    public CompileLimits withMaxAlphabetSize(int maxAlphabetSize) {
+        if (maxAlphabetSize < 1) {
+            throw new IllegalArgumentException("maximum alphabet size must be positive");
+        }
+        return new CompileLimits(maxDfaStates, maxAlphabetSize, timeout);
+    }
+
+    /**
+     * Return these limits, with a maximum duration of the compilation, counted from its start, which includes parsing.
+     *
+     * @param timeout the maximum duration
+     *
+     * @return the new limits
+     */
+    public CompileLimits withTimeout(Duration timeout) {
+        Objects.requireNonNull(timeout);
+        if (timeout.isNegative()) {
+            throw new IllegalArgumentException("timeout cannot be negative");
+        }
+        return new CompileLimits(maxDfaStates, maxAlphabetSize, timeout);
+    }
+
+    /**
+     * @return the maximum number of states of the automata
+     */
+    public int getMaxDfaStates() {
+        return maxDfaStates;
+    }
+
+    /**
+     * @return the maximum size of the alphabet
+     */
+    public int getMaxAlphabetSize() {
+        return maxAlphabetSize;
+    }
+
+    /**
+     * @return the maximum duration of the compilation, if any
+     */
+    public Optional<Duration> getTimeout() {
+        return Optional.ofNullable(timeout);
+    }
+
+    /**
+     * Start a compilation with these limits, taking the current time as its start.
+     */
+    CompileBudget start() {
+        long timeoutNanos = timeout == null ? Long.MAX_VALUE : saturatedNanos(timeout);
+        return new CompileBudget(maxDfaStates, maxAlphabetSize, timeoutNanos);
+    }
+
+    private static long saturatedNanos(Duration duration) {
+        try {
+            return duration.toNanos();
+        } catch (ArithmeticException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "CompileLimits(max DFA states: %s, max alphabet size: %s, timeout: %s)",
+                maxDfaStates, maxAlphabetSize, timeout);
+    }
+}
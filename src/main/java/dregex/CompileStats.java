@@ -0,0 +1,261 @@
+package dregex;
+
+import dregex.impl.CompileRecorder;
+import dregex.impl.CompileRecorder.Phase;
+import dregex.impl.Universe;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Statistics of the compilation of a regex (see {@link Regex#getCompileStats()}), or the total of several ones (see
+ * {@link #total(List)}).
+ * <p>
+ * The compilation has the following phases:
+ * <ol>
+ * <li>Parsing of the expression.
+ * <li>Alphabet partitioning: the calculation of the non-overlapping code point intervals of all the regexes that are
+ * compiled together. It is done once for the whole set, so the time reported for every regex of the set is the
+ * same, shared time.
+ * <li>NFA construction from the parsed tree.
+ * <li>Subset construction of the DFA from the NFA.
+ * <li>Rewrite of the states of the DFA.
+ * <li>Operations: the product constructions used to compile lookarounds, including the removal of dead states.
+ * </ol>
+ * Lookarounds are compiled recursively, with all the phases except parsing, so their times are included in the ones
+ * of the phases; the time of the operations only includes the product constructions themselves. DFAs are not
+ * minimized by the compilation, so there is no minimization phase.
+ */
+public final class CompileStats {
+
+    private final int regexCount;
+    private final long[] phaseNanos;
+    private final long nfaStateCount;
+    private final long nfaTransitionCount;
+    private final long alphabetSize;
+    private final long dfaStateCount;
+    private final long dfaTransitionCount;
+    private final long estimatedRetainedBytes;
+
+    private CompileStats(
+            int regexCount,
+            long[] phaseNanos,
+            long nfaStateCount,
+            long nfaTransitionCount,
+            long alphabetSize,
+            long dfaStateCount,
+            long dfaTransitionCount,
+            long estimatedRetainedBytes) {
+        this.regexCount = regexCount;
+        this.phaseNanos = phaseNanos;
+        this.nfaStateCount = nfaStateCount;
+        this.nfaTransitionCount = nfaTransitionCount;
+        this.alphabetSize = alphabetSize;
+        this.dfaStateCount = dfaStateCount;
+        this.dfaTransitionCount = dfaTransitionCount;
+        this.estimatedRetainedBytes = estimatedRetainedBytes;
+    }
+
+    CompileStats(CompileRecorder recorder) {
+        this(
+                1,
+                phaseNanos(recorder),
+                recorder.getNfaStateCount(),
+                recorder.getNfaTransitionCount(),
+                recorder.getAlphabetSize(),
+                recorder.getDfaStateCount(),
+                recorder.getDfaTransitionCount(),
+                recorder.getEstimatedRetainedBytes());
+    }
+
+    private static long[] phaseNanos(CompileRecorder recorder) {
+        var ret = new long[Phase.values().length];
+        for (var phase : Phase.values()) {
+            ret[phase.ordinal()] = recorder.getNanos(phase);
+        }
+        return ret;
+    }
+
+    /**
+     * Return the total statistics of a set of regexes, for example, the ones compiled together with
+     * {@link Regex#compile(List)}. Times and sizes are added, except for the alphabet partitioning, whose time and
+     * size are only counted once for the regexes that were compiled together. Regexes without statistics are ignored.
+     *
+     * @param regexes the regexes
+     *
+     * @return the total statistics
+     */
+    public static CompileStats total(List<Regex> regexes) {
+        Set<Universe> universes = Collections.newSetFromMap(new IdentityHashMap<>());
+        int regexCount = 0;
+        var phaseNanos = new long[Phase.values().length];
+        long nfaStateCount = 0;
+        long nfaTransitionCount = 0;
+        long alphabetSize = 0;
+        long dfaStateCount = 0;
+        long dfaTransitionCount = 0;
+        long estimatedRetainedBytes = 0;
+        for (var regex : regexes) {
+            var recorder = regex.getImpl().compileRecorder();
+            if (recorder.isEmpty()) {
+                continue;
+            }
+            var rec = recorder.get();
+            regexCount++;
+            for (var phase : Phase.values()) {
+                if (phase != Phase.Alphabet) {
+                    phaseNanos[phase.ordinal()] += rec.getNanos(phase);
+                }
+            }
+            if (universes.add(regex.getImpl().getUniverse())) {
+                phaseNanos[Phase.Alphabet.ordinal()] += rec.getNanos(Phase.Alphabet);
+                alphabetSize += rec.getAlphabetSize();
+            }
+            nfaStateCount += rec.getNfaStateCount();
+            nfaTransitionCount += rec.getNfaTransitionCount();
+            dfaStateCount += rec.getDfaStateCount();
+            dfaTransitionCount += rec.getDfaTransitionCount();
+            estimatedRetainedBytes += rec.getEstimatedRetainedBytes();
+        }
+        return new CompileStats(
+                regexCount,
+                phaseNanos,
+                nfaStateCount,
+                nfaTransitionCount,
+                alphabetSize,
+                dfaStateCount,
+                dfaTransitionCount,
+                estimatedRetainedBytes);
+    }
+
+    private Duration time(Phase phase) {
+        return Duration.ofNanos(phaseNanos[phase.ordinal()]);
+    }
+
+    /**
+     * @return the number of regexes these statistics are about
+     */
+    public int getRegexCount() {
+        return regexCount;
+    }
+
+    /**
+     * @return the time spent parsing
+     */
+    public Duration getParseTime() {
+        return time(Phase.Parse);
+    }
+
+    /**
+     * @return the time spent in the alphabet partitioning, shared by all the regexes compiled together
+     */
+    public Duration getAlphabetTime() {
+        return time(Phase.Alphabet);
+    }
+
+    /**
+     * @return the time spent building NFAs
+     */
+    public Duration getNfaTime() {
+        return time(Phase.Nfa);
+    }
+
+    /**
+     * @return the time spent in the subset construction of DFAs
+     */
+    public Duration getSubsetConstructionTime() {
+        return time(Phase.SubsetConstruction);
+    }
+
+    /**
+     * @return the time spent rewriting the states of DFAs
+     */
+    public Duration getRewriteTime() {
+        return time(Phase.Rewrite);
+    }
+
+    /**
+     * @return the time spent in the product constructions of lookarounds
+     */
+    public Duration getOperationTime() {
+        return time(Phase.Operations);
+    }
+
+    /**
+     * @return the time spent in all the phases
+     */
+    public Duration getTotalTime() {
+        long total = 0;
+        for (long nanos : phaseNanos) {
+            total += nanos;
+        }
+        return Duration.ofNanos(total);
+    }
+
+    /**
+     * @return the number of states of all the NFAs built, including the ones of lookarounds
+     */
+    public long getNfaStateCount() {
+        return nfaStateCount;
+    }
+
+    /**
+     * @return the number of transitions of all the NFAs built, including the ones of lookarounds
+     */
+    public long getNfaTransitionCount() {
+        return nfaTransitionCount;
+    }
+
+    /**
+     * @return the number of intervals of the alphabet, shared by all the regexes compiled together
+     */
+    public long getAlphabetSize() {
+        return alphabetSize;
+    }
+
+    /**
+     * @return the number of states of the resulting DFA
+     */
+    public long getDfaStateCount() {
+        return dfaStateCount;
+    }
+
+    /**
+     * @return the number of transitions of the resulting DFA
+     */
+    public long getDfaTransitionCount() {
+        return dfaTransitionCount;
+    }
+
+    /**
+     * @return a rough estimate of the heap used by the compiled regex (its DFA and match table), in bytes. The match
+     *     table is built the first time the regex is used for matching, and only counted after that
+     */
+    public long getEstimatedRetainedBytes() {
+        return estimatedRetainedBytes;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "CompileStats(regexes: %s, total time: %s, parse: %s, alphabet: %s, NFA: %s, subset construction: %s, "
+                        + "rewrite: %s, operations: %s, NFA states: %s, NFA transitions: %s, alphabet size: %s, "
+                        + "DFA states: %s, DFA transitions: %s, estimated bytes: %s)",
+                regexCount,
+                getTotalTime(),
+                getParseTime(),
+                getAlphabetTime(),
+                getNfaTime(),
+                getSubsetConstructionTime(),
+                getRewriteTime(),
+                getOperationTime(),
+                nfaStateCount,
+                nfaTransitionCount,
+                alphabetSize,
+                dfaStateCount,
+                dfaTransitionCount,
+                estimatedRetainedBytes);
+    }
+}
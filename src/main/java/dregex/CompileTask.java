@@ -0,0 +1,61 @@
+package dregex;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * A compilation that runs in an executor, as the future of its result. Unlike other completable futures, cancelling
+ * it with {@code mayInterruptIfRunning} interrupts the thread that is running the compilation, if any, which stops it
+ * promptly, as compilations with limits are interruptible (see {@link CompileLimits}). Otherwise, as required by
+ * {@link java.util.concurrent.Future#cancel(boolean)}, a running compilation is left to finish, and its result is
+ * discarded.
+ */
+final class CompileTask<T> extends CompletableFuture<T> implements Runnable {
+
+    private final Supplier<T> compilation;
+
+    /**
+     * The thread running the compilation, guarded by this object's monitor.
+     */
+    private Thread runner;
+
+    CompileTask(Supplier<T> compilation) {
+        this.compilation = compilation;
+    }
+
+    @Override
+    public void run() {
+        synchronized (this) {
+            if (isDone()) {
+                return;
+            }
+            runner = Thread.currentThread();
+        }
+        try {
+            complete(compilation.get());
+        } catch (Throwable e) {
+            completeExceptionally(e);
+        } finally {
+            synchronized (this) {
+                runner = null;
+            }
+            if (isCancelled()) {
+                // do not leak the interruption to the next task of the thread
+                Thread.interrupted();
+            }
+        }
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        boolean cancelled = super.cancel(mayInterruptIfRunning);
+        if (cancelled && mayInterruptIfRunning) {
+            synchronized (this) {
+                if (runner != null) {
+                    runner.interrupt();
+                }
+            }
+        }
+        return cancelled;
+    }
+}
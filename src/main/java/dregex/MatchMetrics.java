@@ -0,0 +1,114 @@
+package dregex;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of the match operations of one or more regexes (see {@link Regex#withMetrics(MatchMetrics)}): the number
+ * of matches, accepted and rejected, the number of code points consumed, and the distribution of the positions at
+ * which inputs were rejected.
+ * <p>
+ * Counters are {@link LongAdder}s, so recording does not contend when many threads match concurrently. Reading is not
+ * atomic: values read while matches are being recorded may reflect some updates and not others.
+ */
+public final class MatchMetrics {
+
+    /**
+     * Bucket 0 holds position 0, and bucket i &gt; 0 holds the positions in [2<sup>i-1</sup>, 2<sup>i</sup>).
+     */
+    private static final int bucketCount = Integer.SIZE;
+
+    private final LongAdder acceptedCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+    private final LongAdder consumedCodePoints = new LongAdder();
+    private final LongAdder[] rejectionPositions = new LongAdder[bucketCount];
+
+    /**
+     * Constructs a new instance of this class, with all the counters at zero.
+     */
+    public MatchMetrics() {
+        for (int i = 0; i < bucketCount; i++) {
+            rejectionPositions[i] = new LongAdder();
+        }
+    }
+
+    void record(MatchResult result) {
+        int position = result.getPosition();
+        consumedCodePoints.add(position);
+        if (result.matches()) {
+            acceptedCount.increment();
+        } else {
+            rejectedCount.increment();
+            rejectionPositions[bucketOf(position)].increment();
+        }
+    }
+
+    /**
+     * Return the bucket of the rejection position histogram that holds a position (see
+     * {@link #getRejectionPositionHistogram()}).
+     *
+     * @param position a position in the input, in code points
+     *
+     * @return the index of the bucket
+     */
+    public static int bucketOf(int position) {
+        return Integer.SIZE - Integer.numberOfLeadingZeros(position);
+    }
+
+    /**
+     * @return the number of matches recorded
+     */
+    public long getMatchCount() {
+        return acceptedCount.sum() + rejectedCount.sum();
+    }
+
+    /**
+     * @return the number of matches whose input was accepted
+     */
+    public long getAcceptedCount() {
+        return acceptedCount.sum();
+    }
+
+    /**
+     * @return the number of matches whose input was rejected
+     */
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    /**
+     * Return the number of code points consumed by all the matches, that is, the sum of their positions (see
+     * {@link MatchResult#getPosition()}). For regexes compiled with canonical equivalence, positions refer to the
+     * normalized inputs.
+     *
+     * @return the number of code points consumed
+     */
+    public long getConsumedCodePoints() {
+        return consumedCodePoints.sum();
+    }
+
+    /**
+     * Return the histogram of the positions at which inputs were rejected, in buckets of exponentially growing size:
+     * bucket 0 counts rejections at position 0 (the first code point), and bucket i &gt; 0 counts rejections at
+     * positions from 2<sup>i-1</sup> to 2<sup>i</sup> - 1. Rejections at the end of the input, which was consumed in
+     * full but not accepted, are counted at the position of the end.
+     *
+     * @return the counts of the buckets, indexed as returned by {@link #bucketOf(int)}
+     */
+    public long[] getRejectionPositionHistogram() {
+        var ret = new long[bucketCount];
+        for (int i = 0; i < bucketCount; i++) {
+            ret[i] = rejectionPositions[i].sum();
+        }
+        return ret;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "MatchMetrics(matches: %s, accepted: %s, rejected: %s, consumed code points: %s)",
+                getMatchCount(),
+                getAcceptedCount(),
+                getRejectedCount(),
+                getConsumedCodePoints());
+    }
+}
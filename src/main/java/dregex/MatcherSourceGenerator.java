@@ -0,0 +1,148 @@
+package dregex;
+
+import dregex.impl.JavaSourceGenerator;
+import dregex.impl.RegexImpl;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * A build-time generator of Java source code for matchers of fixed regexes. The generated class has a static method
+ * for every regex, that returns whether an input is matched by it, with the same result as
+ * {@link Regex#matches(CharSequence)}. The class contains the already compiled DFAs, and does not depend on this
+ * library, so no regex is parsed or compiled when it is used.
+ * <p>
+ * The generator can be run from the build with the {@link #main(String[])} method, for instance, in Gradle, with a
+ * {@code JavaExec} task that has this library in its class path, and whose output directory is added to the sources
+ * of the project (see the README).
+ */
+public final class MatcherSourceGenerator {
+
+    /**
+     * The flags that can be set in a definition, by the names of their constants in {@link Pattern}.
+     */
+    private static final Map<String, Integer> flagsByName = Map.of(
+            "LITERAL", Pattern.LITERAL,
+            "COMMENTS", Pattern.COMMENTS,
+            "DOTALL", Pattern.DOTALL,
+            "UNIX_LINES", Pattern.UNIX_LINES,
+            "UNICODE_CHARACTER_CLASS", Pattern.UNICODE_CHARACTER_CLASS,
+            "CASE_INSENSITIVE", Pattern.CASE_INSENSITIVE,
+            "UNICODE_CASE", Pattern.UNICODE_CASE,
+            "CANON_EQ", Pattern.CANON_EQ);
+
+    private MatcherSourceGenerator() {}
+
+    /**
+     * Generate the source of a class with a matching method for every regex.
+     *
+     * @param className fully qualified name of the class
+     *
+     * @param regexes the regexes to generate methods for, with the names of the methods, in the order of the methods
+     *
+     * @return the Java source of the class
+     *
+     * @throws IllegalArgumentException if the class name or a method name is not a valid Java identifier, or if the
+     *     DFA of a regex is too large for its table to be compiled
+     */
+    public static String generate(String className, Map<String, Regex> regexes) {
+        var impls = new LinkedHashMap<String, RegexImpl>();
+        for (var entry : regexes.entrySet()) {
+            impls.put(entry.getKey(), entry.getValue().getImpl());
+        }
+        return JavaSourceGenerator.generate(className, impls);
+    }
+
+    /**
+     * Read and compile the regexes of a definition file. Every line that is not blank or a comment (starting with
+     * {@code #}) has the form {@code name=regex}, where the name (without surrounding spaces) is the name of the
+     * method, and the regex is the rest of the line, without leading spaces (a regex that starts with a space can use
+     * {@code [ ]}). Flags can be set in the regexes as embedded flags, such as {@code (?i)}, or, including the ones
+     * that have no embedded form, as a comma-separated list of the names of their constants in {@link Pattern}, in
+     * brackets after the name, as in {@code name[CANON_EQ, CASE_INSENSITIVE]=regex}.
+     *
+     * @param reader the definitions
+     *
+     * @return the compiled regexes, with their names, in the order of the definitions
+     *
+     * @throws IOException if the definitions cannot be read
+     * @throws IllegalArgumentException if a line is malformed, a name is repeated, a flag is unknown, or a regex is
+     *     invalid
+     */
+    public static Map<String, Regex> readDefinitions(Reader reader) throws IOException {
+        var ret = new LinkedHashMap<String, Regex>();
+        var lines = new BufferedReader(reader);
+        int lineNumber = 0;
+        String line;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank() || line.strip().startsWith("#")) {
+                continue;
+            }
+            int equals = line.indexOf('=');
+            if (equals == -1) {
+                throw new IllegalArgumentException(
+                        String.format("line %d: expected a definition of the form name=regex", lineNumber));
+            }
+            var name = line.substring(0, equals).strip();
+            int flags = 0;
+            int bracket = name.indexOf('[');
+            if (bracket != -1) {
+                if (!name.endsWith("]")) {
+                    throw new IllegalArgumentException(
+                            String.format("line %d: expected a definition of the form name[flags]=regex", lineNumber));
+                }
+                for (var flag : name.substring(bracket + 1, name.length() - 1).split(",", -1)) {
+                    var value = flagsByName.get(flag.strip());
+                    if (value == null) {
+                        throw new IllegalArgumentException(
+                                String.format("line %d: unknown flag: \"%s\"", lineNumber, flag.strip()));
+                    }
+                    flags |= value;
+                }
+                name = name.substring(0, bracket).strip();
+            }
+            if (ret.containsKey(name)) {
+                throw new IllegalArgumentException(String.format("line %d: repeated name: %s", lineNumber, name));
+            }
+            try {
+                ret.put(name, Regex.compile(line.substring(equals + 1).stripLeading(), flags));
+            } catch (InvalidRegexException e) {
+                throw new IllegalArgumentException(String.format("line %d: %s", lineNumber, e.getMessage()), e);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Generate a matcher class from a definition file (see {@link #readDefinitions(Reader)}), writing it in the
+     * directory of its package, under an output directory.
+     *
+     * @param args the fully qualified name of the class, the definition file and the output directory
+     *
+     * @throws IOException if the definitions cannot be read or the source cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            throw new IllegalArgumentException(
+                    "usage: MatcherSourceGenerator <class name> <definition file> <output directory>");
+        }
+        var className = args[0];
+        Map<String, Regex> regexes;
+        try (var reader = Files.newBufferedReader(Path.of(args[1]), StandardCharsets.UTF_8)) {
+            regexes = readDefinitions(reader);
+        }
+        var source = generate(className, regexes);
+        var file = Path.of(args[2]).resolve(className.replace('.', '/') + ".java");
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        Files.writeString(file, source, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,29 @@
+package dregex;
+
+import dregex.impl.RegexImpl;
+
+/**
+ * A regex that records its matches in {@link MatchMetrics}. Recording is in this subclass, not behind a condition in
+ * {@link Regex}, so regexes without metrics do not pay anything for it.
+ */
+final class MeteredRegex extends Regex {
+
+    private final MatchMetrics metrics;
+
+    MeteredRegex(RegexImpl regexImpl, MatchMetrics metrics) {
+        super(regexImpl);
+        this.metrics = metrics;
+    }
+
+    @Override
+    public boolean matches(CharSequence input) {
+        return matchAndReport(input).matches();
+    }
+
+    @Override
+    public MatchResult matchAndReport(CharSequence input) {
+        var result = super.matchAndReport(input);
+        metrics.record(result);
+        return result;
+    }
+}
@@ -1,7 +1,21 @@
 package dregex;
 
 import dregex.impl.*;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Predicate;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -29,6 +43,10 @@ public class Regex {
         this.regexImpl = regexImpl;
     }
 
+    RegexImpl getImpl() {
+        return regexImpl;
+    }
+
     /**
      * Return whether the input string is matched by the regular expression (i.e. whether the string is included in the
      * language generated by the expression). As the match is done using a DFA, its complexity is O(n), where n is the
@@ -39,7 +57,7 @@ public class Regex {
      * @return whether the input matches the regex
      */
     public boolean matches(CharSequence input) {
-        return matchAndReport(input).matches();
+        return regexImpl.matches(input);
     }
 
     /**
@@ -58,6 +76,52 @@ public class Regex {
         return regexImpl.matchAndReport(input);
     }
 
+    /**
+     * Return a regex that is the same as this one, and compatible with it, but that records all its matches (made with
+     * {@link #matches(CharSequence)} or {@link #matchAndReport(CharSequence)}) in the given metrics. This regex is
+     * left untouched, and regexes without metrics do not have any recording overhead. Metrics can be shared by several
+     * regexes, to record them together. The results of operations with the returned regex do not record their
+     * matches.
+     *
+     * @param metrics the metrics to record the matches in, replacing the ones of this regex, if any
+     *
+     * @return a regex that records its matches
+     */
+    public Regex withMetrics(MatchMetrics metrics) {
+        return new MeteredRegex(regexImpl, metrics);
+    }
+
+    /**
+     * Return statistics of the compilation of this regex, with the time spent in each phase and the sizes of the
+     * automata. They are only available for regexes compiled from expressions, not for the results of operations or
+     * deserialized ones. Regexes added to a set with {@link #extend(List, List, int)} keep the statistics of their
+     * original compilation.
+     *
+     * @return the compilation statistics, if this regex was compiled from an expression
+     */
+    public Optional<CompileStats> getCompileStats() {
+        return regexImpl.compileRecorder().map(CompileStats::new);
+    }
+
+    /**
+     * Generate and load a JVM class that matches this regex, with the states of the DFA translated to code, instead of
+     * being interpreted from a table. After the JIT compiler optimizes it, matching is typically faster than with
+     * {@link #matches(CharSequence)}, with the same result. The exception are large DFAs whose paths jump between
+     * distant states, such as the ones of {@code (a|b)*a(a|b){8}}, for which the table can be faster.
+     * <p>
+     * Each call generates and compiles a new class, so this is meant for a few fixed regexes that are matched very
+     * often. The class is unloaded after the returned predicate is no longer referenced. The code is split in methods
+     * small enough for the JIT compiler, but generated classes are still limited in size, so this is only possible for
+     * DFAs of up to some tens of thousands of states, or with states of up to a few hundred distinct transitions.
+     *
+     * @return a predicate that tests whether an input string is matched by this regex
+     *
+     * @throws UnsupportedOperationException if the DFA is too large for the generated code
+     */
+    public Predicate<CharSequence> toNativeMatcher() {
+        return regexImpl.toNativeMatcher();
+    }
+
     /**
      * Intersect this regular expression with another. The resulting expression will match the strings that are
      * matched by the operands, and only those. Intersections take O(n⋅m) time, where n and m are the number of states of
@@ -177,10 +241,78 @@ public class Regex {
      * @return the compiled regex
      */
     public static Regex compile(String regex, int flags) {
+        return compile(regex, flags, CompileBudget.unlimited);
+    }
+
+    /**
+     * Compile a regex from a string, with the given flags, within some limits. This is meant for untrusted
+     * expressions, whose compilation could otherwise take very long or exhaust the heap.
+     *
+     * @param regex the expression to be compiled
+     *
+     * @param flags match flags, a bit mask that accepts flags from {@link Pattern}
+     *
+     * @param limits the limits of the compilation
+     *
+     * @return the compiled regex
+     *
+     * @throws CompileLimitExceededException if a limit is exceeded, or the thread is interrupted
+     */
+    public static Regex compile(String regex, int flags, CompileLimits limits) {
+        return compile(regex, flags, limits.start());
+    }
+
+    private static Regex compile(String regex, int flags, CompileBudget budget) {
         var parsedFlags = flagsFromBits(flags);
+        var recorder = new CompileRecorder(regex, flags);
+        recorder.start(CompileRecorder.Phase.Parse);
         var parsedRegex = RegexParser.parse(regex, parsedFlags);
+        recorder.end();
+        recorder.start(CompileRecorder.Phase.Alphabet);
         var universe = new Universe(List.of(parsedRegex.getTree()), parsedFlags.canonicalEq);
-        return new Regex(new CompiledRegex(regex, parsedRegex.getTree(), universe));
+        recorder.end();
+        recorder.recordAlphabetSize(universe.alphabetSize());
+        budget.checkAlphabetSize(universe.alphabetSize());
+        return new Regex(new CompiledRegex(regex, parsedRegex.getTree(), universe, recorder, budget));
+    }
+
+    /**
+     * Parse regexes, recording the time of each one in a new recorder.
+     */
+    static List<ParsedRegex> parse(List<String> regexes, int flags, List<CompileRecorder> recorders) {
+        var parsedFlags = flagsFromBits(flags);
+        var ret = new ArrayList<ParsedRegex>(regexes.size());
+        for (var regex : regexes) {
+            var recorder = new CompileRecorder(regex, flags);
+            recorder.start(CompileRecorder.Phase.Parse);
+            ret.add(RegexParser.parse(regex, parsedFlags));
+            recorder.end();
+            recorders.add(recorder);
+        }
+        return ret;
+    }
+
+    /**
+     * Compile parsed regexes in a universe that was built for them, in the given time, which is recorded for all of
+     * them.
+     */
+    static List<Regex> compileParsed(
+            List<ParsedRegex> parsedRegexes,
+            List<CompileRecorder> recorders,
+            Universe universe,
+            long universeNanos,
+            CompileBudget budget) {
+        int alphabetSize = universe.alphabetSize();
+        budget.checkAlphabetSize(alphabetSize);
+        var ret = new ArrayList<Regex>(parsedRegexes.size());
+        for (int i = 0; i < parsedRegexes.size(); i++) {
+            var pr = parsedRegexes.get(i);
+            var recorder = recorders.get(i);
+            recorder.addTime(CompileRecorder.Phase.Alphabet, universeNanos);
+            recorder.recordAlphabetSize(alphabetSize);
+            ret.add(new Regex(new CompiledRegex(pr.getLiteral(), pr.getTree(), universe, recorder, budget)));
+        }
+        return ret;
     }
 
     private static DotMatch dotMatcherFromFlags(int flags) {
@@ -217,15 +349,36 @@ public class Regex {
      * @return the compiled regexes
      */
     public static List<Regex> compile(List<String> regexes, int flags) {
+        return compile(regexes, flags, CompileBudget.unlimited);
+    }
+
+    /**
+     * Compiles a set of regular expressions, with the given flags, within some limits, which apply to the whole set.
+     * The resulted regexes will be able to participate in operations. See {@link #compile(String, int, CompileLimits)}.
+     *
+     * @param regexes the expressions to be compiled
+     *
+     * @param flags match flags, a bit mask that accepts flags from {@link Pattern}
+     *
+     * @param limits the limits of the compilation
+     *
+     * @return the compiled regexes
+     *
+     * @throws CompileLimitExceededException if a limit is exceeded, or the thread is interrupted
+     */
+    public static List<Regex> compile(List<String> regexes, int flags, CompileLimits limits) {
+        return compile(regexes, flags, limits.start());
+    }
+
+    private static List<Regex> compile(List<String> regexes, int flags, CompileBudget budget) {
         var parsedFlags = flagsFromBits(flags);
-        var parsedRegexes =
-                regexes.stream().map(r -> RegexParser.parse(r, parsedFlags)).collect(Collectors.toList());
+        var recorders = new ArrayList<CompileRecorder>(regexes.size());
+        var parsedRegexes = parse(regexes, flags, recorders);
+        var universeStart = System.nanoTime();
         var universe = new Universe(
                 parsedRegexes.stream().map(pr -> pr.getTree()).collect(Collectors.toList()),
                 parsedFlags.canonicalEq);
-        return parsedRegexes.stream()
-                .map(pr -> new Regex(new CompiledRegex(pr.getLiteral(), pr.getTree(), universe)))
-                .collect(Collectors.toList());
+        return compileParsed(parsedRegexes, recorders, universe, System.nanoTime() - universeStart, budget);
     }
 
     /**
@@ -239,4 +392,410 @@ public class Regex {
     public static List<Regex> compile(List<String> regexes) {
         return compile(regexes, 0);
     }
+
+    /**
+     * Prepare a set of regular expressions, with the given flags, to be compiled lazily, each one the first time it is
+     * used. The expressions are parsed, and their alphabet is calculated, so invalid expressions are reported
+     * immediately, and the resulting regexes can participate in operations with each other; but the DFA of every regex
+     * is only built when it is first needed, for matching or for an operation. This is useful for large sets of regexes
+     * of which only a few are ever used, as the time and the memory of the compilation are then proportional to the
+     * regexes that are actually used.
+     * <p>
+     * Every regex is compiled only once: threads that use it while it is being compiled wait for the compilation.
+     * Compile statistics are available once a regex is compiled (see {@link #getCompileStats()}).
+     *
+     * @param regexes the expressions to be compiled
+     *
+     * @param flags match flags, a bit mask that accepts flags from {@link Pattern}
+     *
+     * @return the regexes, to be compiled on first use
+     */
+    public static List<Regex> compileLazily(List<String> regexes, int flags) {
+        var parsedFlags = flagsFromBits(flags);
+        var recorders = new ArrayList<CompileRecorder>(regexes.size());
+        var parsedRegexes = parse(regexes, flags, recorders);
+        var universeStart = System.nanoTime();
+        var universe = new Universe(
+                parsedRegexes.stream().map(pr -> pr.getTree()).collect(Collectors.toList()),
+                parsedFlags.canonicalEq);
+        long universeNanos = System.nanoTime() - universeStart;
+        int alphabetSize = universe.alphabetSize();
+        var ret = new ArrayList<Regex>(parsedRegexes.size());
+        for (int i = 0; i < parsedRegexes.size(); i++) {
+            var pr = parsedRegexes.get(i);
+            var recorder = recorders.get(i);
+            recorder.addTime(CompileRecorder.Phase.Alphabet, universeNanos);
+            recorder.recordAlphabetSize(alphabetSize);
+            ret.add(new Regex(new LazyRegex(pr.getLiteral(), pr.getTree(), universe, recorder)));
+        }
+        return ret;
+    }
+
+    /**
+     * Prepare a set of regular expressions to be compiled lazily, each one the first time it is used. See
+     * {@link #compileLazily(List, int)}.
+     *
+     * @param regexes the expressions to be compiled
+     *
+     * @return the regexes, to be compiled on first use
+     */
+    public static List<Regex> compileLazily(List<String> regexes) {
+        return compileLazily(regexes, 0);
+    }
+
+    /**
+     * Compile a regex asynchronously, in the given executor, within some limits. Cancelling the returned future with
+     * {@code mayInterruptIfRunning} interrupts the compilation, stopping it promptly; without it, a compilation that is
+     * already running is left to finish. See {@link #compile(String, int, CompileLimits)}.
+     * <p>
+     * The regex is only published when it is completely compiled, not progressively. To validate the expression first,
+     * use {@link #compileLazily(List, int)}, which parses it synchronously, and compiles it the first time it is used.
+     *
+     * @param regex the expression to be compiled
+     *
+     * @param flags match flags, a bit mask that accepts flags from {@link Pattern}
+     *
+     * @param limits the limits of the compilation; use {@link CompileLimits#none()} for none
+     *
+     * @param executor the executor to compile in
+     *
+     * @return the future of the compiled regex, which fails with {@link InvalidRegexException} if the expression is
+     *     not valid, or with {@link CompileLimitExceededException} if a limit is exceeded
+     */
+    public static CompletableFuture<Regex> compileAsync(
+            String regex, int flags, CompileLimits limits, Executor executor) {
+        var task = new CompileTask<>(() -> compile(regex, flags, limits));
+        executor.execute(task);
+        return task;
+    }
+
+    /**
+     * Compile a regex asynchronously, without limits, in a new virtual thread, if the runtime supports them, or
+     * otherwise in the common fork-join pool. See {@link #compileAsync(String, int, CompileLimits, Executor)}.
+     *
+     * @param regex the expression to be compiled
+     *
+     * @param flags match flags, a bit mask that accepts flags from {@link Pattern}
+     *
+     * @return the future of the compiled regex
+     */
+    public static CompletableFuture<Regex> compileAsync(String regex, int flags) {
+        return compileAsync(regex, flags, CompileLimits.none(), defaultAsyncExecutor);
+    }
+
+    /**
+     * Compile a set of regexes asynchronously, in the given executor, within some limits, which apply to the whole
+     * set. Cancelling the returned future with {@code mayInterruptIfRunning} interrupts the compilation, stopping it
+     * promptly; without it, a compilation that is already running is left to finish. As with
+     * {@link #compileAsync(String, int, CompileLimits, Executor)}, the regexes are only published when they are
+     * completely compiled. See {@link #compile(List, int, CompileLimits)}.
+     *
+     * @param regexes the expressions to be compiled
+     *
+     * @param flags match flags, a bit mask that accepts flags from {@link Pattern}
+     *
+     * @param limits the limits of the compilation; use {@link CompileLimits#none()} for none
+     *
+     * @param executor the executor to compile in
+     *
+     * @return the future of the compiled regexes, which fails with {@link InvalidRegexException} if an expression is
+     *     not valid, or with {@link CompileLimitExceededException} if a limit is exceeded
+     */
+    public static CompletableFuture<List<Regex>> compileAsync(
+            List<String> regexes, int flags, CompileLimits limits, Executor executor) {
+        var task = new CompileTask<>(() -> compile(regexes, flags, limits));
+        executor.execute(task);
+        return task;
+    }
+
+    /**
+     * Compile a set of regexes asynchronously, without limits, in a new virtual thread, if the runtime supports them,
+     * or otherwise in the common fork-join pool. See {@link #compileAsync(List, int, CompileLimits, Executor)}.
+     *
+     * @param regexes the expressions to be compiled
+     *
+     * @param flags match flags, a bit mask that accepts flags from {@link Pattern}
+     *
+     * @return the future of the compiled regexes
+     */
+    public static CompletableFuture<List<Regex>> compileAsync(List<String> regexes, int flags) {
+        return compileAsync(regexes, flags, CompileLimits.none(), defaultAsyncExecutor);
+    }
+
+    private static final Executor defaultAsyncExecutor = virtualThreadExecutor().orElse(ForkJoinPool.commonPool());
+
+    /**
+     * Return an executor that runs every task in a new virtual thread, if the runtime supports them (Java 21 and
+     * later). Virtual threads are created reflectively, as this library is compiled for Java 11.
+     */
+    private static Optional<Executor> virtualThreadExecutor() {
+        try {
+            var builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            var factory = (ThreadFactory)
+                    Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+            return Optional.of(command -> factory.newThread(command).start());
+        } catch (ReflectiveOperationException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Analyze a regex without compiling it, estimating the size of its DFA and reporting the subexpressions that make
+     * it grow more than linearly. The analysis only parses the expression, and takes time linear in its length, so it
+     * can be used to reject or reroute expressions that would be expensive to compile. See {@link RegexAnalysis}.
+     *
+     * @param regex the expression to be analyzed
+     *
+     * @param flags match flags, a bit mask that accepts flags from {@link Pattern}
+     *
+     * @return the analysis
+     *
+     * @throws InvalidRegexException if the expression is not valid
+     */
+    public static RegexAnalysis analyze(String regex, int flags) {
+        var parsedRegex = RegexParser.parse(regex, flagsFromBits(flags));
+        return new RegexAnalysis(new TreeAnalyzer(parsedRegex.getTree()));
+    }
+
+    /**
+     * Analyze a regex without compiling it. See {@link #analyze(String, int)}.
+     *
+     * @param regex the expression to be analyzed
+     *
+     * @return the analysis
+     *
+     * @throws InvalidRegexException if the expression is not valid
+     */
+    public static RegexAnalysis analyze(String regex) {
+        return analyze(regex, 0);
+    }
+
+    /**
+     * Compiles a set of regular expressions, with the given flags, making them compatible with a set of already
+     * compiled ones, which are not compiled again. This is useful for adding expressions to a large set, which
+     * otherwise would need to be compiled again in full.
+     * <p>
+     * The existing regexes must be compatible among them. They are translated to the extended alphabet, which takes
+     * time linear in the size of their DFAs, and returned, followed by the new ones; all the returned regexes are
+     * compatible among them. The original instances are left untouched, and remain compatible only with each other.
+     *
+     * @param existing the already compiled regexes
+     *
+     * @param regexes the expressions to be compiled
+     *
+     * @param flags match flags, a bit mask that accepts flags from {@link Pattern}. Canonical equivalence must be
+     *              the same that was used to compile the existing regexes.
+     *
+     * @return the existing regexes, followed by the new ones
+     *
+     * @throws IncompatibleRegexException if the existing regexes are not compatible among them
+     */
+    public static List<Regex> extend(List<Regex> existing, List<String> regexes, int flags) {
+        if (existing.isEmpty()) {
+            return compile(regexes, flags);
+        }
+        var baseUniverse = existing.get(0).regexImpl.getUniverse();
+        for (var regex : existing) {
+            if (regex.regexImpl.getUniverse() != baseUniverse) {
+                throw new IncompatibleRegexException();
+            }
+        }
+        var parsedFlags = flagsFromBits(flags);
+        if (parsedFlags.canonicalEq != baseUniverse.hasCanonicalEquivalence()) {
+            throw new IllegalArgumentException(
+                    "canonical equivalence flag must be the same that was used to compile the existing regexes");
+        }
+        var recorders = new ArrayList<CompileRecorder>(regexes.size());
+        var parsedRegexes = parse(regexes, flags, recorders);
+        var universeStart = System.nanoTime();
+        var universe = baseUniverse.extend(
+                parsedRegexes.stream().map(pr -> pr.getTree()).collect(Collectors.toList()));
+        long universeNanos = System.nanoTime() - universeStart;
+        var refinement = universe.refinementOf(baseUniverse);
+        var ret = new ArrayList<Regex>(existing.size() + parsedRegexes.size());
+        for (var regex : existing) {
+            ret.add(new Regex(regex.regexImpl.refine(universe, refinement)));
+        }
+        ret.addAll(compileParsed(parsedRegexes, recorders, universe, universeNanos, CompileBudget.unlimited));
+        return ret;
+    }
+
+    /**
+     * Compiles a set of regular expressions, making them compatible with a set of already compiled ones, which are not
+     * compiled again. See {@link #extend(List, List, int)}.
+     *
+     * @param existing the already compiled regexes
+     *
+     * @param regexes the expressions to be compiled
+     *
+     * @return the existing regexes, followed by the new ones
+     */
+    public static List<Regex> extend(List<Regex> existing, List<String> regexes) {
+        return extend(existing, regexes, 0);
+    }
+
+    /**
+     * Write this regex in a compact binary format, from which it can be read back without compiling it again (see
+     * {@link #readFrom(InputStream)}). The format is versioned: it can only be read by versions of this library that
+     * support the version that wrote it.
+     *
+     * @param out the stream to write to
+     *
+     * @throws IOException if the stream cannot be written
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        writeAllTo(List.of(this), out);
+    }
+
+    /**
+     * Write a set of compatible regexes in a compact binary format, from which they can be read back together without
+     * compiling them again (see {@link #readAllFrom(InputStream)}). The alphabet they share is written only once.
+     *
+     * @param regexes the regexes to write, which must be compatible among them
+     *
+     * @param out the stream to write to
+     *
+     * @throws IOException if the stream cannot be written
+     *
+     * @throws IncompatibleRegexException if the regexes are not compatible among them
+     */
+    public static void writeAllTo(List<Regex> regexes, OutputStream out) throws IOException {
+        var universe = regexes.isEmpty() ? Universe.Empty : regexes.get(0).regexImpl.getUniverse();
+        var impls = new ArrayList<RegexImpl>(regexes.size());
+        for (var regex : regexes) {
+            if (regex.regexImpl.getUniverse() != universe) {
+                throw new IncompatibleRegexException();
+            }
+            impls.add(regex.regexImpl);
+        }
+        BinaryFormat.write(impls, universe, out);
+    }
+
+    /**
+     * Read a regex written by {@link #writeTo(OutputStream)}. Only the bytes of the regex are consumed from the stream.
+     *
+     * @param in the stream to read from
+     *
+     * @return the regex, which is not compatible with any other
+     *
+     * @throws IOException if the stream cannot be read
+     *
+     * @throws IllegalArgumentException if the data is not a single serialized regex, or its version is not supported
+     */
+    public static Regex readFrom(InputStream in) throws IOException {
+        return single(BinaryFormat.read(in));
+    }
+
+    /**
+     * Read a regex written by {@link #writeTo(OutputStream)}, advancing the position of the buffer past its bytes.
+     *
+     * @param buffer the buffer to read from
+     *
+     * @return the regex, which is not compatible with any other
+     *
+     * @throws IllegalArgumentException if the data is not a single serialized regex, or its version is not supported
+     */
+    public static Regex readFrom(ByteBuffer buffer) {
+        return single(BinaryFormat.read(buffer));
+    }
+
+    private static Regex single(List<RegexImpl> impls) {
+        if (impls.size() != 1) {
+            throw new IllegalArgumentException("expected one serialized regex, found " + impls.size());
+        }
+        return new Regex(impls.get(0));
+    }
+
+    /**
+     * Read a set of regexes written by {@link #writeAllTo(List, OutputStream)}. Only the bytes of the set are consumed
+     * from the stream.
+     *
+     * @param in the stream to read from
+     *
+     * @return the regexes, which are compatible among them, but not with any other
+     *
+     * @throws IOException if the stream cannot be read
+     *
+     * @throws IllegalArgumentException if the data is not a set of serialized regexes, or its version is not supported
+     */
+    public static List<Regex> readAllFrom(InputStream in) throws IOException {
+        return BinaryFormat.read(in).stream().map(r -> new Regex(r)).collect(Collectors.toList());
+    }
+
+    /**
+     * Read a set of regexes written by {@link #writeAllTo(List, OutputStream)}, advancing the position of the buffer
+     * past its bytes.
+     *
+     * @param buffer the buffer to read from
+     *
+     * @return the regexes, which are compatible among them, but not with any other
+     *
+     * @throws IllegalArgumentException if the data is not a set of serialized regexes, or its version is not supported
+     */
+    public static List<Regex> readAllFrom(ByteBuffer buffer) {
+        return BinaryFormat.read(buffer).stream().map(r -> new Regex(r)).collect(Collectors.toList());
+    }
+
+    /**
+     * Write the match tables of a set of compatible regexes, in a layout that can be used in place, without copying it
+     * to the heap (see {@link #mapMatchTables(ByteBuffer)}). This is meant for large sets that are shared by several
+     * processes of the same host, which can map the same file.
+     *
+     * @param regexes the regexes to write, which must be compatible among them
+     *
+     * @param out the stream to write to
+     *
+     * @throws IOException if the stream cannot be written
+     *
+     * @throws IncompatibleRegexException if the regexes are not compatible among them
+     */
+    public static void writeMatchTablesTo(List<Regex> regexes, OutputStream out) throws IOException {
+        var universe = regexes.isEmpty() ? Universe.Empty : regexes.get(0).regexImpl.getUniverse();
+        var impls = new ArrayList<RegexImpl>(regexes.size());
+        for (var regex : regexes) {
+            if (regex.regexImpl.getUniverse() != universe) {
+                throw new IncompatibleRegexException();
+            }
+            impls.add(regex.regexImpl);
+        }
+        MappedFormat.write(impls, universe, out);
+    }
+
+    /**
+     * Use the match tables written by {@link #writeMatchTablesTo(List, OutputStream)}, starting at the current position
+     * of a buffer, and advance the position of the buffer past them, as {@link #readAllFrom(ByteBuffer)} does, so that
+     * several sets can be read from the same buffer. The buffer is not copied: matching reads it directly. The DFAs
+     * needed for operations between the regexes are built in the heap the first time they are needed.
+     * <p>
+     * The buffer must not be modified while the regexes are in use. Only the structure of the data is validated.
+     *
+     * @param buffer the buffer to use, typically a read-only memory-mapped file, or a direct buffer
+     *
+     * @return the regexes, which are compatible among them, but not with any other
+     *
+     * @throws IllegalArgumentException if the data is not a set of match tables, or its version is not supported
+     */
+    public static List<Regex> mapMatchTables(ByteBuffer buffer) {
+        return MappedFormat.map(buffer).stream().map(r -> new Regex(r)).collect(Collectors.toList());
+    }
+
+    /**
+     * Map a file with the match tables written by {@link #writeMatchTablesTo(List, OutputStream)}, read-only. See
+     * {@link #mapMatchTables(ByteBuffer)}. The mapping remains valid after the method returns, until the regexes are
+     * garbage-collected.
+     *
+     * @param file the file to map
+     *
+     * @return the regexes, which are compatible among them, but not with any other
+     *
+     * @throws IOException if the file cannot be mapped
+     *
+     * @throws IllegalArgumentException if the file does not contain a set of match tables, or its version is not
+     *                                  supported
+     */
+    public static List<Regex> mapMatchTables(Path file) throws IOException {
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return mapMatchTables(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
 }
@@ -0,0 +1,158 @@
+package dregex;
+
+import dregex.impl.TreeAnalyzer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A static analysis of a regex, made without compiling it (see {@link Regex#analyze(String, int)}), to detect
+ * expressions whose DFA would be too large before trying to compile them. The size of a DFA can be exponential in the
+ * length of the expression, so compiling untrusted expressions should be done with limits anyway (see
+ * {@link CompileLimits}), but the analysis allows to reject or reroute them more cheaply, and to explain why.
+ * <p>
+ * The estimate of the number of states is a heuristic, meant to be in the right order of magnitude for the
+ * expressions that blow up, not a bound: it can be far from the actual size, in both directions. The strict upper
+ * bound of a DFA without lookarounds is two to the power of the number of positions, which is rarely useful.
+ */
+public final class RegexAnalysis {
+
+    /**
+     * A subexpression that is likely to make the DFA grow more than linearly.
+     */
+    public static final class Hazard {
+
+        /**
+         * The kind of construction that makes the DFA grow.
+         */
+        public enum Kind {
+            /**
+             * A counted repetition that follows an unbounded repetition of overlapping characters, with a subexpression
+             * between them that only matches some of those characters, as in {@code (a|b)*a(a|b){25}}. The DFA has a
+             * number of states exponential in the length of the repetition.
+             */
+            OverlappingCountedRepetition,
+            /**
+             * A lookaround, which is compiled with a product construction, multiplying the states of the expression by
+             * the ones of the lookaround.
+             */
+            Lookaround,
+            /**
+             * A lookaround inside a repetition, as in {@code ((?!aa)a)+}. The product of the lookaround is repeated,
+             * and determinized again with the enclosing expression.
+             */
+            LookaroundInRepetition,
+            /**
+             * A counted repetition with a large expansion, as in {@code [a-z]{10000}}. The DFA grows linearly with it,
+             * but so do the NFA and the compilation time.
+             */
+            LargeRepetition
+        }
+
+        private final Kind kind;
+        private final String subexpression;
+        private final double factor;
+
+        Hazard(Kind kind, String subexpression, double factor) {
+            this.kind = kind;
+            this.subexpression = subexpression;
+            this.factor = factor;
+        }
+
+        /**
+         * @return the kind of construction
+         */
+        public Kind getKind() {
+            return kind;
+        }
+
+        /**
+         * @return the subexpression, as an equivalent regex
+         */
+        public String getSubexpression() {
+            return subexpression;
+        }
+
+        /**
+         * @return the estimated factor by which the subexpression multiplies the states of the DFA
+         */
+        public double getFactor() {
+            return factor;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Hazard(kind: %s, subexpression: %s, factor: %.3g)", kind, subexpression, factor);
+        }
+    }
+
+    private final long positionCount;
+    private final long estimatedDfaStates;
+    private final int maxLookaroundDepth;
+    private final List<Hazard> hazards;
+
+    RegexAnalysis(TreeAnalyzer analyzer) {
+        this.positionCount = saturatedLong(analyzer.getPositionCount());
+        this.estimatedDfaStates = saturatedLong(analyzer.getEstimatedDfaStates());
+        this.maxLookaroundDepth = analyzer.getMaxLookaroundDepth();
+        var hazards = new ArrayList<Hazard>();
+        for (var finding : analyzer.getFindings()) {
+            hazards.add(new Hazard(finding.kind, finding.node.toRegex(), finding.factor));
+        }
+        this.hazards = Collections.unmodifiableList(hazards);
+    }
+
+    private static long saturatedLong(double value) {
+        return value >= Long.MAX_VALUE ? Long.MAX_VALUE : Math.round(value);
+    }
+
+    /**
+     * @return the number of positions (character occurrences) of the expression, with counted repetitions expanded,
+     *     which is about the number of states of its NFA
+     */
+    public long getPositionCount() {
+        return positionCount;
+    }
+
+    /**
+     * @return the estimated number of states of the DFA, or {@link Long#MAX_VALUE} if it is larger than that
+     */
+    public long getEstimatedDfaStates() {
+        return estimatedDfaStates;
+    }
+
+    /**
+     * @return the maximum nesting of lookarounds, or zero if there are none
+     */
+    public int getMaxLookaroundDepth() {
+        return maxLookaroundDepth;
+    }
+
+    /**
+     * @return the subexpressions that are likely to make the DFA grow more than linearly, from the largest estimated
+     *     factor to the smallest
+     */
+    public List<Hazard> getHazards() {
+        return hazards;
+    }
+
+    /**
+     * Return whether the estimated size of the DFA is within the limit on the number of states of some compile limits.
+     * A compilation can still exceed the limits, as the estimate is not a bound, and intermediate automata can be
+     * larger than the final one.
+     *
+     * @param limits the compile limits
+     *
+     * @return whether the estimated number of states is not greater than the maximum of the limits
+     */
+    public boolean isWithin(CompileLimits limits) {
+        return estimatedDfaStates <= limits.getMaxDfaStates();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "RegexAnalysis(positions: %s, estimated DFA states: %s, lookaround depth: %s, hazards: %s)",
+                positionCount, estimatedDfaStates, maxLookaroundDepth, hazards);
+    }
+}
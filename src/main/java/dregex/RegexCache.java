@@ -0,0 +1,447 @@
+package dregex;
+
+import dregex.impl.CompileBudget;
+import dregex.impl.CompileRecorder;
+import dregex.impl.CompiledRegex;
+import dregex.impl.ParsedRegex;
+import dregex.impl.Universe;
+import dregex.impl.tree.Node;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * A bounded cache of compiled regular expressions, keyed by the expression and the compile flags. Instances are
+ * thread-safe and meant to be shared: concurrent requests for the same key compile it only once, with the rest of the
+ * requesting threads waiting for the result. When the cache is full, the least recently used entry is evicted.
+ * <p>
+ * All the regexes of the cache are compiled in one growing universe (one for each value of the {@link Pattern#CANON_EQ}
+ * flag, as regexes with and without canonical equivalence cannot be combined), which is extended every time new
+ * expressions are compiled, like {@link Regex#extend(List, List, int)} does. Regexes that are returned together, by
+ * the same request, or by requests without a new compilation in between, are therefore compatible (see
+ * {@link Regex#isCompatible(Regex)}) and can be operated with one another. Regexes obtained before a later compilation
+ * belong to an earlier version of the universe: requesting them again returns equivalent instances of the current
+ * one, whose DFAs are translated to the extended alphabet, without compiling them again. The translation is done once
+ * per entry and version of the universe.
+ * <p>
+ * As the alphabet grows, it accumulates the boundaries of the character ranges of the evicted expressions too (but
+ * not their parsed trees), and finer alphabets make the DFAs of the expressions with wide ranges, such as {@code .},
+ * larger. So the universe is rebuilt from the expressions still cached when the cache is cleared, and when the number
+ * of evictions since the last rebuild reaches the maximum size. Regexes of the universe before a rebuild are not
+ * compatible with the ones after it; requesting them again translates them to the rebuilt universe, like with
+ * extensions.
+ * <p>
+ * Expressions that fail compilation are not cached.
+ */
+public class RegexCache {
+
+    private static final class Key {
+
+        private final String regex;
+        private final int flags;
+
+        Key(String regex, int flags) {
+            this.regex = regex;
+            this.flags = flags;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return flags == key.flags && regex.equals(key.regex);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(regex, flags);
+        }
+    }
+
+    /**
+     * The current version of the universe shared by the regexes of the cache with the same canonical equivalence
+     * setting. Every compilation replaces it with an extension, or with a rebuilt universe, under the monitor of this
+     * object.
+     */
+    private static final class Lineage {
+
+        private final boolean canonicalEquivalence;
+
+        private volatile Universe universe;
+
+        /**
+         * The number of rebuilds. It is incremented before replacing the universe, so that a reader that sees the
+         * same generation before and after reading the universe knows that the universe was not rebuilt.
+         */
+        private volatile int generation = 0;
+
+        /**
+         * Trees of the compilations in progress, which are not in the entries yet, but must be kept by a rebuild.
+         */
+        private final List<Node> pendingTrees = new ArrayList<>();
+
+        /**
+         * Entries evicted since the last rebuild, guarded by the monitor of the entries.
+         */
+        private int evictions = 0;
+
+        Lineage(boolean canonicalEquivalence) {
+            this.canonicalEquivalence = canonicalEquivalence;
+            this.universe = new Universe(List.of(), canonicalEquivalence);
+        }
+
+        /**
+         * Replace the universe with a new one, built from the given trees and the pending ones.
+         */
+        void rebuild(List<Node> trees) {
+            var allTrees = new ArrayList<>(trees);
+            allTrees.addAll(pendingTrees);
+            var rebuilt = new Universe(allTrees, canonicalEquivalence);
+            generation++;
+            universe = rebuilt;
+        }
+    }
+
+    private final int maxSize;
+
+    /**
+     * Entries in access order, guarded by its own monitor. Compilation happens outside the lock, the map only holds
+     * futures, that are completed by the thread that first requested the key.
+     */
+    private final LinkedHashMap<Key, CompletableFuture<Regex>> entries;
+
+    private final Lineage plainLineage = new Lineage(false);
+    private final Lineage canonicalLineage = new Lineage(true);
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+
+    /**
+     * Constructs a new instance of this class.
+     *
+     * @param maxSize the maximum number of entries (expressions with their flags) that the cache holds
+     */
+    public RegexCache(int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maximum size must be positive");
+        }
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Compile a regex from a string, with the given flags, or return the cached instance.
+     *
+     * @param regex the expression to be compiled
+     *
+     * @param flags match flags, a bit mask that accepts flags from {@link java.util.regex.Pattern}
+     *
+     * @return the compiled regex
+     */
+    public Regex compile(String regex, int flags) {
+        return compile(List.of(regex), flags).get(0);
+    }
+
+    /**
+     * Compile a regex from a string, or return the cached instance.
+     *
+     * @param regex the expression to be compiled
+     *
+     * @return the compiled regex
+     */
+    public Regex compile(String regex) {
+        return compile(regex, 0);
+    }
+
+    /**
+     * Compiles a set of regular expressions, with the given flags, or return the cached instances. The resulted
+     * regexes will be able to participate in operations, among them and with the regexes returned by other requests
+     * with the same canonical equivalence setting, until a new expression is compiled.
+     *
+     * @param regexes the expressions to be compiled
+     *
+     * @param flags match flags, a bit mask that accepts flags from {@link java.util.regex.Pattern}
+     *
+     * @return the compiled regexes
+     */
+    public List<Regex> compile(List<String> regexes, int flags) {
+        var lineage = lineageOf(flags);
+        // read before looking up the entries, see universeOf
+        int generation = lineage.generation;
+        var keys = regexes.stream().map(r -> new Key(r, flags)).collect(Collectors.toList());
+        var futures = new ArrayList<CompletableFuture<Regex>>(keys.size());
+        var owned = new ArrayList<Integer>();
+        synchronized (entries) {
+            for (int i = 0; i < keys.size(); i++) {
+                var key = keys.get(i);
+                var future = entries.get(key);
+                if (future == null) {
+                    future = new CompletableFuture<>();
+                    entries.put(key, future);
+                    owned.add(i);
+                    missCount.increment();
+                    if (entries.size() > maxSize) {
+                        // evict the least recently used entry
+                        var eldest = entries.keySet().iterator();
+                        lineageOf(eldest.next().flags).evictions++;
+                        eldest.remove();
+                    }
+                } else {
+                    hitCount.increment();
+                }
+                futures.add(future);
+            }
+        }
+        if (!owned.isEmpty()) {
+            compileOwned(keys, futures, owned, flags, lineage);
+        }
+        var compiled = new ArrayList<Regex>(keys.size());
+        for (var future : futures) {
+            compiled.add(join(future));
+        }
+        var universe = universeOf(lineage, generation, compiled);
+        var ret = new ArrayList<Regex>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            ret.add(inUniverse(keys.get(i), futures.get(i), compiled.get(i), universe));
+        }
+        return List.copyOf(ret);
+    }
+
+    private Lineage lineageOf(int flags) {
+        return (flags & Pattern.CANON_EQ) != 0 ? canonicalLineage : plainLineage;
+    }
+
+    /**
+     * Return the universe to which the regexes of a request are translated. It is read after all the regexes are
+     * compiled, so it is an extension of the universes of all of them, unless it was rebuilt after the request
+     * started. Then, if an entry of the request was evicted before the rebuild, the rebuilt universe can lack the
+     * boundaries of its regex, and it is extended with the trees of the request. Entries that were not evicted are
+     * always kept by a rebuild.
+     */
+    private static Universe universeOf(Lineage lineage, int generation, List<Regex> compiled) {
+        var universe = lineage.universe;
+        if (lineage.generation == generation) {
+            return universe;
+        }
+        var trees = compiled.stream()
+                .map(r -> ((CompiledRegex) r.getImpl()).parsedTree())
+                .collect(Collectors.toList());
+        synchronized (lineage) {
+            universe = extend(lineage.universe, trees);
+            lineage.universe = universe;
+        }
+        return universe;
+    }
+
+    /**
+     * Compile the expressions whose entries were created by this thread, extending the universe once for all of them,
+     * and complete their futures. The entries of the expressions that fail are removed, and their futures completed
+     * with the failure, which is then thrown.
+     */
+    private void compileOwned(
+            List<Key> keys,
+            List<CompletableFuture<Regex>> futures,
+            List<Integer> owned,
+            int flags,
+            Lineage lineage) {
+        // parse one by one, so that an invalid expression does not fail the valid ones, for which other threads wait
+        RuntimeException parseFailure = null;
+        var parsed = new ArrayList<Integer>(owned.size());
+        var parsedRegexes = new ArrayList<ParsedRegex>(owned.size());
+        var recorders = new ArrayList<CompileRecorder>(owned.size());
+        for (int i : owned) {
+            try {
+                parsedRegexes.add(Regex.parse(List.of(keys.get(i).regex), flags, recorders).get(0));
+                parsed.add(i);
+            } catch (RuntimeException e) {
+                fail(keys, futures, List.of(i), e);
+                if (parseFailure == null) {
+                    parseFailure = e;
+                }
+            }
+        }
+        if (!parsed.isEmpty()) {
+            try {
+                var trees = parsedRegexes.stream().map(ParsedRegex::getTree).collect(Collectors.toList());
+                Universe universe;
+                long universeNanos;
+                synchronized (lineage) {
+                    var universeStart = System.nanoTime();
+                    List<Node> liveTrees = null;
+                    synchronized (entries) {
+                        if (lineage.evictions >= maxSize) {
+                            liveTrees = liveTrees(lineage);
+                            lineage.evictions = 0;
+                        }
+                    }
+                    if (liveTrees != null) {
+                        lineage.rebuild(liveTrees);
+                    }
+                    universe = extend(lineage.universe, trees);
+                    universeNanos = System.nanoTime() - universeStart;
+                    lineage.universe = universe;
+                    lineage.pendingTrees.addAll(trees);
+                }
+                try {
+                    var compiled = Regex.compileParsed(
+                            parsedRegexes, recorders, universe, universeNanos, CompileBudget.unlimited);
+                    for (int j = 0; j < parsed.size(); j++) {
+                        futures.get(parsed.get(j)).complete(compiled.get(j));
+                    }
+                } finally {
+                    // after completing the futures, so that the trees are always either pending or in the entries
+                    synchronized (lineage) {
+                        for (var tree : trees) {
+                            lineage.pendingTrees.remove(tree);
+                        }
+                    }
+                }
+            } catch (RuntimeException | Error e) {
+                fail(keys, futures, parsed, e);
+                throw e;
+            }
+        }
+        if (parseFailure != null) {
+            throw parseFailure;
+        }
+    }
+
+    /**
+     * Return the trees of the compiled entries of a lineage. Must be called with the monitor of the entries.
+     */
+    private List<Node> liveTrees(Lineage lineage) {
+        var trees = new ArrayList<Node>();
+        for (var entry : entries.entrySet()) {
+            var future = entry.getValue();
+            if (lineageOf(entry.getKey().flags) == lineage && future.isDone() && !future.isCompletedExceptionally()) {
+                trees.add(((CompiledRegex) future.join().getImpl()).parsedTree());
+            }
+        }
+        return trees;
+    }
+
+    private void fail(List<Key> keys, List<CompletableFuture<Regex>> futures, List<Integer> failed, Throwable e) {
+        synchronized (entries) {
+            for (int i : failed) {
+                entries.remove(keys.get(i), futures.get(i));
+            }
+        }
+        for (int i : failed) {
+            futures.get(i).completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Extend a universe with the trees of new expressions. The trees of the universe are replaced by its alphabet, so
+     * that the universe does not retain the trees of all the expressions ever compiled, only their boundaries.
+     */
+    private static Universe extend(Universe universe, List<Node> trees) {
+        var intervals = universe.getAlphabet().values().stream()
+                .flatMap(List::stream)
+                .distinct()
+                .collect(Collectors.toList());
+        if (intervals.isEmpty()) {
+            return universe.extend(trees);
+        }
+        return Universe.ofAlphabet(intervals, universe.hasCanonicalEquivalence()).extend(trees);
+    }
+
+    /**
+     * Return the regex of an entry, translated to the given version of the universe if it belongs to an earlier one.
+     * The translated regex replaces the one of the entry, unless the entry changed in the meantime.
+     */
+    private Regex inUniverse(Key key, CompletableFuture<Regex> future, Regex regex, Universe universe) {
+        var impl = regex.getImpl();
+        if (impl.getUniverse() == universe) {
+            return regex;
+        }
+        var translated = new Regex(impl.refine(universe, universe.refinementOf(impl.getUniverse())));
+        synchronized (entries) {
+            if (entries.get(key) == future) {
+                entries.put(key, CompletableFuture.completedFuture(translated));
+            }
+        }
+        return translated;
+    }
+
+    private static Regex join(CompletableFuture<Regex> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            var cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            } else {
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Compiles a set of regular expressions, or return the cached instances. The resulted regexes will be able to
+     * participate in operations (see {@link #compile(List, int)}).
+     *
+     * @param regexes the expressions to be compiled
+     *
+     * @return the compiled regexes
+     */
+    public List<Regex> compile(List<String> regexes) {
+        return compile(regexes, 0);
+    }
+
+    /**
+     * Returns the number of expressions requested that were served by an existing entry, including the ones that
+     * waited for a concurrent compilation of the same key.
+     *
+     * @return the number of cache hits
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * Returns the number of expressions requested that caused a compilation.
+     *
+     * @return the number of cache misses
+     */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * Returns the number of entries currently in the cache.
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Removes all the entries of the cache, and rebuilds the universe without their boundaries. Statistics are not
+     * reset.
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+            plainLineage.evictions = 0;
+            canonicalLineage.evictions = 0;
+        }
+        for (var lineage : List.of(plainLineage, canonicalLineage)) {
+            synchronized (lineage) {
+                lineage.rebuild(List.of());
+            }
+        }
+    }
+}
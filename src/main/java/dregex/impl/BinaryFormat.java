@@ -0,0 +1,293 @@
+package dregex.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Binary serialization of compiled regexes that share a {@link Universe}.
+ * <p>
+ * The format stores the alphabet of the universe and, for every regex, its DFA with numbered states, so reading it back
+ * does not involve parsing or compiling. All the regexes read together get the same (new) universe, built from the
+ * stored alphabet, so they can be operated with one another, but not with the original instances.
+ * <p>
+ * Layout (big-endian):
+ * <pre>
+ * header:   magic, version, body length                      (ints)
+ * body:     canonical equivalence                            (byte)
+ *           interval count, then every interval as from, to  (ints)
+ *           regex count, then every regex
+ * regex:    literal length (-1 if none), literal             (int, chars)
+ *           minimal                                          (byte)
+ *           state count, transition count                    (ints)
+ *           accepting flag of every state                    (bytes)
+ *           first transition of every state, plus the end    (ints)
+ *           interval index of every transition               (ints)
+ *           target state of every transition                 (ints)
+ * </pre>
+ * State zero is the initial one. Arrays are written contiguously, so they are read with bulk copies.
+ */
+public final class BinaryFormat {
+
+    private static final int magic = 0x44524558; // "DREX"
+
+    public static final int version = 1;
+
+    private BinaryFormat() {}
+
+    /**
+     * Write regexes of the same universe.
+     */
+    public static void write(List<RegexImpl> regexes, Universe universe, OutputStream out) throws IOException {
+        var bodyBytes = new ByteArrayOutputStream();
+        var body = new DataOutputStream(bodyBytes);
+        body.writeBoolean(universe.hasCanonicalEquivalence());
+
+        var intervals = universe.getAlphabet().values().stream()
+                .flatMap(List::stream)
+                .distinct()
+                .sorted()
+                .toArray(CharInterval[]::new);
+        Map<CharInterval, Integer> intervalIndices = new HashMap<>();
+        body.writeInt(intervals.length);
+        for (int i = 0; i < intervals.length; i++) {
+            intervalIndices.put(intervals[i], i);
+            body.writeInt(intervals[i].from);
+            body.writeInt(intervals[i].to);
+        }
+
+        body.writeInt(regexes.size());
+        for (var regex : regexes) {
+            var literal = regex.literal();
+            if (literal.isPresent()) {
+                body.writeInt(literal.get().length());
+                body.writeChars(literal.get());
+            } else {
+                body.writeInt(-1);
+            }
+            writeDfa(regex.getDfa(), intervalIndices, body);
+        }
+        body.flush();
+
+        var header = new DataOutputStream(out);
+        header.writeInt(magic);
+        header.writeInt(version);
+        header.writeInt(bodyBytes.size());
+        bodyBytes.writeTo(header);
+        header.flush();
+    }
+
+    private static void writeDfa(Dfa dfa, Map<CharInterval, Integer> intervalIndices, DataOutputStream out)
+            throws IOException {
+        // number the reachable states, starting from the initial one
+        Map<State, Integer> stateIndices = new HashMap<>();
+        List<State> states = new ArrayList<>();
+        Queue<State> pending = new ArrayDeque<>();
+        stateIndices.put(dfa.initial, 0);
+        states.add(dfa.initial);
+        pending.add(dfa.initial);
+        int transitionCount = 0;
+        while (!pending.isEmpty()) {
+            var state = pending.remove();
+            for (var target : dfa.transitionMap(state).values()) {
+                transitionCount++;
+                if (!stateIndices.containsKey(target)) {
+                    stateIndices.put(target, states.size());
+                    states.add(target);
+                    pending.add(target);
+                }
+            }
+        }
+        out.writeBoolean(dfa.minimal);
+        out.writeInt(states.size());
+        out.writeInt(transitionCount);
+        for (var state : states) {
+            out.writeBoolean(dfa.accepting.contains(state));
+        }
+        int offset = 0;
+        for (var state : states) {
+            out.writeInt(offset);
+            offset += dfa.transitionMap(state).size();
+        }
+        out.writeInt(offset);
+        for (var state : states) {
+            for (var interval : dfa.transitionMap(state).keySet()) {
+                var index = intervalIndices.get(interval);
+                if (index == null) {
+                    throw new IllegalStateException("transition interval outside the alphabet: " + interval);
+                }
+                out.writeInt(index);
+            }
+        }
+        for (var state : states) {
+            for (var target : dfa.transitionMap(state).values()) {
+                out.writeInt(stateIndices.get(target));
+            }
+        }
+    }
+
+    /**
+     * Read regexes written by {@link #write}, consuming exactly their bytes from the stream. The body is read in
+     * chunks, so a corrupt length does not allocate more memory than the data actually present.
+     */
+    public static List<RegexImpl> read(InputStream in) throws IOException {
+        var header = new DataInputStream(in);
+        int length = readHeader(header.readInt(), header.readInt(), header.readInt());
+        var body = header.readNBytes(length);
+        if (body.length < length) {
+            throw new EOFException("truncated serialized regex data");
+        }
+        return readBody(ByteBuffer.wrap(body));
+    }
+
+    /**
+     * Read regexes written by {@link #write}, advancing the position of the buffer past their bytes.
+     */
+    public static List<RegexImpl> read(ByteBuffer buffer) {
+        var source = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+        try {
+            int length = readHeader(source.getInt(), source.getInt(), source.getInt());
+            if (length > source.remaining()) {
+                throw new BufferUnderflowException();
+            }
+            var body = source.slice().order(ByteOrder.BIG_ENDIAN);
+            body.limit(length);
+            var ret = readBody(body);
+            buffer.position(source.position() + length);
+            return ret;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("truncated serialized regex data", e);
+        }
+    }
+
+    private static int readHeader(int readMagic, int readVersion, int length) {
+        if (readMagic != magic) {
+            throw new IllegalArgumentException("invalid serialized regex data: wrong magic number");
+        }
+        if (readVersion != version) {
+            throw new IllegalArgumentException(String.format(
+                    "unsupported serialized regex version: %d (supported: %d)", readVersion, version));
+        }
+        if (length < 0) {
+            throw new IllegalArgumentException("invalid serialized regex data: negative length");
+        }
+        return length;
+    }
+
+    private static List<RegexImpl> readBody(ByteBuffer in) {
+        try {
+            boolean canonicalEquivalence = in.get() != 0;
+            var intervals = new CharInterval[checkCount(in, in.getInt(), Integer.BYTES * 2)];
+            var bounds = new int[intervals.length * 2];
+            in.asIntBuffer().get(bounds);
+            in.position(in.position() + bounds.length * Integer.BYTES);
+            for (int i = 0; i < intervals.length; i++) {
+                intervals[i] = new CharInterval(bounds[i * 2], bounds[i * 2 + 1]);
+            }
+            var universe = Universe.ofAlphabet(List.of(intervals), canonicalEquivalence);
+
+            // every regex takes at least its literal length
+            int regexCount = checkCount(in, in.getInt(), Integer.BYTES);
+            List<RegexImpl> ret = new ArrayList<>(regexCount);
+            for (int r = 0; r < regexCount; r++) {
+                int literalLength = in.getInt();
+                Optional<String> literal;
+                if (literalLength >= 0) {
+                    var chars = new char[checkCount(in, literalLength, Character.BYTES)];
+                    in.asCharBuffer().get(chars);
+                    in.position(in.position() + literalLength * Character.BYTES);
+                    literal = Optional.of(new String(chars));
+                } else {
+                    literal = Optional.empty();
+                }
+                ret.add(new DeserializedRegex(literal, readDfa(in, intervals), universe));
+            }
+            if (in.hasRemaining()) {
+                throw new IllegalArgumentException("invalid serialized regex data: trailing bytes");
+            }
+            return ret;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+            throw new IllegalArgumentException("invalid serialized regex data", e);
+        }
+    }
+
+    private static Dfa readDfa(ByteBuffer in, CharInterval[] intervals) {
+        boolean minimal = in.get() != 0;
+        // every state takes its accepting flag and its first transition, and every transition two ints
+        var states = new SimpleState[checkCount(in, in.getInt(), 1 + Integer.BYTES)];
+        var transitionCount = checkCount(in, in.getInt(), Integer.BYTES * 2);
+        if (states.length == 0) {
+            throw new IllegalArgumentException("invalid serialized regex data: DFA without states");
+        }
+        var acceptingFlags = new byte[states.length];
+        in.get(acceptingFlags);
+        var offsets = readInts(in, states.length + 1);
+        var intervalIndices = readInts(in, transitionCount);
+        var targets = readInts(in, transitionCount);
+        if (offsets[0] != 0 || offsets[states.length] != transitionCount) {
+            throw new IllegalArgumentException("invalid serialized regex data: inconsistent transition offsets");
+        }
+        for (int s = 0; s < states.length; s++) {
+            if (offsets[s] > offsets[s + 1]) {
+                throw new IllegalArgumentException("invalid serialized regex data: inconsistent transition offsets");
+            }
+        }
+
+        for (int s = 0; s < states.length; s++) {
+            states[s] = new SimpleState();
+        }
+        Map<State, TreeMap<CharInterval, State>> transitions = new HashMap<>();
+        Set<State> accepting = new HashSet<>();
+        for (int s = 0; s < states.length; s++) {
+            if (offsets[s] < offsets[s + 1]) {
+                var stateTransitions = new TreeMap<CharInterval, State>();
+                for (int t = offsets[s]; t < offsets[s + 1]; t++) {
+                    stateTransitions.put(intervals[intervalIndices[t]], states[targets[t]]);
+                }
+                transitions.put(states[s], stateTransitions);
+            }
+            if (acceptingFlags[s] != 0) {
+                accepting.add(states[s]);
+            }
+        }
+        return new Dfa(states[0], transitions, accepting, minimal);
+    }
+
+    /**
+     * Check a count read from the data against the bytes that remain, before allocating an array of that size, so
+     * that corrupt or hostile data cannot cause large allocations.
+     *
+     * @param elementBytes the minimum number of bytes that every counted element takes in the data
+     */
+    private static int checkCount(ByteBuffer in, int count, int elementBytes) {
+        if (count < 0 || (long) count * elementBytes > in.remaining()) {
+            throw new IllegalArgumentException(String.format(
+                    "invalid serialized regex data: count %d exceeds the remaining %d bytes", count, in.remaining()));
+        }
+        return count;
+    }
+
+    private static int[] readInts(ByteBuffer in, int count) {
+        var ret = new int[count];
+        in.asIntBuffer().get(ret);
+        in.position(in.position() + count * Integer.BYTES);
+        return ret;
+    }
+}
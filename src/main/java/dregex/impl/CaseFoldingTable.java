@@ -0,0 +1,116 @@
+package dregex.impl;
+
+import dregex.impl.database.CodePointTable;
+import dregex.impl.database.JvmUnicode;
+import dregex.impl.tree.AbstractRange;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Precomputed case expansions, used to expand whole ranges without visiting every code point. Only the code points
+ * whose expansion is not just themselves are stored, so expanding a range takes time proportional to the number of
+ * such code points that the range contains, instead of its length.
+ * <p>
+ * The Unicode table is generated during the build (see {@code UnicodeCaseFoldings.bin} and {@link JvmUnicode}), the
+ * ASCII one is built from the ASCII range. Tables are loaded lazily, the first time each expansion is used.
+ */
+public final class CaseFoldingTable {
+
+    private static final class AsciiHolder {
+        static final CaseFoldingTable instance = scan(CaseExpansion.Ascii, 0x7F);
+    }
+
+    private static final class UnicodeHolder {
+        static final CaseFoldingTable instance = load("/UnicodeCaseFoldings.bin");
+    }
+
+    public static CaseFoldingTable of(CaseExpansion caseExpansion) {
+        switch (caseExpansion) {
+            case Ascii:
+                return AsciiHolder.instance;
+            case Unicode:
+                return UnicodeHolder.instance;
+            default:
+                throw new IllegalArgumentException("no table for expansion: " + caseExpansion);
+        }
+    }
+
+    /**
+     * Code points with a non-trivial expansion, with their expansions.
+     */
+    private final CodePointTable table;
+
+    private CaseFoldingTable(CodePointTable table) {
+        this.table = table;
+    }
+
+    private static CaseFoldingTable load(String resource) {
+        return new CaseFoldingTable(CodePointTable.load(resource, JvmUnicode::caseFolding));
+    }
+
+    /**
+     * Build a table with the non-trivial expansions of the code points up to a given one, which must be the last one
+     * that the expansion changes.
+     */
+    private static CaseFoldingTable scan(CaseExpansion caseExpansion, int to) {
+        List<Integer> codePoints = new ArrayList<>();
+        List<int[]> expansions = new ArrayList<>();
+        for (int codePoint = Character.MIN_CODE_POINT; codePoint <= to; codePoint++) {
+            int[] expansion = caseExpansion.expand(codePoint);
+            if (expansion.length != 1 || expansion[0] != codePoint) {
+                codePoints.add(codePoint);
+                expansions.add(expansion);
+            }
+        }
+        return new CaseFoldingTable(CodePointTable.of(
+                codePoints.stream().mapToInt(Integer::intValue).toArray(), expansions.toArray(new int[0][])));
+    }
+
+    /**
+     * Return the union of the expansions of all the code points of a range, as a sorted list of maximal ranges.
+     */
+    public List<AbstractRange> expand(int from, int to) {
+        var slice = table.slice(from, to);
+        // the range itself, with holes for the code points whose expansion does not include themselves
+        List<int[]> intervals = new ArrayList<>();
+        int openFrom = from;
+        List<int[]> extra = new ArrayList<>();
+        for (int i = slice.start; i < slice.end; i++) {
+            int codePoint = slice.codePoints[i];
+            boolean includesItself = false;
+            for (int expanded : slice.values[i]) {
+                if (expanded == codePoint) {
+                    includesItself = true;
+                } else {
+                    extra.add(new int[] {expanded, expanded});
+                }
+            }
+            if (!includesItself) {
+                if (openFrom < codePoint) {
+                    intervals.add(new int[] {openFrom, codePoint - 1});
+                }
+                openFrom = codePoint + 1;
+            }
+        }
+        if (openFrom <= to) {
+            intervals.add(new int[] {openFrom, to});
+        }
+        intervals.addAll(extra);
+        intervals.sort((a, b) -> Integer.compare(a[0], b[0]));
+
+        List<AbstractRange> ret = new ArrayList<>();
+        int currentFrom = intervals.get(0)[0];
+        int currentTo = intervals.get(0)[1];
+        for (var interval : intervals.subList(1, intervals.size())) {
+            if (interval[0] <= currentTo + 1) {
+                currentTo = Math.max(currentTo, interval[1]);
+            } else {
+                ret.add(AbstractRange.of(currentFrom, currentTo));
+                currentFrom = interval[0];
+                currentTo = interval[1];
+            }
+        }
+        ret.add(AbstractRange.of(currentFrom, currentTo));
+        return ret;
+    }
+}
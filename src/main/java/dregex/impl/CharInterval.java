@@ -42,32 +42,46 @@ public final class CharInterval implements AtomPart, Comparable<CharInterval> {
         }
     }
 
+    /**
+     * Partition the code point space in the coarsest set of disjoint intervals that is compatible with all the given
+     * ranges, returning, for every range, the (sorted) intervals that compose it.
+     * <p>
+     * The start of every interval is either the start of a range or the code point following the end of a range. So
+     * all the interval boundaries are collected in a sorted primitive array, and each range is then resolved by finding
+     * its start with a binary search and walking the array until its end. Intervals are shared among all the ranges
+     * that contain them. The complexity is O(R log R) plus the size of the result, R being the number of ranges.
+     */
     public static Map<AbstractRange, List<CharInterval>> calculateNonOverlapping(List<AbstractRange> ranges) {
-        Set<Integer> startSet = new HashSet<>();
-        Set<Integer> endSet = new HashSet<>();
+        int[] starts = new int[ranges.size() * 2];
+        int boundaryCount = 0;
         for (var range : ranges) {
-            startSet.add(range.from());
-            if (range.from() > Character.MIN_CODE_POINT) {
-                endSet.add(range.from() - 1);
-            }
-            endSet.add(range.to());
+            starts[boundaryCount++] = range.from();
             if (range.to() < Character.MAX_CODE_POINT) {
-                startSet.add(range.to() + 1);
+                starts[boundaryCount++] = range.to() + 1;
+            }
+        }
+        Arrays.sort(starts, 0, boundaryCount);
+        int intervalCount = 0;
+        for (int i = 0; i < boundaryCount; i++) {
+            if (intervalCount == 0 || starts[i] != starts[intervalCount - 1]) {
+                starts[intervalCount++] = starts[i];
             }
         }
+        var intervals = new CharInterval[intervalCount];
         Map<AbstractRange, List<CharInterval>> ret = new HashMap<>();
         for (var range : ranges) {
-            var startCopySet = new java.util.TreeSet<>(startSet);
-            var endCopySet = new java.util.TreeSet<>(endSet);
-            var startSubSet = startCopySet.subSet(range.from(), true, range.to(), true);
-            var endSubSet = endCopySet.subSet(range.from(), true, range.to(), true);
-            assert startSubSet.size() == endSubSet.size();
-            List<CharInterval> res = new ArrayList<>(startSubSet.size());
-            do {
-                var start = startSubSet.pollFirst();
-                var end = endSubSet.pollFirst();
-                res.add(new CharInterval(start, end));
-            } while (!startSubSet.isEmpty());
+            if (ret.containsKey(range)) {
+                continue;
+            }
+            int first = Arrays.binarySearch(starts, 0, intervalCount, range.from());
+            List<CharInterval> res = new ArrayList<>();
+            for (int i = first; i < intervalCount && starts[i] <= range.to(); i++) {
+                if (intervals[i] == null) {
+                    int end = i + 1 < intervalCount ? starts[i + 1] - 1 : Character.MAX_CODE_POINT;
+                    intervals[i] = new CharInterval(starts[i], end);
+                }
+                res.add(intervals[i]);
+            }
             ret.put(range, res);
         }
         return ret;
@@ -0,0 +1,424 @@
+package dregex.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * A minimal writer of class files, with just what is needed to generate the matchers of {@link NativeMatcherGenerator}:
+ * a constant pool, methods and their code, with labels and stack map frames.
+ * <p>
+ * The stack map support is deliberately simple: all the frames of a method have the same locals and an empty stack,
+ * so code must only branch when that is the case.
+ */
+final class ClassFileWriter {
+
+    static final int ACC_PUBLIC = 0x0001;
+    static final int ACC_PRIVATE = 0x0002;
+    static final int ACC_STATIC = 0x0008;
+    static final int ACC_FINAL = 0x0010;
+    static final int ACC_SUPER = 0x0020;
+
+    /**
+     * Java 11
+     */
+    private static final int majorVersion = 55;
+
+    private final ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+    private final DataOutputStream pool = new DataOutputStream(poolBytes);
+    private final Map<String, Integer> poolIndices = new HashMap<>();
+    private int poolCount = 1;
+
+    private final ByteArrayOutputStream methodBytes = new ByteArrayOutputStream();
+    private final DataOutputStream methods = new DataOutputStream(methodBytes);
+    private int methodCount = 0;
+
+    private int constant(String key, int tag, int... values) {
+        var index = poolIndices.get(key);
+        if (index != null) {
+            return index;
+        }
+        try {
+            pool.writeByte(tag);
+            if (tag == 3) {
+                pool.writeInt(values[0]);
+            } else {
+                for (int value : values) {
+                    pool.writeShort(value);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        poolIndices.put(key, poolCount);
+        return poolCount++;
+    }
+
+    int utf8(String str) {
+        var key = "Utf8:" + str;
+        var index = poolIndices.get(key);
+        if (index != null) {
+            return index;
+        }
+        try {
+            pool.writeByte(1);
+            pool.writeUTF(str);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        poolIndices.put(key, poolCount);
+        return poolCount++;
+    }
+
+    int integer(int value) {
+        return constant("Integer:" + value, 3, value);
+    }
+
+    int classRef(String internalName) {
+        return constant("Class:" + internalName, 7, utf8(internalName));
+    }
+
+    private int nameAndType(String name, String descriptor) {
+        return constant("NameAndType:" + name + ":" + descriptor, 12, utf8(name), utf8(descriptor));
+    }
+
+    int methodRef(String owner, String name, String descriptor) {
+        return constant(
+                "Methodref:" + owner + "." + name + descriptor, 10, classRef(owner), nameAndType(name, descriptor));
+    }
+
+    int interfaceMethodRef(String owner, String name, String descriptor) {
+        return constant(
+                "InterfaceMethodref:" + owner + "." + name + descriptor,
+                11,
+                classRef(owner),
+                nameAndType(name, descriptor));
+    }
+
+    void addMethod(int access, String name, String descriptor, Code code) {
+        try {
+            var codeBytes = code.toBytes();
+            var stackMap = code.stackMapTable();
+            methods.writeShort(access);
+            methods.writeShort(utf8(name));
+            methods.writeShort(utf8(descriptor));
+            methods.writeShort(1); // attributes
+            methods.writeShort(utf8("Code"));
+            int stackMapLength = stackMap.length == 0 ? 0 : 6 + stackMap.length;
+            methods.writeInt(12 + codeBytes.length + stackMapLength);
+            methods.writeShort(code.maxStack);
+            methods.writeShort(code.maxLocals);
+            methods.writeInt(codeBytes.length);
+            methods.write(codeBytes);
+            methods.writeShort(0); // exception table
+            if (stackMap.length == 0) {
+                methods.writeShort(0);
+            } else {
+                methods.writeShort(1);
+                methods.writeShort(utf8("StackMapTable"));
+                methods.writeInt(stackMap.length);
+                methods.write(stackMap);
+            }
+            methodCount++;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    byte[] toBytes(int access, String thisClass, String superClass, String... interfaces) {
+        int thisIndex = classRef(thisClass);
+        int superIndex = classRef(superClass);
+        var interfaceIndices = Arrays.stream(interfaces).mapToInt(this::classRef).toArray();
+        if (poolCount > 0xFFFF) {
+            throw new UnsupportedOperationException("generated class too large: " + poolCount + " constants");
+        }
+        try {
+            var bytes = new ByteArrayOutputStream();
+            var out = new DataOutputStream(bytes);
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(majorVersion);
+            out.writeShort(poolCount);
+            poolBytes.writeTo(out);
+            out.writeShort(access);
+            out.writeShort(thisIndex);
+            out.writeShort(superIndex);
+            out.writeShort(interfaceIndices.length);
+            for (int index : interfaceIndices) {
+                out.writeShort(index);
+            }
+            out.writeShort(0); // fields
+            out.writeShort(methodCount);
+            methodBytes.writeTo(out);
+            out.writeShort(0); // attributes
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * A position in the code, possibly not yet known when it is jumped to.
+     */
+    static final class Label {
+
+        private int position = -1;
+
+        /**
+         * Jumps to this label emitted before its position was known: offset of the jump instruction and of its
+         * operand.
+         */
+        private final List<int[]> pending = new ArrayList<>();
+    }
+
+    /**
+     * The code of a method.
+     */
+    static final class Code {
+
+        static final int ICONST_0 = 0x03;
+        static final int ICONST_1 = 0x04;
+        static final int LCONST_0 = 0x09;
+        static final int IADD = 0x60;
+        static final int LSHL = 0x79;
+        static final int LUSHR = 0x7d;
+        static final int LOR = 0x81;
+        static final int I2L = 0x85;
+        static final int L2I = 0x88;
+        static final int IFLT = 0x9b;
+        static final int IF_ICMPNE = 0xa0;
+        static final int IF_ICMPLT = 0xa1;
+        static final int IF_ICMPGE = 0xa2;
+        static final int GOTO = 0xa7;
+        static final int IRETURN = 0xac;
+        static final int LRETURN = 0xad;
+        static final int RETURN = 0xb1;
+        static final int INVOKESTATIC = 0xb8;
+
+        private byte[] bytes = new byte[256];
+        private int length = 0;
+
+        private final int maxStack;
+        private final int maxLocals;
+
+        /**
+         * Verification types of the locals of every frame, as written in the stack map table.
+         */
+        private final byte[] frameLocals;
+
+        private final int frameLocalCount;
+
+        /**
+         * Positions of the placed labels. As it is a set, labels placed at the same position share a frame.
+         */
+        private final TreeSet<Integer> framePositions = new TreeSet<>();
+
+        /**
+         * @param frameLocals verification types of the locals, already encoded
+         */
+        Code(int maxStack, int maxLocals, byte[] frameLocals, int frameLocalCount) {
+            this.maxStack = maxStack;
+            this.maxLocals = maxLocals;
+            this.frameLocals = frameLocals;
+            this.frameLocalCount = frameLocalCount;
+        }
+
+        int length() {
+            return length;
+        }
+
+        private void put(int b) {
+            if (length == bytes.length) {
+                bytes = Arrays.copyOf(bytes, length * 2);
+            }
+            bytes[length++] = (byte) b;
+        }
+
+        private void put2(int value) {
+            put(value >> 8);
+            put(value);
+        }
+
+        private void put4(int value) {
+            put2(value >> 16);
+            put2(value);
+        }
+
+        private void set4(int position, int value) {
+            bytes[position] = (byte) (value >> 24);
+            bytes[position + 1] = (byte) (value >> 16);
+            bytes[position + 2] = (byte) (value >> 8);
+            bytes[position + 3] = (byte) value;
+        }
+
+        void op(int opcode) {
+            put(opcode);
+        }
+
+        void op(int opcode, int poolIndex) {
+            put(opcode);
+            put2(poolIndex);
+        }
+
+        void iconst(int value, ClassFileWriter classFile) {
+            if (value >= -1 && value <= 5) {
+                put(ICONST_0 + value);
+            } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+                put(0x10); // bipush
+                put(value);
+            } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+                put(0x11); // sipush
+                put2(value);
+            } else {
+                int index = classFile.integer(value);
+                if (index < 256) {
+                    put(0x12); // ldc
+                    put(index);
+                } else {
+                    put(0x13); // ldc_w
+                    put2(index);
+                }
+            }
+        }
+
+        private void local(int shortOpcode, int opcode, int index) {
+            if (index <= 3) {
+                put(shortOpcode + index);
+            } else {
+                put(opcode);
+                put(index);
+            }
+        }
+
+        void iload(int index) {
+            local(0x1a, 0x15, index);
+        }
+
+        void istore(int index) {
+            local(0x3b, 0x36, index);
+        }
+
+        void aload(int index) {
+            local(0x2a, 0x19, index);
+        }
+
+        void astore(int index) {
+            local(0x4b, 0x3a, index);
+        }
+
+        void lload(int index) {
+            local(0x1e, 0x16, index);
+        }
+
+        void lstore(int index) {
+            local(0x3f, 0x37, index);
+        }
+
+        void invokeInterface(int poolIndex, int argumentCount) {
+            put(0xb9);
+            put2(poolIndex);
+            put(argumentCount + 1);
+            put(0);
+        }
+
+        /**
+         * Emit a branch instruction, with a 16-bit offset.
+         */
+        void jump(int opcode, Label target) {
+            int start = length;
+            put(opcode);
+            if (target.position >= 0) {
+                put2(target.position - start);
+            } else {
+                target.pending.add(new int[] {start, length, 2});
+                put2(0);
+            }
+        }
+
+        void tableSwitch(int low, Label defaultTarget, Label[] targets) {
+            int start = length;
+            put(0xaa);
+            while (length % 4 != 0) {
+                put(0);
+            }
+            switchOffset(start, defaultTarget);
+            put4(low);
+            put4(low + targets.length - 1);
+            for (var target : targets) {
+                switchOffset(start, target);
+            }
+        }
+
+        private void switchOffset(int start, Label target) {
+            if (target.position >= 0) {
+                put4(target.position - start);
+            } else {
+                target.pending.add(new int[] {start, length, 4});
+                put4(0);
+            }
+        }
+
+        /**
+         * Set the position of a label to the current one, which also gets a stack map frame.
+         */
+        void place(Label label) {
+            label.position = length;
+            for (var jump : label.pending) {
+                int offset = length - jump[0];
+                if (jump[2] == 2) {
+                    bytes[jump[1]] = (byte) (offset >> 8);
+                    bytes[jump[1] + 1] = (byte) offset;
+                } else {
+                    set4(jump[1], offset);
+                }
+            }
+            label.pending.clear();
+            framePositions.add(length);
+        }
+
+        byte[] toBytes() {
+            if (length > Short.MAX_VALUE) {
+                // 16-bit branch offsets are used
+                throw new UnsupportedOperationException("generated method too large: " + length + " bytes");
+            }
+            return Arrays.copyOf(bytes, length);
+        }
+
+        byte[] stackMapTable() throws IOException {
+            if (framePositions.isEmpty()) {
+                return new byte[0];
+            }
+            var bytes = new ByteArrayOutputStream();
+            var out = new DataOutputStream(bytes);
+            out.writeShort(framePositions.size());
+            int previous = -1;
+            for (int position : framePositions) {
+                // positions are distinct and increasing, so the deltas are not negative
+                int delta = previous == -1 ? position : position - previous - 1;
+                if (previous == -1) {
+                    out.writeByte(255); // full frame
+                    out.writeShort(delta);
+                    out.writeShort(frameLocalCount);
+                    out.write(frameLocals);
+                    out.writeShort(0); // stack
+                } else if (delta <= 63) {
+                    out.writeByte(delta); // same frame
+                } else {
+                    out.writeByte(251); // same frame, extended
+                    out.writeShort(delta);
+                }
+                previous = position;
+            }
+            out.flush();
+            return bytes.toByteArray();
+        }
+    }
+}
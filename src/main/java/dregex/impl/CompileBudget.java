@@ -0,0 +1,101 @@
+package dregex.impl;
+
+import dregex.CompileLimitExceededException;
+import dregex.CompileLimitExceededException.Limit;
+import java.time.Duration;
+
+/**
+ * The limits of a running compilation (see {@link dregex.CompileLimits}). The algorithms that build automata check
+ * them periodically, along with the interrupt status of the thread, throwing a {@link CompileLimitExceededException}
+ * to stop the compilation.
+ */
+public final class CompileBudget {
+
+    /**
+     * A budget that is never exceeded, for compilations without limits. It does not check interruptions either.
+     */
+    public static final CompileBudget unlimited =
+            new CompileBudget(Integer.MAX_VALUE, Integer.MAX_VALUE, Long.MAX_VALUE);
+
+    /**
+     * The number of NFA states allowed for every DFA state allowed. The NFA is built before the subset construction
+     * can count any DFA state, and counted repetitions (as in {@code ((a{1000}){1000}){20}}) can make it much larger
+     * than the heap.
+     */
+    static final int nfaStatesPerDfaState = 16;
+
+    private final int maxDfaStates;
+    private final long maxNfaStates;
+    private final int maxAlphabetSize;
+    private final long timeoutNanos;
+    private final long start = System.nanoTime();
+
+    /**
+     * Start a compilation, taking the current time as its start.
+     */
+    public CompileBudget(int maxDfaStates, int maxAlphabetSize, long timeoutNanos) {
+        this.maxDfaStates = maxDfaStates;
+        this.maxNfaStates =
+                maxDfaStates == Integer.MAX_VALUE ? Long.MAX_VALUE : (long) maxDfaStates * nfaStatesPerDfaState;
+        this.maxAlphabetSize = maxAlphabetSize;
+        this.timeoutNanos = timeoutNanos;
+    }
+
+    private CompileLimitExceededException exceeded(Limit limit, String stage, long size) {
+        return new CompileLimitExceededException(limit, stage, size, Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    /**
+     * Check the interruption and the time, and that an automaton that is being built is within the limits.
+     *
+     * @param stage the name of the algorithm, for reporting
+     * @param states the number of states built so far
+     */
+    public void check(String stage, long states) {
+        checkStates(stage, states);
+        checkTime(stage, states);
+    }
+
+    /**
+     * Check that the number of states of an automaton is within the limit, without checking the time.
+     */
+    public void checkStates(String stage, long states) {
+        if (states > maxDfaStates) {
+            throw exceeded(Limit.DfaStates, stage, states);
+        }
+    }
+
+    /**
+     * Check the interruption and the time, and that a NFA that is being built (or that is about to be built) is within
+     * the limit, which is a fixed multiple of the maximum number of DFA states.
+     *
+     * @param stage the name of the algorithm, for reporting
+     * @param states the number of NFA states, built so far or projected
+     */
+    public void checkNfa(String stage, long states) {
+        if (states > maxNfaStates) {
+            throw exceeded(Limit.NfaStates, stage, states);
+        }
+        checkTime(stage, states);
+    }
+
+    public void checkAlphabetSize(int alphabetSize) {
+        var stage = "alphabet partitioning";
+        if (alphabetSize > maxAlphabetSize) {
+            throw exceeded(Limit.AlphabetSize, stage, alphabetSize);
+        }
+        checkTime(stage, alphabetSize);
+    }
+
+    private void checkTime(String stage, long size) {
+        if (this == unlimited) {
+            return;
+        }
+        if (Thread.currentThread().isInterrupted()) {
+            throw exceeded(Limit.Interrupted, stage, size);
+        }
+        if (System.nanoTime() - start > timeoutNanos) {
+            throw exceeded(Limit.Timeout, stage, size);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package dregex.impl;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+
+/**
+ * Records the time spent in each phase of the compilation of a regex, and the sizes of the automata involved. It also
+ * carries the pattern and the flags, to describe the compilation in events (see {@link JfrEvents}).
+ * <p>
+ * Phases can be nested (the compilation of lookarounds compiles their operands recursively), and time is exclusive:
+ * while a phase is running inside another, the time is only attributed to the inner one, so the times of all the
+ * phases add up to the total.
+ * <p>
+ * Instances are not thread-safe; they are only modified by the compiling thread, before the regex is published.
+ */
+public final class CompileRecorder {
+
+    public enum Phase {
+        Parse,
+        Alphabet,
+        Nfa,
+        SubsetConstruction,
+        Rewrite,
+        Operations
+    }
+
+    private final String pattern;
+    private final int flags;
+
+    private final long[] phaseNanos = new long[Phase.values().length];
+    private final Deque<Phase> running = new ArrayDeque<>();
+    private long lastChange;
+
+    private long nfaStateCount = 0;
+    private long nfaTransitionCount = 0;
+    private int alphabetSize = 0;
+    private int dfaStateCount = 0;
+    private int dfaTransitionCount = 0;
+    private long dfaBytes = 0;
+
+    /**
+     * Set when the table is built, which can happen in any thread, after the compilation.
+     */
+    private volatile long tableBytes = 0;
+
+    /**
+     * @param pattern the pattern being compiled, or null if it is not known
+     * @param flags compile flags, as a bit mask of {@link java.util.regex.Pattern} flags
+     */
+    public CompileRecorder(String pattern, int flags) {
+        this.pattern = pattern;
+        this.flags = flags;
+    }
+
+    public CompileRecorder() {
+        this(null, 0);
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+
+    public int getFlags() {
+        return flags;
+    }
+
+    /**
+     * Start a phase, pausing the current one, if any.
+     */
+    public void start(Phase phase) {
+        long now = System.nanoTime();
+        if (!running.isEmpty()) {
+            phaseNanos[running.peek().ordinal()] += now - lastChange;
+        }
+        lastChange = now;
+        running.push(phase);
+    }
+
+    /**
+     * End the current phase, resuming the one it was started in, if any.
+     */
+    public void end() {
+        long now = System.nanoTime();
+        phaseNanos[running.pop().ordinal()] += now - lastChange;
+        lastChange = now;
+    }
+
+    /**
+     * Add time to a phase that was measured separately, as it is shared with other regexes.
+     */
+    public void addTime(Phase phase, long nanos) {
+        phaseNanos[phase.ordinal()] += nanos;
+    }
+
+    public long getNanos(Phase phase) {
+        return phaseNanos[phase.ordinal()];
+    }
+
+    /**
+     * Record an NFA, adding its sizes to the ones of the NFAs already recorded.
+     *
+     * @return the number of states of the NFA
+     */
+    int recordNfa(Nfa nfa) {
+        var states = new HashSet<State>();
+        states.add(nfa.initial);
+        for (var transition : nfa.transitions) {
+            states.add(transition.from);
+            states.add(transition.to);
+        }
+        nfaStateCount += states.size();
+        nfaTransitionCount += nfa.transitions.size();
+        return states.size();
+    }
+
+    public void recordAlphabetSize(int alphabetSize) {
+        this.alphabetSize = alphabetSize;
+    }
+
+    /**
+     * Record the resulting DFA.
+     */
+    void recordResult(Dfa dfa) {
+        dfaStateCount = dfa.stateCount();
+        dfaTransitionCount = 0;
+        for (var stateTransitions : dfa.defTransitions.values()) {
+            dfaTransitionCount += stateTransitions.size();
+        }
+        // the DFA has a hash map entry and a tree map per state, and a tree map entry per transition; the figures are
+        // typical for a 64-bit JVM with compressed pointers
+        dfaBytes = dfaStateCount * 120L + dfaTransitionCount * 40L;
+    }
+
+    /**
+     * Record the match table of the DFA, which is built lazily, the first time it is needed for matching.
+     */
+    void recordTable(MatchTable table) {
+        if (table instanceof DfaTable) {
+            var dfaTable = (DfaTable) table;
+            long ints = DfaTable.directLimit
+                    + dfaTable.runCount() * 2L
+                    + (long) dfaTable.stateCount() * dfaTable.classCount();
+            tableBytes = ints * Integer.BYTES + dfaTable.stateCount() + 5 * 16;
+        }
+    }
+
+    public long getNfaStateCount() {
+        return nfaStateCount;
+    }
+
+    public long getNfaTransitionCount() {
+        return nfaTransitionCount;
+    }
+
+    public int getAlphabetSize() {
+        return alphabetSize;
+    }
+
+    public int getDfaStateCount() {
+        return dfaStateCount;
+    }
+
+    public int getDfaTransitionCount() {
+        return dfaTransitionCount;
+    }
+
+    public long getEstimatedRetainedBytes() {
+        return dfaBytes + tableBytes;
+    }
+}
@@ -1,6 +1,7 @@
 package dregex.impl;
 
 import dregex.impl.tree.Node;
+import java.util.Optional;
 
 /**
  * A fully-compiled regular expression that was generated from a string literal.
@@ -9,11 +10,56 @@ public final class CompiledRegex extends RegexImpl {
 
     private final String originalString;
     private final Node parsedTree;
+    private final CompileRecorder recorder;
 
     public CompiledRegex(String originalString, Node parsedTree, Universe universe) {
-        super(new Compiler(universe.getAlphabet()).fromTree(parsedTree), universe);
+        this(originalString, parsedTree, universe, new CompileRecorder(originalString, 0));
+    }
+
+    /**
+     * Compile a parsed tree, recording the compilation in a recorder that may already have the parsing and alphabet
+     * phases.
+     */
+    public CompiledRegex(String originalString, Node parsedTree, Universe universe, CompileRecorder recorder) {
+        this(originalString, parsedTree, universe, recorder, CompileBudget.unlimited);
+    }
+
+    /**
+     * Compile a parsed tree within the limits of a budget.
+     */
+    public CompiledRegex(
+            String originalString,
+            Node parsedTree,
+            Universe universe,
+            CompileRecorder recorder,
+            CompileBudget budget) {
+        this(originalString, parsedTree, compile(parsedTree, universe, recorder, budget), universe, recorder);
+        recorder.recordResult(getDfa());
+    }
+
+    private static Dfa compile(Node parsedTree, Universe universe, CompileRecorder recorder, CompileBudget budget) {
+        JfrEvents.Compile event = null;
+        if (JfrEvents.enabled()) {
+            event = new JfrEvents.Compile();
+            event.begin();
+        }
+        var dfa = new Compiler(universe, recorder, budget).fromTree(parsedTree);
+        if (event != null && event.shouldCommit()) {
+            event.pattern = JfrEvents.truncate(recorder.getPattern());
+            event.flags = recorder.getFlags();
+            event.nfaStates = recorder.getNfaStateCount();
+            event.dfaStates = dfa.stateCount();
+            event.commit();
+        }
+        return dfa;
+    }
+
+    private CompiledRegex(
+            String originalString, Node parsedTree, Dfa dfa, Universe universe, CompileRecorder recorder) {
+        super(dfa, universe);
         this.originalString = originalString;
         this.parsedTree = parsedTree;
+        this.recorder = recorder;
     }
 
     public String originalString() {
@@ -24,6 +70,21 @@ public final class CompiledRegex extends RegexImpl {
         return parsedTree;
     }
 
+    @Override
+    public Optional<String> literal() {
+        return Optional.of(originalString);
+    }
+
+    @Override
+    public Optional<CompileRecorder> compileRecorder() {
+        return Optional.of(recorder);
+    }
+
+    @Override
+    protected RegexImpl withDfa(Dfa dfa, Universe universe) {
+        return new CompiledRegex(originalString, parsedTree, dfa, universe, recorder);
+    }
+
     @Override
     public String toString() {
         return String.format("⟪%s⟫ (DFA states: %s)", originalString, getDfa().stateCount());
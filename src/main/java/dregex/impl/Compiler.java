@@ -17,10 +17,36 @@ public class Compiler {
 
     private static final Logger logger = LoggerFactory.getLogger(Compiler.class);
 
+    private static final String nfaStage = "NFA construction";
+
+    /**
+     * The number of NFA states created between checks of the budget, which include the time.
+     */
+    private static final int budgetCheckInterval = 1024;
+
     private final Map<AbstractRange, List<CharInterval>> intervalMapping;
+    private final Map<Node, Dfa> compiledOperations;
+    private final CompileRecorder recorder;
+    private final CompileBudget budget;
+
+    /**
+     * The number of states of the NFA being built, for checking the budget.
+     */
+    private long nfaStates = 0;
+
+    public Compiler(Universe universe) {
+        this(universe, new CompileRecorder());
+    }
+
+    public Compiler(Universe universe, CompileRecorder recorder) {
+        this(universe, recorder, CompileBudget.unlimited);
+    }
 
-    public Compiler(Map<AbstractRange, List<CharInterval>> intervalMapping) {
-        this.intervalMapping = Map.copyOf(intervalMapping);
+    public Compiler(Universe universe, CompileRecorder recorder, CompileBudget budget) {
+        this.intervalMapping = universe.getAlphabet();
+        this.compiledOperations = universe.getCompiledOperations();
+        this.recorder = recorder;
+        this.budget = budget;
     }
 
     /**
@@ -28,12 +54,37 @@ public class Compiler {
      */
     public Dfa fromTree(Node ast) {
         var start = System.nanoTime();
-        var initial = new SimpleState();
-        var accepting = new SimpleState();
+        recorder.start(CompileRecorder.Phase.Nfa);
+        // operations build their own NFAs recursively
+        var outerNfaStates = nfaStates;
+        nfaStates = 0;
+        var initial = newState();
+        var accepting = newState();
         List<Nfa.Transition> transitions = new ArrayList<>();
         addTransitionsFromNode(transitions, ast, initial, accepting);
         var nfa = new Nfa(initial, transitions, Set.of(accepting));
-        var dfa = DfaAlgorithms.rewriteWithSimpleStates(DfaAlgorithms.fromNfa(nfa));
+        nfaStates = outerNfaStates;
+        int nfaStates = recorder.recordNfa(nfa);
+        recorder.end();
+        recorder.start(CompileRecorder.Phase.SubsetConstruction);
+        JfrEvents.Determinization event = null;
+        if (JfrEvents.enabled()) {
+            event = new JfrEvents.Determinization();
+            event.begin();
+        }
+        var subsetDfa = DfaAlgorithms.fromNfa(nfa, budget);
+        if (event != null && event.shouldCommit()) {
+            event.pattern = JfrEvents.truncate(recorder.getPattern());
+            event.flags = recorder.getFlags();
+            event.nfaStates = nfaStates;
+            event.nfaTransitions = nfa.transitions.size();
+            event.dfaStates = subsetDfa.stateCount();
+            event.commit();
+        }
+        recorder.end();
+        recorder.start(CompileRecorder.Phase.Rewrite);
+        var dfa = DfaAlgorithms.rewriteWithSimpleStates(subsetDfa);
+        recorder.end();
         var time = Duration.ofNanos(System.nanoTime() - start);
         logger.trace("DFA compiled in {}", time);
         return dfa;
@@ -65,13 +116,14 @@ public class Compiler {
         } else if (node instanceof Intersection) {
             var intersection = (Intersection) node;
             addTransitionsFromOperation(
-                    transitions, DfaAlgorithms::doIntersect, intersection.left, intersection.right, from, to);
+                    transitions, (l, r) -> DfaAlgorithms.doIntersect(l, r, budget), intersection, from, to);
         } else if (node instanceof Union) {
             var union = (Union) node;
-            addTransitionsFromOperation(transitions, DfaAlgorithms::union, union.left, union.right, from, to);
+            addTransitionsFromOperation(transitions, (l, r) -> DfaAlgorithms.union(l, r, budget), union, from, to);
         } else if (node instanceof Difference) {
             var difference = (Difference) node;
-            addTransitionsFromOperation(transitions, DfaAlgorithms::diff, difference.left, difference.right, from, to);
+            addTransitionsFromOperation(
+                    transitions, (l, r) -> DfaAlgorithms.diff(l, r, budget), difference, from, to);
         } else if (node instanceof PositionalCaptureGroup) {
             var cg = (PositionalCaptureGroup) node;
             addTransitionsFromCaptureGroup(transitions, cg.value, from, to);
@@ -165,7 +217,7 @@ public class Compiler {
             // doing this iteratively prevents stack overflows in the case of long literal strings
             var prev = from;
             for (var part : juxt.values.subList(0, juxt.values.size() - 1)) {
-                var intermediate = new SimpleState();
+                var intermediate = newState();
                 addTransitionsFromNode(transitions, part, prev, intermediate);
                 prev = intermediate;
             }
@@ -173,16 +225,34 @@ public class Compiler {
         }
     }
 
+    /**
+     * Operations are compiled to a DFA only once per universe. Lookarounds inside repetitions, or the same lookaround
+     * used by several regexes of the same universe, yield identical operation nodes, which are then served from the
+     * cache. As the cached automaton can be inserted more than once in the same NFA, every insertion is done using a
+     * fresh copy of the states. Dead states are removed before caching, as every copy of them would otherwise take
+     * part in the subset construction of the enclosing NFA.
+     */
     private void addTransitionsFromOperation(
             List<Nfa.Transition> transitions,
             BiFunction<Dfa, Dfa, Dfa> operation,
-            Node left,
-            Node right,
+            Operation node,
             SimpleState from,
             SimpleState to) {
-        var leftDfa = fromTree(left);
-        var rightDfa = fromTree(right);
-        var result = DfaAlgorithms.toNfa(operation.apply(leftDfa, rightDfa));
+        var dfa = compiledOperations.get(node);
+        if (dfa == null) {
+            // not using computeIfAbsent, as the computation recursively populates the same map
+            recorder.start(CompileRecorder.Phase.Operations);
+            var operationDfa = operation.apply(fromTree(node.left), fromTree(node.right));
+            dfa = DfaAlgorithms.rewriteWithSimpleStates(DfaAlgorithms.removeDeadStates(operationDfa));
+            recorder.end();
+            var existing = compiledOperations.putIfAbsent(node, dfa);
+            if (existing != null) {
+                dfa = existing;
+            }
+        }
+        nfaStates += dfa.stateCount();
+        budget.checkNfa(nfaStage, nfaStates);
+        var result = DfaAlgorithms.toNfa(DfaAlgorithms.rewriteWithSimpleStates(dfa));
         transitions.addAll(result.transitions);
         for (var acc : result.accepting) {
             transitions.add(new Nfa.Transition(acc, to, Epsilon.instance));
@@ -192,14 +262,18 @@ public class Compiler {
 
     private void addTransitionsFromCaptureGroup(
             List<Nfa.Transition> transitions, Node value, SimpleState from, SimpleState to) {
-        var int1 = new SimpleState();
-        var int2 = new SimpleState();
+        var int1 = newState();
+        var int2 = newState();
         transitions.add(new Nfa.Transition(from, int1, Epsilon.instance));
         transitions.add(new Nfa.Transition(int2, to, Epsilon.instance));
         addTransitionsFromNode(transitions, value, int1, int2);
     }
 
     private void addTransitionsFromRep(List<Nfa.Transition> transitions, Rep rep, SimpleState from, SimpleState to) {
+        if (rep.min > 1 || rep.max.orElse(0) > 1) {
+            // counted repetitions copy their value, check the size of all the copies before making any
+            budget.checkNfa(nfaStage, saturatedAdd(nfaStates, estimateStates(rep)));
+        }
         if (rep.min == 1 && rep.max.isPresent() && rep.max.get() == 1) {
 
             addTransitionsFromNode(transitions, rep.value, from, to);
@@ -217,8 +291,8 @@ public class Compiler {
 
         } else if (rep.min == 1 && rep.max.isEmpty()) {
 
-            var int1 = new SimpleState();
-            var int2 = new SimpleState();
+            var int1 = newState();
+            var int2 = newState();
             transitions.add(new Nfa.Transition(from, int1, Epsilon.instance));
             transitions.add(new Nfa.Transition(int2, to, Epsilon.instance));
             transitions.add(new Nfa.Transition(int2, int1, Epsilon.instance));
@@ -226,8 +300,8 @@ public class Compiler {
 
         } else if (rep.min == 0 && rep.max.isEmpty()) {
 
-            var int1 = new SimpleState();
-            var int2 = new SimpleState();
+            var int1 = newState();
+            var int2 = newState();
             transitions.add(new Nfa.Transition(from, int1, Epsilon.instance));
             transitions.add(new Nfa.Transition(int2, to, Epsilon.instance));
             transitions.add(new Nfa.Transition(from, to, Epsilon.instance));
@@ -245,11 +319,11 @@ public class Compiler {
         } else if (rep.min == 1 && rep.max.isPresent() && rep.max.get() > 0) {
 
             // doing this iteratively prevents stack overflows in the case of long repetitions
-            var int1 = new SimpleState();
+            var int1 = newState();
             addTransitionsFromNode(transitions, rep.value, from, int1);
             var prev = int1;
             for (int i = 1; i < rep.max.get() - 1; i++) {
-                var intermediate = new SimpleState();
+                var intermediate = newState();
                 transitions.add(new Nfa.Transition(prev, to, Epsilon.instance));
                 addTransitionsFromNode(transitions, rep.value, prev, intermediate);
                 prev = intermediate;
@@ -262,7 +336,7 @@ public class Compiler {
             // doing this iteratively prevents stack overflows in the case of long repetitions
             var prev = from;
             for (int i = 0; i < rep.max.get() - 1; i++) {
-                var intermediate = new SimpleState();
+                var intermediate = newState();
                 transitions.add(new Nfa.Transition(prev, to, Epsilon.instance));
                 addTransitionsFromNode(transitions, rep.value, prev, intermediate);
                 prev = intermediate;
@@ -280,4 +354,62 @@ public class Compiler {
             addTransitionsFromNode(transitions, part, from, to);
         }
     }
+
+    private SimpleState newState() {
+        nfaStates++;
+        if (nfaStates % budgetCheckInterval == 0) {
+            budget.checkNfa(nfaStage, nfaStates);
+        }
+        return new SimpleState();
+    }
+
+    /**
+     * Estimate the number of NFA states that adding the transitions of a node creates, without creating them. The
+     * states of the automata of operations are estimated as those of their operands.
+     */
+    private static long estimateStates(Node node) {
+        if (node instanceof Juxt) {
+            var juxt = (Juxt) node;
+            long states = Math.max(juxt.values.size() - 1, 0);
+            for (var value : juxt.values) {
+                states = saturatedAdd(states, estimateStates(value));
+            }
+            return states;
+        } else if (node instanceof Disj) {
+            long states = 0;
+            for (var value : ((Disj) node).values) {
+                states = saturatedAdd(states, estimateStates(value));
+            }
+            return states;
+        } else if (node instanceof Rep) {
+            var rep = (Rep) node;
+            long copies = rep.max.isPresent() ? rep.max.get() : rep.min + 1L;
+            return saturatedAdd(saturatedMultiply(copies, saturatedAdd(estimateStates(rep.value), 1)), 2);
+        } else if (node instanceof Lookaround) {
+            return estimateStates(((Lookaround) node).value);
+        } else if (node instanceof Operation) {
+            var operation = (Operation) node;
+            return saturatedAdd(estimateStates(operation.left), estimateStates(operation.right));
+        } else if (node instanceof CaptureGroup) {
+            return saturatedAdd(estimateStates(((CaptureGroup) node).value), 2);
+        } else {
+            return 0;
+        }
+    }
+
+    private static long saturatedAdd(long a, long b) {
+        try {
+            return Math.addExact(a, b);
+        } catch (ArithmeticException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private static long saturatedMultiply(long a, long b) {
+        try {
+            return Math.multiplyExact(a, b);
+        } catch (ArithmeticException e) {
+            return Long.MAX_VALUE;
+        }
+    }
 }
@@ -1,5 +1,6 @@
 package dregex.impl;
 
+import dregex.InvalidRegexException;
 import dregex.impl.tree.*;
 import java.util.ArrayList;
 import java.util.List;
@@ -38,4 +39,26 @@ public class CompilerHelper {
         }
         return -1;
     }
+
+    /**
+     * Check that a tree only has supported constructions, which are otherwise only detected when it is compiled.
+     */
+    public static void checkSupported(Node node) {
+        if (node instanceof NamedCaptureGroup) {
+            throw new InvalidRegexException("named capture groups are not supported");
+        } else if (node instanceof CaptureGroup) {
+            checkSupported(((CaptureGroup) node).value);
+        } else if (node instanceof Juxt) {
+            ((Juxt) node).values.forEach(CompilerHelper::checkSupported);
+        } else if (node instanceof Disj) {
+            ((Disj) node).values.forEach(CompilerHelper::checkSupported);
+        } else if (node instanceof Rep) {
+            checkSupported(((Rep) node).value);
+        } else if (node instanceof Lookaround) {
+            checkSupported(((Lookaround) node).value);
+        } else if (node instanceof Operation) {
+            checkSupported(((Operation) node).left);
+            checkSupported(((Operation) node).right);
+        }
+    }
 }
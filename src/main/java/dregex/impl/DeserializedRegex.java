@@ -0,0 +1,33 @@
+package dregex.impl;
+
+import java.util.Optional;
+
+/**
+ * A regular expression that was read from its serialized form (see {@link BinaryFormat}), so it lacks a parsed tree.
+ * It keeps the literal expression, if it was compiled from one.
+ */
+public final class DeserializedRegex extends RegexImpl {
+
+    private final Optional<String> originalString;
+
+    public DeserializedRegex(Optional<String> originalString, Dfa dfa, Universe universe) {
+        super(dfa, universe);
+        this.originalString = originalString;
+    }
+
+    @Override
+    public Optional<String> literal() {
+        return originalString;
+    }
+
+    @Override
+    protected RegexImpl withDfa(Dfa dfa, Universe universe) {
+        return new DeserializedRegex(originalString, dfa, universe);
+    }
+
+    @Override
+    public String toString() {
+        var prefix = originalString.map(s -> String.format("⟪%s⟫", s)).orElse("[synthetic]");
+        return String.format("%s (DFA states: %s)", prefix, getDfa().stateCount());
+    }
+}
@@ -1,6 +1,5 @@
 package dregex.impl;
 
-import dregex.MatchResult;
 import java.util.*;
 import java.util.function.BiPredicate;
 import java.util.function.Function;
@@ -11,15 +10,27 @@ import java.util.stream.Collectors;
 public class DfaAlgorithms {
 
     public static Dfa doIntersect(Dfa left, Dfa right) {
-        return removeUnreachableStates(doIntersection(left, right));
+        return doIntersect(left, right, CompileBudget.unlimited);
+    }
+
+    public static Dfa doIntersect(Dfa left, Dfa right, CompileBudget budget) {
+        return removeUnreachableStates(doIntersection(left, right, budget));
     }
 
     public static Dfa union(Dfa left, Dfa right) {
-        return removeUnreachableStates(doUnion(left, right));
+        return union(left, right, CompileBudget.unlimited);
+    }
+
+    public static Dfa union(Dfa left, Dfa right, CompileBudget budget) {
+        return removeUnreachableStates(doUnion(left, right, budget));
     }
 
     public static Dfa diff(Dfa left, Dfa right) {
-        return removeUnreachableStates(doDifference(left, right));
+        return diff(left, right, CompileBudget.unlimited);
+    }
+
+    public static Dfa diff(Dfa left, Dfa right, CompileBudget budget) {
+        return removeUnreachableStates(doDifference(left, right, budget));
     }
 
     /**
@@ -27,18 +38,33 @@ public class DfaAlgorithms {
      * The following pages include graphical examples of this technique:
      * <a href="https://stackoverflow.com/q/7780521/4505326">...</a>
      * <a href="https://cs.stackexchange.com/a/7108">...</a>
+     * <p>
+     * The product has a state for every pair of states of the operands, so its size is checked against the budget
+     * before building it.
      */
-    private static Dfa productConstruction(Dfa left, Dfa right, BiPredicate<State, State> acceptingStateFilter) {
+    private static Dfa productConstruction(
+            Dfa left,
+            Dfa right,
+            BiPredicate<State, State> acceptingStateFilter,
+            String operation,
+            CompileBudget budget) {
+        JfrEvents.ProductConstruction event = null;
+        if (JfrEvents.enabled()) {
+            event = new JfrEvents.ProductConstruction();
+            event.begin();
+        }
         Set<CharInterval> allChars = setUnion(left.allChars(), right.allChars());
 
         BiState newInitial = new BiState(left.initial, right.initial);
 
         Collection<State> allLeftStates = getAllStatesWithNullState(left);
         Collection<State> allRightStates = getAllStatesWithNullState(right);
+        budget.checkStates("product construction", (long) allLeftStates.size() * allRightStates.size());
 
         Map<State, TreeMap<CharInterval, State>> newTransitions =
                 new HashMap<>(allLeftStates.size() * allRightStates.size());
         for (var leftState : allLeftStates) {
+            budget.check("product construction", newTransitions.size());
             Map<CharInterval, State> leftCharMap = left.transitionMap(leftState);
 
             for (var rightState : allRightStates) {
@@ -64,19 +90,50 @@ public class DfaAlgorithms {
             }
         }
 
+        if (event != null && event.shouldCommit()) {
+            event.operation = operation;
+            // both collections include the null state
+            event.leftStates = allLeftStates.size() - 1;
+            event.rightStates = allRightStates.size() - 1;
+            event.productStates = newTransitions.size();
+            event.commit();
+        }
         return new Dfa(newInitial, newTransitions, newAccepting, false);
     }
 
     private static Dfa doIntersection(Dfa left, Dfa right) {
-        return productConstruction(left, right, (l, r) -> left.accepting.contains(l) && right.accepting.contains(r));
+        return doIntersection(left, right, CompileBudget.unlimited);
+    }
+
+    private static Dfa doIntersection(Dfa left, Dfa right, CompileBudget budget) {
+        return productConstruction(
+                left,
+                right,
+                (l, r) -> left.accepting.contains(l) && right.accepting.contains(r),
+                "intersection",
+                budget);
     }
 
     public static Dfa doDifference(Dfa left, Dfa right) {
-        return productConstruction(left, right, (l, r) -> left.accepting.contains(l) && !right.accepting.contains(r));
+        return doDifference(left, right, CompileBudget.unlimited);
+    }
+
+    private static Dfa doDifference(Dfa left, Dfa right, CompileBudget budget) {
+        return productConstruction(
+                left,
+                right,
+                (l, r) -> left.accepting.contains(l) && !right.accepting.contains(r),
+                "difference",
+                budget);
     }
 
     public static Dfa doUnion(Dfa left, Dfa right) {
-        return productConstruction(left, right, (l, r) -> left.accepting.contains(l) || right.accepting.contains(r));
+        return doUnion(left, right, CompileBudget.unlimited);
+    }
+
+    private static Dfa doUnion(Dfa left, Dfa right, CompileBudget budget) {
+        return productConstruction(
+                left, right, (l, r) -> left.accepting.contains(l) || right.accepting.contains(r), "union", budget);
     }
 
     private static Collection<State> getAllStatesWithNullState(Dfa dfa) {
@@ -88,6 +145,11 @@ public class DfaAlgorithms {
     }
 
     public static Dfa removeUnreachableStates(Dfa dfa) {
+        JfrEvents.UnreachableStatePruning event = null;
+        if (JfrEvents.enabled()) {
+            event = new JfrEvents.UnreachableStatePruning();
+            event.begin();
+        }
         Set<State> visited = new HashSet<>();
         Queue<State> pending = new ArrayDeque<>();
         pending.add(dfa.initial);
@@ -107,9 +169,72 @@ public class DfaAlgorithms {
                 .collect(toMapCollector());
         var filteredAccepting =
                 dfa.accepting.stream().filter(s -> visited.contains(s)).collect(Collectors.toSet());
+        if (event != null && event.shouldCommit()) {
+            event.statesBefore = dfa.stateCount();
+            event.statesAfter = visited.size();
+            event.commit();
+        }
         return new Dfa(dfa.initial, filteredTransitions, filteredAccepting, false);
     }
 
+    /**
+     * Remove the states from which no accepting state can be reached, along with the transitions leading to them. Such
+     * states are common in the output of the product construction and, when the DFA is embedded in a NFA, they only
+     * make the subset construction larger. This function does not change the language matched by the DFA.
+     */
+    public static Dfa removeDeadStates(Dfa dfa) {
+        Map<State, Set<State>> predecessors = new HashMap<>();
+        for (var entry : dfa.defTransitions.entrySet()) {
+            for (var target : entry.getValue().values()) {
+                predecessors.computeIfAbsent(target, x -> new HashSet<>()).add(entry.getKey());
+            }
+        }
+        Set<State> alive = new HashSet<>(dfa.accepting);
+        Queue<State> pending = new ArrayDeque<>(dfa.accepting);
+        while (!pending.isEmpty()) {
+            var currentState = pending.remove();
+            for (var predecessor : predecessors.getOrDefault(currentState, Set.of())) {
+                if (alive.add(predecessor)) {
+                    pending.add(predecessor);
+                }
+            }
+        }
+        Map<State, TreeMap<CharInterval, State>> filteredTransitions = new HashMap<>();
+        for (var entry : dfa.defTransitions.entrySet()) {
+            if (alive.contains(entry.getKey())) {
+                TreeMap<CharInterval, State> charMap = new TreeMap<>();
+                for (var transition : entry.getValue().entrySet()) {
+                    if (alive.contains(transition.getValue())) {
+                        charMap.put(transition.getKey(), transition.getValue());
+                    }
+                }
+                if (!charMap.isEmpty()) {
+                    filteredTransitions.put(entry.getKey(), charMap);
+                }
+            }
+        }
+        return new Dfa(dfa.initial, filteredTransitions, dfa.accepting, false);
+    }
+
+    /**
+     * Translate a DFA to a finer alphabet, in which every interval of the original one is split in one or more
+     * intervals. Every transition is replaced by one transition per sub-interval, all to the same target state, so the
+     * language matched by the DFA does not change, and no determinization is necessary. States are preserved.
+     */
+    public static Dfa refineAlphabet(Dfa dfa, Map<CharInterval, List<CharInterval>> refinement) {
+        Map<State, TreeMap<CharInterval, State>> newTransitions = new HashMap<>();
+        for (var entry : dfa.defTransitions.entrySet()) {
+            TreeMap<CharInterval, State> charMap = new TreeMap<>();
+            for (var transition : entry.getValue().entrySet()) {
+                for (var interval : refinement.get(transition.getKey())) {
+                    charMap.put(interval, transition.getValue());
+                }
+            }
+            newTransitions.put(entry.getKey(), charMap);
+        }
+        return new Dfa(dfa.initial, newTransitions, dfa.accepting, dfa.minimal);
+    }
+
     public static boolean isIntersectionNotEmpty(Dfa left, Dfa right) {
         return matchesAtLeastOne(doIntersection(left, right));
     }
@@ -181,31 +306,6 @@ public class DfaAlgorithms {
         return new Dfa(mapping.get(dfa.initial), newTransitions, newAccepting, false);
     }
 
-    public static MatchResult matchString(Dfa dfa, int[] codePoints) {
-        var current = dfa.initial;
-        int i = 0;
-        for (int codePoint : codePoints) {
-            TreeMap<CharInterval, State> currentTrans = dfa.defTransitions.get(current);
-            State newState = null;
-            if (currentTrans != null) {
-                // O(log transitions) search in the range tree
-                var entry = currentTrans.floorEntry(new CharInterval(codePoint, codePoint));
-                if (entry != null) {
-                    var interval = entry.getKey();
-                    if (codePoint <= interval.to) {
-                        newState = entry.getValue();
-                    }
-                }
-            }
-            if (newState == null) {
-                return new MatchResult(false, i);
-            }
-            current = newState;
-            i += 1;
-        }
-        return new MatchResult(dfa.accepting.contains(current), i);
-    }
-
     /**
      * Each DFA is also trivially a NFA, return it.
      */
@@ -224,7 +324,11 @@ public class DfaAlgorithms {
     }
 
     public static Dfa reverseAsDfa(Dfa dfa) {
-        return DfaAlgorithms.fromNfa(DfaAlgorithms.reverse(dfa));
+        return reverseAsDfa(dfa, CompileBudget.unlimited);
+    }
+
+    public static Dfa reverseAsDfa(Dfa dfa, CompileBudget budget) {
+        return DfaAlgorithms.fromNfa(DfaAlgorithms.reverse(dfa), budget);
     }
 
     /**
@@ -232,14 +336,29 @@ public class DfaAlgorithms {
      * <a href="http://cs.stackexchange.com/questions/1872/brzozowskis-algorithm-for-dfa-minimization">Brzozowski's algorithm</a>
      */
     public static Dfa minimize(Dfa dfa) {
+        return minimize(dfa, CompileBudget.unlimited);
+    }
+
+    public static Dfa minimize(Dfa dfa, CompileBudget budget) {
         if (dfa.minimal) {
             return dfa;
         } else {
-            var reversedDfa = reverseAsDfa(dfa);
-            var doubleReversedDfa = reverseAsDfa(reversedDfa);
+            JfrEvents.Minimization event = null;
+            if (JfrEvents.enabled()) {
+                event = new JfrEvents.Minimization();
+                event.begin();
+            }
+            var reversedDfa = reverseAsDfa(dfa, budget);
+            var doubleReversedDfa = reverseAsDfa(reversedDfa, budget);
             var minimalDfa = new Dfa(
                     doubleReversedDfa.initial, doubleReversedDfa.defTransitions, doubleReversedDfa.accepting, true);
-            return rewriteWithSimpleStates(minimalDfa);
+            var ret = rewriteWithSimpleStates(minimalDfa);
+            if (event != null && event.shouldCommit()) {
+                event.statesBefore = dfa.stateCount();
+                event.statesAfter = ret.stateCount();
+                event.commit();
+            }
+            return ret;
         }
     }
 
@@ -265,6 +384,13 @@ public class DfaAlgorithms {
      * <a href="https://en.wikipedia.org/w/index.php?title=Powerset_construction&oldid=547783241">'power set construction'</a>
      */
     public static Dfa fromNfa(Nfa nfa) {
+        return fromNfa(nfa, CompileBudget.unlimited);
+    }
+
+    /**
+     * Produce a DFA from a NFA, checking the budget for every state of the DFA.
+     */
+    public static Dfa fromNfa(Nfa nfa, CompileBudget budget) {
         /*
          * Group the list of transitions of the NFA into a nested map, for easy lookup.
          * The rest of this method will use this map instead of the original list.
@@ -285,6 +411,7 @@ public class DfaAlgorithms {
                 map.put(atomPart, states);
             }
             transitionMap.put(state, map);
+            budget.checkNfa("subset construction", transitionMap.size());
         }
 
         Map<State, Map<CharInterval, Set<State>>> epsilonFreeTransitions = new HashMap<>();
@@ -300,6 +427,7 @@ public class DfaAlgorithms {
                 }
             }
             epsilonFreeTransitions.put(state, map);
+            budget.checkNfa("subset construction", epsilonFreeTransitions.size());
         }
 
         Map<Set<State>, MultiState> epsilonExpansionCache = new HashMap<>();
@@ -307,7 +435,7 @@ public class DfaAlgorithms {
         // Given a transition map and a set of states of a NFA, this function augments that set, following all epsilon
         // transitions recursively
         Function<Set<State>, MultiState> followEpsilon = current -> {
-            return epsilonExpansionCache.computeIfAbsent(current, c -> followEpsilonImpl(transitionMap, c));
+            return epsilonExpansionCache.computeIfAbsent(current, c -> followEpsilonImpl(transitionMap, c, budget));
         };
 
         var dfaInitial = followEpsilon.apply(Set.of(nfa.initial));
@@ -320,6 +448,7 @@ public class DfaAlgorithms {
         while (!pending.isEmpty()) {
             MultiState current = pending.remove();
             dfaStates.add(current);
+            budget.check("subset construction", dfaStates.size());
             // The set of all transition maps of the members of the current state
             Set<Map<CharInterval, Set<State>>> currentTrans = current.states.stream()
                     .map(x -> epsilonFreeTransitions.getOrDefault(x, Map.of()))
@@ -365,7 +494,8 @@ public class DfaAlgorithms {
     }
 
     private static MultiState followEpsilonImpl(
-            Map<State, Map<AtomPart, Set<State>>> transitionMap, Set<State> current) {
+            Map<State, Map<AtomPart, Set<State>>> transitionMap, Set<State> current, CompileBudget budget) {
+        budget.checkNfa("subset construction", current.size());
         Set<Set<State>> immediate = new HashSet<>();
         for (var state : current) {
             immediate.add(transitionMap.getOrDefault(state, Map.of()).getOrDefault(Epsilon.instance, Set.of()));
@@ -374,7 +504,7 @@ public class DfaAlgorithms {
         if (expanded.equals(current)) {
             return new MultiState(current);
         } else {
-            return followEpsilonImpl(transitionMap, expanded);
+            return followEpsilonImpl(transitionMap, expanded, budget);
         }
     }
 }
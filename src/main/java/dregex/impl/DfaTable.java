@@ -0,0 +1,268 @@
+package dregex.impl;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * A dense, array-based representation of a DFA, used for matching.
+ * <p>
+ * The alphabet of a {@link Universe} is the coarsest partition compatible with all the ranges of all its regexes, but
+ * any single DFA usually treats many of those intervals identically. So the intervals are compressed into
+ * behaviour-equivalence classes: two intervals are in the same class if, from every state, they lead to the same
+ * target (or to none). Adjacent intervals of the same class are merged in a single run of code points.
+ * <p>
+ * States are numbered from zero (the initial state), and transitions are stored in a single array, indexed by state
+ * and class, with -1 meaning rejection.
+ */
+public final class DfaTable implements MatchTable {
+
+    /**
+     * Code points below this limit are classified using a direct lookup table.
+     */
+    static final int directLimit = 128;
+
+    /**
+     * Start of each run of code points, sorted. The first run starts at zero and the last one ends at the maximum
+     * code point.
+     */
+    private final int[] runStarts;
+
+    /**
+     * Class of each run, or -1 if there is no transition for the code points of the run.
+     */
+    private final int[] runClasses;
+
+    private final int[] directClasses = new int[directLimit];
+
+    private final int classCount;
+    private final int stateCount;
+    private final int[] transitions;
+    private final boolean[] accepting;
+
+    public DfaTable(Dfa dfa) {
+        // number the states, starting from the initial one
+        Map<State, Integer> stateIndices = new HashMap<>();
+        List<State> states = new ArrayList<>();
+        Queue<State> pending = new ArrayDeque<>();
+        stateIndices.put(dfa.initial, 0);
+        states.add(dfa.initial);
+        pending.add(dfa.initial);
+        while (!pending.isEmpty()) {
+            var state = pending.remove();
+            for (var target : dfa.transitionMap(state).values()) {
+                if (!stateIndices.containsKey(target)) {
+                    stateIndices.put(target, states.size());
+                    states.add(target);
+                    pending.add(target);
+                }
+            }
+        }
+        stateCount = states.size();
+
+        var intervals = dfa.allChars().stream().sorted().toArray(CharInterval[]::new);
+        Map<CharInterval, Integer> intervalIndices = new HashMap<>();
+        for (int i = 0; i < intervals.length; i++) {
+            intervalIndices.put(intervals[i], i);
+        }
+
+        /*
+         * Partition refinement: all intervals start in the same class, and each state splits the classes according
+         * to the targets. Intervals without transitions from a given state keep their class, so they end up separated
+         * from the ones that have, and only the actual transitions have to be visited.
+         */
+        int[] intervalClasses = new int[intervals.length];
+        int nextClass = 1;
+        for (var state : states) {
+            Map<Long, Integer> splits = new HashMap<>();
+            for (var transition : dfa.transitionMap(state).entrySet()) {
+                int interval = intervalIndices.get(transition.getKey());
+                int target = stateIndices.get(transition.getValue());
+                long key = ((long) intervalClasses[interval] << 32) | target;
+                var newClass = splits.get(key);
+                if (newClass == null) {
+                    newClass = nextClass++;
+                    splits.put(key, newClass);
+                }
+                intervalClasses[interval] = newClass;
+            }
+        }
+        // renumber the classes densely
+        Map<Integer, Integer> classNumbers = new HashMap<>();
+        for (int i = 0; i < intervals.length; i++) {
+            var number = classNumbers.get(intervalClasses[i]);
+            if (number == null) {
+                number = classNumbers.size();
+                classNumbers.put(intervalClasses[i], number);
+            }
+            intervalClasses[i] = number;
+        }
+        classCount = classNumbers.size();
+
+        // merge adjacent intervals of the same class, filling the gaps with rejecting runs
+        int[] starts = new int[intervals.length * 2 + 1];
+        int[] classes = new int[intervals.length * 2 + 1];
+        int runCount = 0;
+        int nextCodePoint = 0;
+        for (int i = 0; i < intervals.length; i++) {
+            var interval = intervals[i];
+            if (interval.from > nextCodePoint) {
+                starts[runCount] = nextCodePoint;
+                classes[runCount] = -1;
+                runCount++;
+            }
+            if (interval.from != nextCodePoint || runCount == 0 || classes[runCount - 1] != intervalClasses[i]) {
+                starts[runCount] = interval.from;
+                classes[runCount] = intervalClasses[i];
+                runCount++;
+            }
+            nextCodePoint = interval.to + 1;
+        }
+        if (nextCodePoint <= Character.MAX_CODE_POINT) {
+            starts[runCount] = nextCodePoint;
+            classes[runCount] = -1;
+            runCount++;
+        }
+        runStarts = Arrays.copyOf(starts, runCount);
+        runClasses = Arrays.copyOf(classes, runCount);
+        for (int codePoint = 0; codePoint < directLimit; codePoint++) {
+            directClasses[codePoint] = searchClass(codePoint);
+        }
+
+        transitions = new int[transitionTableSize(stateCount, classCount)];
+        Arrays.fill(transitions, -1);
+        accepting = new boolean[stateCount];
+        for (int s = 0; s < stateCount; s++) {
+            var state = states.get(s);
+            for (var transition : dfa.transitionMap(state).entrySet()) {
+                int interval = intervalIndices.get(transition.getKey());
+                transitions[s * classCount + intervalClasses[interval]] = stateIndices.get(transition.getValue());
+            }
+            accepting[s] = dfa.accepting.contains(state);
+        }
+    }
+
+    /**
+     * Largest array that the JVM can reliably allocate: some reserve a few words of the maximum int size for headers.
+     */
+    private static final int maxArraySize = Integer.MAX_VALUE - 8;
+
+    static int transitionTableSize(int stateCount, int classCount) {
+        long size = (long) stateCount * classCount;
+        if (size > maxArraySize) {
+            throw new IllegalStateException(String.format(
+                    "DFA too large for a match table: %d states by %d character classes", stateCount, classCount));
+        }
+        return (int) size;
+    }
+
+    private int searchClass(int codePoint) {
+        int run = Arrays.binarySearch(runStarts, codePoint);
+        if (run < 0) {
+            // not a start, so it is inside the previous run
+            run = -run - 2;
+        }
+        return runClasses[run];
+    }
+
+    @Override
+    public int classOf(int codePoint) {
+        if (codePoint < directLimit) {
+            return directClasses[codePoint];
+        } else {
+            return searchClass(codePoint);
+        }
+    }
+
+    @Override
+    public int step(int state, int codePoint) {
+        int cls = classOf(codePoint);
+        if (cls < 0) {
+            return -1;
+        }
+        return transitions[state * classCount + cls];
+    }
+
+    @Override
+    public int initialState() {
+        return 0;
+    }
+
+    @Override
+    public boolean isAccepting(int state) {
+        return accepting[state];
+    }
+
+    @Override
+    public int stateCount() {
+        return stateCount;
+    }
+
+    @Override
+    public int classCount() {
+        return classCount;
+    }
+
+    /**
+     * Return the number of runs of adjacent code points of the same class.
+     */
+    public int runCount() {
+        return runStarts.length;
+    }
+
+    /**
+     * Return the first code point of a run.
+     */
+    public int runStart(int run) {
+        return runStarts[run];
+    }
+
+    /**
+     * Return the class of a run, or -1 if there is no transition for its code points.
+     */
+    public int runClass(int run) {
+        return runClasses[run];
+    }
+
+    /**
+     * Return the state reached from the given one with the given class, or -1 if the input is rejected.
+     */
+    public int target(int state, int cls) {
+        return transitions[state * classCount + cls];
+    }
+
+    /**
+     * Write this table in the layout read by {@link MappedDfaTable}.
+     */
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(stateCount);
+        out.writeInt(classCount);
+        out.writeInt(runStarts.length);
+        for (int cls : directClasses) {
+            out.writeInt(cls);
+        }
+        for (int start : runStarts) {
+            out.writeInt(start);
+        }
+        for (int cls : runClasses) {
+            out.writeInt(cls);
+        }
+        for (boolean acc : accepting) {
+            out.writeInt(acc ? 1 : 0);
+        }
+        for (int target : transitions) {
+            out.writeInt(target);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("DfaTable(states: %s, classes: %s, runs: %s)", stateCount, classCount, runStarts.length);
+    }
+}
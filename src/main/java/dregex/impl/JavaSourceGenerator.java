@@ -0,0 +1,331 @@
+package dregex.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import javax.lang.model.SourceVersion;
+
+/**
+ * Generation of Java source code for matchers of compiled regexes, meant to be run at build time, so that the
+ * resulting classes match without compiling anything, or depending on this library.
+ * <p>
+ * Every regex becomes a static method of the generated class, which matches with the {@link DfaTable} of the regex
+ * (class of the code points and transitions). Tables are stored as string constants, with every value as a variable
+ * length sequence of base-64 digits, because array initializers are compiled as code, which is limited to 64 KB per
+ * method, while string constants are only limited in length. Every table is in a nested class of its own, so that
+ * it is decoded the first time the method of its regex is called, and so that the constant pool of no class (limited
+ * to 65535 entries) has more than one table. The literals of a table are returned by several methods (see
+ * {@link Layout}), so that no method exceeds the limit of the code size either.
+ */
+public final class JavaSourceGenerator {
+
+    private static final String digits = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+
+    /**
+     * How the encoded tables are split in the generated source.
+     */
+    public static final class Layout {
+
+        /**
+         * Length of every string literal of the tables.
+         */
+        final int literalLength;
+
+        /**
+         * Number of literals returned by every method of a table.
+         */
+        final int literalsPerMethod;
+
+        /**
+         * Maximum number of literals of a table, beyond which it is rejected.
+         */
+        final int maxLiterals;
+
+        public Layout(int literalLength, int literalsPerMethod, int maxLiterals) {
+            this.literalLength = literalLength;
+            this.literalsPerMethod = literalsPerMethod;
+            this.maxLiterals = maxLiterals;
+        }
+    }
+
+    /**
+     * Literals of 4 KB, well below the limit of 64 KB of the class file format, in methods of about 10 KB of code
+     * (one load and one store per literal), and tables of up to 64 MB, whose two constant pool entries per literal
+     * fit in the limit of 65535.
+     */
+    public static final Layout defaultLayout = new Layout(4096, 1024, 16384);
+
+    private static final Pattern reservedClassName = Pattern.compile("Dfa|Table[0-9]+");
+
+    private JavaSourceGenerator() {}
+
+    /**
+     * Generate the source of a class with a matching method for every regex, named by the keys of the map.
+     *
+     * @param qualifiedClassName name of the class, with its package, if any
+     * @param regexes the regexes to generate methods for, with their method names, in the order of the methods
+     * @throws IllegalArgumentException if the class name or a method name is not a valid Java identifier, or if the
+     *     table of a regex is too large to be compiled
+     */
+    public static String generate(String qualifiedClassName, Map<String, RegexImpl> regexes) {
+        return generate(qualifiedClassName, regexes, defaultLayout);
+    }
+
+    /**
+     * Generate the source of a class with a matching method for every regex, with the tables split as given by a
+     * layout.
+     *
+     * @see #generate(String, Map)
+     */
+    public static String generate(String qualifiedClassName, Map<String, RegexImpl> regexes, Layout layout) {
+        int lastDot = qualifiedClassName.lastIndexOf('.');
+        var packageName = lastDot == -1 ? null : qualifiedClassName.substring(0, lastDot);
+        var className = qualifiedClassName.substring(lastDot + 1);
+        if (packageName != null) {
+            for (var part : packageName.split("\\.", -1)) {
+                checkIdentifier(part, "package name");
+            }
+        }
+        checkIdentifier(className, "class name");
+        if (reservedClassName.matcher(className).matches()) {
+            throw new IllegalArgumentException(
+                    String.format("invalid class name: \"%s\" is used for a nested class", className));
+        }
+        for (var name : regexes.keySet()) {
+            checkIdentifier(name, "method name");
+        }
+        var encodedTables = new ArrayList<String>();
+        for (var entry : regexes.entrySet()) {
+            var encoded = encode(entry.getValue().toDfaTable());
+            long maxLength = (long) layout.maxLiterals * layout.literalLength;
+            if (encoded.length() > maxLength) {
+                throw new IllegalArgumentException(String.format(
+                        "the table of %s is too large to be compiled: %d characters, the maximum is %d",
+                        entry.getKey(), encoded.length(), maxLength));
+            }
+            encodedTables.add(encoded);
+        }
+
+        var out = new StringBuilder();
+        out.append("// Generated by dregex. Do not edit.\n");
+        out.append("//\n");
+        for (var entry : regexes.entrySet()) {
+            var literal = entry.getValue().literal();
+            out.append("// ").append(entry.getKey()).append(": ");
+            out.append(literal.isPresent() ? quote(literal.get()) : "(synthetic regex)").append('\n');
+        }
+        out.append('\n');
+        if (packageName != null) {
+            out.append("package ").append(packageName).append(";\n\n");
+        }
+        out.append("public final class ").append(className).append(" {\n\n");
+        out.append("    private ").append(className).append("() {}\n");
+
+        int index = 0;
+        for (var entry : regexes.entrySet()) {
+            var regex = entry.getValue();
+            var table = "Table" + index + ".table";
+            out.append('\n');
+            out.append("    public static boolean ").append(entry.getKey()).append("(CharSequence input) {\n");
+            if (regex.getUniverse().hasCanonicalEquivalence()) {
+                out.append("        return Dfa.matches(").append(table).append(", ");
+                out.append("java.text.Normalizer.normalize(input, java.text.Normalizer.Form.NFD));\n");
+            } else {
+                out.append("        return Dfa.matches(").append(table).append(", input);\n");
+            }
+            out.append("    }\n");
+            index++;
+        }
+        for (int i = 0; i < encodedTables.size(); i++) {
+            out.append('\n');
+            appendTable(out, "Table" + i, encodedTables.get(i), layout);
+        }
+        out.append('\n');
+        for (var line : runtime) {
+            if (!line.isEmpty()) {
+                out.append("    ").append(line);
+            }
+            out.append('\n');
+        }
+        out.append("}\n");
+        return out.toString();
+    }
+
+    /**
+     * Append a nested class with an encoded table, in a field initialized by the concatenation of the arrays of
+     * literals returned by its methods.
+     */
+    private static void appendTable(StringBuilder out, String className, String encoded, Layout layout) {
+        int literalCount = (encoded.length() + layout.literalLength - 1) / layout.literalLength;
+        int methodCount = Math.max(1, (literalCount + layout.literalsPerMethod - 1) / layout.literalsPerMethod);
+        out.append("    private static final class ").append(className).append(" {\n\n");
+        out.append("        static final int[] table = Dfa.decode(");
+        for (int i = 0; i < methodCount; i++) {
+            out.append(i == 0 ? "" : ", ").append("part").append(i).append("()");
+        }
+        out.append(");\n");
+        for (int i = 0; i < methodCount; i++) {
+            out.append('\n');
+            out.append("        private static String[] part").append(i).append("() {\n");
+            out.append("            return new String[] {");
+            int first = i * layout.literalsPerMethod;
+            int last = Math.min(first + layout.literalsPerMethod, literalCount);
+            for (int literal = first; literal < last; literal++) {
+                int start = literal * layout.literalLength;
+                out.append(literal == first ? "\n" : ",\n");
+                out.append("                \"");
+                out.append(encoded, start, Math.min(start + layout.literalLength, encoded.length()));
+                out.append('"');
+            }
+            out.append("\n            };\n");
+            out.append("        }\n");
+        }
+        out.append("    }\n");
+    }
+
+    /**
+     * The code that decodes and interprets the tables, in the generated class. It only uses the Java 8 language and
+     * library.
+     */
+    private static final List<String> runtime = List.of(
+            "private static final class Dfa {",
+            "",
+            "    private static final int directLimit = " + DfaTable.directLimit + ";",
+            "",
+            "    static int[] decode(String[]... parts) {",
+            "        StringBuilder data = new StringBuilder();",
+            "        for (String[] literals : parts) {",
+            "            for (String literal : literals) {",
+            "                data.append(literal);",
+            "            }",
+            "        }",
+            "        int[] values = new int[data.length()];",
+            "        int count = 0;",
+            "        int value = 0;",
+            "        int shift = 0;",
+            "        for (int i = 0; i < data.length(); i++) {",
+            "            int digit = \"" + digits + "\".indexOf(data.charAt(i));",
+            "            value |= (digit & 31) << shift;",
+            "            if (digit >= 32) {",
+            "                shift += 5;",
+            "            } else {",
+            "                values[count++] = value - 1;",
+            "                value = 0;",
+            "                shift = 0;",
+            "            }",
+            "        }",
+            "        return java.util.Arrays.copyOf(values, count);",
+            "    }",
+            "",
+            "    static boolean matches(int[] table, CharSequence input) {",
+            "        int classCount = table[1];",
+            "        int runCount = table[2];",
+            "        int direct = 3;",
+            "        int runStarts = direct + directLimit;",
+            "        int runClasses = runStarts + runCount;",
+            "        int accepting = runClasses + runCount;",
+            "        int transitions = accepting + table[0];",
+            "        int state = 0;",
+            "        int i = 0;",
+            "        int length = input.length();",
+            "        while (i < length) {",
+            "            int codePoint = Character.codePointAt(input, i);",
+            "            int cls;",
+            "            if (codePoint < directLimit) {",
+            "                cls = table[direct + codePoint];",
+            "            } else {",
+            "                // last run that starts at or before the code point",
+            "                int low = 0;",
+            "                int high = runCount - 1;",
+            "                while (low < high) {",
+            "                    int mid = (low + high + 1) >>> 1;",
+            "                    if (table[runStarts + mid] <= codePoint) {",
+            "                        low = mid;",
+            "                    } else {",
+            "                        high = mid - 1;",
+            "                    }",
+            "                }",
+            "                cls = table[runClasses + low];",
+            "            }",
+            "            if (cls < 0) {",
+            "                return false;",
+            "            }",
+            "            state = table[transitions + state * classCount + cls];",
+            "            if (state < 0) {",
+            "                return false;",
+            "            }",
+            "            i += Character.charCount(codePoint);",
+            "        }",
+            "        return table[accepting + state] != 0;",
+            "    }",
+            "}");
+
+    /**
+     * Encode a table, in the layout of {@link DfaTable#writeTo}, with every value plus one (so that they are not
+     * negative) as a sequence of base-64 digits of five bits each, least significant first, in which all the digits
+     * but the last have the sixth bit set.
+     */
+    static String encode(DfaTable table) {
+        var bytes = new ByteArrayOutputStream();
+        try {
+            var out = new DataOutputStream(bytes);
+            table.writeTo(out);
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        var values = ByteBuffer.wrap(bytes.toByteArray()).asIntBuffer();
+        var ret = new StringBuilder();
+        while (values.hasRemaining()) {
+            int value = values.get() + 1;
+            while ((value & ~31) != 0) {
+                ret.append(digits.charAt(32 | (value & 31)));
+                value >>>= 5;
+            }
+            ret.append(digits.charAt(value));
+        }
+        return ret.toString();
+    }
+
+    /**
+     * Check that a name can be used as an identifier in the generated source: it must be a syntactically valid
+     * identifier, and not a keyword or a literal ({@code true}, {@code false} or {@code null}) in the latest version
+     * of the language.
+     */
+    private static void checkIdentifier(String str, String description) {
+        if (!SourceVersion.isIdentifier(str)) {
+            throw new IllegalArgumentException(String.format("invalid %s: \"%s\"", description, str));
+        }
+        if (SourceVersion.isKeyword(str)) {
+            throw new IllegalArgumentException(
+                    String.format("invalid %s: \"%s\" is a reserved word in Java", description, str));
+        }
+    }
+
+    /**
+     * Quote a string for a comment of the generated source, similarly to a Java string literal. Backslashes are
+     * escaped, so that nothing in the comment is taken as a Unicode escape by the compiler, and all the characters
+     * outside printable ASCII are escaped, so that no new line ends the comment.
+     */
+    private static String quote(String str) {
+        var ret = new StringBuilder("\"");
+        for (int i = 0; i < str.length(); i++) {
+            char ch = str.charAt(i);
+            if (ch == '\\' || ch == '"') {
+                ret.append('\\').append(ch);
+            } else if (ch >= ' ' && ch <= '~') {
+                ret.append(ch);
+            } else {
+                // the backslash is doubled, as a lone "\\u" would be a Unicode escape even in a comment
+                ret.append(String.format("\\\\u%04X", (int) ch));
+            }
+        }
+        return ret.append('"').toString();
+    }
+}
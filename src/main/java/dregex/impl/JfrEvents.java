@@ -0,0 +1,177 @@
+package dregex.impl;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Java Flight Recorder events of the compilation and the operations on automata.
+ * <p>
+ * The jdk.jfr module is optional: it can be missing from the runtime (as with {@code --limit-modules}), and loading
+ * its classes takes a noticeable time. So events are only created if {@link #enabled()} returns true, that is, once
+ * the Flight Recorder was initialized by a recording; otherwise, no class of jdk.jfr is loaded. Only the nested
+ * classes reference jdk.jfr, and the JVM loads them on first use. Their fields are only calculated, and the events
+ * committed, if {@link Event#shouldCommit()} returns true, which is only the case when a recording with the event
+ * enabled is running (and the event is above the threshold).
+ */
+final class JfrEvents {
+
+    private JfrEvents() {}
+
+    /**
+     * Whether the jdk.jfr module is present, checked without loading any of its classes.
+     */
+    private static final boolean jfrPresent = ModuleLayer.boot().findModule("jdk.jfr").isPresent();
+
+    /**
+     * The Flight Recorder stays initialized once it is, so after seeing it, it is not queried again.
+     */
+    private static volatile boolean recorderInitialized = false;
+
+    /**
+     * @return whether events should be created, because the Flight Recorder was initialized
+     */
+    static boolean enabled() {
+        if (recorderInitialized) {
+            return true;
+        }
+        if (!jfrPresent) {
+            return false;
+        }
+        recorderInitialized = Recorder.isInitialized();
+        return recorderInitialized;
+    }
+
+    private static final class Recorder {
+
+        static boolean isInitialized() {
+            return FlightRecorder.isInitialized();
+        }
+    }
+
+    /**
+     * Patterns are truncated to this length, as events are meant to be recorded continuously.
+     */
+    static final int maxPatternLength = 200;
+
+    static String truncate(String pattern) {
+        if (pattern == null || pattern.length() <= maxPatternLength) {
+            return pattern;
+        }
+        return pattern.substring(0, maxPatternLength) + "…";
+    }
+
+    @Name("dregex.Compile")
+    @Label("Regex Compilation")
+    @Category("dregex")
+    @Description("Compilation of a parsed regex to a DFA")
+    static final class Compile extends Event {
+
+        @Label("Pattern")
+        String pattern;
+
+        @Label("Flags")
+        @Description("Compile flags, as a bit mask of java.util.regex.Pattern flags")
+        int flags;
+
+        @Label("NFA States")
+        @Description("States of all the NFAs built, including the ones of lookarounds")
+        long nfaStates;
+
+        @Label("DFA States")
+        int dfaStates;
+    }
+
+    @Name("dregex.Determinization")
+    @Label("Determinization")
+    @Category("dregex")
+    @Description("Subset construction of a DFA from an NFA, for a regex or one of its lookarounds")
+    static final class Determinization extends Event {
+
+        @Label("Pattern")
+        String pattern;
+
+        @Label("Flags")
+        @Description("Compile flags, as a bit mask of java.util.regex.Pattern flags")
+        int flags;
+
+        @Label("NFA States")
+        int nfaStates;
+
+        @Label("NFA Transitions")
+        int nfaTransitions;
+
+        @Label("DFA States")
+        int dfaStates;
+    }
+
+    @Name("dregex.Minimization")
+    @Label("Minimization")
+    @Category("dregex")
+    @Description("Minimization of a DFA")
+    static final class Minimization extends Event {
+
+        @Label("States Before")
+        int statesBefore;
+
+        @Label("States After")
+        int statesAfter;
+    }
+
+    @Name("dregex.ProductConstruction")
+    @Label("Product Construction")
+    @Category("dregex")
+    @Description("Product construction of two DFAs, for a set operation or a lookaround")
+    static final class ProductConstruction extends Event {
+
+        @Label("Operation")
+        String operation;
+
+        @Label("Left States")
+        int leftStates;
+
+        @Label("Right States")
+        int rightStates;
+
+        @Label("Product States")
+        @Description("States of the product, before removing the unreachable ones")
+        int productStates;
+    }
+
+    @Name("dregex.UnreachableStatePruning")
+    @Label("Unreachable State Pruning")
+    @Category("dregex")
+    @Description("Removal of the states of a DFA that are not reachable from the initial one")
+    static final class UnreachableStatePruning extends Event {
+
+        @Label("States Before")
+        int statesBefore;
+
+        @Label("States After")
+        int statesAfter;
+    }
+
+    @Name("dregex.SetOperation")
+    @Label("Set Operation")
+    @Category("dregex")
+    @Description("Intersection, difference or union of two regexes")
+    static final class SetOperation extends Event {
+
+        @Label("Operation")
+        String operation;
+
+        @Label("Left Pattern")
+        @Description("Pattern of the left operand, if it was compiled from one")
+        String leftPattern;
+
+        @Label("Right Pattern")
+        @Description("Pattern of the right operand, if it was compiled from one")
+        String rightPattern;
+
+        @Label("Result States")
+        int resultStates;
+    }
+}
@@ -0,0 +1,114 @@
+package dregex.impl;
+
+import dregex.impl.tree.Node;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * A regular expression that is parsed, and has its universe, but that is only compiled the first time its DFA or
+ * table is requested, for sets of regexes of which only a few are used. The compilation is done once: concurrent
+ * requests wait for the thread that is compiling. If the compilation fails, it is attempted again on the next request.
+ */
+public final class LazyRegex extends RegexImpl {
+
+    private final String originalString;
+    private final Node parsedTree;
+    /**
+     * Holds the times of the phases done up front (parsing and alphabet); it is not modified, as every compilation
+     * attempt is recorded in a new recorder, so a failed attempt does not leave its state in the next one.
+     */
+    private final CompileRecorder preparation;
+
+    private volatile CompiledRegex compiled;
+
+    /**
+     * @param preparation the recorder of the parsing and alphabet phases, done up front
+     */
+    public LazyRegex(String originalString, Node parsedTree, Universe universe, CompileRecorder preparation) {
+        super(universe);
+        CompilerHelper.checkSupported(parsedTree);
+        this.originalString = originalString;
+        this.parsedTree = parsedTree;
+        this.preparation = preparation;
+    }
+
+    private CompiledRegex compiled() {
+        var ret = compiled;
+        if (ret == null) {
+            synchronized (this) {
+                ret = compiled;
+                if (ret == null) {
+                    ret = new CompiledRegex(originalString, parsedTree, getUniverse(), newRecorder());
+                    compiled = ret;
+                }
+            }
+        }
+        return ret;
+    }
+
+    private CompileRecorder newRecorder() {
+        var ret = new CompileRecorder(preparation.getPattern(), preparation.getFlags());
+        ret.addTime(CompileRecorder.Phase.Parse, preparation.getNanos(CompileRecorder.Phase.Parse));
+        ret.addTime(CompileRecorder.Phase.Alphabet, preparation.getNanos(CompileRecorder.Phase.Alphabet));
+        ret.recordAlphabetSize(preparation.getAlphabetSize());
+        return ret;
+    }
+
+    /**
+     * Return whether this regex was already compiled.
+     */
+    public boolean isCompiled() {
+        return compiled != null;
+    }
+
+    @Override
+    public Dfa getDfa() {
+        return compiled().getDfa();
+    }
+
+    @Override
+    public MatchTable getTable() {
+        return compiled().getTable();
+    }
+
+    @Override
+    public Optional<String> literal() {
+        return Optional.of(originalString);
+    }
+
+    /**
+     * Return the record of the compilation, once this regex was compiled.
+     */
+    @Override
+    public Optional<CompileRecorder> compileRecorder() {
+        var current = compiled;
+        return current != null ? current.compileRecorder() : Optional.empty();
+    }
+
+    /**
+     * Return an equivalent regex from an extension of this regex's universe. If this regex was not compiled yet, the
+     * result is not compiled either: as the extended universe includes the tree of this regex, it is compiled there,
+     * on demand.
+     */
+    @Override
+    public RegexImpl refine(Universe extended, Map<CharInterval, List<CharInterval>> refinement) {
+        var current = compiled;
+        if (current != null) {
+            return current.refine(extended, refinement);
+        }
+        return new LazyRegex(
+                originalString, parsedTree, extended, new CompileRecorder(originalString, preparation.getFlags()));
+    }
+
+    @Override
+    protected RegexImpl withDfa(Dfa dfa, Universe universe) {
+        return compiled().withDfa(dfa, universe);
+    }
+
+    @Override
+    public String toString() {
+        var current = compiled;
+        return current != null ? current.toString() : String.format("⟪%s⟫ (not compiled)", originalString);
+    }
+}
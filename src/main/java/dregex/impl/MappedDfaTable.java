@@ -0,0 +1,190 @@
+package dregex.impl;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * A {@link DfaTable} that is read in place from a buffer, typically a memory-mapped file, instead of being held in the
+ * heap. All reads use absolute positions, so instances can be shared by threads.
+ * <p>
+ * Layout (big-endian ints), as written by {@link DfaTable#writeTo}:
+ * <pre>
+ * state count, class count, run count
+ * class of every code point below the direct lookup limit
+ * start of every run
+ * class of every run
+ * accepting flag of every state
+ * transitions, indexed by state and class
+ * </pre>
+ */
+public final class MappedDfaTable implements MatchTable {
+
+    private final ByteBuffer buffer;
+
+    private final int stateCount;
+    private final int classCount;
+    private final int runCount;
+
+    private final int directBase;
+    private final int runStartsBase;
+    private final int runClassesBase;
+    private final int acceptingBase;
+    private final int transitionsBase;
+    private final int end;
+
+    /**
+     * Read the table that starts at the given position of a big-endian buffer. The table is validated, so that
+     * corrupted data fails here, with {@link IllegalArgumentException}, and not while matching: all the classes and
+     * the transitions are read once.
+     */
+    public MappedDfaTable(ByteBuffer buffer, int offset) {
+        this.buffer = buffer;
+        if (offset < 0 || (long) offset + Integer.BYTES * 3 > buffer.limit()) {
+            throw new IllegalArgumentException("truncated DFA table at offset " + offset);
+        }
+        stateCount = buffer.getInt(offset);
+        classCount = buffer.getInt(offset + Integer.BYTES);
+        runCount = buffer.getInt(offset + Integer.BYTES * 2);
+        if (stateCount < 1 || classCount < 0 || runCount < 1) {
+            throw new IllegalArgumentException("invalid DFA table at offset " + offset);
+        }
+        directBase = offset + Integer.BYTES * 3;
+        runStartsBase = base(offset, directBase + (long) DfaTable.directLimit * Integer.BYTES);
+        runClassesBase = base(offset, runStartsBase + (long) runCount * Integer.BYTES);
+        acceptingBase = base(offset, runClassesBase + (long) runCount * Integer.BYTES);
+        transitionsBase = base(offset, acceptingBase + (long) stateCount * Integer.BYTES);
+        end = base(offset, transitionsBase + (long) stateCount * classCount * Integer.BYTES);
+        validate(offset);
+    }
+
+    /**
+     * Return the position of a section of the table, which must be within the buffer.
+     */
+    private int base(int offset, long position) {
+        if (position > buffer.limit()) {
+            throw new IllegalArgumentException("truncated DFA table at offset " + offset);
+        }
+        return (int) position;
+    }
+
+    private void validate(int offset) {
+        for (int codePoint = 0; codePoint < DfaTable.directLimit; codePoint++) {
+            validateClass(offset, buffer.getInt(directBase + codePoint * Integer.BYTES));
+        }
+        for (int run = 0; run < runCount; run++) {
+            validateClass(offset, buffer.getInt(runClassesBase + run * Integer.BYTES));
+        }
+        for (int position = transitionsBase; position < end; position += Integer.BYTES) {
+            int target = buffer.getInt(position);
+            if (target < -1 || target >= stateCount) {
+                throw new IllegalArgumentException("invalid transition in DFA table at offset " + offset);
+            }
+        }
+    }
+
+    private void validateClass(int offset, int cls) {
+        if (cls < -1 || cls >= classCount) {
+            throw new IllegalArgumentException("invalid character class in DFA table at offset " + offset);
+        }
+    }
+
+    /**
+     * Return the position of the buffer just after this table.
+     */
+    public int end() {
+        return end;
+    }
+
+    @Override
+    public int classOf(int codePoint) {
+        if (codePoint < DfaTable.directLimit) {
+            return buffer.getInt(directBase + codePoint * Integer.BYTES);
+        }
+        // last run that starts at or before the code point
+        int low = 0;
+        int high = runCount - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (buffer.getInt(runStartsBase + mid * Integer.BYTES) <= codePoint) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return buffer.getInt(runClassesBase + low * Integer.BYTES);
+    }
+
+    @Override
+    public int step(int state, int codePoint) {
+        int cls = classOf(codePoint);
+        if (cls < 0) {
+            return -1;
+        }
+        return buffer.getInt(transitionsBase + (state * classCount + cls) * Integer.BYTES);
+    }
+
+    @Override
+    public int initialState() {
+        return 0;
+    }
+
+    @Override
+    public boolean isAccepting(int state) {
+        return buffer.getInt(acceptingBase + state * Integer.BYTES) != 0;
+    }
+
+    @Override
+    public int stateCount() {
+        return stateCount;
+    }
+
+    @Override
+    public int classCount() {
+        return classCount;
+    }
+
+    /**
+     * Build the DFA that this table represents, with transitions over the intervals of the given alphabet. Every
+     * interval must be included in a single run of the table, which is the case for the alphabet of the universe
+     * that the table was built in.
+     */
+    public Dfa toDfa(CharInterval[] alphabet, boolean minimal) {
+        var intervalClasses = new int[alphabet.length];
+        for (int i = 0; i < alphabet.length; i++) {
+            intervalClasses[i] = classOf(alphabet[i].from);
+        }
+        var states = new SimpleState[stateCount];
+        for (int s = 0; s < stateCount; s++) {
+            states[s] = new SimpleState();
+        }
+        Map<State, TreeMap<CharInterval, State>> transitions = new HashMap<>();
+        Set<State> accepting = new HashSet<>();
+        for (int s = 0; s < stateCount; s++) {
+            var stateTransitions = new TreeMap<CharInterval, State>();
+            for (int i = 0; i < alphabet.length; i++) {
+                if (intervalClasses[i] >= 0) {
+                    int target = buffer.getInt(transitionsBase + (s * classCount + intervalClasses[i]) * Integer.BYTES);
+                    if (target >= 0) {
+                        stateTransitions.put(alphabet[i], states[target]);
+                    }
+                }
+            }
+            if (!stateTransitions.isEmpty()) {
+                transitions.put(states[s], stateTransitions);
+            }
+            if (isAccepting(s)) {
+                accepting.add(states[s]);
+            }
+        }
+        return new Dfa(states[0], transitions, accepting, minimal);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("MappedDfaTable(states: %s, classes: %s, runs: %s)", stateCount, classCount, runCount);
+    }
+}
@@ -0,0 +1,160 @@
+package dregex.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Serialization of the match tables of regexes that share a {@link Universe}, in a layout that is used in place: the
+ * regexes read from a buffer (typically a memory-mapped file) match reading the buffer directly, so several processes
+ * mapping the same file share its pages. Unlike {@link BinaryFormat}, nothing is copied to the heap when reading.
+ * <p>
+ * Layout (big-endian ints):
+ * <pre>
+ * header:   magic, version, canonical equivalence, interval count, regex count
+ *           every interval of the alphabet, as from, to
+ *           offset of every regex, from the start of the data
+ * regex:    literal length (-1 if none), literal (chars, padded to a multiple of four bytes)
+ *           minimal
+ *           match table (see {@link MappedDfaTable})
+ * </pre>
+ */
+public final class MappedFormat {
+
+    private static final int magic = 0x4452584D; // "DRXM"
+
+    public static final int version = 1;
+
+    private static final int headerSize = Integer.BYTES * 5;
+
+    private MappedFormat() {}
+
+    /**
+     * Write regexes of the same universe.
+     */
+    public static void write(List<RegexImpl> regexes, Universe universe, OutputStream out) throws IOException {
+        var intervals = universe.getAlphabet().values().stream()
+                .flatMap(List::stream)
+                .distinct()
+                .sorted()
+                .toArray(CharInterval[]::new);
+
+        // regexes are laid out first, to know their offsets
+        var records = new ByteArrayOutputStream();
+        var recordsOut = new DataOutputStream(records);
+        var offsets = new int[regexes.size()];
+        int recordsStart = headerSize + intervals.length * 2 * Integer.BYTES + regexes.size() * Integer.BYTES;
+        for (int i = 0; i < regexes.size(); i++) {
+            var regex = regexes.get(i);
+            offsets[i] = recordsStart + recordsOut.size();
+            var literal = regex.literal();
+            if (literal.isPresent()) {
+                recordsOut.writeInt(literal.get().length());
+                recordsOut.writeChars(literal.get());
+                if (literal.get().length() % 2 != 0) {
+                    recordsOut.writeChar(0);
+                }
+            } else {
+                recordsOut.writeInt(-1);
+            }
+            recordsOut.writeInt(regex.getDfa().minimal ? 1 : 0);
+            var table = regex.getTable();
+            if (table instanceof DfaTable) {
+                ((DfaTable) table).writeTo(recordsOut);
+            } else {
+                new DfaTable(regex.getDfa()).writeTo(recordsOut);
+            }
+        }
+        recordsOut.flush();
+
+        var header = new DataOutputStream(out);
+        header.writeInt(magic);
+        header.writeInt(version);
+        header.writeInt(universe.hasCanonicalEquivalence() ? 1 : 0);
+        header.writeInt(intervals.length);
+        header.writeInt(regexes.size());
+        for (var interval : intervals) {
+            header.writeInt(interval.from);
+            header.writeInt(interval.to);
+        }
+        for (int offset : offsets) {
+            header.writeInt(offset);
+        }
+        records.writeTo(header);
+        header.flush();
+    }
+
+    /**
+     * Read regexes written by {@link #write}, from the current position of the buffer, and advance the position past
+     * the data, as {@link BinaryFormat#read(ByteBuffer)} does. The buffer is not copied, and it must not be modified
+     * while the regexes are in use. Only the structure of the data is validated.
+     */
+    public static List<RegexImpl> map(ByteBuffer buffer) {
+        var data = buffer.slice().order(ByteOrder.BIG_ENDIAN);
+        try {
+            if (data.getInt(0) != magic) {
+                throw new IllegalArgumentException("invalid mapped regex data: wrong magic number");
+            }
+            int readVersion = data.getInt(Integer.BYTES);
+            if (readVersion != version) {
+                throw new IllegalArgumentException(String.format(
+                        "unsupported mapped regex version: %d (supported: %d)", readVersion, version));
+            }
+            boolean canonicalEquivalence = data.getInt(Integer.BYTES * 2) != 0;
+            var intervals =
+                    new CharInterval[checkCount(data.getInt(Integer.BYTES * 3), Integer.BYTES * 2, data, headerSize)];
+            int regexCount = data.getInt(Integer.BYTES * 4);
+            int position = headerSize;
+            for (int i = 0; i < intervals.length; i++) {
+                intervals[i] = new CharInterval(data.getInt(position), data.getInt(position + Integer.BYTES));
+                position += Integer.BYTES * 2;
+            }
+            var universe = Universe.ofAlphabet(List.of(intervals), canonicalEquivalence);
+
+            List<RegexImpl> ret = new ArrayList<>(checkCount(regexCount, Integer.BYTES, data, position));
+            int end = position + regexCount * Integer.BYTES;
+            for (int r = 0; r < regexCount; r++) {
+                int offset = data.getInt(position + r * Integer.BYTES);
+                int literalLength = data.getInt(offset);
+                offset += Integer.BYTES;
+                Optional<String> literal;
+                if (literalLength >= 0) {
+                    var chars = new char[checkCount(literalLength, Character.BYTES, data, offset)];
+                    for (int i = 0; i < literalLength; i++) {
+                        chars[i] = data.getChar(offset + i * Character.BYTES);
+                    }
+                    literal = Optional.of(new String(chars));
+                    offset += (literalLength + literalLength % 2) * Character.BYTES;
+                } else {
+                    literal = Optional.empty();
+                }
+                boolean minimal = data.getInt(offset) != 0;
+                var table = new MappedDfaTable(data, offset + Integer.BYTES);
+                ret.add(new MappedRegex(table, literal, intervals, minimal, universe));
+                end = Math.max(end, table.end());
+            }
+            buffer.position(buffer.position() + end);
+            return ret;
+        } catch (IndexOutOfBoundsException | NegativeArraySizeException e) {
+            throw new IllegalArgumentException("invalid mapped regex data", e);
+        }
+    }
+
+    /**
+     * Check a count read from the data against the bytes that follow the position of the counted elements, before
+     * allocating an array of that size, so that corrupt or hostile data cannot cause large allocations.
+     */
+    private static int checkCount(int count, int elementBytes, ByteBuffer data, int position) {
+        if (count < 0 || position < 0 || (long) count * elementBytes > data.limit() - (long) position) {
+            throw new IllegalArgumentException(String.format(
+                    "invalid mapped regex data: count %d exceeds the data after position %d", count, position));
+        }
+        return count;
+    }
+}
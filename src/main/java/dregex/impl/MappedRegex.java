@@ -0,0 +1,62 @@
+package dregex.impl;
+
+import java.util.Optional;
+
+/**
+ * A regular expression that matches using a {@link MappedDfaTable}, read in place from a buffer (see
+ * {@link MappedFormat}). The DFA, which is only needed for operations, is built from the table the first time it is
+ * requested.
+ */
+public final class MappedRegex extends RegexImpl {
+
+    private final MappedDfaTable table;
+    private final Optional<String> originalString;
+    private final CharInterval[] alphabet;
+    private final boolean minimal;
+
+    private volatile Dfa dfa;
+
+    public MappedRegex(
+            MappedDfaTable table,
+            Optional<String> originalString,
+            CharInterval[] alphabet,
+            boolean minimal,
+            Universe universe) {
+        super(table, universe);
+        this.table = table;
+        this.originalString = originalString;
+        this.alphabet = alphabet;
+        this.minimal = minimal;
+    }
+
+    @Override
+    public Dfa getDfa() {
+        var ret = dfa;
+        if (ret == null) {
+            synchronized (this) {
+                ret = dfa;
+                if (ret == null) {
+                    ret = table.toDfa(alphabet, minimal);
+                    dfa = ret;
+                }
+            }
+        }
+        return ret;
+    }
+
+    @Override
+    public Optional<String> literal() {
+        return originalString;
+    }
+
+    @Override
+    protected RegexImpl withDfa(Dfa dfa, Universe universe) {
+        return new DeserializedRegex(originalString, dfa, universe);
+    }
+
+    @Override
+    public String toString() {
+        var prefix = originalString.map(s -> String.format("⟪%s⟫", s)).orElse("[synthetic]");
+        return String.format("%s (mapped DFA states: %s)", prefix, table.stateCount());
+    }
+}
@@ -0,0 +1,26 @@
+package dregex.impl;
+
+/**
+ * A DFA laid out for matching: states are numbered from zero (the initial one) and code points are grouped in
+ * classes, which the transitions are indexed by.
+ */
+public interface MatchTable {
+
+    /**
+     * Return the equivalence class of a code point, or -1 if no state has a transition for it.
+     */
+    int classOf(int codePoint);
+
+    /**
+     * Return the state reached from the given one with the given code point, or -1 if the input is rejected.
+     */
+    int step(int state, int codePoint);
+
+    int initialState();
+
+    boolean isAccepting(int state);
+
+    int stateCount();
+
+    int classCount();
+}
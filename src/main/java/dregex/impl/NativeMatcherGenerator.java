@@ -0,0 +1,582 @@
+package dregex.impl;
+
+import dregex.impl.ClassFileWriter.Code;
+import dregex.impl.ClassFileWriter.Label;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Generation of JVM classes that match a DFA with straight-line code instead of a table.
+ * <p>
+ * Every state is a block of code that reads the next code point and jumps to the block of the target state: through a
+ * {@code tableswitch} for ASCII code points, if the state distinguishes several ASCII ranges, and through a balanced
+ * tree of comparisons for the rest, or a method of its own if there are too many ranges. As there are no loads from
+ * tables, the JIT compiler can optimize the whole automaton.
+ * <p>
+ * HotSpot does not compile methods of more than 8000 bytes of bytecode, nor inlines code in them beyond a similar
+ * size, so the states are split in groups of consecutive states, each one in a static method below that size, counting
+ * the reading of the code points inlined in every state. A group method starts at the state it is passed,
+ * jumps directly to the states of the same group, and returns the target state and the index in the input when it
+ * leaves the group. The generated class implements {@link Predicate} with a small method that calls the group methods
+ * until the end of the input.
+ * <p>
+ * Every class is defined in a class loader of its own, so it is unloaded when the matcher is no longer referenced.
+ * Generation is meant for a few hot, fixed regexes, not for every regex.
+ */
+public final class NativeMatcherGenerator {
+
+    private static final String packagePrefix = NativeMatcherGenerator.class.getPackageName() + ".";
+
+    private static final AtomicInteger classCounter = new AtomicInteger();
+
+    /**
+     * Maximum size of the code of a generated method, below the limit above which HotSpot does not compile methods
+     * ({@code -XX:HugeMethodLimit}).
+     */
+    static final int maxMethodBytes = 8000;
+
+    /**
+     * Estimate of the size of the code that the JIT compiler inlines to read a code point from a {@link String}:
+     * {@link Character#codePointAt(CharSequence, int)} and the methods it calls. The inlined code counts towards a limit
+     * similar to {@link #maxMethodBytes} ({@code -XX:DesiredMethodLimit}), and reading the code points must be inlined
+     * in every state for the matcher to be faster than the table.
+     */
+    private static final int inlinedReadBytes = 200;
+
+    /**
+     * States with at least this number of distinct ranges in the ASCII code points dispatch them with a table switch.
+     * A switch takes more than 500 bytes of code, so it is only worth it when the comparison tree would be deep.
+     */
+    private static final int minSwitchRanges = 12;
+
+    private static final int asciiLimit = 128;
+
+    /**
+     * States with more ranges than this dispatch them calling a method of their own, so that the code of the state
+     * stays small enough to be grouped with others.
+     */
+    private static final int maxInlineRanges = 128;
+
+    /**
+     * Upper bound of the size of the code of a range in a range method: a comparison and a return.
+     */
+    private static final int rangeMethodBytesPerRange = 11;
+
+    /**
+     * Pseudo-states returned by the group methods at the end of the input.
+     */
+    private static final int acceptState = -1;
+    private static final int rejectState = -2;
+
+    // locals of the test method
+    private static final int thisLocal = 0;
+    private static final int inputLocal = 1;
+    private static final int indexLocal = 2;
+    private static final int lengthLocal = 3;
+    private static final int stateLocal = 4;
+    private static final int resultLocal = 5;
+
+    // locals of the group methods
+    private static final int groupInputLocal = 0;
+    private static final int groupIndexLocal = 1;
+    private static final int groupLengthLocal = 2;
+    private static final int groupStateLocal = 3;
+    private static final int groupCodePointLocal = 4;
+
+    /**
+     * Descriptor of the group methods: they take the input, the index in it, its length and the first state, and
+     * return the next state in the high half, and the index in the low one.
+     */
+    private static final String groupDescriptor = "(Ljava/lang/CharSequence;III)J";
+
+    private NativeMatcherGenerator() {}
+
+    /**
+     * A range of code points and the state it leads to, or -1 if it is rejected.
+     */
+    private static final class Range {
+        final int from;
+        final int to;
+        final int target;
+
+        Range(int from, int to, int target) {
+            this.from = from;
+            this.to = to;
+            this.target = target;
+        }
+    }
+
+    /**
+     * A class loader for a single generated class, so that it can be unloaded with it.
+     */
+    private static final class MatcherClassLoader extends ClassLoader {
+
+        MatcherClassLoader() {
+            super(NativeMatcherGenerator.class.getClassLoader());
+        }
+
+        Class<?> define(String name, byte[] bytes) {
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+
+    /**
+     * Generate, load and instantiate the matcher class of a DFA.
+     *
+     * @throws UnsupportedOperationException if a state of the DFA is too large for the code of a single method, or the
+     *     DFA has too many states for a single class
+     */
+    public static Predicate<CharSequence> generate(DfaTable table) {
+        var className = packagePrefix + "GeneratedMatcher" + classCounter.incrementAndGet();
+        var bytes = generateClass(table, className.replace('.', '/'));
+        try {
+            var matcherClass = new MatcherClassLoader().define(className, bytes);
+            @SuppressWarnings("unchecked")
+            var matcher = (Predicate<CharSequence>) matcherClass.getConstructor().newInstance();
+            return matcher;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("cannot load generated matcher", e);
+        }
+    }
+
+    static byte[] generateClass(DfaTable table, String className) {
+        var classFile = new ClassFileWriter();
+        addRangeMethods(classFile, className, table);
+        var groups = groups(classFile, className, table);
+        classFile.addMethod(ClassFileWriter.ACC_PUBLIC, "<init>", "()V", constructor(classFile));
+        classFile.addMethod(
+                ClassFileWriter.ACC_PUBLIC,
+                "test",
+                "(Ljava/lang/Object;)Z",
+                testMethod(classFile, className, groups));
+        for (int g = 0; g < groups.size() - 1; g++) {
+            classFile.addMethod(
+                    ClassFileWriter.ACC_PRIVATE | ClassFileWriter.ACC_STATIC,
+                    groupMethodName(g),
+                    groupDescriptor,
+                    groupMethod(classFile, className, table, groups.get(g), groups.get(g + 1)));
+        }
+        return classFile.toBytes(
+                ClassFileWriter.ACC_PUBLIC | ClassFileWriter.ACC_FINAL | ClassFileWriter.ACC_SUPER,
+                className,
+                "java/lang/Object",
+                "java/util/function/Predicate");
+    }
+
+    private static String groupMethodName(int group) {
+        return "group" + group;
+    }
+
+    /**
+     * Split the states in groups of consecutive states whose methods fit in {@link #maxMethodBytes}. The size of every
+     * state is measured generating its code, and the exits from the group are counted as if every target was outside
+     * it, so the sizes are upper bounds.
+     *
+     * @return the first state of every group, followed by the number of states
+     */
+    private static List<Integer> groups(ClassFileWriter classFile, String className, DfaTable table) {
+        List<Integer> ret = new ArrayList<>();
+        ret.add(0);
+        int groupBytes = groupHeaderBytes;
+        var exits = new HashSet<Integer>();
+        for (int s = 0; s < table.stateCount(); s++) {
+            var code = new Code(0, 0, new byte[0], 0);
+            var stateExits = stateBlock(code, classFile, className, table, s, target -> new Label());
+            // the entry of the state in the initial switch, and the padding of its own switch, if any
+            int stateBytes = code.length() + 4 + 3 + inlinedReadBytes;
+            int exitBytes = stateExits.size() * exitBlockBytes;
+            if (groupHeaderBytes + stateBytes + exitBytes > maxMethodBytes) {
+                throw new UnsupportedOperationException(
+                        "state too large for a generated method: " + (stateBytes + exitBytes) + " bytes");
+            }
+            if (groupBytes + stateBytes + exitBytes > maxMethodBytes) {
+                ret.add(s);
+                groupBytes = groupHeaderBytes;
+                exits.clear();
+            }
+            stateExits.removeAll(exits);
+            groupBytes += stateBytes + stateExits.size() * exitBlockBytes;
+            exits.addAll(stateExits);
+        }
+        ret.add(table.stateCount());
+        return ret;
+    }
+
+    private static Code constructor(ClassFileWriter classFile) {
+        var code = new Code(1, 1, new byte[0], 0);
+        code.aload(thisLocal);
+        code.op(0xb7, classFile.methodRef("java/lang/Object", "<init>", "()V")); // invokespecial
+        code.op(Code.RETURN);
+        return code;
+    }
+
+    /**
+     * The method of the {@link Predicate}, that calls the group method of the current state until one of them returns
+     * one of the pseudo-states of the end of the input.
+     */
+    private static Code testMethod(ClassFileWriter classFile, String className, List<Integer> groups) {
+        int thisClass = classFile.classRef(className);
+        int charSequenceClass = classFile.classRef("java/lang/CharSequence");
+        var frameLocals = new byte[] {
+            7, (byte) (thisClass >> 8), (byte) thisClass, // this
+            7, (byte) (charSequenceClass >> 8), (byte) charSequenceClass, // input
+            1, 1, 1, // index, length, state
+            4 // result
+        };
+        var code = new Code(4, 7, frameLocals, 6);
+
+        int lengthMethod = classFile.interfaceMethodRef("java/lang/CharSequence", "length", "()I");
+
+        // prologue: set all the locals of the frames
+        code.aload(inputLocal);
+        code.op(0xc0, charSequenceClass); // checkcast
+        code.astore(inputLocal);
+        code.iconst(0, classFile);
+        code.istore(indexLocal);
+        code.aload(inputLocal);
+        code.invokeInterface(lengthMethod, 0);
+        code.istore(lengthLocal);
+        code.iconst(0, classFile);
+        code.istore(stateLocal);
+        code.op(Code.LCONST_0);
+        code.lstore(resultLocal);
+
+        var loop = new Label();
+        var next = new Label();
+        var end = new Label();
+        var reject = new Label();
+        code.place(loop);
+        callGroup(code, classFile, className, groups, 0, groups.size() - 2, next);
+
+        // unpack the result
+        code.place(next);
+        code.lload(resultLocal);
+        code.op(Code.L2I);
+        code.istore(indexLocal);
+        code.lload(resultLocal);
+        code.iconst(32, classFile);
+        code.op(Code.LUSHR);
+        code.op(Code.L2I);
+        code.istore(stateLocal);
+        code.iload(stateLocal);
+        code.jump(Code.IFLT, end);
+        code.jump(Code.GOTO, loop);
+
+        code.place(end);
+        code.iload(stateLocal);
+        code.iconst(acceptState, classFile);
+        code.jump(Code.IF_ICMPNE, reject);
+        code.op(Code.ICONST_1);
+        code.op(Code.IRETURN);
+        code.place(reject);
+        code.op(Code.ICONST_0);
+        code.op(Code.IRETURN);
+        if (code.length() > maxMethodBytes) {
+            throw new UnsupportedOperationException("too many states for a generated class: " + groups.size());
+        }
+        return code;
+    }
+
+    /**
+     * Emit a binary search over the groups, that calls the method of the group of the current state.
+     */
+    private static void callGroup(
+            Code code,
+            ClassFileWriter classFile,
+            String className,
+            List<Integer> groups,
+            int first,
+            int last,
+            Label next) {
+        if (first == last) {
+            code.aload(inputLocal);
+            code.iload(indexLocal);
+            code.iload(lengthLocal);
+            code.iload(stateLocal);
+            code.op(Code.INVOKESTATIC, classFile.methodRef(className, groupMethodName(first), groupDescriptor));
+            code.lstore(resultLocal);
+            code.jump(Code.GOTO, next);
+        } else {
+            int mid = (first + last + 1) >>> 1;
+            var lower = new Label();
+            code.iload(stateLocal);
+            code.iconst(groups.get(mid), classFile);
+            code.jump(Code.IF_ICMPLT, lower);
+            callGroup(code, classFile, className, groups, mid, last, next);
+            code.place(lower);
+            callGroup(code, classFile, className, groups, first, mid - 1, next);
+        }
+    }
+
+    /**
+     * The method of the group of states from {@code first} (inclusive) to {@code end} (exclusive).
+     */
+    private static Code groupMethod(
+            ClassFileWriter classFile, String className, DfaTable table, int first, int end) {
+        int charSequenceClass = classFile.classRef("java/lang/CharSequence");
+        var frameLocals = new byte[] {
+            7, (byte) (charSequenceClass >> 8), (byte) charSequenceClass, // input
+            1, 1, 1, 1 // index, length, state, code point
+        };
+        var code = new Code(4, 5, frameLocals, 5);
+
+        // prologue: set all the locals of the frames
+        code.iconst(0, classFile);
+        code.istore(groupCodePointLocal);
+
+        var stateLabels = new Label[end - first];
+        for (int i = 0; i < stateLabels.length; i++) {
+            stateLabels[i] = new Label();
+        }
+        // jumps to the states of other groups, and to the end of the input
+        var exits = new TreeMap<Integer, Label>();
+        IntFunction<Label> labelOf = target -> {
+            if (target >= first && target < end) {
+                return stateLabels[target - first];
+            } else {
+                return exits.computeIfAbsent(target, t -> new Label());
+            }
+        };
+
+        code.iload(groupStateLocal);
+        code.tableSwitch(first, labelOf.apply(rejectState), stateLabels);
+        for (int s = first; s < end; s++) {
+            code.place(stateLabels[s - first]);
+            stateBlock(code, classFile, className, table, s, labelOf);
+        }
+
+        for (var exit : exits.entrySet()) {
+            // return the target state in the high half, and the index in the low one
+            code.place(exit.getValue());
+            code.iconst(exit.getKey(), classFile);
+            code.op(Code.I2L);
+            code.iconst(32, classFile);
+            code.op(Code.LSHL);
+            code.iload(groupIndexLocal);
+            code.op(Code.I2L);
+            code.op(Code.LOR);
+            code.op(Code.LRETURN);
+        }
+        return code;
+    }
+
+    /**
+     * Upper bound of the size of the code of a group method other than the states and their exits: the prologue and
+     * the initial switch, and the exit of the invalid states.
+     */
+    private static final int groupHeaderBytes = 3 + 1 + 16 + 11;
+
+    /**
+     * Upper bound of the size of the code of an exit from a group method.
+     */
+    private static final int exitBlockBytes = 11;
+
+    /**
+     * Emit the code of a state, which starts with the index of the input in its local, and jumps to the label of the
+     * next state (or pseudo-state) with the index of the next code point.
+     *
+     * @return the targets of the state, including the pseudo-states
+     */
+    private static Set<Integer> stateBlock(
+            Code code,
+            ClassFileWriter classFile,
+            String className,
+            DfaTable table,
+            int state,
+            IntFunction<Label> labelOf) {
+        int codePointAtMethod =
+                classFile.methodRef("java/lang/Character", "codePointAt", "(Ljava/lang/CharSequence;I)I");
+        int charCountMethod = classFile.methodRef("java/lang/Character", "charCount", "(I)I");
+        var targets = new HashSet<Integer>();
+        int endTarget = table.isAccepting(state) ? acceptState : rejectState;
+        targets.add(endTarget);
+        code.iload(groupIndexLocal);
+        code.iload(groupLengthLocal);
+        code.jump(Code.IF_ICMPGE, labelOf.apply(endTarget));
+
+        code.aload(groupInputLocal);
+        code.iload(groupIndexLocal);
+        code.op(Code.INVOKESTATIC, codePointAtMethod);
+        code.istore(groupCodePointLocal);
+        code.iload(groupIndexLocal);
+        code.iload(groupCodePointLocal);
+        code.op(Code.INVOKESTATIC, charCountMethod);
+        code.op(Code.IADD);
+        code.istore(groupIndexLocal);
+
+        var ranges = stateRanges(table, state);
+        for (var range : ranges) {
+            targets.add(range.target == -1 ? rejectState : range.target);
+        }
+        IntFunction<Label> rangeLabelOf = target -> labelOf.apply(target == -1 ? rejectState : target);
+        int asciiRanges = asciiRanges(ranges);
+        if (asciiRanges >= minSwitchRanges) {
+            var targetLabels = new Label[asciiLimit];
+            for (var range : ranges.subList(0, asciiRanges)) {
+                for (int ch = range.from; ch <= Math.min(range.to, asciiLimit - 1); ch++) {
+                    targetLabels[ch] = rangeLabelOf.apply(range.target);
+                }
+            }
+            var nonAscii = new Label();
+            code.iload(groupCodePointLocal);
+            code.tableSwitch(0, nonAscii, targetLabels);
+            code.place(nonAscii);
+        }
+        var rest = comparedRanges(ranges);
+        if (rest.size() > maxInlineRanges) {
+            // the range method returns the index of the target, in order of appearance
+            var restTargets = rest.stream().map(range -> range.target).distinct().collect(Collectors.toList());
+            var targetLabels = restTargets.stream().map(rangeLabelOf::apply).toArray(Label[]::new);
+            code.iload(groupCodePointLocal);
+            code.op(Code.INVOKESTATIC, classFile.methodRef(className, rangeMethodName(state), "(I)I"));
+            code.tableSwitch(0, targetLabels[0], targetLabels);
+        } else {
+            dispatch(code, classFile, rest, 0, rest.size() - 1, rangeLabelOf);
+        }
+        return targets;
+    }
+
+    private static int asciiRanges(List<Range> ranges) {
+        int ret = 0;
+        while (ret < ranges.size() && ranges.get(ret).from < asciiLimit) {
+            ret++;
+        }
+        return ret;
+    }
+
+    /**
+     * Return the ranges of a state that are dispatched with comparisons: all of them, or the non-ASCII part if the
+     * ASCII code points are dispatched with a switch.
+     */
+    private static List<Range> comparedRanges(List<Range> ranges) {
+        int asciiRanges = asciiRanges(ranges);
+        if (asciiRanges < minSwitchRanges) {
+            return ranges;
+        }
+        var rest = ranges.subList(asciiRanges - 1, ranges.size());
+        if (rest.get(0).to < asciiLimit) {
+            rest = rest.subList(1, rest.size());
+        }
+        return rest;
+    }
+
+    private static String rangeMethodName(int state) {
+        return "ranges" + state;
+    }
+
+    /**
+     * Add the range methods of the states with too many ranges to dispatch them in the code of the state, such as the
+     * ones of the large Unicode classes.
+     */
+    private static void addRangeMethods(ClassFileWriter classFile, String className, DfaTable table) {
+        for (int s = 0; s < table.stateCount(); s++) {
+            var ranges = comparedRanges(stateRanges(table, s));
+            if (ranges.size() > maxInlineRanges) {
+                var targets = ranges.stream().map(range -> range.target).distinct().collect(Collectors.toList());
+                var indices = ranges.stream()
+                        .map(range -> new Range(range.from, range.to, targets.indexOf(range.target)))
+                        .collect(Collectors.toList());
+                addRangeMethod(classFile, className, rangeMethodName(s), indices, 0, indices.size() - 1);
+            }
+        }
+    }
+
+    /**
+     * Add a method that takes a code point and returns the target of its range. If the method would be too large, it
+     * only compares with the middle range, and calls one of two methods of its own for each half.
+     */
+    private static void addRangeMethod(
+            ClassFileWriter classFile, String className, String name, List<Range> ranges, int first, int last) {
+        var code = new Code(2, 1, new byte[] {1}, 1);
+        if ((last - first + 1) * rangeMethodBytesPerRange <= maxMethodBytes) {
+            rangeTree(code, classFile, ranges, first, last);
+        } else {
+            int mid = (first + last + 1) >>> 1;
+            var lower = new Label();
+            code.iload(0);
+            code.iconst(ranges.get(mid).from, classFile);
+            code.jump(Code.IF_ICMPLT, lower);
+            callRangeMethod(code, classFile, className, name + "h", ranges, mid, last);
+            code.place(lower);
+            callRangeMethod(code, classFile, className, name + "l", ranges, first, mid - 1);
+        }
+        classFile.addMethod(ClassFileWriter.ACC_PRIVATE | ClassFileWriter.ACC_STATIC, name, "(I)I", code);
+    }
+
+    private static void callRangeMethod(
+            Code code,
+            ClassFileWriter classFile,
+            String className,
+            String name,
+            List<Range> ranges,
+            int first,
+            int last) {
+        addRangeMethod(classFile, className, name, ranges, first, last);
+        code.iload(0);
+        code.op(Code.INVOKESTATIC, classFile.methodRef(className, name, "(I)I"));
+        code.op(Code.IRETURN);
+    }
+
+    private static void rangeTree(Code code, ClassFileWriter classFile, List<Range> ranges, int first, int last) {
+        if (first == last) {
+            code.iconst(ranges.get(first).target, classFile);
+            code.op(Code.IRETURN);
+        } else {
+            int mid = (first + last + 1) >>> 1;
+            var lower = new Label();
+            code.iload(0);
+            code.iconst(ranges.get(mid).from, classFile);
+            code.jump(Code.IF_ICMPLT, lower);
+            rangeTree(code, classFile, ranges, mid, last);
+            code.place(lower);
+            rangeTree(code, classFile, ranges, first, mid - 1);
+        }
+    }
+
+    /**
+     * Emit a binary search over contiguous ranges, that jumps to the label of the range of the current code point.
+     */
+    private static void dispatch(
+            Code code, ClassFileWriter classFile, List<Range> ranges, int first, int last, IntFunction<Label> labelOf) {
+        if (first == last) {
+            code.jump(Code.GOTO, labelOf.apply(ranges.get(first).target));
+        } else {
+            int mid = (first + last + 1) >>> 1;
+            var lower = new Label();
+            code.iload(groupCodePointLocal);
+            code.iconst(ranges.get(mid).from, classFile);
+            code.jump(Code.IF_ICMPLT, lower);
+            dispatch(code, classFile, ranges, mid, last, labelOf);
+            code.place(lower);
+            dispatch(code, classFile, ranges, first, mid - 1, labelOf);
+        }
+    }
+
+    /**
+     * Return the ranges of code points of a state, covering all of them, with adjacent ranges of the same target
+     * merged.
+     */
+    private static List<Range> stateRanges(DfaTable table, int state) {
+        List<Range> ret = new ArrayList<>();
+        for (int run = 0; run < table.runCount(); run++) {
+            int from = table.runStart(run);
+            int to = run + 1 < table.runCount() ? table.runStart(run + 1) - 1 : Character.MAX_CODE_POINT;
+            int cls = table.runClass(run);
+            int target = cls == -1 ? -1 : table.target(state, cls);
+            if (!ret.isEmpty() && ret.get(ret.size() - 1).target == target) {
+                var previous = ret.remove(ret.size() - 1);
+                ret.add(new Range(previous.from, to, target));
+            } else {
+                ret.add(new Range(from, to, target));
+            }
+        }
+        return ret;
+    }
+}
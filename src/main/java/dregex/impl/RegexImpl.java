@@ -4,30 +4,100 @@ import dregex.IncompatibleRegexException;
 import dregex.MatchResult;
 import java.text.Normalizer;
 import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Predicate;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class RegexImpl {
+public abstract class RegexImpl {
 
     private static final Logger logger = LoggerFactory.getLogger(RegexImpl.class);
 
+    /**
+     * The DFA, or null if it is built on demand by the subclass (see {@link #getDfa()}).
+     */
     private final Dfa dfa;
 
+    /**
+     * Compact version of the DFA, used for matching, or null if it was not built yet (see {@link #getTable()}).
+     */
+    private volatile MatchTable table;
+
     /**
      * Return this regex's [[Universe]]. Only regexes of the same universe can be operated together.
      */
     private final Universe universe;
 
+    /**
+     * Constructor for regexes that have their DFA. The table is only built the first time it is needed, as many
+     * regexes, such as the intermediate results of operations, are never used for matching.
+     */
     protected RegexImpl(Dfa dfa, Universe universe) {
         this.dfa = dfa;
         this.universe = universe;
+        this.table = null;
+    }
+
+    /**
+     * Constructor for regexes that match using an existing table, and only build their DFA if it is needed for an
+     * operation. Subclasses using it must override {@link #getDfa()}.
+     */
+    protected RegexImpl(MatchTable table, Universe universe) {
+        this.dfa = null;
+        this.universe = universe;
+        this.table = table;
+    }
+
+    /**
+     * Constructor for regexes that build their DFA on demand. Subclasses using it must override {@link #getDfa()}, and
+     * usually also {@link #getTable()}.
+     */
+    protected RegexImpl(Universe universe) {
+        this.dfa = null;
+        this.universe = universe;
+        this.table = null;
     }
 
     public Dfa getDfa() {
         return dfa;
     }
 
+    /**
+     * Return the table used for matching, building it from the DFA the first time.
+     */
+    public MatchTable getTable() {
+        var ret = table;
+        if (ret == null) {
+            synchronized (this) {
+                ret = table;
+                if (ret == null) {
+                    ret = new DfaTable(getDfa());
+                    table = ret;
+                    var builtTable = ret;
+                    compileRecorder().ifPresent(recorder -> recorder.recordTable(builtTable));
+                }
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Return the expression that this regex was compiled from, if any.
+     */
+    public Optional<String> literal() {
+        return Optional.empty();
+    }
+
+    /**
+     * Return the record of the compilation of this regex, if it was compiled from an expression.
+     */
+    public Optional<CompileRecorder> compileRecorder() {
+        return Optional.empty();
+    }
+
     public Universe getUniverse() {
         return universe;
     }
@@ -38,20 +108,141 @@ public class RegexImpl {
         }
     }
 
+    /**
+     * Characters below this one are not changed by NFD normalization, and they are starters (canonical combining class
+     * 0), so no reordering can cross them: the normalization of a string is the concatenation of the normalization of
+     * the segments between them.
+     */
+    private static final char firstNormalizable = '\u00C0';
+
+    /**
+     * Return whether the input is matched, like {@link #matchAndReport(CharSequence)}, but without allocating a result,
+     * so that matching does not allocate at all (except, with canonical equivalence, for the normalization of the
+     * non-ASCII segments of input that is not already in NFD).
+     */
+    public boolean matches(CharSequence string) {
+        if (universe.hasCanonicalEquivalence()) {
+            return matchAndReportNormalizing(string).matches();
+        }
+        var table = getTable();
+        int state = table.initialState();
+        int i = 0;
+        int length = string.length();
+        while (i < length) {
+            int codePoint = Character.codePointAt(string, i);
+            state = table.step(state, codePoint);
+            if (state == -1) {
+                return false;
+            }
+            i += Character.charCount(codePoint);
+        }
+        return table.isAccepting(state);
+    }
+
     public MatchResult matchAndReport(CharSequence string) {
-        // Unicode normalization
         if (universe.hasCanonicalEquivalence()) {
-            string = Normalizer.normalize(string, Normalizer.Form.NFD);
+            return matchAndReportNormalizing(string);
+        }
+        var table = getTable();
+        return matchFrom(table, table.initialState(), string, 0, 0);
+    }
+
+    /**
+     * Continue a match from a state, at an index of the input and a position, in code points.
+     */
+    private static MatchResult matchFrom(MatchTable table, int state, CharSequence string, int i, int position) {
+        int length = string.length();
+        while (i < length) {
+            int codePoint = Character.codePointAt(string, i);
+            state = table.step(state, codePoint);
+            if (state == -1) {
+                return new MatchResult(false, position);
+            }
+            i += Character.charCount(codePoint);
+            position++;
         }
+        return new MatchResult(table.isAccepting(state), position);
+    }
 
-        return DfaAlgorithms.matchString(dfa, string.codePoints().toArray());
+    /**
+     * Match with Unicode normalization (NFD) of the input. ASCII input is matched without any copy. When the first
+     * character that can be changed by the normalization is found, the whole input is checked with
+     * {@link Normalizer#isNormalized}, which does not allocate: input that is already in NFD (as is most text in
+     * scripts without precomposed characters, such as Cyrillic, most Greek, or CJK) is then matched directly.
+     * Otherwise, only the segments of the input that can be changed by the normalization are normalized (each in a new
+     * string), and they are fed to the DFA as they are processed. The reported position refers to the normalized input.
+     */
+    private MatchResult matchAndReportNormalizing(CharSequence string) {
+        var table = getTable();
+        int state = table.initialState();
+        int position = 0;
+        int i = 0;
+        int length = string.length();
+        boolean checkedNormalized = false;
+        while (i < length) {
+            char ch = string.charAt(i);
+            if (ch >= firstNormalizable && !checkedNormalized) {
+                if (Normalizer.isNormalized(string, Normalizer.Form.NFD)) {
+                    return matchFrom(table, state, string, i, position);
+                }
+                checkedNormalized = true;
+            }
+            if (ch < firstNormalizable) {
+                state = table.step(state, ch);
+                if (state == -1) {
+                    return new MatchResult(false, position);
+                }
+                i++;
+                position++;
+            } else {
+                int segmentEnd = i + 1;
+                while (segmentEnd < length && string.charAt(segmentEnd) >= firstNormalizable) {
+                    segmentEnd++;
+                }
+                var normalized = Normalizer.normalize(string.subSequence(i, segmentEnd), Normalizer.Form.NFD);
+                int j = 0;
+                while (j < normalized.length()) {
+                    int codePoint = normalized.codePointAt(j);
+                    state = table.step(state, codePoint);
+                    if (state == -1) {
+                        return new MatchResult(false, position);
+                    }
+                    j += Character.charCount(codePoint);
+                    position++;
+                }
+                i = segmentEnd;
+            }
+        }
+        return new MatchResult(table.isAccepting(state), position);
+    }
+
+    /**
+     * Return the match table of this regex as a {@link DfaTable}, building it if the table is of another kind.
+     */
+    public DfaTable toDfaTable() {
+        var table = getTable();
+        return table instanceof DfaTable ? (DfaTable) table : new DfaTable(getDfa());
+    }
+
+    /**
+     * Generate a JVM class that matches this regex (see {@link NativeMatcherGenerator}).
+     */
+    public Predicate<CharSequence> toNativeMatcher() {
+        var matcher = NativeMatcherGenerator.generate(toDfaTable());
+        if (universe.hasCanonicalEquivalence()) {
+            return input -> matcher.test(Normalizer.normalize(input, Normalizer.Form.NFD));
+        } else {
+            return matcher;
+        }
     }
 
     public RegexImpl intersect(RegexImpl other) {
         checkUniverse(other);
         var start = System.nanoTime();
+        var event = JfrEvents.enabled() ? beginSetOperation() : null;
         var ret = new SyntheticRegex(
-                DfaAlgorithms.rewriteWithSimpleStates(DfaAlgorithms.doIntersect(this.dfa, other.dfa)), universe);
+                DfaAlgorithms.rewriteWithSimpleStates(DfaAlgorithms.doIntersect(getDfa(), other.getDfa())), universe);
+        commitSetOperation(event, "intersection", other, ret);
         var time = Duration.ofNanos(System.nanoTime() - start);
         logger.trace("{} and {} intersected in {}", this, other, time);
         return ret;
@@ -60,8 +251,10 @@ public class RegexImpl {
     public RegexImpl diff(RegexImpl other) {
         checkUniverse(other);
         var start = System.nanoTime();
+        var event = JfrEvents.enabled() ? beginSetOperation() : null;
         var ret = new SyntheticRegex(
-                DfaAlgorithms.rewriteWithSimpleStates(DfaAlgorithms.diff(this.dfa, other.dfa)), universe);
+                DfaAlgorithms.rewriteWithSimpleStates(DfaAlgorithms.diff(getDfa(), other.getDfa())), universe);
+        commitSetOperation(event, "difference", other, ret);
         var time = Duration.ofNanos(System.nanoTime() - start);
         logger.trace("{} and {} diffed in {}", this, other, time);
         return ret;
@@ -70,35 +263,62 @@ public class RegexImpl {
     public RegexImpl union(RegexImpl other) {
         checkUniverse(other);
         var start = System.nanoTime();
+        var event = JfrEvents.enabled() ? beginSetOperation() : null;
         var ret = new SyntheticRegex(
-                DfaAlgorithms.rewriteWithSimpleStates(DfaAlgorithms.union(this.dfa, other.dfa)), universe);
+                DfaAlgorithms.rewriteWithSimpleStates(DfaAlgorithms.union(getDfa(), other.getDfa())), universe);
+        commitSetOperation(event, "union", other, ret);
         var time = Duration.ofNanos(System.nanoTime() - start);
         logger.trace("{} and {} unioned in {}", this, other, time);
         return ret;
     }
 
+    private static JfrEvents.SetOperation beginSetOperation() {
+        var event = new JfrEvents.SetOperation();
+        event.begin();
+        return event;
+    }
+
+    private void commitSetOperation(JfrEvents.SetOperation event, String operation, RegexImpl other, RegexImpl result) {
+        if (event != null && event.shouldCommit()) {
+            event.operation = operation;
+            event.leftPattern = JfrEvents.truncate(literal().orElse(null));
+            event.rightPattern = JfrEvents.truncate(other.literal().orElse(null));
+            event.resultStates = result.getDfa().stateCount();
+            event.commit();
+        }
+    }
+
     public boolean doIntersect(RegexImpl other) {
         checkUniverse(other);
-        return DfaAlgorithms.isIntersectionNotEmpty(this.dfa, other.dfa);
+        return DfaAlgorithms.isIntersectionNotEmpty(getDfa(), other.getDfa());
     }
 
     public boolean isSubsetOf(RegexImpl other) {
         checkUniverse(other);
-        return DfaAlgorithms.isSubsetOf(this.dfa, other.dfa);
+        return DfaAlgorithms.isSubsetOf(getDfa(), other.getDfa());
     }
 
     public boolean isProperSubsetOf(RegexImpl other) {
         checkUniverse(other);
-        return DfaAlgorithms.isProperSubset(this.dfa, other.dfa);
+        return DfaAlgorithms.isProperSubset(getDfa(), other.getDfa());
     }
 
     public boolean equiv(RegexImpl other) {
         checkUniverse(other);
-        return DfaAlgorithms.equivalent(this.dfa, other.dfa);
+        return DfaAlgorithms.equivalent(getDfa(), other.getDfa());
+    }
+
+    /**
+     * Return an equivalent regex from an extension of this regex's universe (see {@link Universe#extend}).
+     */
+    public RegexImpl refine(Universe extended, Map<CharInterval, List<CharInterval>> refinement) {
+        return withDfa(DfaAlgorithms.refineAlphabet(getDfa(), refinement), extended);
     }
 
+    protected abstract RegexImpl withDfa(Dfa dfa, Universe universe);
+
     public boolean matchesAtLeastOne() {
-        return DfaAlgorithms.matchesAtLeastOne(dfa);
+        return DfaAlgorithms.matchesAtLeastOne(getDfa());
     }
 
     /**
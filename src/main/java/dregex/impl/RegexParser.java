@@ -1,603 +1,825 @@
 package dregex.impl;
 
-import static org.jparsec.Parsers.*;
-import static org.jparsec.pattern.Patterns.*;
-
 import dregex.InvalidRegexException;
 import dregex.impl.database.*;
 import dregex.impl.tree.*;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
-import org.jparsec.Parser;
-import org.jparsec.error.ParserException;
-import org.jparsec.pattern.CharPredicate;
-import org.jparsec.pattern.CharPredicates;
 
+/**
+ * A hand-written, recursive-descent regex parser.
+ * <p>
+ * Each parsing method consumes a construct at the current position and returns it, or returns null, leaving the
+ * position where it failed, if the construct is not there. Alternatives are tried in order, going back to the starting
+ * position after each failure (see {@link #attempt(Supplier)}). The grammar never needs to look behind: once an
+ * alternative matches, the rest are not tried.
+ * <p>
+ * Syntax errors report the farthest position reached by any alternative, together with everything that was expected
+ * there. Semantic errors (such as unsupported features) are thrown as soon as the offending construct is consumed,
+ * with the position just after it.
+ */
 public class RegexParser {
 
+    private static final String letters = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ";
+    private static final String hexDigits = "0123456789abcdefABCDEF";
+
+    private final String input;
     private final DotMatch dotMatch;
     private final boolean unicodeClasses;
 
-    public RegexParser(DotMatch dotMatch, boolean unicodeClasses) {
+    private int pos = 0;
+
+    /**
+     * Farthest position at which a construct failed to be parsed, and what was expected there (in the order in which
+     * it was tried), or a failure message, that takes precedence.
+     */
+    private int errorPos = -1;
+
+    private final Set<String> expected = new LinkedHashSet<>();
+    private String failure = null;
+
+    private RegexParser(String input, DotMatch dotMatch, boolean unicodeClasses) {
+        this.input = input;
         this.dotMatch = dotMatch;
         this.unicodeClasses = unicodeClasses;
     }
 
-    private static Parser<Integer> litChar(char ch) {
-        return isChar(ch).toScanner("literal char: " + ch).map(x -> (int) ch);
+    private void expect(int at, String label) {
+        if (at > errorPos) {
+            errorPos = at;
+            expected.clear();
+            failure = null;
+        }
+        if (at == errorPos && failure == null) {
+            expected.add(label);
+        }
     }
 
-    public final CharPredicate IS_OCTAL_DIGIT = new CharPredicate() {
-        @Override
-        public boolean isChar(char c) {
-            return c >= '0' && c <= '7';
+    private void fail(int at, String message) {
+        if (at > errorPos) {
+            errorPos = at;
+            expected.clear();
+            failure = null;
         }
+        if (at == errorPos && failure == null) {
+            expected.clear();
+            failure = message;
+        }
+    }
 
-        @Override
-        public String toString() {
-            return "[0-7]";
-        }
-    };
-
-    private final Parser<Integer> backslash = litChar('\\');
-
-    private final Parser<Integer> hexNumber =
-            many1(CharPredicates.IS_HEX_DIGIT).toScanner("hex number").source().map(s -> Integer.parseInt(s, 16));
-
-    private final Parser<Character> hexNumber4 = repeat(4, CharPredicates.IS_HEX_DIGIT)
-            .toScanner("hex number")
-            .source()
-            .map(s -> (char) Integer.parseInt(s, 16));
-
-    private final Parser<Character> hexNumber2 = repeat(2, CharPredicates.IS_HEX_DIGIT)
-            .toScanner("hex number")
-            .source()
-            .map(s -> (char) Integer.parseInt(s, 16));
-
-    private final Parser<Integer> octalNumber =
-            times(1, 3, IS_OCTAL_DIGIT).toScanner("octal number").source().map(s -> Integer.parseInt(s, 8));
-
-    private final Parser<Integer> decimalNumber =
-            many1(CharPredicates.IS_DIGIT).toScanner("decimal number").source().map(s -> Integer.parseInt(s));
-
-    private final Parser<Lit> controlEscape = sequence(
-                    backslash, litChar('c'), isChar(CharPredicates.ALWAYS).toScanner(""))
-            .map(x -> {
-                throw new InvalidRegexException("Unsupported feature: control escape");
-            });
-
-    private final Parser<Lit> backReference = sequence(
-                    backslash, many1(CharPredicates.IS_DIGIT).toScanner(""))
-            .map(x -> {
-                throw new InvalidRegexException("Unsupported feature: back reference");
-            });
-
-    private final Parser<Lit> anchor = or(isChar('^'), isChar('$'))
-            .toScanner("")
-            .map(x -> {
-                throw new InvalidRegexException("Unsupported feature: anchor");
-            });
-
-    private final Parser<Lit> specialEscape = sequence(
-                    backslash, regex("[^dwsDWSuxcpR0123456789]").toScanner("").source())
-            .map(code -> {
-                switch (code) {
-                    case "n":
-                        return new Lit('\n');
-                    case "r":
-                        return new Lit('\r');
-                    case "t":
-                        return new Lit('\t');
-                    case "f":
-                        return new Lit('\f');
-                    case "b":
-                        return new Lit('\b');
-                    case "v":
-                        return new Lit(0xB); // vertical tab
-                    case "a":
-                        return new Lit(0x7); // bell
-                    case "e":
-                        return new Lit(0x1B); // escape
-                    case "B":
-                        return new Lit('\\');
-                    default:
-                        return Lit.fromSingletonString(code); // remaining escaped characters stand for themselves
-                }
-            });
-
-    private final Parser<Character> unicodeEscape = sequence(backslash, litChar('u'), hexNumber4);
+    private String location(int at) {
+        int lineStart = input.lastIndexOf('\n', at - 1) + 1;
+        int line = 1;
+        for (int i = 0; i < lineStart; i++) {
+            if (input.charAt(i) == '\n') {
+                line++;
+            }
+        }
+        return String.format("line %d, column %d", line, at - lineStart + 1);
+    }
 
-    private final Parser<Lit> simpleUnicodeEscape = unicodeEscape.map(ch -> new Lit(ch));
+    /**
+     * Semantic error, located at the current position.
+     */
+    private InvalidRegexException error(String message) {
+        return new InvalidRegexException(message + "\n" + location(pos));
+    }
 
-    private final Parser<Lit> doubleUnicodeEscape = unicodeEscape.next(highNumber -> {
-        if (Character.isHighSurrogate(highNumber)) {
-            return unicodeEscape.next(lowNumber -> {
-                if (Character.isLowSurrogate(lowNumber)) {
-                    return constant(new Lit(Character.toCodePoint(highNumber, lowNumber)));
-                } else {
-                    return fail("invalid UTF-16 pair, high surrogate followed by non-low surrogate");
-                }
-            });
+    private InvalidRegexException syntaxError() {
+        if (failure != null) {
+            return new InvalidRegexException(location(errorPos) + ":\n" + failure);
+        }
+        var labels = new ArrayList<>(expected);
+        String expectedStr;
+        if (labels.size() == 1) {
+            expectedStr = labels.get(0);
         } else {
-            return never();
+            expectedStr = String.join(", ", labels.subList(0, labels.size() - 1)) + " or "
+                    + labels.get(labels.size() - 1);
         }
-    });
+        String encountered = errorPos < input.length() ? String.valueOf(input.charAt(errorPos)) : "EOF";
+        return new InvalidRegexException(
+                String.format("%s:\n%s expected, %s encountered.", location(errorPos), expectedStr, encountered));
+    }
 
-    private final Parser<Lit> hexEscape =
-            sequence(backslash, litChar('x'), hexNumber2).map(ch -> new Lit(ch));
+    /**
+     * Run a parsing method, going back to the current position if it fails.
+     */
+    private <A> A attempt(Supplier<A> parser) {
+        int start = pos;
+        A ret = parser.get();
+        if (ret == null) {
+            pos = start;
+        }
+        return ret;
+    }
 
-    private final Parser<Lit> longHexEscape = sequence(
-                    backslash, litChar('x'), hexNumber.between(litChar('{'), litChar('}')))
-            .map(ch -> new Lit(ch));
+    private boolean atEnd() {
+        return pos == input.length();
+    }
 
-    private final Parser<Lit> octalEscape =
-            sequence(backslash, litChar('0'), octalNumber).map(ch -> new Lit(ch));
+    private boolean litChar(char ch) {
+        if (!atEnd() && input.charAt(pos) == ch) {
+            pos++;
+            return true;
+        } else {
+            expect(pos, "literal char: " + ch);
+            return false;
+        }
+    }
 
     /**
-     * Order between Unicode escapes is important
+     * Consume a string, that is expected as a whole.
      */
-    private final Parser<Lit> anyEscape = or(
-            specialEscape,
-            doubleUnicodeEscape,
-            simpleUnicodeEscape,
-            hexEscape,
-            longHexEscape,
-            octalEscape,
-            controlEscape,
-            backReference);
-
-    private final Parser<Lit> charLit = or(
-            anchor,
-            anyEscape,
-            regex("[^\\\\.|()\\[\\]+*?]").toScanner("").source().map(ch -> Lit.fromSingletonString(ch)));
-
-    private final Parser<Lit> characterClassLit =
-            or(anyEscape, regex("[^\\\\^\\]-]").toScanner("").source().map(ch -> Lit.fromSingletonString(ch)));
-
-    private final Parser<CharSet> singleCharacterClassLit = characterClassLit.map(lit -> new CharSet(lit));
-
-    private final Parser<CharSet> charClassRange = sequence(
-            characterClassLit,
-            litChar('-'),
-            characterClassLit,
-            (start, dash, end) -> new CharSet(new CharRange(start.codePoint, end.codePoint)));
-
-    private final Parser<CharSet> specialCharSetByName = sequence(
-            backslash,
-            litChar('p'),
-            litChar('{'),
-            regex("[a-z_]+").toScanner("").source(),
-            litChar('='),
-            regex("[0-9a-zA-Z_ -]+").toScanner("").source(),
-            litChar('}'),
-            (bl, p, op, propName, eq, propValue, cl) -> {
-                switch (propName) {
-                    case "block":
-                    case "blk":
-                        var canonicalBlockName = UnicodeDatabaseReader.canonicalizeBlockName(propValue);
-                        var block = UnicodeBlocks.charSets.get(canonicalBlockName);
-                        if (block == null) {
-                            throw new InvalidRegexException("Invalid Unicode block: " + propValue);
-                        }
-                        return block;
-                    case "script":
-                    case "sc":
-                        var script = UnicodeScripts.chatSets.get(propValue.toUpperCase());
-                        if (script == null) {
-                            throw new InvalidRegexException("Invalid Unicode script: " + propValue);
-                        }
-                        return script;
-                    case "general_category":
-                    case "gc":
-                        var gc = UnicodeGeneralCategories.charSets.get(propValue);
-                        if (gc == null) {
-                            throw new InvalidRegexException("Invalid Unicode general category: " + propValue);
-                        }
-                        return gc;
-                    default:
-                        throw new InvalidRegexException("Invalid Unicode character property name: " + propName);
-                }
-            });
+    private boolean token(String str) {
+        if (input.startsWith(str, pos)) {
+            pos += str.length();
+            return true;
+        } else {
+            expect(pos, "");
+            return false;
+        }
+    }
 
     /**
-     * If the property starts with "Is" it could be either a script,
-     * general category or a binary property. Look for all.
+     * Consume a code point that is not one of the given (BMP) characters.
      */
-    private final Parser<CharSet> specialCharSetWithIs = sequence(
-            backslash,
-            litChar('p'),
-            litChar('{'),
-            regex("Is").toScanner("").source(),
-            regex("[0-9a-zA-Z_ -]+").toScanner("").source(),
-            litChar('}'),
-            (bl, p, op, is, propValue, cl) -> {
-                var upperCaseValue = propValue.toUpperCase();
-                var script = UnicodeScripts.chatSets.get(upperCaseValue);
-                if (script != null) {
-                    return script;
-                }
-                var gc = UnicodeGeneralCategories.charSets.get(propValue);
-                if (gc != null) {
-                    return gc;
-                }
-                var ubp = UnicodeBinaryProperties.charSets.get(upperCaseValue);
-                if (ubp != null) {
-                    return ubp;
-                }
-                throw new InvalidRegexException(
-                        "Invalid Unicode script, general category or binary property: " + propValue);
-            });
-
-    private final Parser<CharSet> specialCharSetWithIn = sequence(
-            backslash,
-            litChar('p'),
-            litChar('{'),
-            regex("In").toScanner("").source(),
-            regex("[0-9a-zA-Z_ -]+").toScanner("").source(),
-            litChar('}'),
-            (bl, p, op, in, blockName, cl) -> {
-                var block = UnicodeBlocks.charSets.get(UnicodeDatabaseReader.canonicalizeBlockName(blockName));
-                if (block == null) {
-                    throw new InvalidRegexException("Invalid Unicode block: " + blockName);
-                }
-                return block;
-            });
-
-    private final Parser<CharSet> specialCharSetWithJava = sequence(
-            backslash,
-            litChar('p'),
-            litChar('{'),
-            regex("java").toScanner("").source(),
-            regex("[0-9a-zA-Z_ -]+").toScanner("").source(),
-            litChar('}'),
-            (bl, p, op, java, charClass, cl) -> {
-                var ret = JavaProperties.charSets.get("java" + charClass);
-                if (ret == null) {
-                    var validOptions = String.join(",", JavaProperties.charSets.keySet());
-                    throw new InvalidRegexException(String.format(
-                            "invalid Java character class: %1$s "
-                                    + "(note: for such a class to be valid, a method java.lang.Character.is%1$s() must exist) "
-                                    + "(valid options: %2$s)",
-                            charClass, validOptions));
-                }
-                return ret;
-            });
-
-    private Parser<CharSet> specialCharSetImplicit() {
-        return sequence(
-                backslash,
-                litChar('p'),
-                litChar('{'),
-                regex("[0-9a-zA-Z_ -]+").toScanner("").source(),
-                litChar('}'),
-                (bl, p, op, name, cl) -> {
-                    Map<String, CharSet> effPosixClasses;
-                    if (unicodeClasses) {
-                        effPosixClasses = UnicodePosixCharSets.charSets;
-                    } else {
-                        effPosixClasses = PosixCharSets.charSets;
-                    }
-                    var posixCharset = effPosixClasses.get(name);
-                    if (posixCharset != null) {
-                        return posixCharset;
-                    }
-                    var unicodeCharset = UnicodeGeneralCategories.charSets.get(name);
-                    if (unicodeCharset != null) {
-                        return unicodeCharset;
-                    }
-                    throw new InvalidRegexException("Invalid POSIX character class: " + name);
-                });
+    private int codePointNotIn(String excluded) {
+        if (atEnd() || excluded.indexOf(input.charAt(pos)) >= 0) {
+            expect(pos, "");
+            return -1;
+        }
+        int codePoint = input.codePointAt(pos);
+        pos += Character.charCount(codePoint);
+        return codePoint;
     }
 
-    private Parser<CharSet> shorthandCharSetDigit() {
-        return sequence(backslash, litChar('d')).map(x -> {
-            if (unicodeClasses) {
-                return UnicodeBinaryProperties.charSets.get("DIGIT");
-            } else {
-                return PosixCharSets.digit;
-            }
-        });
+    /**
+     * Consume a run of characters of the given set, of at least one character.
+     */
+    private String charsIn(String chars, String label) {
+        return charsIn(chars, 1, Integer.MAX_VALUE, label);
     }
 
-    private Parser<CharSet> shorthandCharSetDigitCompl() {
-        return sequence(backslash, litChar('D')).map(x -> {
-            if (unicodeClasses) {
-                return UnicodeBinaryProperties.charSets.get("DIGIT").complement();
-            } else {
-                return PosixCharSets.digit.complement();
-            }
-        });
+    private String charsIn(String chars, int min, int max, String label) {
+        int end = pos;
+        while (end < input.length() && end - pos < max && chars.indexOf(input.charAt(end)) >= 0) {
+            end++;
+        }
+        if (end - pos < min) {
+            expect(pos, label);
+            return null;
+        }
+        var ret = input.substring(pos, end);
+        pos = end;
+        return ret;
     }
 
-    private Parser<CharSet> shorthandCharSetSpace() {
-        return sequence(backslash, litChar('s')).map(x -> {
-            if (unicodeClasses) {
-                return UnicodeBinaryProperties.charSets.get("WHITE_SPACE");
-            } else {
-                return PosixCharSets.space;
-            }
-        });
+    private int parseInt(String str, int radix) {
+        try {
+            return Integer.parseInt(str, radix);
+        } catch (NumberFormatException e) {
+            throw error(e.getMessage());
+        }
     }
 
-    private Parser<CharSet> shorthandCharSetSpaceCompl() {
-        return sequence(backslash, litChar('S')).map(x -> {
-            if (unicodeClasses) {
-                return UnicodeBinaryProperties.charSets.get("WHITE_SPACE").complement();
-            } else {
-                return PosixCharSets.space.complement();
+    private int hexNumber(int digits) {
+        var str = charsIn(hexDigits, digits, digits, "hex number");
+        return str == null ? -1 : parseInt(str, 16);
+    }
+
+    private static boolean isLineTerminator(char ch) {
+        return ch == '\n' || ch == '\r' || ch == 0x85 || ch == 0x2028 || ch == 0x2029;
+    }
+
+    // Escapes
+
+    private Lit specialEscape() {
+        if (!litChar('\\')) {
+            return null;
+        }
+        int code = codePointNotIn("dwsDWSuxcpR0123456789");
+        if (code == -1) {
+            return null;
+        }
+        switch (code) {
+            case 'n':
+                return new Lit('\n');
+            case 'r':
+                return new Lit('\r');
+            case 't':
+                return new Lit('\t');
+            case 'f':
+                return new Lit('\f');
+            case 'b':
+                return new Lit('\b');
+            case 'v':
+                return new Lit(0xB); // vertical tab
+            case 'a':
+                return new Lit(0x7); // bell
+            case 'e':
+                return new Lit(0x1B); // escape
+            case 'B':
+                return new Lit('\\');
+            default:
+                return new Lit(code); // remaining escaped characters stand for themselves
+        }
+    }
+
+    private int unicodeEscape() {
+        if (!litChar('\\') || !litChar('u')) {
+            return -1;
+        }
+        return hexNumber(4);
+    }
+
+    private Lit doubleUnicodeEscape() {
+        int high = unicodeEscape();
+        if (high == -1 || !Character.isHighSurrogate((char) high)) {
+            return null;
+        }
+        int low = unicodeEscape();
+        if (low == -1) {
+            return null;
+        }
+        if (!Character.isLowSurrogate((char) low)) {
+            fail(pos, "invalid UTF-16 pair, high surrogate followed by non-low surrogate");
+            return null;
+        }
+        return new Lit(Character.toCodePoint((char) high, (char) low));
+    }
+
+    private Lit simpleUnicodeEscape() {
+        int ch = unicodeEscape();
+        return ch == -1 ? null : new Lit(ch);
+    }
+
+    private Lit hexEscape() {
+        if (!litChar('\\') || !litChar('x')) {
+            return null;
+        }
+        int ch = hexNumber(2);
+        return ch == -1 ? null : new Lit(ch);
+    }
+
+    private Lit longHexEscape() {
+        if (!litChar('\\') || !litChar('x') || !litChar('{')) {
+            return null;
+        }
+        var digits = charsIn(hexDigits, "hex number");
+        if (digits == null) {
+            return null;
+        }
+        int ch = parseInt(digits, 16);
+        if (!litChar('}')) {
+            return null;
+        }
+        return new Lit(ch);
+    }
+
+    private Lit octalEscape() {
+        if (!litChar('\\') || !litChar('0')) {
+            return null;
+        }
+        var digits = charsIn("01234567", 1, 3, "octal number");
+        return digits == null ? null : new Lit(parseInt(digits, 8));
+    }
+
+    private Lit controlEscape() {
+        if (!litChar('\\') || !litChar('c')) {
+            return null;
+        }
+        if (atEnd()) {
+            expect(pos, "");
+            return null;
+        }
+        pos++;
+        throw error("Unsupported feature: control escape");
+    }
+
+    private Lit backReference() {
+        if (!litChar('\\') || charsIn("0123456789", "") == null) {
+            return null;
+        }
+        throw error("Unsupported feature: back reference");
+    }
+
+    /**
+     * Order between Unicode escapes is important
+     */
+    private Lit anyEscape() {
+        Lit ret = attempt(this::specialEscape);
+        if (ret == null) ret = attempt(this::doubleUnicodeEscape);
+        if (ret == null) ret = attempt(this::simpleUnicodeEscape);
+        if (ret == null) ret = attempt(this::hexEscape);
+        if (ret == null) ret = attempt(this::longHexEscape);
+        if (ret == null) ret = attempt(this::octalEscape);
+        if (ret == null) ret = attempt(this::controlEscape);
+        if (ret == null) ret = attempt(this::backReference);
+        return ret;
+    }
+
+    private Lit charLit() {
+        if (!atEnd() && (input.charAt(pos) == '^' || input.charAt(pos) == '$')) {
+            pos++;
+            throw error("Unsupported feature: anchor");
+        }
+        expect(pos, "");
+        Lit ret = attempt(this::anyEscape);
+        if (ret == null) {
+            int ch = codePointNotIn("\\.|()[]+*?");
+            if (ch != -1) {
+                ret = new Lit(ch);
             }
-        });
+        }
+        return ret;
     }
 
-    private Parser<CharSet> shorthandCharSetWord() {
-        return sequence(backslash, litChar('w')).map(x -> {
-            if (unicodeClasses) {
-                return UnicodePosixCharSets.wordCharSet;
-            } else {
-                return PosixCharSets.wordChar;
+    // Character classes
+
+    private Lit characterClassLit() {
+        Lit ret = attempt(this::anyEscape);
+        if (ret == null) {
+            int ch = codePointNotIn("\\^]-");
+            if (ch != -1) {
+                ret = new Lit(ch);
             }
-        });
+        }
+        return ret;
     }
 
-    private Parser<CharSet> shorthandCharSetWordCompl() {
-        return sequence(backslash, litChar('W')).map(x -> {
-            if (unicodeClasses) {
-                return UnicodePosixCharSets.wordCharSet.complement();
-            } else {
-                return PosixCharSets.wordChar.complement();
+    private CharSet charClassRangeOrLit() {
+        Lit start = characterClassLit();
+        if (start == null) {
+            return null;
+        }
+        int afterStart = pos;
+        if (litChar('-')) {
+            Lit end = characterClassLit();
+            if (end != null) {
+                try {
+                    return new CharSet(new CharRange(start.codePoint, end.codePoint));
+                } catch (IllegalArgumentException e) {
+                    throw error(e.getMessage());
+                }
             }
-        });
-    }
-
-    private Parser<CharSet> shorthandCharSet() {
-        return or(
-                shorthandCharSetDigit(),
-                shorthandCharSetDigitCompl(),
-                shorthandCharSetSpace(),
-                shorthandCharSetSpaceCompl(),
-                shorthandCharSetWord(),
-                shorthandCharSetWordCompl());
-    }
-
-    private Parser<CharSet> specialCharSet() {
-        return or(
-                specialCharSetByName,
-                specialCharSetWithIs,
-                specialCharSetWithIn,
-                specialCharSetWithJava,
-                specialCharSetImplicit());
-    }
-
-    private Parser<CharSet> charClassAtom() {
-        return or(charClassRange, singleCharacterClassLit, shorthandCharSet(), specialCharSet());
-    }
-
-    private final Parser<CharSet> charClass = sequence(
-            litChar('['),
-            litChar('^').asOptional(),
-            litChar('-').asOptional(),
-            charClassAtom().many1(),
-            litChar('-').asOptional(),
-            litChar(']'),
-            (op, negated, leftDash, charClass, rightDash, cl) -> {
-                List<CharSet> chars = new ArrayList<>(charClass);
-                if (leftDash.isPresent() || rightDash.isPresent()) {
-                    chars.add(new CharSet(new Lit('-')));
+        }
+        // not a range, just the single literal
+        pos = afterStart;
+        return new CharSet(start);
+    }
+
+    private CharSet shorthandCharSet() {
+        if (!litChar('\\')) {
+            return null;
+        }
+        if (litChar('d')) {
+            return unicodeClasses ? UnicodeBinaryProperties.get("DIGIT") : PosixCharSets.digit;
+        } else if (litChar('D')) {
+            return unicodeClasses
+                    ? UnicodeBinaryProperties.get("DIGIT").complement()
+                    : PosixCharSets.digit.complement();
+        } else if (litChar('s')) {
+            return unicodeClasses ? UnicodeBinaryProperties.get("WHITE_SPACE") : PosixCharSets.space;
+        } else if (litChar('S')) {
+            return unicodeClasses
+                    ? UnicodeBinaryProperties.get("WHITE_SPACE").complement()
+                    : PosixCharSets.space.complement();
+        } else if (litChar('w')) {
+            return unicodeClasses ? UnicodePosixCharSets.wordCharSet() : PosixCharSets.wordChar;
+        } else if (litChar('W')) {
+            return unicodeClasses
+                    ? UnicodePosixCharSets.wordCharSet().complement()
+                    : PosixCharSets.wordChar.complement();
+        } else {
+            return null;
+        }
+    }
+
+    private static final String propertyValueChars = "0123456789" + letters + "_ -";
+
+    private CharSet specialCharSetByName() {
+        var propName = charsIn("abcdefghijklmnopqrstuvwxyz_", "");
+        if (propName == null || !litChar('=')) {
+            return null;
+        }
+        var propValue = charsIn(propertyValueChars, "");
+        if (propValue == null || !litChar('}')) {
+            return null;
+        }
+        switch (propName) {
+            case "block":
+            case "blk":
+                var canonicalBlockName = UnicodeBlocks.canonicalizeBlockName(propValue);
+                var block = UnicodeBlocks.get(canonicalBlockName);
+                if (block == null) {
+                    throw error("Invalid Unicode block: " + propValue);
+                }
+                return block;
+            case "script":
+            case "sc":
+                var script = UnicodeScripts.get(propValue.toUpperCase());
+                if (script == null) {
+                    throw error("Invalid Unicode script: " + propValue);
                 }
-                var set = new CharSet(
-                        chars.stream().flatMap(x -> x.ranges.stream()).collect(Collectors.toList()));
-                if (negated.isPresent()) {
-                    return set.complement();
-                } else {
-                    return set;
+                return script;
+            case "general_category":
+            case "gc":
+                var gc = UnicodeGeneralCategories.get(propValue);
+                if (gc == null) {
+                    throw error("Invalid Unicode general category: " + propValue);
                 }
-            });
+                return gc;
+            default:
+                throw error("Invalid Unicode character property name: " + propName);
+        }
+    }
+
+    /**
+     * If the property starts with "Is" it could be either a script,
+     * general category or a binary property. Look for all.
+     */
+    private CharSet specialCharSetWithIs() {
+        if (!token("Is")) {
+            return null;
+        }
+        var propValue = charsIn(propertyValueChars, "");
+        if (propValue == null || !litChar('}')) {
+            return null;
+        }
+        var upperCaseValue = propValue.toUpperCase();
+        var script = UnicodeScripts.get(upperCaseValue);
+        if (script != null) {
+            return script;
+        }
+        var gc = UnicodeGeneralCategories.get(propValue);
+        if (gc != null) {
+            return gc;
+        }
+        var ubp = UnicodeBinaryProperties.get(upperCaseValue);
+        if (ubp != null) {
+            return ubp;
+        }
+        throw error("Invalid Unicode script, general category or binary property: " + propValue);
+    }
+
+    private CharSet specialCharSetWithIn() {
+        if (!token("In")) {
+            return null;
+        }
+        var blockName = charsIn(propertyValueChars, "");
+        if (blockName == null || !litChar('}')) {
+            return null;
+        }
+        var block = UnicodeBlocks.get(UnicodeBlocks.canonicalizeBlockName(blockName));
+        if (block == null) {
+            throw error("Invalid Unicode block: " + blockName);
+        }
+        return block;
+    }
+
+    private CharSet specialCharSetWithJava() {
+        if (!token("java")) {
+            return null;
+        }
+        var charClass = charsIn(propertyValueChars, "");
+        if (charClass == null || !litChar('}')) {
+            return null;
+        }
+        var ret = JavaProperties.get("java" + charClass);
+        if (ret == null) {
+            var validOptions = String.join(",", JavaProperties.names());
+            throw error(String.format(
+                    "invalid Java character class: %1$s "
+                            + "(note: for such a class to be valid, a method java.lang.Character.is%1$s() must exist) "
+                            + "(valid options: %2$s)",
+                    charClass, validOptions));
+        }
+        return ret;
+    }
+
+    private CharSet specialCharSetImplicit() {
+        var name = charsIn(propertyValueChars, "");
+        if (name == null || !litChar('}')) {
+            return null;
+        }
+        CharSet posixCharset;
+        if (unicodeClasses) {
+            posixCharset = UnicodePosixCharSets.get(name);
+        } else {
+            posixCharset = PosixCharSets.charSets.get(name);
+        }
+        if (posixCharset != null) {
+            return posixCharset;
+        }
+        var unicodeCharset = UnicodeGeneralCategories.get(name);
+        if (unicodeCharset != null) {
+            return unicodeCharset;
+        }
+        throw error("Invalid POSIX character class: " + name);
+    }
+
+    private CharSet specialCharSet() {
+        if (!litChar('\\') || !litChar('p') || !litChar('{')) {
+            return null;
+        }
+        CharSet ret = attempt(this::specialCharSetByName);
+        if (ret == null) ret = attempt(this::specialCharSetWithIs);
+        if (ret == null) ret = attempt(this::specialCharSetWithIn);
+        if (ret == null) ret = attempt(this::specialCharSetWithJava);
+        if (ret == null) ret = attempt(this::specialCharSetImplicit);
+        return ret;
+    }
+
+    private CharSet charClassAtom() {
+        CharSet ret = attempt(this::charClassRangeOrLit);
+        if (ret == null) ret = attempt(this::shorthandCharSet);
+        if (ret == null) ret = attempt(this::specialCharSet);
+        return ret;
+    }
+
+    private CharSet charClass() {
+        if (!litChar('[')) {
+            return null;
+        }
+        boolean negated = litChar('^');
+        boolean leftDash = litChar('-');
+        List<CharSet> chars = new ArrayList<>();
+        CharSet atom;
+        while ((atom = attempt(this::charClassAtom)) != null) {
+            chars.add(atom);
+        }
+        if (chars.isEmpty()) {
+            return null;
+        }
+        boolean rightDash = litChar('-');
+        if (!litChar(']')) {
+            return null;
+        }
+        if (leftDash || rightDash) {
+            chars.add(new CharSet(new Lit('-')));
+        }
+        var set = new CharSet(chars.stream().flatMap(x -> x.ranges.stream()).collect(Collectors.toList()));
+        return negated ? set.complement() : set;
+    }
 
     // There is the special case of a character class with only one character: the dash. This is valid, but
     // not easily parsed by the general constructs.
-    private final Parser<CharSet> dashClass =
-            sequence(litChar('['), litChar('^').asOptional(), litChar('-'), litChar(']'), (op, negated, dash, cl) -> {
-                var set = new CharSet(new Lit('-'));
-                if (negated.isPresent()) {
-                    return set.complement();
-                } else {
-                    return set;
-                }
-            });
-
-    private final Parser<Node> quotedLiteral = between(
-                    sequence(backslash, litChar('Q')),
-                    regex(".").toScanner("").source().until(sequence(backslash, litChar('E'))),
-                    sequence(backslash, litChar('E')))
-            .map(literals -> Juxt.of(
-                    literals.stream().map(ch -> new Lit(ch.codePointAt(0))).collect(Collectors.toList())));
-
-    private final Parser<Node> unicodeLineBreak = sequence(backslash, litChar('R'))
-            .map(x -> Disj.of(
-                    Juxt.of(new Lit(0xD), new Lit(0xA)),
-                    new Lit(0xA),
-                    new Lit(0xB),
-                    new Lit(0xC),
-                    new Lit(0xD),
-                    new Lit(0x85),
-                    new Lit(0x2028),
-                    new Lit(0x2029)));
-
-    private final Parser.Reference<Node> regexRef = Parser.newReference();
+    private CharSet dashClass() {
+        if (!litChar('[')) {
+            return null;
+        }
+        boolean negated = litChar('^');
+        if (!litChar('-') || !litChar(']')) {
+            return null;
+        }
+        var set = new CharSet(new Lit('-'));
+        return negated ? set.complement() : set;
+    }
+
+    // Other atoms
+
+    private Node quotedLiteral() {
+        if (!litChar('\\') || !litChar('Q')) {
+            return null;
+        }
+        List<Lit> literals = new ArrayList<>();
+        while (!input.startsWith("\\E", pos)) {
+            if (atEnd() || isLineTerminator(input.charAt(pos))) {
+                expect(pos, "");
+                break;
+            }
+            int codePoint = input.codePointAt(pos);
+            literals.add(new Lit(codePoint));
+            pos += Character.charCount(codePoint);
+        }
+        if (!litChar('\\') || !litChar('E')) {
+            return null;
+        }
+        return Juxt.of(literals);
+    }
+
+    private Node charWildcard() {
+        if (!litChar('.')) {
+            return null;
+        }
+        switch (dotMatch) {
+            case All:
+                return Wildcard.instance;
+            case JavaLines:
+                return new CharSet(new Lit('\n'), new Lit('\r'), new Lit(0x85), new Lit(0x2028), new Lit(0x2029))
+                        .complement();
+            case UnixLines:
+                return new CharSet(new Lit('\n')).complement();
+            default:
+                throw new IllegalArgumentException();
+        }
+    }
+
+    private Node unicodeLineBreak() {
+        if (!litChar('\\') || !litChar('R')) {
+            return null;
+        }
+        return Disj.of(
+                Juxt.of(new Lit(0xD), new Lit(0xA)),
+                new Lit(0xA),
+                new Lit(0xB),
+                new Lit(0xC),
+                new Lit(0xD),
+                new Lit(0x85),
+                new Lit(0x2028),
+                new Lit(0x2029));
+    }
 
     static class GroupModifiers {
         Direction direction;
         Optional<Condition> condition;
     }
 
-    private final Parser<GroupModifiers> groupModifiers = sequence(
-            litChar('?'),
-            litChar('<').asOptional(),
-            or(litChar(':'), litChar('='), litChar('!')),
-            (q, dir, cond) -> {
-                var ret = new GroupModifiers();
-                if (dir.isPresent()) {
-                    ret.direction = Direction.Behind;
-                } else {
-                    ret.direction = Direction.Ahead;
-                }
-                switch ((char) cond.intValue()) {
-                    case ':':
-                        if (dir.isPresent()) {
-                            throw new InvalidRegexException("Invalid grouping: <: ");
-                        } else {
-                            ret.condition = Optional.empty();
-                        }
-                        break;
-                    case '=':
-                        ret.condition = Optional.of(Condition.Positive);
-                        break;
-                    case '!':
-                        ret.condition = Optional.of(Condition.Negative);
-                        break;
-                    default:
-                        throw new IllegalArgumentException();
-                }
-                return ret;
-            });
-
-    private final Parser<Node> group = sequence(
-            litChar('('),
-            groupModifiers.asOptional(),
-            regexRef.lazy(),
-            litChar(')'),
-            (paren1, groupModifiers, value, paren2) -> {
-                if (groupModifiers.isEmpty()) {
-                    // Naked parenthesis
-                    return new PositionalCaptureGroup(value);
-                } else {
-                    var modifiers = groupModifiers.orElseThrow();
-                    if (modifiers.condition.isEmpty()) {
-                        return value;
-                    } else {
-                        return new Lookaround(modifiers.direction, modifiers.condition.orElseThrow(), value);
-                    }
-                }
-            });
-
-    private final Parser<NamedCaptureGroup> namedGroup = sequence(
-            litChar('('),
-            litChar('?'),
-            litChar('<'),
-            regex("[a-zA-Z][a-zA-Z0-9]*").toScanner("").source(),
-            litChar('>'),
-            regexRef.lazy(),
-            litChar(')'),
-            (paren1, a, b, name, c, value, paren2) -> new NamedCaptureGroup(name, value));
-
-    private Parser<Node> charWildcard() {
-        return litChar('.').map(ch -> {
-            switch (dotMatch) {
-                case All:
-                    return Wildcard.instance;
-                case JavaLines:
-                    return new CharSet(new Lit('\n'), new Lit('\r'), new Lit(0x85), new Lit(0x2028), new Lit(0x2029))
-                            .complement();
-                case UnixLines:
-                    return new CharSet(new Lit('\n')).complement();
-                default:
-                    throw new IllegalArgumentException();
+    private GroupModifiers groupModifiers() {
+        if (!litChar('?')) {
+            return null;
+        }
+        var ret = new GroupModifiers();
+        boolean behind = litChar('<');
+        ret.direction = behind ? Direction.Behind : Direction.Ahead;
+        if (litChar(':')) {
+            if (behind) {
+                throw error("Invalid grouping: <: ");
             }
-        });
-    }
-
-    private final Parser<Node> regexAtom = or(List.of(
-            quotedLiteral,
-            charLit,
-            charWildcard(),
-            charClass,
-            unicodeLineBreak,
-            dashClass,
-            shorthandCharSet(),
-            specialCharSet(),
-            group,
-            namedGroup));
-
-    private final Parser<Quantification> predefQuantifier = or(litChar('+'), litChar('*'), litChar('?'))
-            .map(ch -> {
-                switch (ch.intValue()) {
-                    case '+':
-                        return new Quantification(1);
-                    case '*':
-                        return new Quantification(0);
-                    case '?':
-                        return new Quantification(0, 1);
-                    default:
-                        throw new IllegalArgumentException();
-                }
-            });
-
-    private final Parser<Quantification> generalQuantifier = sequence(
-            litChar('{'),
-            decimalNumber,
-            sequence(litChar(','), decimalNumber.asOptional()).asOptional(),
-            litChar('}'),
-            (br1, minVal, maxVal, br2) -> {
-                if (maxVal.isPresent()) {
-                    var max = maxVal.orElseThrow();
-                    if (max.isPresent()) {
-                        var maxVal2 = max.orElseThrow();
-                        // Quantifiers of the for {min,max}
-                        if (minVal <= maxVal2) return new Quantification(minVal, maxVal2);
-                        else throw new InvalidRegexException("invalid range in quantifier");
-                    } else {
-                        // Quantifiers of the form {min,}
-                        return new Quantification(minVal);
-                    }
-                } else {
-                    // Quantifiers of the form "{n}", the value is captured as "min", despite being also the max
-                    return new Quantification(minVal, minVal);
-                }
-            });
+            ret.condition = Optional.empty();
+        } else if (litChar('=')) {
+            ret.condition = Optional.of(Condition.Positive);
+        } else if (litChar('!')) {
+            ret.condition = Optional.of(Condition.Negative);
+        } else {
+            return null;
+        }
+        return ret;
+    }
 
-    private final Parser<Quantification> quantifier = or(predefQuantifier, generalQuantifier);
+    private Node group() {
+        if (!litChar('(')) {
+            return null;
+        }
+        var modifiers = attempt(this::groupModifiers);
+        var value = regex();
+        if (!litChar(')')) {
+            return null;
+        }
+        if (modifiers == null) {
+            // Naked parenthesis
+            return new PositionalCaptureGroup(value);
+        } else if (modifiers.condition.isEmpty()) {
+            return value;
+        } else {
+            return new Lookaround(modifiers.direction, modifiers.condition.orElseThrow(), value);
+        }
+    }
 
-    private final Parser<Node> lazyQuantifiedBranch = sequence(regexAtom, quantifier, litChar('?'))
-            .map(ch -> {
-                throw new InvalidRegexException("reluctant quantifiers are not supported");
-            });
+    private Node namedGroup() {
+        if (!litChar('(') || !litChar('?') || !litChar('<')) {
+            return null;
+        }
+        var initial = charsIn(letters, 1, 1, "");
+        if (initial == null) {
+            return null;
+        }
+        var name = initial + charsIn(letters + "0123456789", 0, Integer.MAX_VALUE, "");
+        if (!litChar('>')) {
+            return null;
+        }
+        var value = regex();
+        if (!litChar(')')) {
+            return null;
+        }
+        return new NamedCaptureGroup(name, value);
+    }
 
-    private final Parser<Node> possessivelyQuantifiedBranch = sequence(regexAtom, quantifier, litChar('+'))
-            .map(ch -> {
-                throw new InvalidRegexException("possessive quantifiers are not supported");
-            });
+    private Node regexAtom() {
+        Node ret = attempt(this::quotedLiteral);
+        if (ret == null) ret = attempt(this::charLit);
+        if (ret == null) ret = attempt(this::charWildcard);
+        if (ret == null) ret = attempt(this::charClass);
+        if (ret == null) ret = attempt(this::unicodeLineBreak);
+        if (ret == null) ret = attempt(this::dashClass);
+        if (ret == null) ret = attempt(this::shorthandCharSet);
+        if (ret == null) ret = attempt(this::specialCharSet);
+        if (ret == null) ret = attempt(this::group);
+        if (ret == null) ret = attempt(this::namedGroup);
+        return ret;
+    }
 
-    private final Parser<Rep> quantifiedBranch =
-            sequence(regexAtom, quantifier, (atom, q) -> new Rep(q.min, q.max, atom));
+    // Quantifiers and composition
 
-    private final Parser<Node> branch = or(
-                    lazyQuantifiedBranch, possessivelyQuantifiedBranch, quantifiedBranch, regexAtom)
-            .many1()
-            .map(parts -> {
-                if (parts.isEmpty()) {
-                    throw new AssertionError();
-                }
-                return Juxt.of(parts);
-            });
+    private Integer decimalNumber() {
+        var digits = charsIn("0123456789", "decimal number");
+        return digits == null ? null : parseInt(digits, 10);
+    }
 
-    private final Parser<Node> emptyRegex = regex("").toScanner("").map(x -> Juxt.of());
+    private Quantification quantifier() {
+        if (litChar('+')) {
+            return new Quantification(1);
+        } else if (litChar('*')) {
+            return new Quantification(0);
+        } else if (litChar('?')) {
+            return new Quantification(0, 1);
+        }
+        if (!litChar('{')) {
+            return null;
+        }
+        Integer min = decimalNumber();
+        if (min == null) {
+            return null;
+        }
+        boolean range = litChar(',');
+        Integer max = range ? decimalNumber() : null;
+        if (!litChar('}')) {
+            return null;
+        }
+        if (!range) {
+            // Quantifiers of the form "{n}", the value is captured as "min", despite being also the max
+            return new Quantification(min, min);
+        } else if (max == null) {
+            // Quantifiers of the form {min,}
+            return new Quantification(min);
+        } else if (min <= max) {
+            // Quantifiers of the for {min,max}
+            return new Quantification(min, max);
+        } else {
+            throw error("invalid range in quantifier");
+        }
+    }
 
-    private final Parser<Node> nonEmptyRegex =
-            sequence(branch, sequence(litChar('|'), regexRef.lazy()).asOptional(), (left, optRight) -> {
-                if (optRight.isEmpty()) {
-                    return left;
-                } else {
-                    return Disj.of(left, optRight.orElseThrow());
-                }
-            });
+    /**
+     * An atom, possibly quantified. Reluctant and possessive quantifiers are recognized only to be rejected.
+     */
+    private Node branchPart() {
+        var atom = regexAtom();
+        if (atom == null) {
+            return null;
+        }
+        int afterAtom = pos;
+        var quantifier = quantifier();
+        if (quantifier == null) {
+            pos = afterAtom;
+            return atom;
+        }
+        if (litChar('?')) {
+            throw error("reluctant quantifiers are not supported");
+        }
+        if (litChar('+')) {
+            throw error("possessive quantifiers are not supported");
+        }
+        return new Rep(quantifier.min, quantifier.max, atom);
+    }
 
-    private final Parser<Node> regex = or(nonEmptyRegex, emptyRegex);
+    private Node branch() {
+        List<Node> parts = new ArrayList<>();
+        Node part;
+        while ((part = attempt(this::branchPart)) != null) {
+            parts.add(part);
+        }
+        return parts.isEmpty() ? null : Juxt.of(parts);
+    }
 
-    {
-        regexRef.set(regex);
+    /**
+     * A disjunction of branches, any of which (but not the first one) can be empty.
+     */
+    private Node regex() {
+        List<Node> branches = new ArrayList<>();
+        var first = attempt(this::branch);
+        if (first == null) {
+            return Juxt.of();
+        }
+        branches.add(first);
+        while (litChar('|')) {
+            var next = attempt(this::branch);
+            branches.add(next == null ? Juxt.of() : next);
+            if (next == null) {
+                break;
+            }
+        }
+        // disjunctions associate to the right
+        var ret = branches.get(branches.size() - 1);
+        for (int i = branches.size() - 2; i >= 0; i--) {
+            ret = Disj.of(branches.get(i), ret);
+        }
+        return ret;
+    }
+
+    private Node parseAll() {
+        var tree = regex();
+        if (!atEnd()) {
+            expect(pos, "EOF");
+            throw syntaxError();
+        }
+        return tree;
     }
 
     private static final java.util.regex.Pattern commentPattern = java.util.regex.Pattern.compile("(?<!\\\\)#[^\\n]*");
@@ -722,16 +944,10 @@ public class RegexParser {
         }
 
         // parsing proper
-        var parser = new RegexParser(flags.dotMatch, flags.unicodeClasses);
-
-        try {
-            Node tree = parser.regex.parse(regex);
-            if (flags.canonicalEq) {
-                tree = tree.unicodeNormalize();
-            }
-            return new ParsedRegex(regex, tree.caseExpansion(caseExpansion));
-        } catch (ParserException e) {
-            throw new InvalidRegexException(e.getMessage());
+        Node tree = new RegexParser(regex, flags.dotMatch, flags.unicodeClasses).parseAll();
+        if (flags.canonicalEq) {
+            tree = tree.unicodeNormalize();
         }
+        return new ParsedRegex(regex, tree.caseExpansion(caseExpansion));
     }
 }
@@ -1,21 +1,20 @@
 package dregex.impl;
 
 import java.util.Arrays;
-import java.util.Objects;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 public final class SimpleState implements State {
 
-    public final int id = counter.getAndIncrement();
+    public final long id = counter.getAndIncrement();
 
     @Override
     public String toString() {
         return toSubscriptString(id);
     }
 
-    private String toSubscriptString(int number) {
-        var string = Integer.toString(number);
+    private String toSubscriptString(long number) {
+        var string = Long.toString(number);
         var ret = new StringBuffer();
         string.codePoints().forEach(codePoint -> {
             ret.append(Character.toChars(codePoint + 8272));
@@ -23,7 +22,11 @@ public final class SimpleState implements State {
         return ret.toString();
     }
 
-    private static final AtomicInteger counter = new AtomicInteger();
+    /**
+     * Ids are longs, so the counter does not wrap in the life of a process: wrapped ids would make distinct states
+     * equal, which is unsafe with the operations cached for the life of a {@link Universe}.
+     */
+    private static final AtomicLong counter = new AtomicLong();
 
     @Override
     public boolean equals(Object o) {
@@ -33,8 +36,12 @@ public final class SimpleState implements State {
         return id == that.id;
     }
 
+    /**
+     * Sets of states (as in {@link MultiState}) hash as the sum of their members, so consecutive ids would make sets of
+     * similar states collide. Spread the ids using a multiplicative hash (Fibonacci hashing).
+     */
     @Override
     public int hashCode() {
-        return Objects.hash(id);
+        return (int) ((id * 0x9E3779B97F4A7C15L) >>> 32);
     }
 }
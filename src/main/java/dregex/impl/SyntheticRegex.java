@@ -10,6 +10,11 @@ public class SyntheticRegex extends RegexImpl {
         super(dfa, universe);
     }
 
+    @Override
+    protected RegexImpl withDfa(Dfa dfa, Universe universe) {
+        return new SyntheticRegex(dfa, universe);
+    }
+
     @Override
     public String toString() {
         return String.format("[synthetic] (DFA states: %s)", getDfa().stateCount());
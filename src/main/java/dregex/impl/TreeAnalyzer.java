@@ -0,0 +1,448 @@
+package dregex.impl;
+
+import dregex.RegexAnalysis.Hazard.Kind;
+import dregex.impl.tree.AbstractRange;
+import dregex.impl.tree.CaptureGroup;
+import dregex.impl.tree.CharSet;
+import dregex.impl.tree.Disj;
+import dregex.impl.tree.Juxt;
+import dregex.impl.tree.Lookaround;
+import dregex.impl.tree.Node;
+import dregex.impl.tree.Operation;
+import dregex.impl.tree.Rep;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Static analysis of a parsed tree, estimating the size of its DFA without building any automaton. It takes time
+ * linear in the size of the tree (with counted repetitions not expanded), so it is cheap enough to be run on every
+ * expression before deciding whether to compile it.
+ * <p>
+ * The estimate assumes that sizes add up, except in the constructions that are known to multiply them:
+ * <ul>
+ * <li>Bounded positions that follow an unbounded repetition over overlapping characters, with a "marker" between
+ * them that matches only some of those characters, as in {@code (a|b)*a(a|b){25}}, {@code .*a.{25}} or
+ * {@code (?:[ab]*a)[ab](a|b)[ab]{23}}: the DFA has to remember, for every one of the last characters, whether it was
+ * a marker, so it has about two to the power of the length of the window states. The windows of alternatives are
+ * tracked at the same time, so with several distinct markers, the base is their number plus one.
+ * <li>A lookaround, which is compiled as a product construction (see {@link Compiler}), multiplies the states of the
+ * expression by the ones of the lookaround.
+ * </ul>
+ * The estimate is a heuristic, not a bound: it can be far from the actual size in both directions, but it is meant to
+ * be in the right order of magnitude for the expressions that blow up.
+ */
+public final class TreeAnalyzer {
+
+    /**
+     * A subexpression that is likely to make the DFA grow more than linearly.
+     */
+    public static final class Finding {
+
+        public final Kind kind;
+        public final Node node;
+        public final double factor;
+
+        Finding(Kind kind, Node node, double factor) {
+            this.kind = kind;
+            this.node = node;
+            this.factor = factor;
+        }
+    }
+
+    /**
+     * Repetitions whose expansion has more positions than this are reported.
+     */
+    private static final double largeRepetitionPositions = 10_000;
+
+    /**
+     * Sizes are capped at this value, which is beyond any feasible automaton, to avoid overflows.
+     */
+    private static final double maxSize = 0x1p62;
+
+    /**
+     * The summary of a subexpression.
+     */
+    private static final class Summary {
+
+        /**
+         * The number of positions (character occurrences) of the NFA, with counted repetitions expanded.
+         */
+        double positions;
+
+        /**
+         * The estimated number of DFA states.
+         */
+        double states;
+
+        /**
+         * The maximum length of the matched strings, or infinity.
+         */
+        double maxLength;
+
+        /**
+         * The characters used, as sorted and merged intervals.
+         */
+        List<int[]> chars;
+
+        /**
+         * The length of the longest window of the subexpression (see {@link Window}), or zero.
+         */
+        double window = 0;
+
+        /**
+         * The distinct markers of the windows of the subexpression, as sorted and merged intervals.
+         */
+        List<List<int[]>> markers = List.of();
+
+        Summary(double positions, double states, double maxLength, List<int[]> chars) {
+            this.positions = cap(positions);
+            this.states = cap(states);
+            this.maxLength = maxLength;
+            this.chars = chars;
+        }
+    }
+
+    /**
+     * The bounded positions that follow an unbounded repetition and a "marker" in a juxtaposition, all of them
+     * overlapping the characters of the repetition: as any of the last characters can be where the repetition ended,
+     * the DFA has to remember, for every one of them, whether it was a marker. Only the positions that can match a
+     * marker again count for the length, as otherwise at most one of them can be after one.
+     */
+    private final class Window {
+
+        final List<int[]> marker;
+        final List<Node> nodes = new ArrayList<>();
+        double length = 0;
+
+        /**
+         * The range of {@link #nodes} that count for the length.
+         */
+        int firstCounted = -1;
+        int lastCounted = -1;
+
+        Window(List<int[]> marker) {
+            this.marker = marker;
+        }
+
+        void add(Node node, Summary summary) {
+            nodes.add(node);
+            if (intersect(summary.chars, marker)) {
+                length += summary.maxLength;
+                if (firstCounted == -1) {
+                    firstCounted = nodes.size() - 1;
+                }
+                lastCounted = nodes.size() - 1;
+            }
+        }
+
+        /**
+         * Report the window, if long enough to matter, and add it to the summary of the juxtaposition.
+         */
+        void end(Summary summary) {
+            if (length == 0) {
+                return;
+            }
+            if (length >= 2) {
+                Node node = firstCounted == lastCounted
+                        ? countedRepetitionOrSelf(nodes.get(firstCounted))
+                        : new Juxt(nodes.subList(firstCounted, lastCounted + 1));
+                findings.add(new Finding(Kind.OverlappingCountedRepetition, node, Math.pow(2, Math.min(length, 62))));
+            }
+            summary.window = Math.max(summary.window, length);
+            summary.markers = addMarker(summary.markers, marker);
+        }
+    }
+
+    private final List<Finding> findings = new ArrayList<>();
+    private final Summary summary;
+    private int maxLookaroundDepth = 0;
+
+    public TreeAnalyzer(Node tree) {
+        summary = analyze(tree, 0, 0);
+        findings.sort(Comparator.comparingDouble((Finding f) -> f.factor).reversed());
+    }
+
+    public double getPositionCount() {
+        return summary.positions;
+    }
+
+    public double getEstimatedDfaStates() {
+        return summary.states;
+    }
+
+    public int getMaxLookaroundDepth() {
+        return maxLookaroundDepth;
+    }
+
+    /**
+     * Return the findings, from the largest factor to the smallest.
+     */
+    public List<Finding> getFindings() {
+        return findings;
+    }
+
+    private static double cap(double size) {
+        return Math.min(size, maxSize);
+    }
+
+    /**
+     * @param lookaroundDepth the number of lookarounds that enclose the node
+     * @param repetitionDepth the number of repetitions (that can repeat more than once) that enclose the node
+     */
+    private Summary analyze(Node node, int lookaroundDepth, int repetitionDepth) {
+        if (node instanceof AbstractRange) {
+            var range = (AbstractRange) node;
+            return new Summary(1, 2, 1, List.of(new int[] {range.from(), range.to()}));
+        } else if (node instanceof CharSet) {
+            var set = (CharSet) node;
+            var chars = new ArrayList<int[]>();
+            for (var range : set.ranges) {
+                chars.add(new int[] {range.from(), range.to()});
+            }
+            return new Summary(1, 2, 1, merge(chars));
+        } else if (node instanceof Juxt) {
+            return analyzeJuxt((Juxt) node, lookaroundDepth, repetitionDepth);
+        } else if (node instanceof Disj && isCharSet((Disj) node)) {
+            // an alternation of characters, as produced by case insensitivity, is a single position
+            var chars = new ArrayList<int[]>();
+            for (var value : ((Disj) node).values) {
+                chars.addAll(analyze(value, lookaroundDepth, repetitionDepth).chars);
+            }
+            return new Summary(1, 2, 1, merge(chars));
+        } else if (node instanceof Disj) {
+            var disj = (Disj) node;
+            double positions = 0;
+            double states = 1;
+            double maxLength = 0;
+            var chars = new ArrayList<int[]>();
+            double window = 0;
+            List<List<int[]>> markers = List.of();
+            for (var value : disj.values) {
+                var s = analyze(value, lookaroundDepth, repetitionDepth);
+                positions += s.positions;
+                // the alternatives share the initial state
+                states += s.states - 1;
+                maxLength = Math.max(maxLength, s.maxLength);
+                chars.addAll(s.chars);
+                window = Math.max(window, s.window);
+                for (var marker : s.markers) {
+                    markers = addMarker(markers, marker);
+                }
+            }
+            // the windows of the alternatives are tracked at the same time, and every character of them can be any of
+            // the markers, or none
+            var ret = new Summary(
+                    positions, Math.max(states, windowStates(window, markers.size())), maxLength, merge(chars));
+            ret.window = window;
+            ret.markers = markers;
+            return ret;
+        } else if (node instanceof Rep) {
+            return analyzeRep((Rep) node, lookaroundDepth, repetitionDepth);
+        } else if (node instanceof Lookaround) {
+            // a lookaround alone is an empty juxtaposition with a lookaround
+            return analyzeJuxt(new Juxt(List.of(node)), lookaroundDepth, repetitionDepth);
+        } else if (node instanceof CaptureGroup) {
+            return analyze(((CaptureGroup) node).value, lookaroundDepth, repetitionDepth);
+        } else if (node instanceof Operation) {
+            var operation = (Operation) node;
+            var left = analyze(operation.left, lookaroundDepth, repetitionDepth);
+            var right = analyze(operation.right, lookaroundDepth, repetitionDepth);
+            var chars = new ArrayList<int[]>(left.chars);
+            chars.addAll(right.chars);
+            return new Summary(
+                    left.positions + right.positions,
+                    left.states * right.states,
+                    Math.max(left.maxLength, right.maxLength),
+                    merge(chars));
+        } else {
+            throw new IllegalArgumentException("unexpected node: " + node);
+        }
+    }
+
+    private Summary analyzeRep(Rep rep, int lookaroundDepth, int repetitionDepth) {
+        boolean repeats = rep.max.isEmpty() || rep.max.get() > 1;
+        var value = analyze(rep.value, lookaroundDepth, repetitionDepth + (repeats ? 1 : 0));
+        // an unbounded repetition is expanded as the minimum copies followed by a loop
+        double copies = rep.max.isPresent() ? rep.max.get() : rep.min + 1;
+        double positions = value.positions * copies;
+        if (positions > largeRepetitionPositions && value.positions * 2 <= largeRepetitionPositions) {
+            // only report the outermost repetition that is large
+            findings.add(new Finding(Kind.LargeRepetition, rep, copies));
+        }
+        double maxLength = rep.max.isPresent() ? value.maxLength * rep.max.get() : Double.POSITIVE_INFINITY;
+        return new Summary(positions, 1 + (value.states - 1) * copies, maxLength, value.chars);
+    }
+
+    private Summary analyzeJuxt(Juxt juxt, int lookaroundDepth, int repetitionDepth) {
+        double positions = 0;
+        double states = 1;
+        double maxLength = 0;
+        double factor = 1;
+        var chars = new ArrayList<int[]>();
+        var windows = new Summary(0, 0, 0, List.of());
+        // the characters of the last unbounded repetition, if any, and the window that follows it, once a marker did
+        List<int[]> loop = null;
+        Window window = null;
+        for (var value : flatten(juxt)) {
+            if (value instanceof Lookaround) {
+                var lookaround = (Lookaround) value;
+                maxLookaroundDepth = Math.max(maxLookaroundDepth, lookaroundDepth + 1);
+                var s = analyze(lookaround.value, lookaroundDepth + 1, repetitionDepth);
+                positions += s.positions;
+                // the lookaround is combined with a wildcard, which adds a state
+                double lookaroundFactor = cap(s.states + 1);
+                factor = cap(factor * lookaroundFactor);
+                var kind = repetitionDepth > 0 ? Kind.LookaroundInRepetition : Kind.Lookaround;
+                findings.add(new Finding(kind, lookaround, lookaroundFactor));
+                continue;
+            }
+            var s = analyze(value, lookaroundDepth, repetitionDepth);
+            positions += s.positions;
+            states += s.states - 1;
+            maxLength += s.maxLength;
+            chars.addAll(s.chars);
+            boolean overlaps = loop != null && intersect(s.chars, loop);
+            if (window != null && overlaps && s.maxLength != Double.POSITIVE_INFINITY) {
+                window.add(value, s);
+                continue;
+            }
+            if (window != null) {
+                window.end(windows);
+                window = null;
+            }
+            if (s.maxLength == Double.POSITIVE_INFINITY) {
+                loop = s.chars;
+            } else if (!overlaps) {
+                // the repetition cannot have matched this position, so it ended before
+                loop = null;
+            } else if (!covers(s.chars, loop)) {
+                window = new Window(s.chars);
+            }
+        }
+        if (window != null) {
+            window.end(windows);
+        }
+        double windowStates = windowStates(windows.window, windows.markers.size());
+        var ret = new Summary(positions, Math.max(states, windowStates) * factor, maxLength, merge(chars));
+        ret.window = windows.window;
+        ret.markers = windows.markers;
+        return ret;
+    }
+
+    /**
+     * Return the number of states needed to track a window of the given length, in which every character can be any
+     * of the given number of markers, or none, plus the position where the window starts.
+     */
+    private static double windowStates(double window, int markerCount) {
+        if (window == 0) {
+            return 0;
+        }
+        return cap(Math.pow(markerCount + 1, Math.min(window + 1, 62)));
+    }
+
+    /**
+     * Return a list of markers with a new one added, unless an equal one is already there.
+     */
+    private static List<List<int[]>> addMarker(List<List<int[]>> markers, List<int[]> marker) {
+        for (var existing : markers) {
+            if (existing.size() == marker.size() && covers(existing, marker) && covers(marker, existing)) {
+                return markers;
+            }
+        }
+        var ret = new ArrayList<>(markers);
+        ret.add(marker);
+        return ret;
+    }
+
+    /**
+     * Return the values of a juxtaposition, with the values of the nested juxtapositions (possibly inside capture
+     * groups) in their place, as they are all positions of the same sequence.
+     */
+    private static List<Node> flatten(Juxt juxt) {
+        var ret = new ArrayList<Node>();
+        for (var value : juxt.values) {
+            Node unwrapped = value;
+            while (unwrapped instanceof CaptureGroup) {
+                unwrapped = ((CaptureGroup) unwrapped).value;
+            }
+            if (unwrapped instanceof Juxt) {
+                ret.addAll(flatten((Juxt) unwrapped));
+            } else {
+                ret.add(value);
+            }
+        }
+        return ret;
+    }
+
+    private static boolean isCharSet(Disj disj) {
+        for (var value : disj.values) {
+            if (!(value instanceof AbstractRange || value instanceof CharSet)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Return the counted repetition that a node is, possibly inside capture groups, or the node itself otherwise.
+     */
+    private static Node countedRepetitionOrSelf(Node node) {
+        Node unwrapped = node;
+        while (unwrapped instanceof CaptureGroup) {
+            unwrapped = ((CaptureGroup) unwrapped).value;
+        }
+        return unwrapped instanceof Rep ? unwrapped : node;
+    }
+
+    private static List<int[]> merge(List<int[]> intervals) {
+        var sorted = new ArrayList<>(intervals);
+        sorted.sort(Comparator.comparingInt((int[] interval) -> interval[0]));
+        var ret = new ArrayList<int[]>(sorted.size());
+        for (var interval : sorted) {
+            if (!ret.isEmpty() && ret.get(ret.size() - 1)[1] >= interval[0] - 1) {
+                var last = ret.get(ret.size() - 1);
+                ret.set(ret.size() - 1, new int[] {last[0], Math.max(last[1], interval[1])});
+            } else {
+                ret.add(interval);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Return whether two sets of merged intervals have any character in common.
+     */
+    private static boolean intersect(List<int[]> left, List<int[]> right) {
+        int i = 0;
+        int j = 0;
+        while (i < left.size() && j < right.size()) {
+            var l = left.get(i);
+            var r = right.get(j);
+            if (l[1] < r[0]) {
+                i++;
+            } else if (r[1] < l[0]) {
+                j++;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Return whether a set of merged intervals includes all the characters of another one.
+     */
+    private static boolean covers(List<int[]> outer, List<int[]> inner) {
+        int i = 0;
+        for (var interval : inner) {
+            while (i < outer.size() && outer.get(i)[1] < interval[0]) {
+                i++;
+            }
+            if (i == outer.size() || outer.get(i)[0] > interval[0] || outer.get(i)[1] < interval[1]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -1,8 +1,12 @@
 package dregex.impl;
 
 import dregex.impl.tree.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -31,6 +35,13 @@ public class Universe {
 
     private final Map<AbstractRange, List<CharInterval>> alphabet;
 
+    /**
+     * DFAs of the set operations (either explicit or coming from lookarounds) already compiled in this universe, keyed
+     * by the operation node. As all the regexes of the universe share the same alphabet, the same operation always
+     * produces the same automaton, so it can be reused across regexes and across repetitions inside a regex.
+     */
+    private final Map<Node, Dfa> compiledOperations = new ConcurrentHashMap<>();
+
     public Universe(List<Node> parsedTrees, boolean canonicalEquivalence) {
         this.parsedTrees = List.copyOf(parsedTrees);
         this.canonicalEquivalence = canonicalEquivalence;
@@ -38,6 +49,16 @@ public class Universe {
         this.alphabet = Map.copyOf(CharInterval.calculateNonOverlapping(ranges));
     }
 
+    /**
+     * Create a universe with a given alphabet, for regexes that are not compiled from trees, but restored from their
+     * serialized DFAs (see {@link BinaryFormat}). The alphabet is kept as a character class, in place of the original
+     * trees, so the universe can still be extended.
+     */
+    public static Universe ofAlphabet(List<CharInterval> intervals, boolean canonicalEquivalence) {
+        var ranges = intervals.stream().map(i -> AbstractRange.of(i.from, i.to)).collect(Collectors.toList());
+        return new Universe(List.of(new CharSet(ranges)), canonicalEquivalence);
+    }
+
     public List<Node> getParsedTrees() {
         return parsedTrees;
     }
@@ -50,6 +71,62 @@ public class Universe {
         return alphabet;
     }
 
+    /**
+     * Return the number of distinct intervals of the alphabet.
+     */
+    public int alphabetSize() {
+        return (int) alphabet.values().stream().flatMap(List::stream).distinct().count();
+    }
+
+    public Map<Node, Dfa> getCompiledOperations() {
+        return compiledOperations;
+    }
+
+    /**
+     * Create a new universe that includes the trees of this one, and also the given ones. The alphabet of the new
+     * universe is a refinement of this one: every interval of this universe is split in one or more intervals of the
+     * extended one (see {@link #refinementOf(Universe)}), so the DFAs of this universe can be translated without
+     * compiling them again.
+     */
+    public Universe extend(List<Node> newTrees) {
+        var trees = new ArrayList<>(parsedTrees);
+        trees.addAll(newTrees);
+        return new Universe(trees, canonicalEquivalence);
+    }
+
+    /**
+     * Return, for every interval of the alphabet of a base universe, the intervals of this universe's alphabet that
+     * start in it. If this universe is an extension of the base one, they compose it. Otherwise, this universe must
+     * have the boundaries of the ranges of the regexes to translate: an interval that spans several base intervals
+     * is then assigned to the first one, as the regexes behave the same for all of them.
+     */
+    public Map<CharInterval, List<CharInterval>> refinementOf(Universe base) {
+        var intervals = alphabet.values().stream()
+                .flatMap(List::stream)
+                .distinct()
+                .sorted()
+                .toArray(CharInterval[]::new);
+        Map<CharInterval, List<CharInterval>> ret = new HashMap<>();
+        for (var baseIntervals : base.alphabet.values()) {
+            for (var baseInterval : baseIntervals) {
+                if (ret.containsKey(baseInterval)) {
+                    continue;
+                }
+                // intervals are compared by their start
+                int first = Arrays.binarySearch(intervals, baseInterval);
+                if (first < 0) {
+                    first = -first - 1;
+                }
+                List<CharInterval> parts = new ArrayList<>();
+                for (int i = first; i < intervals.length && intervals[i].from <= baseInterval.to; i++) {
+                    parts.add(intervals[i]);
+                }
+                ret.put(baseInterval, parts);
+            }
+        }
+        return ret;
+    }
+
     /**
      * Regular expressions can have character classes and wildcards. In order to produce a NFA, they should be expanded
      * to disjunctions. As the base alphabet is Unicode, just adding a wildcard implies a disjunction of more than one
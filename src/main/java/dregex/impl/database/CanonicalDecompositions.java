@@ -0,0 +1,59 @@
+package dregex.impl.database;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Canonical (NFD) decompositions of the code points that decompose in more than one code point. The table is
+ * generated during the build (see {@code NfdDecompositions.bin} and {@link JvmUnicode}), except for the Hangul
+ * syllables, which are decomposed algorithmically.
+ */
+public class CanonicalDecompositions {
+
+    private static final int hangulSyllablesFrom = 0xAC00;
+    private static final int hangulSyllablesTo = 0xD7A3;
+    private static final int leadingBase = 0x1100;
+    private static final int vowelBase = 0x1161;
+    private static final int trailingBase = 0x11A7;
+    private static final int vowelCount = 21;
+    private static final int trailingCount = 28;
+
+    private static final class TableHolder {
+        static final CodePointTable decompositions =
+                CodePointTable.load("/NfdDecompositions.bin", JvmUnicode::nfdDecomposition);
+    }
+
+    static boolean isHangulSyllable(int codePoint) {
+        return codePoint >= hangulSyllablesFrom && codePoint <= hangulSyllablesTo;
+    }
+
+    private static int[] decomposeHangul(int codePoint) {
+        int index = codePoint - hangulSyllablesFrom;
+        int leading = leadingBase + index / (vowelCount * trailingCount);
+        int vowel = vowelBase + (index % (vowelCount * trailingCount)) / trailingCount;
+        int trailing = trailingBase + index % trailingCount;
+        if (trailing == trailingBase) {
+            return new int[] {leading, vowel};
+        } else {
+            return new int[] {leading, vowel, trailing};
+        }
+    }
+
+    /**
+     * Return the decompositions of all the code points of a range that decompose in more than one code point, sorted
+     * by code point.
+     */
+    public static Map<Integer, int[]> decompositionsIn(int from, int to) {
+        Map<Integer, int[]> ret = new TreeMap<>();
+        var decompositions = TableHolder.decompositions.slice(from, to);
+        for (int i = decompositions.start; i < decompositions.end; i++) {
+            ret.put(decompositions.codePoints[i], decompositions.values[i]);
+        }
+        for (int codePoint = Math.max(from, hangulSyllablesFrom);
+                codePoint <= Math.min(to, hangulSyllablesTo);
+                codePoint++) {
+            ret.put(codePoint, decomposeHangul(codePoint));
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,189 @@
+package dregex.impl.database;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntFunction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * One of the binary code point tables generated during the build (see {@code UnicodeTableGenerator}): a sorted list of
+ * code points, each one with a list of code points associated. The tables are generated from the Unicode data of the
+ * JVM (see {@link JvmUnicode}).
+ * <p>
+ * If the running JVM implements another version of Unicode, the table is computed from its data instead, in pages of
+ * {@value #pageSize} code points, the first time a range of each page is requested. Computing the whole table takes
+ * about a second, but most ranges are small.
+ */
+public final class CodePointTable {
+
+    private static final Logger logger = LoggerFactory.getLogger(CodePointTable.class);
+
+    private static final int pageBits = 10;
+
+    static final int pageSize = 1 << pageBits;
+
+    /**
+     * The entries of a table in a range of code points: the ones of the arrays between two indices.
+     */
+    public static final class Slice {
+
+        /**
+         * Code points of the table, sorted.
+         */
+        public final int[] codePoints;
+
+        /**
+         * Code points associated with each code point of {@link #codePoints}.
+         */
+        public final int[][] values;
+
+        /**
+         * Index of the first entry of the range.
+         */
+        public final int start;
+
+        /**
+         * Index after the last entry of the range.
+         */
+        public final int end;
+
+        private Slice(int[] codePoints, int[][] values, int start, int end) {
+            this.codePoints = codePoints;
+            this.values = values;
+            this.start = start;
+            this.end = end;
+        }
+
+        private Slice range(int from, int to) {
+            int first = Arrays.binarySearch(codePoints, start, end, from);
+            if (first < 0) {
+                first = -first - 1;
+            }
+            int last = first;
+            while (last < end && codePoints[last] <= to) {
+                last++;
+            }
+            return new Slice(codePoints, values, first, last);
+        }
+    }
+
+    /**
+     * All the entries, if the table was loaded, or null if it is computed.
+     */
+    private final Slice entries;
+
+    /**
+     * The mapping that computes the value of each code point, or null if the table was loaded.
+     */
+    private final IntFunction<int[]> mapping;
+
+    /**
+     * The computed pages, as slices with all their entries, or null if not computed yet.
+     */
+    private final AtomicReferenceArray<Slice> pages;
+
+    private CodePointTable(Slice entries, IntFunction<int[]> mapping) {
+        this.entries = entries;
+        this.mapping = mapping;
+        this.pages = mapping == null ? null : new AtomicReferenceArray<>((Character.MAX_CODE_POINT >> pageBits) + 1);
+    }
+
+    /**
+     * Create a table with the given entries.
+     */
+    public static CodePointTable of(int[] codePoints, int[][] values) {
+        return new CodePointTable(new Slice(codePoints, values, 0, codePoints.length), null);
+    }
+
+    /**
+     * Create a table that is computed from a mapping, in pages, as they are requested. The mapping returns the values
+     * of each code point, or null for the ones that are not in the table.
+     */
+    public static CodePointTable computed(IntFunction<int[]> mapping) {
+        return new CodePointTable(null, mapping);
+    }
+
+    /**
+     * Load a table from a resource, if it was generated with the same version of Unicode that the running JVM
+     * implements, or compute it from the given mapping otherwise (see {@link #computed(IntFunction)}).
+     * <p>
+     * Format: the version of Unicode (as modified UTF-8), the number of entries, and then, for each entry, the code
+     * point, the number of values and the values, all as ints.
+     */
+    public static CodePointTable load(String resource, IntFunction<int[]> jvmMapping) {
+        try (var in = new DataInputStream(
+                new BufferedInputStream(CodePointTable.class.getResourceAsStream(resource)))) {
+            var version = in.readUTF();
+            if (!version.equals(JvmUnicode.version)) {
+                logger.info(
+                        "{} was generated for Unicode {}, but the JVM implements Unicode {}: computing the ranges used",
+                        resource,
+                        version,
+                        JvmUnicode.version);
+                return computed(jvmMapping);
+            }
+            int count = in.readInt();
+            var codePoints = new int[count];
+            var values = new int[count][];
+            for (int i = 0; i < count; i++) {
+                codePoints[i] = in.readInt();
+                var entry = new int[in.readInt()];
+                for (int j = 0; j < entry.length; j++) {
+                    entry[j] = in.readInt();
+                }
+                values[i] = entry;
+            }
+            return of(codePoints, values);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Return the entries of the code points of a range (inclusive).
+     */
+    public Slice slice(int from, int to) {
+        if (entries != null) {
+            return entries.range(from, to);
+        }
+        int firstPage = from >> pageBits;
+        int lastPage = to >> pageBits;
+        if (firstPage == lastPage) {
+            return page(firstPage).range(from, to);
+        }
+        var slices = new Slice[lastPage - firstPage + 1];
+        int count = 0;
+        for (int i = 0; i < slices.length; i++) {
+            var slice = page(firstPage + i).range(from, to);
+            slices[i] = slice;
+            count += slice.end - slice.start;
+        }
+        var codePoints = new int[count];
+        var values = new int[count][];
+        int position = 0;
+        for (var slice : slices) {
+            int length = slice.end - slice.start;
+            System.arraycopy(slice.codePoints, slice.start, codePoints, position, length);
+            System.arraycopy(slice.values, slice.start, values, position, length);
+            position += length;
+        }
+        return new Slice(codePoints, values, 0, count);
+    }
+
+    private Slice page(int index) {
+        var page = pages.get(index);
+        if (page == null) {
+            // computed without a lock: concurrent threads can compute the same page, but the results are equal
+            var table = JvmUnicode.scan(mapping, index << pageBits, ((index + 1) << pageBits) - 1);
+            var codePoints = table.keySet().stream().mapToInt(Integer::intValue).toArray();
+            var values = table.values().toArray(new int[0][]);
+            page = new Slice(codePoints, values, 0, codePoints.length);
+            pages.set(index, page);
+        }
+        return page;
+    }
+}
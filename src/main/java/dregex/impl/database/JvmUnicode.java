@@ -0,0 +1,217 @@
+package dregex.impl.database;
+
+import static java.lang.Character.*;
+
+import dregex.impl.CaseExpansion;
+import dregex.impl.tree.AbstractRange;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+
+/**
+ * Unicode data as implemented by the {@link Character} and {@link Normalizer} classes of the running JVM, unlike the
+ * blocks, scripts and general categories, which come from the Unicode database files. The binary and Java properties,
+ * the canonical decompositions and the case foldings are generated from this class during the build, and the generated
+ * tables record the {@link #version} of the JVM that generated them. As the version of Unicode depends on the version
+ * of Java, the tables are only used if the running JVM implements the same version; otherwise, the data is computed
+ * at runtime: the properties scanning all the code points, when each one is requested, and the decompositions
+ * and foldings for the code points of each requested range (see {@link CodePointTable}).
+ */
+public final class JvmUnicode {
+
+    /**
+     * A code point first assigned by each version of Unicode implemented by some version of Java, newest first, used to
+     * identify the version of the JVM.
+     */
+    private static final List<Map.Entry<String, Integer>> firstAssigned = List.of(
+            Map.entry("16.0", 0x1FAE9), // FACE WITH BAGS UNDER EYES
+            Map.entry("15.1", 0x2EBF0), // first ideograph of CJK Extension I
+            Map.entry("15.0", 0x11F00), // KAWI SIGN CANDRABINDU
+            Map.entry("14.0", 0x1E290), // first letter of Toto
+            Map.entry("13.0", 0x10FB0), // first letter of Chorasmian
+            // the first versions of Java with Unicode 12 already implement 12.1
+            Map.entry("12.1", 0x10FE0), // first letter of Elymaic
+            Map.entry("11.0", 0x0560)); // ARMENIAN SMALL LETTER TURNED AYB
+
+    /**
+     * The version of Unicode implemented by the running JVM. Versions newer than the last one known by this class are
+     * identified as that one.
+     */
+    public static final String version = firstAssigned.stream()
+            .filter(entry -> Character.getType(entry.getValue()) != Character.UNASSIGNED)
+            .map(Map.Entry::getKey)
+            .findFirst()
+            .orElse("10.0");
+
+    /**
+     * Binary properties, as defined by {@link java.util.regex.Pattern}.
+     */
+    public static final Map<String, IntPredicate> binaryProperties = Map.ofEntries(
+            Map.entry("ALPHABETIC", ch -> Character.isAlphabetic(ch)),
+            Map.entry("DIGIT", ch -> Character.isDigit(ch)),
+            Map.entry("LETTER", ch -> Character.isLetter(ch)),
+            Map.entry("IDEOGRAPHIC", ch -> Character.isIdeographic(ch)),
+            Map.entry("LOWERCASE", ch -> Character.isLowerCase(ch)),
+            Map.entry("UPPERCASE", ch -> Character.isUpperCase(ch)),
+            Map.entry("TITLECASE", ch -> Character.isTitleCase(ch)),
+            Map.entry("WHITE_SPACE", ch -> isPropertyWhiteSpace(ch)),
+            Map.entry("CONTROL", ch -> isCharacterControl(ch)),
+            Map.entry("PUNCTUATION", ch -> isPropertyPunctuation(ch)),
+            Map.entry("HEX_DIGIT", ch -> isPropertyHexDigit(ch)),
+            Map.entry("ASSIGNED", ch -> Character.getType(ch) != Character.UNASSIGNED),
+            Map.entry("NONCHARACTER_CODE_POINT", ch -> (ch & 0xfffe) == 0xfffe || (ch >= 0xfdd0 && ch <= 0xfdef)),
+            Map.entry("ALNUM", ch -> Character.isAlphabetic(ch) || Character.isDigit(ch)),
+            Map.entry("BLANK", ch -> isPropertyBlank(ch)),
+            Map.entry("GRAPH", ch -> isPropertyGraph(ch)),
+            Map.entry("PRINT", ch -> (isPropertyGraph(ch) || isPropertyBlank(ch)) && !isCharacterControl(ch)),
+            Map.entry("JOIN_CONTROL", ch -> isPropertyJoinControl(ch)),
+            Map.entry("WORD", ch -> isPropertyWord(ch)));
+
+    /**
+     * Java properties, as defined by {@link java.util.regex.Pattern}: the {@link Character} methods.
+     */
+    public static final Map<String, IntPredicate> javaProperties = Map.ofEntries(
+            Map.entry("javaLowerCase", Character::isLowerCase),
+            Map.entry("javaUpperCase", Character::isUpperCase),
+            Map.entry("javaAlphabetic", Character::isAlphabetic),
+            Map.entry("javaIdeographic", Character::isIdeographic),
+            Map.entry("javaTitleCase", Character::isTitleCase),
+            Map.entry("javaDigit", Character::isDigit),
+            Map.entry("javaDefined", Character::isDefined),
+            Map.entry("javaLetter", Character::isLetter),
+            Map.entry("javaLetterOrDigit", Character::isLetterOrDigit),
+            Map.entry("javaJavaIdentifierStart", Character::isJavaIdentifierStart),
+            Map.entry("javaJavaIdentifierPart", Character::isJavaIdentifierPart),
+            Map.entry("javaUnicodeIdentifierStart", Character::isUnicodeIdentifierStart),
+            Map.entry("javaUnicodeIdentifierPart", Character::isUnicodeIdentifierPart),
+            Map.entry("javaIdentifierIgnorable", Character::isIdentifierIgnorable),
+            Map.entry("javaSpaceChar", Character::isSpaceChar),
+            Map.entry("javaWhitespace", Character::isWhitespace),
+            Map.entry("javaISOControl", Character::isISOControl),
+            Map.entry("javaMirrored", Character::isMirrored));
+
+    private static boolean isPropertyWhiteSpace(int ch) {
+        int type = Character.getType(ch);
+        boolean isWhiteSpaceCat = type == SPACE_SEPARATOR || type == LINE_SEPARATOR || type == PARAGRAPH_SEPARATOR;
+        return isWhiteSpaceCat || (ch >= 0x9 && ch <= 0xd) || (ch == 0x85);
+    }
+
+    private static boolean isCharacterControl(int ch) {
+        return Character.getType(ch) == Character.CONTROL;
+    }
+
+    private static boolean isPropertyPunctuation(int ch) {
+        int type = Character.getType(ch);
+        return type == CONNECTOR_PUNCTUATION
+                || type == DASH_PUNCTUATION
+                || type == START_PUNCTUATION
+                || type == END_PUNCTUATION
+                || type == OTHER_PUNCTUATION
+                || type == INITIAL_QUOTE_PUNCTUATION
+                || type == FINAL_QUOTE_PUNCTUATION;
+    }
+
+    private static boolean isPropertyHexDigit(int ch) {
+        return Character.isDigit(ch)
+                || (ch >= 0x0030 && ch <= 0x0039)
+                || (ch >= 0x0041 && ch <= 0x0046)
+                || (ch >= 0x0061 && ch <= 0x0066)
+                || (ch >= 0xFF10 && ch <= 0xFF19)
+                || (ch >= 0xFF21 && ch <= 0xFF26)
+                || (ch >= 0xFF41 && ch <= 0xFF46);
+    }
+
+    private static boolean isPropertyBlank(int ch) {
+        return Character.getType(ch) == Character.SPACE_SEPARATOR || ch == 0x9; // \N{HT}
+    }
+
+    private static boolean isPropertyGraph(int ch) {
+        int type = Character.getType(ch);
+        return type == SPACE_SEPARATOR
+                || type == LINE_SEPARATOR
+                || type == PARAGRAPH_SEPARATOR
+                || type == CONTROL
+                || type == SURROGATE
+                || type == UNASSIGNED;
+    }
+
+    private static boolean isPropertyJoinControl(int ch) {
+        return ch == 0x200C || ch == 0x200D;
+    }
+
+    private static boolean isPropertyWord(int ch) {
+        int type = Character.getType(ch);
+        return Character.isAlphabetic(ch)
+                || type == NON_SPACING_MARK
+                || type == ENCLOSING_MARK
+                || type == COMBINING_SPACING_MARK
+                || type == DECIMAL_DIGIT_NUMBER
+                || type == CONNECTOR_PUNCTUATION
+                || isPropertyJoinControl(ch);
+    }
+
+    /**
+     * Return the maximal ranges of the code points that satisfy a predicate.
+     */
+    public static List<AbstractRange> scan(IntPredicate predicate) {
+        List<AbstractRange> ranges = new ArrayList<>();
+        int rangeStart = -1;
+        for (int codePoint = Character.MIN_CODE_POINT; codePoint <= Character.MAX_CODE_POINT; codePoint++) {
+            if (predicate.test(codePoint)) {
+                if (rangeStart == -1) {
+                    rangeStart = codePoint;
+                }
+            } else {
+                if (rangeStart != -1) {
+                    ranges.add(AbstractRange.of(rangeStart, codePoint - 1));
+                    rangeStart = -1;
+                }
+            }
+        }
+        if (rangeStart != -1) {
+            ranges.add(AbstractRange.of(rangeStart, Character.MAX_CODE_POINT));
+        }
+        return ranges;
+    }
+
+    /**
+     * Return the NFD decomposition of a code point, if it has more than one code point, or null otherwise. Hangul
+     * syllables are excluded, as they are decomposed algorithmically (see {@link CanonicalDecompositions}).
+     */
+    public static int[] nfdDecomposition(int codePoint) {
+        if (CanonicalDecompositions.isHangulSyllable(codePoint)) {
+            return null;
+        }
+        var decomposition = Normalizer.normalize(Character.toString(codePoint), Normalizer.Form.NFD)
+                .codePoints()
+                .toArray();
+        return decomposition.length > 1 ? decomposition : null;
+    }
+
+    /**
+     * Return the case-insensitive expansion of a code point, if it is not just itself, or null otherwise.
+     */
+    public static int[] caseFolding(int codePoint) {
+        var expansion = CaseExpansion.Unicode.expand(codePoint);
+        return expansion.length != 1 || expansion[0] != codePoint ? expansion : null;
+    }
+
+    /**
+     * Return the code points of a range for which a mapping is not null, with their values.
+     */
+    public static SortedMap<Integer, int[]> scan(IntFunction<int[]> mapping, int from, int to) {
+        SortedMap<Integer, int[]> ret = new TreeMap<>();
+        for (int codePoint = from; codePoint <= to; codePoint++) {
+            var value = mapping.apply(codePoint);
+            if (value != null) {
+                ret.put(codePoint, value);
+            }
+        }
+        return ret;
+    }
+}
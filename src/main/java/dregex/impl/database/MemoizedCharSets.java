@@ -0,0 +1,44 @@
+package dregex.impl.database;
+
+import dregex.impl.tree.CharSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * A set of named character sets, each one built the first time it is requested, and then kept.
+ */
+class MemoizedCharSets {
+
+    private final Map<String, Supplier<CharSet>> definitions;
+    private final Map<String, CharSet> resolved = new ConcurrentHashMap<>();
+
+    MemoizedCharSets(Map<String, Supplier<CharSet>> definitions) {
+        this.definitions = Map.copyOf(definitions);
+    }
+
+    /**
+     * Return the character set with the given name, or null if there is none.
+     */
+    CharSet get(String name) {
+        var definition = definitions.get(name);
+        if (definition == null) {
+            return null;
+        }
+        // not using computeIfAbsent, as definitions can depend on other sets of the same instance
+        var charSet = resolved.get(name);
+        if (charSet == null) {
+            charSet = definition.get();
+            var existing = resolved.putIfAbsent(name, charSet);
+            if (existing != null) {
+                charSet = existing;
+            }
+        }
+        return charSet;
+    }
+
+    Set<String> names() {
+        return definitions.keySet();
+    }
+}
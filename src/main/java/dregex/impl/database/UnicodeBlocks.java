@@ -1,44 +1,51 @@
 package dregex.impl.database;
 
-import dregex.impl.tree.AbstractRange;
 import dregex.impl.tree.CharSet;
-import java.io.IOException;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
 
 public class UnicodeBlocks {
 
-    private static final Map<String, UnicodeDatabaseReader.Range> ranges;
+    /**
+     * Blocks, by canonical name (see {@link #canonicalizeBlockName(String)}).
+     */
+    private static final MemoizedCharSets charSets;
 
     static {
-        try (var blocksFile = UnicodeBlocks.class.getResourceAsStream("/Blocks.txt")) {
-            ranges = UnicodeDatabaseReader.getBlocks(new InputStreamReader(blocksFile, StandardCharsets.UTF_8));
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+        var table = new UnicodeTable("/UnicodeBlocks.bin");
+        Map<String, Supplier<CharSet>> definitions = new HashMap<>();
+        for (var entry : table.definitions().entrySet()) {
+            definitions.put(canonicalizeBlockName(entry.getKey()), entry.getValue());
         }
+        charSets = new MemoizedCharSets(definitions);
     }
 
-    private static final Map<String, String> synonyms = Map.of("Greek and Coptic", "Greek");
+    /**
+     * Alternative names, by canonical name, mapping to the canonical name of the block.
+     */
+    private static final Map<String, String> synonyms =
+            Map.of(canonicalizeBlockName("Greek"), canonicalizeBlockName("Greek and Coptic"));
 
-    public static final Map<String, CharSet> charSets;
+    /**
+     * Return the block with the given canonical name, or null if there is none.
+     */
+    public static CharSet get(String canonicalName) {
+        return charSets.get(synonyms.getOrDefault(canonicalName, canonicalName));
+    }
 
-    static {
-        Map<String, CharSet> sets = new HashMap<>();
-        for (var entry : ranges.entrySet()) {
-            var block = entry.getKey();
-            var range = entry.getValue();
-            var charSet = new CharSet(AbstractRange.of(range.from, range.to));
-            sets.put(UnicodeDatabaseReader.canonicalizeBlockName(block), charSet);
-        }
-        for (var entry : synonyms.entrySet()) {
-            var block = entry.getKey();
-            var alias = entry.getValue();
-            sets.put(
-                    UnicodeDatabaseReader.canonicalizeBlockName(alias),
-                    sets.get(UnicodeDatabaseReader.canonicalizeBlockName(block)));
-        }
-        charSets = sets;
+    /**
+     * Return the canonical names of all blocks, including synonyms.
+     */
+    public static Set<String> names() {
+        var ret = new HashSet<String>(charSets.names());
+        ret.addAll(synonyms.keySet());
+        return ret;
+    }
+
+    public static String canonicalizeBlockName(String name) {
+        return name.replaceAll("[-_\\s]+", "").toUpperCase();
     }
 }
@@ -8,62 +8,73 @@ import dregex.impl.tree.Lit;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 
 public class UnicodePosixCharSets {
 
-    private static final CharSet unicodeGraph = CharSet.fromCharSets(
-                    UnicodeBinaryProperties.charSets.get("WHITE_SPACE"),
-                    UnicodeGeneralCategories.charSets.get("Cc"),
-                    UnicodeGeneralCategories.charSets.get("Cs"),
-                    UnicodeGeneralCategories.charSets.get("Cn"))
-            .complement();
-
-    private static final CharSet unicodeBlank;
+    private static CharSet unicodeGraph() {
+        return CharSet.fromCharSets(
+                        UnicodeBinaryProperties.get("WHITE_SPACE"),
+                        UnicodeGeneralCategories.get("Cc"),
+                        UnicodeGeneralCategories.get("Cs"),
+                        UnicodeGeneralCategories.get("Cn"))
+                .complement();
+    }
 
-    static {
+    private static CharSet unicodeBlank() {
         List<AbstractRange> exceptions = new ArrayList<>();
-        exceptions.addAll(UnicodeGeneralCategories.charSets.get("Zl").ranges);
-        exceptions.addAll(UnicodeGeneralCategories.charSets.get("Zp").ranges);
+        exceptions.addAll(UnicodeGeneralCategories.get("Zl").ranges);
+        exceptions.addAll(UnicodeGeneralCategories.get("Zp").ranges);
         exceptions.add(new CharRange(0xA, 0xD));
         exceptions.add(new Lit(0x85));
-        unicodeBlank =
-                new CharSet(RangeOps.diff(UnicodeBinaryProperties.charSets.get("WHITE_SPACE").ranges, exceptions));
+        return new CharSet(RangeOps.diff(UnicodeBinaryProperties.get("WHITE_SPACE").ranges, exceptions));
     }
 
-    public static final Map<String, CharSet> charSets = Map.ofEntries(
-            Map.entry("Lower", UnicodeBinaryProperties.charSets.get("LOWERCASE")),
-            Map.entry("Upper", UnicodeBinaryProperties.charSets.get("UPPERCASE")),
-            Map.entry("ASCII", PosixCharSets.charSets.get("ASCII")),
-            Map.entry("Alpha", UnicodeBinaryProperties.charSets.get("ALPHABETIC")),
-            Map.entry("Digit", UnicodeBinaryProperties.charSets.get("DIGIT")),
+    private static final MemoizedCharSets charSets = new MemoizedCharSets(Map.<String, Supplier<CharSet>>ofEntries(
+            Map.entry("Lower", () -> UnicodeBinaryProperties.get("LOWERCASE")),
+            Map.entry("Upper", () -> UnicodeBinaryProperties.get("UPPERCASE")),
+            Map.entry("ASCII", () -> PosixCharSets.charSets.get("ASCII")),
+            Map.entry("Alpha", () -> UnicodeBinaryProperties.get("ALPHABETIC")),
+            Map.entry("Digit", () -> UnicodeBinaryProperties.get("DIGIT")),
             Map.entry(
                     "Alnum",
-                    CharSet.fromCharSets(
-                            UnicodeBinaryProperties.charSets.get("ALPHABETIC"),
-                            UnicodeBinaryProperties.charSets.get("DIGIT"))),
-            Map.entry("Punct", UnicodeBinaryProperties.charSets.get("PUNCTUATION")),
-            Map.entry("Graph", unicodeGraph),
+                    () -> CharSet.fromCharSets(
+                            UnicodeBinaryProperties.get("ALPHABETIC"), UnicodeBinaryProperties.get("DIGIT"))),
+            Map.entry("Punct", () -> UnicodeBinaryProperties.get("PUNCTUATION")),
+            Map.entry("Graph", () -> unicodeGraph()),
             Map.entry(
                     "Print",
-                    new CharSet(RangeOps.diff(
-                            CharSet.fromCharSets(unicodeGraph, unicodeBlank).ranges,
-                            UnicodeGeneralCategories.charSets.get("Cc").ranges))),
-            Map.entry("Blank", unicodeBlank),
-            Map.entry("Cntrl", UnicodeGeneralCategories.charSets.get("Cc")),
+                    () -> new CharSet(RangeOps.diff(
+                            CharSet.fromCharSets(get("Graph"), get("Blank")).ranges,
+                            UnicodeGeneralCategories.get("Cc").ranges))),
+            Map.entry("Blank", () -> unicodeBlank()),
+            Map.entry("Cntrl", () -> UnicodeGeneralCategories.get("Cc")),
             Map.entry(
                     "XDigit",
-                    CharSet.fromCharSets(
-                            UnicodeGeneralCategories.charSets.get("Nd"),
-                            UnicodeBinaryProperties.charSets.get("HEX_DIGIT"))),
-            Map.entry("Space", UnicodeBinaryProperties.charSets.get("WHITE_SPACE")));
+                    () -> CharSet.fromCharSets(
+                            UnicodeGeneralCategories.get("Nd"), UnicodeBinaryProperties.get("HEX_DIGIT"))),
+            Map.entry("Space", () -> UnicodeBinaryProperties.get("WHITE_SPACE"))));
+
+    /**
+     * Return the POSIX class with the given name, in its Unicode version, or null if there is none.
+     */
+    public static CharSet get(String name) {
+        return charSets.get(name);
+    }
 
-    public static final CharSet wordCharSet = CharSet.fromCharSets(
-            UnicodeBinaryProperties.charSets.get("ALPHABETIC"),
-            UnicodeGeneralCategories.charSets.get("Mn"),
-            UnicodeGeneralCategories.charSets.get("Me"),
-            UnicodeGeneralCategories.charSets.get("Mc"),
-            UnicodeGeneralCategories.charSets.get("Mn"),
-            UnicodeBinaryProperties.charSets.get("DIGIT"),
-            UnicodeGeneralCategories.charSets.get("Pc"),
-            UnicodeBinaryProperties.charSets.get("JOIN_CONTROL"));
+    private static final class WordCharSetHolder {
+        static final CharSet instance = CharSet.fromCharSets(
+                UnicodeBinaryProperties.get("ALPHABETIC"),
+                UnicodeGeneralCategories.get("Mn"),
+                UnicodeGeneralCategories.get("Me"),
+                UnicodeGeneralCategories.get("Mc"),
+                UnicodeGeneralCategories.get("Mn"),
+                UnicodeBinaryProperties.get("DIGIT"),
+                UnicodeGeneralCategories.get("Pc"),
+                UnicodeBinaryProperties.get("JOIN_CONTROL"));
+    }
+
+    public static CharSet wordCharSet() {
+        return WordCharSetHolder.instance;
+    }
 }
@@ -1,27 +1,15 @@
 package dregex.impl.database;
 
-import dregex.impl.tree.AbstractRange;
 import dregex.impl.tree.CharSet;
-import java.io.IOException;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
-import java.util.List;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 public class UnicodeScripts {
 
-    private static final Map<String, List<UnicodeDatabaseReader.Range>> ranges;
-
-    static {
-        try (var scriptsFile = UnicodeScripts.class.getResourceAsStream("/Scripts.txt")) {
-            ranges = UnicodeDatabaseReader.getScripts(new InputStreamReader(scriptsFile, StandardCharsets.UTF_8));
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
-    }
-
     private static final Map<String, String> synonyms = Map.<String, String>ofEntries(
             Map.entry("COMMON", "ZYYY"),
             Map.entry("LATIN", "LATN"),
@@ -180,23 +168,39 @@ public class UnicodeScripts {
             Map.entry("DIVES_AKURU", "DIAK"),
             Map.entry("KHITAN_SMALL_SCRIPT", "KITS"));
 
-    public static final Map<String, CharSet> chatSets;
+    /**
+     * Script by alias (the inverse of {@link #synonyms}), excluding the aliases that are equal to the name.
+     */
+    private static final Map<String, String> aliases = synonyms.entrySet().stream()
+            .filter(e -> !e.getKey().equals(e.getValue()))
+            .collect(Collectors.toMap(e -> e.getValue(), e -> e.getKey()));
+
+    /**
+     * Scripts, by upper-case name.
+     */
+    private static final MemoizedCharSets charSets;
 
     static {
-        Map<String, CharSet> sets = new HashMap<>();
-        for (var entry : ranges.entrySet()) {
-            var block = entry.getKey();
-            var ranges = entry.getValue();
-            var chatSet = new CharSet(ranges.stream()
-                    .map(range -> AbstractRange.of(range.from, range.to))
-                    .collect(Collectors.toList()));
-            sets.put(block.toUpperCase(), chatSet);
+        Map<String, Supplier<CharSet>> definitions = new HashMap<>();
+        for (var entry : new UnicodeTable("/UnicodeScripts.bin").definitions().entrySet()) {
+            definitions.put(entry.getKey().toUpperCase(), entry.getValue());
         }
-        for (var entry : synonyms.entrySet()) {
-            var script = entry.getKey();
-            var alias = entry.getValue();
-            sets.put(alias.toUpperCase(), sets.get(script.toUpperCase()));
-        }
-        chatSets = sets;
+        charSets = new MemoizedCharSets(definitions);
+    }
+
+    /**
+     * Return the script with the given upper-case name or alias, or null if there is none.
+     */
+    public static CharSet get(String name) {
+        return charSets.get(aliases.getOrDefault(name, name));
+    }
+
+    /**
+     * Return the upper-case names of all scripts, including aliases.
+     */
+    public static Set<String> names() {
+        var ret = new HashSet<>(charSets.names());
+        ret.addAll(aliases.keySet());
+        return ret;
     }
 }
@@ -0,0 +1,108 @@
+package dregex.impl.database;
+
+import dregex.impl.tree.AbstractRange;
+import dregex.impl.tree.CharSet;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntPredicate;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * One of the binary range tables generated during the build (see {@code UnicodeTableGenerator}): a list of named
+ * lists of ranges, with the version of Unicode of the data they were generated from. The file is read in a single
+ * operation, and only the names are decoded eagerly; the ranges of each entry are decoded when the entry is requested.
+ */
+class UnicodeTable {
+
+    private static final Logger logger = LoggerFactory.getLogger(UnicodeTable.class);
+
+    private final String version;
+
+    private final ByteBuffer data;
+
+    /**
+     * Position in the data of the range count of each entry, by name.
+     */
+    private final Map<String, Integer> offsets = new HashMap<>();
+
+    UnicodeTable(String resource) {
+        try (var in = UnicodeTable.class.getResourceAsStream(resource)) {
+            var bytes = in.readAllBytes();
+            data = ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+            var index = new DataInputStream(new ByteArrayInputStream(bytes));
+            version = index.readUTF();
+            int entryCount = index.readInt();
+            for (int i = 0; i < entryCount; i++) {
+                var name = index.readUTF();
+                offsets.put(name, bytes.length - index.available());
+                int rangeCount = index.readInt();
+                index.skipBytes(rangeCount * 2 * Integer.BYTES);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    String version() {
+        return version;
+    }
+
+    Set<String> names() {
+        return offsets.keySet();
+    }
+
+    CharSet decode(String name) {
+        int offset = offsets.get(name);
+        int rangeCount = data.getInt(offset);
+        List<AbstractRange> ranges = new ArrayList<>(rangeCount);
+        for (int i = 0; i < rangeCount; i++) {
+            int from = data.getInt(offset + Integer.BYTES + i * 2 * Integer.BYTES);
+            int to = data.getInt(offset + 2 * Integer.BYTES + i * 2 * Integer.BYTES);
+            ranges.add(AbstractRange.of(from, to));
+        }
+        return new CharSet(ranges);
+    }
+
+    /**
+     * Return definitions for all the entries of the table, for use in {@link MemoizedCharSets}.
+     */
+    Map<String, Supplier<CharSet>> definitions() {
+        Map<String, Supplier<CharSet>> ret = new HashMap<>();
+        for (var name : offsets.keySet()) {
+            ret.put(name, () -> decode(name));
+        }
+        return ret;
+    }
+
+    /**
+     * Return definitions for all the entries of a table of properties generated from the JVM (see {@link JvmUnicode}),
+     * if it was generated with the same version of Unicode that the running JVM implements, or definitions that scan
+     * all the code points with the given predicates otherwise.
+     */
+    static Map<String, Supplier<CharSet>> jvmDefinitions(String resource, Map<String, IntPredicate> predicates) {
+        var table = new UnicodeTable(resource);
+        if (table.version().equals(JvmUnicode.version)) {
+            return table.definitions();
+        }
+        logger.info(
+                "{} was generated for Unicode {}, but the JVM implements Unicode {}: computing the properties used",
+                resource,
+                table.version(),
+                JvmUnicode.version);
+        Map<String, Supplier<CharSet>> ret = new HashMap<>();
+        for (var entry : predicates.entrySet()) {
+            var predicate = entry.getValue();
+            ret.put(entry.getKey(), () -> new CharSet(JvmUnicode.scan(predicate)));
+        }
+        return ret;
+    }
+}
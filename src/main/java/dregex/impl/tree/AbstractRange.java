@@ -1,10 +1,10 @@
 package dregex.impl.tree;
 
 import dregex.impl.CaseExpansion;
-import java.text.Normalizer;
+import dregex.impl.CaseFoldingTable;
+import dregex.impl.database.CanonicalDecompositions;
 import java.util.*;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 import java.util.Arrays;
 
 /**
@@ -46,39 +46,12 @@ public abstract class AbstractRange implements Node {
             return List.of(this);
         }
 
-        List<Integer> codePoints = IntStream.rangeClosed(from(), to())
-                .flatMap(c -> Arrays.stream(caseExpansion.expand(c)))
-                .boxed()
-                .collect(Collectors.toSet())
-                .stream()
-                .sorted()
-                .collect(Collectors.toList());
-
-        List<AbstractRange> ranges = new ArrayList<>();
-        int openRangeFrom = codePoints.get(0);
-        int openRangeTo = openRangeFrom;
-        for (int codePoint : codePoints.subList(1, codePoints.size())) {
-            if (codePoint == openRangeTo + 1) {
-                openRangeTo = codePoint;
-            } else {
-                ranges.add(AbstractRange.of(openRangeFrom, openRangeTo));
-                openRangeFrom = codePoint;
-                openRangeTo = codePoint;
-            }
-        }
-        ranges.add(AbstractRange.of(openRangeFrom, openRangeTo));
-        return ranges;
+        return CaseFoldingTable.of(caseExpansion).expand(from(), to());
     }
 
     @Override
     public Node unicodeNormalize() {
-        Map<Integer, int[]> expansions = new TreeMap<>();
-        IntStream.rangeClosed(from(), to()).forEach(codePoint -> {
-            var normalized = Normalizer.normalize(Character.toString(codePoint), Normalizer.Form.NFD).codePoints().toArray();
-            if (normalized.length > 1) {
-                expansions.put(codePoint, normalized);
-            }
-        });
+        var expansions = CanonicalDecompositions.decompositionsIn(from(), to());
         List<Node> ret = new ArrayList<>();
         int i = from();
         for (var entry : expansions.entrySet()) {
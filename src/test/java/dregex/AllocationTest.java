@@ -0,0 +1,184 @@
+package dregex;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that matching does not allocate, measuring the bytes allocated by the current thread (see
+ * {@link com.sun.management.ThreadMXBean#getThreadAllocatedBytes(long)}).
+ * <p>
+ * Every case is warmed up first, so that it is compiled by the JIT compiler (with escape analysis) before being
+ * measured, and then measured in several rounds, keeping the best one, as the compilation happens in the background.
+ * Budgets are averages per call, so the few bytes allocated by the measurement itself are negligible.
+ */
+class AllocationTest {
+
+    private static final int warmUpPasses = 10_000;
+    private static final int roundPasses = 2_000;
+    private static final int rounds = 10;
+
+    /**
+     * The size of a {@link MatchResult}, with or without compressed pointers.
+     */
+    private static final int resultBytes = 24;
+
+    private static final com.sun.management.ThreadMXBean threadBean = threadBean();
+
+    private static final List<String> patterns = List.of(
+            "[a-zA-Z0-9._%+-]+@[a-zA-Z0-9.-]+\\.[a-zA-Z]{2,6}", "(?!.*--)[a-z-]+", "\\p{L}+ \\d+", "[𝐀-𝐙]+x?");
+
+    private static final List<String> inputs = List.of(
+            "some.user+tag@subdomain.example.com",
+            "some.user+tag@subdomain",
+            "no--dashes",
+            "αβγ 123",
+            "𝐀𝐁𝐂",
+            "𝐀𝐁𝐂x",
+            "");
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        var bean = ManagementFactory.getThreadMXBean();
+        return bean instanceof com.sun.management.ThreadMXBean ? (com.sun.management.ThreadMXBean) bean : null;
+    }
+
+    @BeforeAll
+    static void enableAllocationMeasurement() {
+        assumeTrue(threadBean != null && threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    private static long allocatedBytes() {
+        return threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Match all the inputs with a predicate, in passes over them, returning the minimum number of bytes allocated per
+     * call in the rounds.
+     */
+    private static double bytesPerCall(Predicate<CharSequence> matcher, List<? extends CharSequence> inputs) {
+        long expected = 0;
+        for (var input : inputs) {
+            if (matcher.test(input)) {
+                expected++;
+            }
+        }
+        long matched = 0;
+        for (int pass = 0; pass < warmUpPasses; pass++) {
+            matched += matchAll(matcher, inputs);
+        }
+        double best = Double.MAX_VALUE;
+        for (int round = 0; round < rounds; round++) {
+            long start = allocatedBytes();
+            for (int pass = 0; pass < roundPasses; pass++) {
+                matched += matchAll(matcher, inputs);
+            }
+            long allocated = allocatedBytes() - start;
+            best = Math.min(best, (double) allocated / ((long) roundPasses * inputs.size()));
+        }
+        // consume the results, so that the calls cannot be eliminated
+        assertEquals(expected * (warmUpPasses + (long) rounds * roundPasses), matched, "inconsistent results");
+        return best;
+    }
+
+    private static int matchAll(Predicate<CharSequence> matcher, List<? extends CharSequence> inputs) {
+        int matched = 0;
+        for (int i = 0; i < inputs.size(); i++) {
+            if (matcher.test(inputs.get(i))) {
+                matched++;
+            }
+        }
+        return matched;
+    }
+
+    private static void assertAllocationFree(Predicate<CharSequence> matcher, List<? extends CharSequence> inputs) {
+        var bytes = bytesPerCall(matcher, inputs);
+        assertTrue(bytes < 1, () -> String.format("allocated %.1f bytes per call", bytes));
+    }
+
+    @Test
+    void testMatches() {
+        for (var regex : Regex.compile(patterns)) {
+            assertAllocationFree(regex::matches, inputs);
+        }
+    }
+
+    @Test
+    void testMatchesNonStringInput() {
+        var builders = inputs.stream().map(StringBuilder::new).collect(Collectors.toList());
+        for (var regex : Regex.compile(patterns)) {
+            assertAllocationFree(regex::matches, builders);
+        }
+    }
+
+    @Test
+    void testMatchesCaseInsensitive() {
+        for (var regex : Regex.compile(patterns, Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE)) {
+            assertAllocationFree(regex::matches, inputs);
+        }
+    }
+
+    @Test
+    void testMatchesDeserialized() throws IOException {
+        var out = new ByteArrayOutputStream();
+        Regex.writeAllTo(Regex.compile(patterns), out);
+        for (var regex : Regex.readAllFrom(ByteBuffer.wrap(out.toByteArray()))) {
+            assertAllocationFree(regex::matches, inputs);
+        }
+    }
+
+    @Test
+    void testMatchesMapped() throws IOException {
+        var out = new ByteArrayOutputStream();
+        Regex.writeMatchTablesTo(Regex.compile(patterns), out);
+        var bytes = out.toByteArray();
+        var buffer = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+        for (var regex : Regex.mapMatchTables(buffer)) {
+            assertAllocationFree(regex::matches, inputs);
+        }
+    }
+
+    @Test
+    void testNativeMatcher() {
+        for (var regex : Regex.compile(patterns)) {
+            assertAllocationFree(regex.toNativeMatcher(), inputs);
+        }
+    }
+
+    @Test
+    void testMatchAndReport() {
+        for (var regex : Regex.compile(patterns)) {
+            var bytes = bytesPerCall(input -> regex.matchAndReport(input).matches(), inputs);
+            assertTrue(bytes <= resultBytes, () -> String.format("allocated %.1f bytes per call", bytes));
+        }
+    }
+
+    @Test
+    void testCanonicalEquivalenceAsciiInput() {
+        // ASCII input is not normalized, so at most the result is allocated
+        var asciiInputs = List.of("resume", "cafe", "caf", "");
+        var regex = Regex.compile("(resume|caf[eé])", Pattern.CANON_EQ);
+        var bytes = bytesPerCall(regex::matches, asciiInputs);
+        assertTrue(bytes <= resultBytes, () -> String.format("allocated %.1f bytes per call", bytes));
+    }
+
+    @Test
+    void testCanonicalEquivalenceNormalizedInput() {
+        // input already in NFD is not normalized, whatever its script, so at most the result is allocated
+        var normalizedInputs = List.of("Αλεξανδρος", "Александр", "山田太郎", "Zoe\u0308", "Αλε\u0301ξανδρος");
+        var regex = Regex.compile("[α-ωΑ-Ωа-яА-Я一-鿿]+(\u0301[α-ω]+)?|Zoë", Pattern.CANON_EQ);
+        var bytes = bytesPerCall(regex::matches, normalizedInputs);
+        assertTrue(bytes <= resultBytes, () -> String.format("allocated %.1f bytes per call", bytes));
+    }
+}
@@ -0,0 +1,134 @@
+package dregex;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.Test;
+
+class BinaryFormatTest {
+
+    private static byte[] write(List<Regex> regexes) throws IOException {
+        var out = new ByteArrayOutputStream();
+        Regex.writeAllTo(regexes, out);
+        return out.toByteArray();
+    }
+
+    @Test
+    void testSingleRegex() throws IOException {
+        var regex = Regex.compile("[a-c]+(?!b)\\d{2,3}|x*");
+        var out = new ByteArrayOutputStream();
+        regex.writeTo(out);
+        var read = Regex.readFrom(new ByteArrayInputStream(out.toByteArray()));
+        for (var string : List.of("", "x", "xxx", "a12", "abc123", "ab12", "b1234", "ab", "y")) {
+            assertEquals(regex.matches(string), read.matches(string), string);
+            assertEquals(regex.matchAndReport(string).getPosition(), read.matchAndReport(string).getPosition(), string);
+        }
+        assertFalse(read.isCompatible(regex));
+    }
+
+    @Test
+    void testCompatibility() throws IOException {
+        var regexes = Regex.compile(List.of("[a-z]+", "[a-m]+", "[n-z]+"));
+        var synthetic = regexes.get(1).union(regexes.get(2));
+        var read = Regex.readAllFrom(ByteBuffer.wrap(write(List.of(regexes.get(0), regexes.get(1), synthetic))));
+        assertEquals(3, read.size());
+        assertTrue(read.get(0).isCompatible(read.get(2)));
+        assertTrue(read.get(2).isProperSubsetOf(read.get(0)));
+        assertFalse(read.get(2).matches("an"));
+        assertTrue(read.get(1).isProperSubsetOf(read.get(0)));
+        assertFalse(read.get(1).doIntersect(read.get(0).diff(read.get(1))));
+
+        // restored regexes can be extended like compiled ones
+        var extended = Regex.extend(read, List.of("[k-p]+"));
+        assertTrue(extended.get(3).doIntersect(extended.get(1)));
+        assertFalse(extended.get(3).isSubsetOf(extended.get(1)));
+        assertTrue(extended.get(3).isSubsetOf(extended.get(0)));
+
+        // serialized regexes written again produce the same bytes
+        var bytes = write(read);
+        assertEquals(ByteBuffer.wrap(bytes), ByteBuffer.wrap(write(Regex.readAllFrom(ByteBuffer.wrap(bytes)))));
+    }
+
+    @Test
+    void testCanonicalEquivalence() throws IOException {
+        var regex = Regex.compile("ñ", Pattern.CANON_EQ);
+        var read = Regex.readAllFrom(new ByteArrayInputStream(write(List.of(regex)))).get(0);
+        assertTrue(read.matches("ñ"));
+        assertTrue(read.matches("ñ"));
+    }
+
+    @Test
+    void testConsecutiveRecords() throws IOException {
+        var out = new ByteArrayOutputStream();
+        Regex.compile("a").writeTo(out);
+        Regex.compile("b").writeTo(out);
+        var buffer = ByteBuffer.wrap(out.toByteArray());
+        assertTrue(Regex.readFrom(buffer).matches("a"));
+        assertTrue(Regex.readFrom(buffer).matches("b"));
+        assertFalse(buffer.hasRemaining());
+        var in = new ByteArrayInputStream(out.toByteArray());
+        assertTrue(Regex.readFrom(in).matches("a"));
+        assertTrue(Regex.readFrom(in).matches("b"));
+    }
+
+    @Test
+    void testInvalidData() throws IOException {
+        var bytes = write(List.of(Regex.compile("abc")));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> Regex.readFrom(ByteBuffer.wrap(bytes, 0, bytes.length - 1).slice()));
+        var wrongMagic = bytes.clone();
+        wrongMagic[0] = 0;
+        assertThrows(IllegalArgumentException.class, () -> Regex.readFrom(ByteBuffer.wrap(wrongMagic)));
+        var wrongVersion = bytes.clone();
+        wrongVersion[7] = 99;
+        assertThrows(IllegalArgumentException.class, () -> Regex.readFrom(ByteBuffer.wrap(wrongVersion)));
+        var two = write(Regex.compile(List.of("a", "b")));
+        assertThrows(IllegalArgumentException.class, () -> Regex.readFrom(ByteBuffer.wrap(two)));
+        assertThrows(
+                IncompatibleRegexException.class,
+                () -> Regex.writeAllTo(List.of(Regex.compile("a"), Regex.compile("b")), new ByteArrayOutputStream()));
+    }
+
+    /**
+     * Counts that exceed the data must be rejected before allocating anything of their size.
+     */
+    @Test
+    void testHostileCounts() throws IOException {
+        var bytes = write(List.of(Regex.compile("abc")));
+        var hugeLength = ByteBuffer.wrap(bytes.clone()).putInt(8, Integer.MAX_VALUE).array();
+        assertThrows(IOException.class, () -> Regex.readFrom(new ByteArrayInputStream(hugeLength)));
+        assertThrows(IllegalArgumentException.class, () -> Regex.readFrom(ByteBuffer.wrap(hugeLength)));
+
+        int intervalCountPosition = 13;
+        var hugeIntervals = ByteBuffer.wrap(bytes.clone()).putInt(intervalCountPosition, Integer.MAX_VALUE).array();
+        assertThrows(IllegalArgumentException.class, () -> Regex.readFrom(ByteBuffer.wrap(hugeIntervals)));
+
+        int regexCountPosition =
+                intervalCountPosition + Integer.BYTES + ByteBuffer.wrap(bytes).getInt(intervalCountPosition) * 8;
+        var hugeRegexCount = ByteBuffer.wrap(bytes.clone()).putInt(regexCountPosition, Integer.MAX_VALUE).array();
+        assertThrows(IllegalArgumentException.class, () -> Regex.readFrom(ByteBuffer.wrap(hugeRegexCount)));
+
+        int literalLengthPosition = regexCountPosition + Integer.BYTES;
+        var hugeLiteral = ByteBuffer.wrap(bytes.clone()).putInt(literalLengthPosition, Integer.MAX_VALUE / 2).array();
+        assertThrows(IllegalArgumentException.class, () -> Regex.readFrom(ByteBuffer.wrap(hugeLiteral)));
+
+        int stateCountPosition = literalLengthPosition + Integer.BYTES + "abc".length() * Character.BYTES + 1;
+        for (int count : List.of(Integer.MAX_VALUE, -1, 0)) {
+            var wrongStates = ByteBuffer.wrap(bytes.clone()).putInt(stateCountPosition, count).array();
+            assertThrows(IllegalArgumentException.class, () -> Regex.readFrom(ByteBuffer.wrap(wrongStates)));
+        }
+        var hugeTransitions = ByteBuffer.wrap(bytes.clone())
+                .putInt(stateCountPosition + Integer.BYTES, Integer.MAX_VALUE)
+                .array();
+        assertThrows(IllegalArgumentException.class, () -> Regex.readFrom(ByteBuffer.wrap(hugeTransitions)));
+    }
+}
@@ -1,7 +1,11 @@
 package dregex;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.text.Normalizer;
+import java.util.List;
+import java.util.Random;
 import java.util.regex.Pattern;
 import org.junit.jupiter.api.Test;
 
@@ -13,4 +17,28 @@ class CanonicalEqTest {
         assertTrue(Regex.compile("\u00E5", Pattern.CANON_EQ).matches("a\u030A"));
         assertTrue(Regex.compile("[\u00E5-\u00F0]", Pattern.CANON_EQ).matches("a\u030A"));
     }
+
+    @Test
+    void testSegmentedNormalization() {
+        // the regex rejects the Hangul jamo, so the reported position can be compared with the normalized input
+        var regex = Regex.compile("[a-z\u0300-\u036F]*", Pattern.CANON_EQ);
+        var pieces = List.of("a", "x", "\u00E5", "\u0301", "\u0316", "\u1E69", "\uD55C");
+        var random = new Random(0);
+        for (int i = 0; i < 1000; i++) {
+            var input = new StringBuilder();
+            int length = random.nextInt(8);
+            for (int j = 0; j < length; j++) {
+                input.append(pieces.get(random.nextInt(pieces.size())));
+            }
+            var normalized = Normalizer.normalize(input, Normalizer.Form.NFD);
+            int expectedPosition = 0;
+            while (expectedPosition < normalized.length() && normalized.charAt(expectedPosition) < 0x1100) {
+                expectedPosition++;
+            }
+            var result = regex.matchAndReport(input);
+            assertEquals(expectedPosition == normalized.length(), result.matches(), input.toString());
+            assertEquals(expectedPosition, result.getPosition(), input.toString());
+        }
+        assertTrue(Regex.compile("a\u0316\u0301", Pattern.CANON_EQ).matches("a\u0301\u0316"));
+    }
 }
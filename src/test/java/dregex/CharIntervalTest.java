@@ -5,6 +5,8 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import dregex.impl.CharInterval;
 import dregex.impl.tree.AbstractRange;
 import dregex.impl.tree.CharRange;
+import dregex.impl.tree.Lit;
+import dregex.impl.tree.Wildcard;
 import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
@@ -52,4 +54,29 @@ class CharIntervalTest {
                 new CharRange(17, 25), List.of(new CharInterval(17, 20), new CharInterval(21, 25)));
         assertEquals(expected, nonOverlapping);
     }
+
+    @Test
+    void testNonOverlappingAtTheEdges() {
+        List<AbstractRange> ranges = List.of(
+                Wildcard.instance,
+                new CharRange(Character.MIN_CODE_POINT, 10),
+                new Lit(Character.MAX_CODE_POINT),
+                new CharRange(5, 20));
+        var nonOverlapping = CharInterval.calculateNonOverlapping(ranges);
+        var expected = Map.of(
+                Wildcard.instance,
+                List.of(
+                        new CharInterval(Character.MIN_CODE_POINT, 4),
+                        new CharInterval(5, 10),
+                        new CharInterval(11, 20),
+                        new CharInterval(21, Character.MAX_CODE_POINT - 1),
+                        new CharInterval(Character.MAX_CODE_POINT, Character.MAX_CODE_POINT)),
+                new CharRange(Character.MIN_CODE_POINT, 10),
+                List.of(new CharInterval(Character.MIN_CODE_POINT, 4), new CharInterval(5, 10)),
+                new Lit(Character.MAX_CODE_POINT),
+                List.of(new CharInterval(Character.MAX_CODE_POINT, Character.MAX_CODE_POINT)),
+                new CharRange(5, 20),
+                List.of(new CharInterval(5, 10), new CharInterval(11, 20)));
+        assertEquals(expected, nonOverlapping);
+    }
 }
@@ -0,0 +1,120 @@
+package dregex;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.Test;
+
+class CompileAsyncTest {
+
+    /**
+     * The DFA of this regex has 2^31 states, so it never finishes compiling.
+     */
+    private static final String explosive = "(a|b)*a(a|b){30}";
+
+    @Test
+    void testCompile() throws Exception {
+        var regex = Regex.compileAsync("[a-z]+@[a-z]+", 0).get(1, TimeUnit.MINUTES);
+        assertTrue(regex.matches("user@example"));
+        var regexes = Regex.compileAsync(List.of("a+", "a|b"), 0).get(1, TimeUnit.MINUTES);
+        assertTrue(regexes.get(0).doIntersect(regexes.get(1)));
+    }
+
+    @Test
+    void testFailures() {
+        var invalid = Regex.compileAsync("(a", 0);
+        var e = assertThrows(ExecutionException.class, () -> invalid.get(1, TimeUnit.MINUTES));
+        assertInstanceOf(InvalidRegexException.class, e.getCause());
+
+        var executor = Executors.newSingleThreadExecutor();
+        try {
+            var limits = CompileLimits.none().withMaxDfaStates(1000);
+            var tooLarge = Regex.compileAsync(List.of("a", explosive), 0, limits, executor);
+            var e2 = assertThrows(ExecutionException.class, () -> tooLarge.get(1, TimeUnit.MINUTES));
+            assertInstanceOf(CompileLimitExceededException.class, e2.getCause());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testCancellation() throws InterruptedException, ExecutionException, TimeoutException {
+        var executor = Executors.newSingleThreadExecutor();
+        try {
+            var started = new CountDownLatch(1);
+            executor.execute(started::countDown);
+            var future = Regex.compileAsync(explosive, 0, CompileLimits.none(), executor);
+            started.await();
+            // give the compilation some time to get to the subset construction
+            Thread.sleep(200);
+            assertThrows(TimeoutException.class, () -> future.get(10, TimeUnit.MILLISECONDS));
+            assertTrue(future.cancel(true));
+            assertThrows(CancellationException.class, future::join);
+            // the only thread of the executor is released, and not left interrupted
+            var next = executor.submit(() -> Thread.currentThread().isInterrupted());
+            assertFalse(next.get(1, TimeUnit.MINUTES));
+            var regex = Regex.compileAsync("abc", 0, CompileLimits.none(), executor);
+            assertTrue(regex.get(1, TimeUnit.MINUTES).matches("abc"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testCancellationBeforeRunning() throws Exception {
+        var executor = Executors.newSingleThreadExecutor();
+        try {
+            var blocker = new CountDownLatch(1);
+            executor.execute(() -> {
+                try {
+                    blocker.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            var future = Regex.compileAsync(explosive, 0, CompileLimits.none(), executor);
+            assertTrue(future.cancel(true));
+            blocker.countDown();
+            // the cancelled compilation is skipped
+            assertEquals(Boolean.FALSE, executor.submit(() -> false).get(1, TimeUnit.MINUTES));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testCancellationWithoutInterruption() throws InterruptedException {
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var interrupted = new AtomicBoolean();
+        var task = new CompileTask<>(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                interrupted.set(true);
+            }
+            return "compiled";
+        });
+        var thread = new Thread(task);
+        thread.start();
+        started.await();
+        assertTrue(task.cancel(false));
+        release.countDown();
+        thread.join();
+        // the running compilation finished, and its result was discarded
+        assertFalse(interrupted.get());
+        assertThrows(CancellationException.class, task::join);
+    }
+}
@@ -0,0 +1,106 @@
+package dregex;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import dregex.CompileLimitExceededException.Limit;
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class CompileLimitsTest {
+
+    /**
+     * The DFA of this regex has 2^26 states.
+     */
+    private static final String explosive = "(a|b)*a(a|b){25}";
+
+    @Test
+    void testWithinLimits() {
+        var limits = CompileLimits.none()
+                .withMaxDfaStates(100)
+                .withMaxAlphabetSize(100)
+                .withTimeout(Duration.ofMinutes(1));
+        var regex = Regex.compile("(?!.*bb)[a-c]+", 0, limits);
+        assertTrue(regex.matches("abcab"));
+        assertTrue(!regex.matches("abbc"));
+        var regexes = Regex.compile(List.of("a+", "(a|b){3}"), 0, limits);
+        assertTrue(regexes.get(0).doIntersect(regexes.get(1)));
+    }
+
+    @Test
+    void testMaxDfaStates() {
+        var limits = CompileLimits.none().withMaxDfaStates(1000);
+        var e = assertThrows(CompileLimitExceededException.class, () -> Regex.compile(explosive, 0, limits));
+        assertEquals(Limit.DfaStates, e.getLimit());
+        assertEquals("subset construction", e.getStage());
+        assertEquals(1001, e.getSize());
+    }
+
+    @Test
+    void testMaxDfaStatesInProduct() {
+        // the operands are small, but their product is not
+        var limits = CompileLimits.none().withMaxDfaStates(50);
+        var e = assertThrows(
+                CompileLimitExceededException.class, () -> Regex.compile("(?!(ab){5})(abc){6}.*", 0, limits));
+        assertEquals(Limit.DfaStates, e.getLimit());
+        assertEquals("product construction", e.getStage());
+    }
+
+    @Test
+    void testNestedRepetition() {
+        // the NFA would have 20 million states, it is rejected before building it
+        var nested = "((a{1000}){1000}){20}";
+        var limits = CompileLimits.none().withMaxDfaStates(1000).withTimeout(Duration.ofMillis(100));
+        var e = assertThrows(CompileLimitExceededException.class, () -> Regex.compile(nested, 0, limits));
+        assertEquals(Limit.NfaStates, e.getLimit());
+        assertEquals("NFA construction", e.getStage());
+        // without a maximum number of states, the time is checked while building it
+        var timeout = CompileLimits.none().withTimeout(Duration.ofMillis(100));
+        var e2 = assertThrows(CompileLimitExceededException.class, () -> Regex.compile(nested, 0, timeout));
+        assertEquals(Limit.Timeout, e2.getLimit());
+        assertEquals("NFA construction", e2.getStage());
+    }
+
+    @Test
+    void testMaxAlphabetSize() {
+        var limits = CompileLimits.none().withMaxAlphabetSize(3);
+        var e = assertThrows(CompileLimitExceededException.class, () -> Regex.compile("abcd", 0, limits));
+        assertEquals(Limit.AlphabetSize, e.getLimit());
+        assertEquals(4, e.getSize());
+        var e2 = assertThrows(
+                CompileLimitExceededException.class, () -> Regex.compile(List.of("ab", "cd"), 0, limits));
+        assertEquals(Limit.AlphabetSize, e2.getLimit());
+    }
+
+    @Test
+    void testTimeout() {
+        var limits = CompileLimits.none().withTimeout(Duration.ofMillis(100));
+        var e = assertThrows(CompileLimitExceededException.class, () -> Regex.compile(explosive, 0, limits));
+        assertEquals(Limit.Timeout, e.getLimit());
+        assertTrue(e.getElapsed().compareTo(Duration.ofSeconds(10)) < 0, e.getElapsed().toString());
+    }
+
+    @Test
+    void testInterruption() {
+        Thread.currentThread().interrupt();
+        try {
+            var e = assertThrows(
+                    CompileLimitExceededException.class, () -> Regex.compile(explosive, 0, CompileLimits.none()));
+            assertEquals(Limit.Interrupted, e.getLimit());
+            assertTrue(Thread.currentThread().isInterrupted());
+            // compilations without limits are not interruptible
+            assertTrue(Regex.compile("a|b").matches("a"));
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
+    @Test
+    void testInvalidLimits() {
+        assertThrows(IllegalArgumentException.class, () -> CompileLimits.none().withMaxDfaStates(0));
+        assertThrows(IllegalArgumentException.class, () -> CompileLimits.none().withMaxAlphabetSize(0));
+        assertThrows(IllegalArgumentException.class, () -> CompileLimits.none().withTimeout(Duration.ofMillis(-1)));
+    }
+}
@@ -0,0 +1,87 @@
+package dregex;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class CompileStatsTest {
+
+    @Test
+    void testSingleRegex() {
+        var stats = Regex.compile("(?!.*admin)/[a-z]+/[0-9]{2,4}").getCompileStats().orElseThrow();
+        assertEquals(1, stats.getRegexCount());
+        assertTrue(stats.getParseTime().compareTo(Duration.ZERO) > 0);
+        assertTrue(stats.getAlphabetTime().compareTo(Duration.ZERO) > 0);
+        assertTrue(stats.getNfaTime().compareTo(Duration.ZERO) > 0);
+        assertTrue(stats.getSubsetConstructionTime().compareTo(Duration.ZERO) > 0);
+        assertTrue(stats.getOperationTime().compareTo(Duration.ZERO) > 0);
+        assertEquals(
+                stats.getTotalTime(),
+                stats.getParseTime()
+                        .plus(stats.getAlphabetTime())
+                        .plus(stats.getNfaTime())
+                        .plus(stats.getSubsetConstructionTime())
+                        .plus(stats.getRewriteTime())
+                        .plus(stats.getOperationTime()));
+        assertTrue(stats.getNfaStateCount() > stats.getDfaStateCount());
+        assertTrue(stats.getNfaTransitionCount() > 0);
+        assertTrue(stats.getDfaTransitionCount() >= stats.getDfaStateCount() - 1);
+        assertTrue(stats.getAlphabetSize() > 0);
+        assertTrue(stats.getEstimatedRetainedBytes() > 0);
+    }
+
+    @Test
+    void testTableCountedWhenBuilt() {
+        var regexes = Regex.compile(List.of("[a-z]+@[a-z]+", "a@b"));
+        var regex = regexes.get(0);
+        var beforeMatching = regex.getCompileStats().orElseThrow().getEstimatedRetainedBytes();
+        assertTrue(beforeMatching > 0);
+        // set operations do not need the table
+        assertTrue(regex.doIntersect(regexes.get(1)));
+        assertEquals(beforeMatching, regex.getCompileStats().orElseThrow().getEstimatedRetainedBytes());
+        assertTrue(regex.matches("user@example"));
+        assertTrue(regex.getCompileStats().orElseThrow().getEstimatedRetainedBytes() > beforeMatching);
+    }
+
+    @Test
+    void testStateCounts() {
+        var stats = Regex.compile("abc").getCompileStats().orElseThrow();
+        assertEquals(4, stats.getDfaStateCount());
+        assertEquals(3, stats.getDfaTransitionCount());
+        assertEquals(Duration.ZERO, stats.getOperationTime());
+    }
+
+    @Test
+    void testBatch() {
+        var regexes = Regex.compile(List.of("[a-z]+", "[a-c]+x", "y"));
+        var first = regexes.get(0).getCompileStats().orElseThrow();
+        var total = CompileStats.total(regexes);
+        assertEquals(3, total.getRegexCount());
+        // shared by the batch, so counted once
+        assertEquals(first.getAlphabetTime(), total.getAlphabetTime());
+        assertEquals(first.getAlphabetSize(), total.getAlphabetSize());
+        long dfaStates = 0;
+        for (var regex : regexes) {
+            dfaStates += regex.getCompileStats().orElseThrow().getDfaStateCount();
+        }
+        assertEquals(dfaStates, total.getDfaStateCount());
+
+        var other = Regex.compile("z");
+        var both = CompileStats.total(List.of(regexes.get(0), other));
+        assertEquals(
+                first.getAlphabetSize() + other.getCompileStats().orElseThrow().getAlphabetSize(),
+                both.getAlphabetSize());
+    }
+
+    @Test
+    void testNotCompiled() {
+        var regexes = Regex.compile(List.of("a", "b"));
+        var union = regexes.get(0).union(regexes.get(1));
+        assertTrue(union.getCompileStats().isEmpty());
+        var total = CompileStats.total(List.of(union, regexes.get(0)));
+        assertEquals(1, total.getRegexCount());
+    }
+}
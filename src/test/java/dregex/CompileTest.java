@@ -1,7 +1,11 @@
 package dregex;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.List;
 import org.junit.jupiter.api.Test;
 
 class CompileTest {
@@ -12,4 +16,43 @@ class CompileTest {
         Regex.compile("a{2500}"); // long repetition
         assertThrows(InvalidRegexException.class, () -> Regex.compile("\\1")); // backreferences
     }
+
+    @Test
+    void testNestedGroups() {
+        // parsing time must not depend on the nesting depth
+        var regex = Regex.compile("(".repeat(200) + "a" + ")".repeat(200));
+        assertTrue(regex.matches("a"));
+        assertThrows(InvalidRegexException.class, () -> Regex.compile("(".repeat(200) + "a"));
+    }
+
+    @Test
+    void testErrorMessages() {
+        var anchor = assertThrows(InvalidRegexException.class, () -> Regex.compile("a^"));
+        assertEquals("Unsupported feature: anchor\nline 1, column 3", anchor.getMessage());
+        var range = assertThrows(InvalidRegexException.class, () -> Regex.compile("a{3,2}"));
+        assertEquals("invalid range in quantifier\nline 1, column 7", range.getMessage());
+        var syntax = assertThrows(InvalidRegexException.class, () -> Regex.compile("\\x4"));
+        assertEquals("line 1, column 3:\nhex number or literal char: { expected, 4 encountered.", syntax.getMessage());
+        var unclosed = assertThrows(InvalidRegexException.class, () -> Regex.compile("[a"));
+        assertEquals(
+                "line 1, column 3:\nliteral char: -, literal char: \\,  or literal char: ] expected, EOF encountered.",
+                unclosed.getMessage());
+    }
+
+    @Test
+    void testRepeatedOperations() {
+        // the same lookaround is compiled once and inserted several times in the NFA
+        var regex = Regex.compile("(?:(?![ab]c)[a-c]){10}");
+        assertTrue(regex.matches("a".repeat(10)));
+        assertTrue(regex.matches("c".repeat(10)));
+        assertTrue(regex.matches("a".repeat(8) + "ac"));
+        assertFalse(regex.matches("a".repeat(9)));
+        assertFalse(regex.matches("a".repeat(9) + "d"));
+
+        // lookarounds shared among regexes of the same batch
+        var regexes = Regex.compile(List.of("(?!x)[a-z]+", "(?!x)[a-z]+y", "(?!x)[a-z]+"));
+        assertTrue(regexes.get(0).equiv(regexes.get(2)));
+        assertTrue(regexes.get(1).isProperSubsetOf(regexes.get(0)));
+        assertFalse(regexes.get(1).matches("xy"));
+    }
 }
@@ -0,0 +1,121 @@
+package dregex;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import dregex.impl.LazyRegex;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class LazyRegexTest {
+
+    private static boolean isCompiled(Regex regex) {
+        return ((LazyRegex) regex.getImpl()).isCompiled();
+    }
+
+    @Test
+    void testCompiledOnFirstUse() {
+        var regexes = Regex.compileLazily(List.of("[a-z]+@[a-z]+", "[0-9]+", "(?i)hello"));
+        for (var regex : regexes) {
+            assertFalse(isCompiled(regex));
+        }
+        assertTrue(regexes.get(1).matches("123"));
+        assertFalse(isCompiled(regexes.get(0)));
+        assertTrue(isCompiled(regexes.get(1)));
+        assertFalse(isCompiled(regexes.get(2)));
+        assertTrue(regexes.get(0).matches("user@example"));
+        assertFalse(regexes.get(0).matches("user@"));
+        assertTrue(regexes.get(2).matches("HeLLo"));
+    }
+
+    @Test
+    void testOperations() {
+        var regexes = Regex.compileLazily(List.of("a+", "a|b", "[a-c]"));
+        assertTrue(regexes.get(0).doIntersect(regexes.get(1)));
+        assertTrue(regexes.get(1).isSubsetOf(regexes.get(2)));
+        assertFalse(regexes.get(0).diff(regexes.get(1)).matches("a"));
+        assertTrue(regexes.get(0).diff(regexes.get(1)).matches("aa"));
+        for (var regex : regexes) {
+            assertTrue(isCompiled(regex));
+        }
+    }
+
+    @Test
+    void testSameResultAsEager() {
+        var patterns = List.of("(a|b)*a(a|b){3}", "x(?!yy)[xyz]*", "[^a]+");
+        var eager = Regex.compile(patterns);
+        var lazy = Regex.compileLazily(patterns);
+        var inputs = List.of("", "a", "abab", "baaa", "abbb", "xzzy", "xyyz", "bbb", "abc");
+        for (int i = 0; i < patterns.size(); i++) {
+            for (var input : inputs) {
+                assertEquals(eager.get(i).matches(input), lazy.get(i).matches(input), patterns.get(i) + " " + input);
+            }
+        }
+    }
+
+    @Test
+    void testConcurrentFirstUse() throws Exception {
+        var regex = Regex.compileLazily(List.of("(a|b)*a(a|b){10}")).get(0);
+        var executor = Executors.newFixedThreadPool(8);
+        try {
+            var start = new CountDownLatch(1);
+            var futures = new ArrayList<Future<Boolean>>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return regex.matches("babbbbbbbbbb");
+                }));
+            }
+            start.countDown();
+            for (var future : futures) {
+                assertTrue(future.get(1, TimeUnit.MINUTES));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        var impl = regex.getImpl();
+        assertSame(impl.getTable(), impl.getTable());
+        assertSame(impl.getDfa(), impl.getDfa());
+    }
+
+    @Test
+    void testErrorsAreEager() {
+        assertThrows(InvalidRegexException.class, () -> Regex.compileLazily(List.of("a", "(b")));
+        assertThrows(InvalidRegexException.class, () -> Regex.compileLazily(List.of("(?<name>a)")));
+    }
+
+    @Test
+    void testExtend() {
+        var lazy = Regex.compileLazily(List.of("[a-m]+", "[n-z]+"));
+        assertTrue(lazy.get(1).matches("xyz"));
+        var extended = Regex.extend(lazy, List.of("[h-q]+"));
+        assertFalse(isCompiled(extended.get(0)));
+        assertTrue(extended.get(0).doIntersect(extended.get(2)));
+        assertTrue(extended.get(1).doIntersect(extended.get(2)));
+        assertFalse(extended.get(0).doIntersect(extended.get(1)));
+    }
+
+    @Test
+    void testCompileStats() {
+        var regexes = Regex.compileLazily(List.of("[a-z]+", "[0-9]+"));
+        assertTrue(regexes.get(0).getCompileStats().isEmpty());
+        regexes.get(0).matches("abc");
+        var stats = regexes.get(0).getCompileStats().orElseThrow();
+        assertTrue(stats.getDfaStateCount() > 0);
+        assertTrue(stats.getAlphabetSize() > 0);
+        assertEquals(1, CompileStats.total(regexes).getRegexCount());
+        var eagerStats = Regex.compile(List.of("[a-z]+", "[0-9]+")).get(0).getCompileStats().orElseThrow();
+        assertEquals(eagerStats.getNfaStateCount(), stats.getNfaStateCount());
+        assertEquals(eagerStats.getDfaStateCount(), stats.getDfaStateCount());
+        assertEquals(eagerStats.getAlphabetSize(), stats.getAlphabetSize());
+        assertTrue(stats.getParseTime().toNanos() > 0);
+    }
+}
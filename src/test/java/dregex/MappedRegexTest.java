@@ -0,0 +1,128 @@
+package dregex;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import dregex.impl.MappedDfaTable;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MappedRegexTest {
+
+    private static final List<String> strings =
+            List.of("", "a", "abc", "abc123", "x", "xyz", "αβγ", "ω9", "𝐀", "abc𝐀", "-", "a-b", "zz99");
+
+    @Test
+    void testMappedFile(@TempDir Path dir) throws IOException {
+        var regexes = Regex.compile(List.of("[a-z]+\\d*", "\\p{L}+[0-9]?", "x|y|z|𝐀", "(?!abc)[a-c]+"));
+        var file = dir.resolve("tables");
+        try (OutputStream out = Files.newOutputStream(file)) {
+            Regex.writeMatchTablesTo(regexes, out);
+        }
+        var mapped = Regex.mapMatchTables(file);
+        assertEquals(regexes.size(), mapped.size());
+        for (int i = 0; i < regexes.size(); i++) {
+            for (var string : strings) {
+                var expected = regexes.get(i).matchAndReport(string);
+                var actual = mapped.get(i).matchAndReport(string);
+                assertEquals(expected.matches(), actual.matches(), string);
+                assertEquals(expected.getPosition(), actual.getPosition(), string);
+            }
+        }
+
+        // operations build the DFAs from the tables
+        assertTrue(mapped.get(0).isCompatible(mapped.get(1)));
+        assertTrue(mapped.get(0).doIntersect(mapped.get(1)));
+        assertFalse(mapped.get(3).matches("abc"));
+        assertTrue(mapped.get(3).isProperSubsetOf(mapped.get(1)));
+        var diff = mapped.get(1).diff(mapped.get(0));
+        assertTrue(diff.matches("αβγ"));
+        assertFalse(diff.matches("abc"));
+        var extended = Regex.extend(mapped, List.of("[b-y]+"));
+        assertTrue(extended.get(4).isSubsetOf(extended.get(1)));
+    }
+
+    @Test
+    void testDirectBuffer() throws IOException {
+        var regexes = Regex.compile(List.of("a+b", "b+"));
+        var out = new ByteArrayOutputStream();
+        Regex.writeMatchTablesTo(List.of(regexes.get(0), regexes.get(0).union(regexes.get(1))), out);
+        var buffer = ByteBuffer.allocateDirect(out.size() + 3);
+        buffer.put(new byte[3]).put(out.toByteArray()).flip().position(3);
+        var mapped = Regex.mapMatchTables(buffer);
+        assertTrue(mapped.get(0).matches("aab"));
+        assertFalse(mapped.get(0).matches("bb"));
+        assertTrue(mapped.get(1).matches("bb"));
+        assertTrue(mapped.get(0).isProperSubsetOf(mapped.get(1)));
+        assertEquals(buffer.limit(), buffer.position());
+
+        // mapped regexes can be written again
+        var rewritten = new ByteArrayOutputStream();
+        Regex.writeMatchTablesTo(mapped, rewritten);
+        var remapped = Regex.mapMatchTables(ByteBuffer.wrap(rewritten.toByteArray()));
+        assertTrue(remapped.get(1).equiv(remapped.get(0).union(remapped.get(1))));
+    }
+
+    @Test
+    void testConsecutiveSets() throws IOException {
+        var out = new ByteArrayOutputStream();
+        Regex.writeMatchTablesTo(Regex.compile(List.of("a+", "b+")), out);
+        Regex.writeMatchTablesTo(List.of(), out);
+        Regex.writeMatchTablesTo(Regex.compile(List.of("c")), out);
+        var buffer = ByteBuffer.wrap(out.toByteArray());
+        var first = Regex.mapMatchTables(buffer);
+        var second = Regex.mapMatchTables(buffer);
+        var third = Regex.mapMatchTables(buffer);
+        assertFalse(buffer.hasRemaining());
+        assertEquals(2, first.size());
+        assertTrue(first.get(1).matches("bb"));
+        assertEquals(0, second.size());
+        assertTrue(third.get(0).matches("c"));
+    }
+
+    @Test
+    void testInvalidData() throws IOException {
+        var out = new ByteArrayOutputStream();
+        Regex.writeMatchTablesTo(List.of(Regex.compile("abc")), out);
+        var bytes = out.toByteArray();
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> Regex.mapMatchTables(ByteBuffer.wrap(bytes, 0, bytes.length - 1).slice()));
+        var wrongMagic = bytes.clone();
+        wrongMagic[0] = 0;
+        assertThrows(IllegalArgumentException.class, () -> Regex.mapMatchTables(ByteBuffer.wrap(wrongMagic)));
+        // interval count, regex count and literal length (after the intervals and the offset of the only regex),
+        // which must not cause huge allocations
+        int literalLengthPosition = 20 + ByteBuffer.wrap(bytes).getInt(12) * 8 + Integer.BYTES;
+        for (int position : List.of(12, 16, literalLengthPosition)) {
+            var hugeCount = ByteBuffer.wrap(bytes.clone()).putInt(position, Integer.MAX_VALUE / 2).array();
+            assertThrows(IllegalArgumentException.class, () -> Regex.mapMatchTables(ByteBuffer.wrap(hugeCount)));
+        }
+    }
+
+    @Test
+    void testInvalidTable() throws IOException {
+        var table = Regex.compile("abc|x").getImpl().toDfaTable();
+        var out = new ByteArrayOutputStream();
+        table.writeTo(new DataOutputStream(out));
+        var bytes = out.toByteArray();
+        assertEquals(bytes.length, new MappedDfaTable(ByteBuffer.wrap(bytes), 0).end());
+        // a run count that overflows the positions of the sections if they were computed as ints
+        var hugeRunCount = ByteBuffer.wrap(bytes.clone()).putInt(8, 0x40000000);
+        assertThrows(IllegalArgumentException.class, () -> new MappedDfaTable(hugeRunCount, 0));
+        var invalidTarget = ByteBuffer.wrap(bytes.clone()).putInt(bytes.length - Integer.BYTES, table.stateCount());
+        assertThrows(IllegalArgumentException.class, () -> new MappedDfaTable(invalidTarget, 0));
+        var invalidClass = ByteBuffer.wrap(bytes.clone()).putInt(12 + 'a' * Integer.BYTES, table.classCount());
+        assertThrows(IllegalArgumentException.class, () -> new MappedDfaTable(invalidClass, 0));
+    }
+}
@@ -0,0 +1,87 @@
+package dregex;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+
+class MatchMetricsTest {
+
+    @Test
+    void testCounts() {
+        var metrics = new MatchMetrics();
+        var regex = Regex.compile("[a-z]+x").withMetrics(metrics);
+        assertTrue(regex.matches("abcx"));
+        assertFalse(regex.matches("abc")); // rejected at the end, position 3
+        assertFalse(regex.matches("1abc")); // rejected at position 0
+        assertEquals(5, regex.matchAndReport("abcde1").getPosition());
+        assertEquals(4, metrics.getMatchCount());
+        assertEquals(1, metrics.getAcceptedCount());
+        assertEquals(3, metrics.getRejectedCount());
+        assertEquals(4 + 3 + 0 + 5, metrics.getConsumedCodePoints());
+        var expected = new long[Integer.SIZE];
+        expected[MatchMetrics.bucketOf(0)]++;
+        expected[MatchMetrics.bucketOf(3)]++;
+        expected[MatchMetrics.bucketOf(5)]++;
+        assertArrayEquals(expected, metrics.getRejectionPositionHistogram());
+    }
+
+    @Test
+    void testBuckets() {
+        assertEquals(0, MatchMetrics.bucketOf(0));
+        assertEquals(1, MatchMetrics.bucketOf(1));
+        assertEquals(2, MatchMetrics.bucketOf(2));
+        assertEquals(2, MatchMetrics.bucketOf(3));
+        assertEquals(3, MatchMetrics.bucketOf(4));
+        assertEquals(31, MatchMetrics.bucketOf(Integer.MAX_VALUE));
+    }
+
+    @Test
+    void testOriginalUntouched() {
+        var metrics = new MatchMetrics();
+        var regexes = Regex.compile(List.of("[a-z]+", "[a-c]+"));
+        var metered = regexes.get(0).withMetrics(metrics);
+        assertTrue(regexes.get(0).matches("abc"));
+        assertEquals(0, metrics.getMatchCount());
+        assertTrue(metered.isCompatible(regexes.get(1)));
+        var diff = metered.diff(regexes.get(1));
+        assertTrue(diff.matches("xyz"));
+        assertEquals(0, metrics.getMatchCount());
+    }
+
+    @Test
+    void testConcurrentRecording() throws InterruptedException, ExecutionException {
+        var metrics = new MatchMetrics();
+        var regex = Regex.compile("a+").withMetrics(metrics);
+        int threads = 8;
+        int iterations = 10_000;
+        var executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < iterations; i++) {
+                        regex.matches("aaa");
+                        regex.matches("aab");
+                    }
+                }));
+            }
+            for (var future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(2L * threads * iterations, metrics.getMatchCount());
+        assertEquals((long) threads * iterations, metrics.getAcceptedCount());
+        assertEquals((long) threads * iterations, metrics.getRejectionPositionHistogram()[MatchMetrics.bucketOf(2)]);
+        assertEquals(5L * threads * iterations, metrics.getConsumedCodePoints());
+    }
+}
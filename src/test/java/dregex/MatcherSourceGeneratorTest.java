@@ -0,0 +1,202 @@
+package dregex;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import dregex.impl.JavaSourceGenerator;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Pattern;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import org.junit.jupiter.api.Test;
+
+class MatcherSourceGeneratorTest {
+
+    /**
+     * Compile a source file in memory and load its class.
+     */
+    private static Class<?> compile(String className, String source) throws ClassNotFoundException {
+        var compiler = ToolProvider.getSystemJavaCompiler();
+        Map<String, ByteArrayOutputStream> classFiles = new HashMap<>();
+        var fileManager = new ForwardingJavaFileManager<JavaFileManager>(
+                compiler.getStandardFileManager(null, null, null)) {
+            @Override
+            public JavaFileObject getJavaFileForOutput(
+                    Location location, String name, JavaFileObject.Kind kind, FileObject sibling) {
+                return new SimpleJavaFileObject(URI.create("mem:///" + name + kind.extension), kind) {
+                    @Override
+                    public OutputStream openOutputStream() {
+                        return classFiles.computeIfAbsent(name, n -> new ByteArrayOutputStream());
+                    }
+                };
+            }
+        };
+        var sourceFile = new SimpleJavaFileObject(
+                URI.create("mem:///" + className.replace('.', '/') + ".java"), JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return source;
+            }
+        };
+        var options = List.of("--release", "8", "-Xlint:all,-options", "-Werror");
+        var ok = compiler.getTask(null, fileManager, null, options, null, List.of(sourceFile))
+                .call();
+        assertTrue(ok, "generated source does not compile");
+        var loader = new ClassLoader(MatcherSourceGeneratorTest.class.getClassLoader()) {
+            @Override
+            protected Class<?> findClass(String name) throws ClassNotFoundException {
+                var bytes = classFiles.get(name);
+                if (bytes == null) {
+                    throw new ClassNotFoundException(name);
+                }
+                return defineClass(name, bytes.toByteArray(), 0, bytes.size());
+            }
+        };
+        return loader.loadClass(className);
+    }
+
+    private static List<String> randomStrings(String alphabet, int count) {
+        var codePoints = alphabet.codePoints().toArray();
+        var random = new Random(0);
+        var ret = new ArrayList<String>();
+        ret.add("");
+        for (int i = 0; i < count; i++) {
+            var sb = new StringBuilder();
+            int length = random.nextInt(8);
+            for (int j = 0; j < length; j++) {
+                sb.appendCodePoint(codePoints[random.nextInt(codePoints.length)]);
+            }
+            ret.add(sb.toString());
+        }
+        return ret;
+    }
+
+    @Test
+    void testGeneratedMatchers() throws Exception {
+        var regexes = new LinkedHashMap<String, Regex>();
+        regexes.put("abc", Regex.compile("abc|xyz"));
+        regexes.put("classes", Regex.compile("[a-c]+[0-9]*"));
+        regexes.put("negated", Regex.compile("[^ab]+"));
+        regexes.put("lookahead", Regex.compile("\\w+(?!x)\\w"));
+        regexes.put("supplementary", Regex.compile("(.)*𝐀|[𝐀-𝐁]{2}|\\p{IsGreek}+"));
+        regexes.put("caseInsensitive", Regex.compile("(?i)é+a"));
+        regexes.put("canonicalEq", Regex.compile("é+", Pattern.CANON_EQ));
+        regexes.put("escapes", Regex.compile("\\u0041\\\\\"*/\n"));
+        var compatible = Regex.compile(List.of("[a-z]+", "[a-c]+", "x"));
+        regexes.put("synthetic", compatible.get(0).diff(compatible.get(1)));
+        regexes.put("nothing", compatible.get(1).intersect(compatible.get(2)));
+        var generated = compile("test.pkg.Matchers", MatcherSourceGenerator.generate("test.pkg.Matchers", regexes));
+        var strings = randomStrings("abcxyz019-_ .αώéÉE\u0301𝐀𝐁A\\\"*/\n", 2000);
+        for (var entry : regexes.entrySet()) {
+            Method method = generated.getMethod(entry.getKey(), CharSequence.class);
+            for (var string : strings) {
+                var regex = entry.getValue();
+                assertEquals(regex.matches(string), method.invoke(null, string), () -> regex + " with " + string);
+            }
+        }
+    }
+
+    @Test
+    void testLargeTable() throws Exception {
+        var regex = Regex.compile("[a-z0-9]{3000}");
+        var generated = compile("Large", MatcherSourceGenerator.generate("Large", Map.of("matches", regex)));
+        var method = generated.getMethod("matches", CharSequence.class);
+        assertEquals(true, method.invoke(null, "a1".repeat(1500)));
+        assertEquals(false, method.invoke(null, "a1".repeat(1499)));
+    }
+
+    @Test
+    void testTableParts() throws Exception {
+        var regex = Regex.compile("[a-z0-9]{30}");
+        var layout = new JavaSourceGenerator.Layout(16, 4, 1000);
+        var source = JavaSourceGenerator.generate("Parts", Map.of("matches", regex.getImpl()), layout);
+        assertTrue(source.contains("part1()"));
+        var generated = compile("Parts", source);
+        var method = generated.getMethod("matches", CharSequence.class);
+        assertEquals(true, method.invoke(null, "a1".repeat(15)));
+        assertEquals(false, method.invoke(null, "a1".repeat(14)));
+    }
+
+    @Test
+    void testOversizedTable() {
+        var regex = Regex.compile("[a-z0-9]{30}");
+        var layout = new JavaSourceGenerator.Layout(16, 4, 8);
+        var e = assertThrows(
+                IllegalArgumentException.class,
+                () -> JavaSourceGenerator.generate("Oversized", Map.of("matches", regex.getImpl()), layout));
+        assertTrue(e.getMessage().contains("matches"));
+    }
+
+    @Test
+    void testDefinitions() throws Exception {
+        var definitions = "# comment\n\n  digits = \\d+\nspaces=[ ]+ \n";
+        var regexes = MatcherSourceGenerator.readDefinitions(new StringReader(definitions));
+        assertEquals(List.of("digits", "spaces"), List.copyOf(regexes.keySet()));
+        assertTrue(regexes.get("digits").matches("123"));
+        assertTrue(regexes.get("spaces").matches("   "));
+        assertFalse(regexes.get("spaces").matches(" "));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> MatcherSourceGenerator.readDefinitions(new StringReader("digits\n")));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> MatcherSourceGenerator.readDefinitions(new StringReader("a=x\na=y\n")));
+        var e = assertThrows(
+                IllegalArgumentException.class,
+                () -> MatcherSourceGenerator.readDefinitions(new StringReader("\na=(x\n")));
+        assertTrue(e.getMessage().startsWith("line 2: "));
+    }
+
+    @Test
+    void testDefinitionFlags() throws Exception {
+        var definitions = "word [CASE_INSENSITIVE] = abc\naccent[CANON_EQ, CASE_INSENSITIVE, UNICODE_CASE]=é\n";
+        var regexes = MatcherSourceGenerator.readDefinitions(new StringReader(definitions));
+        assertEquals(List.of("word", "accent"), List.copyOf(regexes.keySet()));
+        assertTrue(regexes.get("word").matches("ABC"));
+        assertTrue(regexes.get("accent").matches("E\u0301"));
+        var generated = compile("Flags", MatcherSourceGenerator.generate("Flags", regexes));
+        assertEquals(true, generated.getMethod("accent", CharSequence.class).invoke(null, "E\u0301"));
+        var e = assertThrows(
+                IllegalArgumentException.class,
+                () -> MatcherSourceGenerator.readDefinitions(new StringReader("a[MULTILINE]=x\n")));
+        assertTrue(e.getMessage().startsWith("line 1: "));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> MatcherSourceGenerator.readDefinitions(new StringReader("a[DOTALL=x\n")));
+    }
+
+    @Test
+    void testInvalidNames() {
+        var regexes = Map.of("matches", Regex.compile("a"));
+        assertThrows(IllegalArgumentException.class, () -> MatcherSourceGenerator.generate("a.1b.C", regexes));
+        assertThrows(IllegalArgumentException.class, () -> MatcherSourceGenerator.generate("Dfa", regexes));
+        assertThrows(IllegalArgumentException.class, () -> MatcherSourceGenerator.generate("Table0", regexes));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> MatcherSourceGenerator.generate("C", Map.of("not valid", Regex.compile("a"))));
+        for (var reserved : List.of("class", "int", "goto", "_", "true", "null")) {
+            var e = assertThrows(
+                    IllegalArgumentException.class,
+                    () -> MatcherSourceGenerator.generate("C", Map.of(reserved, Regex.compile("a"))));
+            assertTrue(e.getMessage().contains("reserved word"));
+        }
+        assertThrows(IllegalArgumentException.class, () -> MatcherSourceGenerator.generate("a.new.C", regexes));
+        assertThrows(IllegalArgumentException.class, () -> MatcherSourceGenerator.generate("a.b.enum", regexes));
+    }
+}
@@ -0,0 +1,116 @@
+package dregex;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+class NativeMatcherTest {
+
+    private static final String alphabet = "abcxyz019-_ .αώé𝐀𝐁￿";
+
+    private static List<String> randomStrings(int count) {
+        var random = new Random(0);
+        var ret = new ArrayList<String>();
+        ret.add("");
+        for (int i = 0; i < count; i++) {
+            var sb = new StringBuilder();
+            int length = random.nextInt(8);
+            for (int j = 0; j < length; j++) {
+                sb.appendCodePoint(alphabet.codePointAt(alphabet.offsetByCodePoints(0, random.nextInt(20))));
+            }
+            ret.add(sb.toString());
+        }
+        return ret;
+    }
+
+    private static void assertSameMatches(Regex regex) {
+        var matcher = regex.toNativeMatcher();
+        for (var string : randomStrings(2000)) {
+            assertEquals(regex.matches(string), matcher.test(string), () -> regex + " with " + string);
+        }
+    }
+
+    @Test
+    void testEquivalence() {
+        for (var regex : List.of(
+                "",
+                "a",
+                "abc|xyz",
+                "[a-c]+[0-9]*",
+                "[^ab]+",
+                "\\w+(?!x)\\w",
+                "[a-cx-z019 _.-]+", // several ASCII ranges
+                "(.)*𝐀",
+                "[𝐀-𝐁]{2}|\\p{IsGreek}+",
+                "(a|é)+[\\x{FFFF}]")) {
+            assertSameMatches(Regex.compile(regex));
+        }
+        assertSameMatches(Regex.compile("é+", Pattern.CANON_EQ));
+    }
+
+    @Test
+    void testSyntheticRegexes() {
+        var regexes = Regex.compile(List.of("[a-z]+", "[a-c]+", "x+"));
+        assertSameMatches(regexes.get(0).diff(regexes.get(1)));
+        var nothing = regexes.get(1).intersect(regexes.get(2));
+        assertFalse(nothing.toNativeMatcher().test(""));
+        assertFalse(nothing.toNativeMatcher().test("a"));
+    }
+
+    @Test
+    void testSplitInMethods() {
+        // too many states for a single method
+        var regex = Regex.compile("(a|b)*a(a|b){8}");
+        var matcher = regex.toNativeMatcher();
+        var random = new Random(0);
+        for (int i = 0; i < 2000; i++) {
+            var sb = new StringBuilder();
+            int length = random.nextInt(16);
+            for (int j = 0; j < length; j++) {
+                sb.append(random.nextBoolean() ? 'a' : 'b');
+            }
+            var string = sb.toString();
+            assertEquals(regex.matches(string), matcher.test(string), string);
+        }
+        // too many ranges for the code of a state
+        assertSameMatches(Regex.compile("(\\p{L}|\\p{N})+\\p{Lu}"));
+    }
+
+    @Test
+    void testTooLarge() {
+        var matcher = Regex.compile("[a-z0-9]{3000}").toNativeMatcher();
+        assertTrue(matcher.test("a".repeat(3000)));
+        assertFalse(matcher.test("a".repeat(2999)));
+        // a state with too many distinct transitions, in groups, so that the expression is not too deep
+        var regex = IntStream.range(0, 20)
+                .mapToObj(g -> IntStream.range(g * 40, g * 40 + 40)
+                        .mapToObj(i -> Character.toString(0x4e00 + i) + i)
+                        .collect(Collectors.joining("|", "(", ")")))
+                .collect(Collectors.joining("|"));
+        assertThrows(UnsupportedOperationException.class, () -> Regex.compile(regex).toNativeMatcher());
+    }
+
+    @Test
+    void testUnloading() throws InterruptedException {
+        var matcher = Regex.compile("[a-c]+[0-9]*").toNativeMatcher();
+        assertTrue(matcher.test("abc123"));
+        var generatedClass = new WeakReference<Class<?>>(matcher.getClass());
+        matcher = null;
+        for (int i = 0; i < 100 && generatedClass.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(generatedClass.get());
+    }
+}
@@ -1,35 +1,38 @@
 package dregex;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.List;
 import java.util.regex.Pattern;
 import org.junit.jupiter.api.Test;
 
 class OperationsTest {
 
     private boolean doIntersect(String left, String right) {
-        var compiled = Regex.compile(java.util.List.of(left, right), Pattern.DOTALL);
+        var compiled = Regex.compile(List.of(left, right), Pattern.DOTALL);
         return compiled.get(0).doIntersect(compiled.get(1));
     }
 
     private boolean isSubset(String left, String right) {
-        var compiled = Regex.compile(java.util.List.of(left, right), Pattern.DOTALL);
+        var compiled = Regex.compile(List.of(left, right), Pattern.DOTALL);
         return compiled.get(0).isSubsetOf(compiled.get(1));
     }
 
     private boolean isProperSubset(String left, String right) {
-        var compiled = Regex.compile(java.util.List.of(left, right), Pattern.DOTALL);
+        var compiled = Regex.compile(List.of(left, right), Pattern.DOTALL);
         return compiled.get(0).isProperSubsetOf(compiled.get(1));
     }
 
     private boolean compareIntersection(String left, String right, String result) {
-        var compiled = Regex.compile(java.util.List.of(left, right, result), Pattern.DOTALL);
+        var compiled = Regex.compile(List.of(left, right, result), Pattern.DOTALL);
         return (compiled.get(0).intersect(compiled.get(1))).equiv(compiled.get(2));
     }
 
     private boolean compareUnion(String left, String right, String result) {
-        var compiled = Regex.compile(java.util.List.of(left, right, result), Pattern.DOTALL);
+        var compiled = Regex.compile(List.of(left, right, result), Pattern.DOTALL);
         return (compiled.get(0).union(compiled.get(1))).equiv(compiled.get(2));
     }
 
@@ -89,4 +92,30 @@ class OperationsTest {
         assertTrue(compareUnion("a", "a", "a"));
         assertTrue(compareUnion("(?!a).", "a", "."));
     }
+
+    @Test
+    void testExtend() {
+        var base = Regex.compile(List.of("[a-z]+", "(?!ab)[a-z]+", "[0-9]+"));
+        var union = base.get(0).union(base.get(2));
+        var extended = Regex.extend(List.of(base.get(0), base.get(1), union), List.of("[c-e]x", "b.*"));
+        assertEquals(5, extended.size());
+        var letters = extended.get(0);
+        var lookahead = extended.get(1);
+        var lettersOrDigits = extended.get(2);
+        var cdeX = extended.get(3);
+        var bAny = extended.get(4);
+        assertTrue(letters.isCompatible(cdeX));
+        assertFalse(letters.isCompatible(base.get(0)));
+        assertTrue(letters.matches("xyz"));
+        assertTrue(lookahead.matches("ba"));
+        assertFalse(lookahead.matches("abc"));
+        assertTrue(lettersOrDigits.matches("123"));
+        assertTrue(cdeX.isProperSubsetOf(letters));
+        assertFalse(lookahead.isSubsetOf(bAny));
+        assertTrue(lookahead.doIntersect(bAny));
+        var withSpace = Regex.extend(List.of(lettersOrDigits), List.of(" "));
+        assertFalse(withSpace.get(0).doIntersect(withSpace.get(1)));
+        assertThrows(IncompatibleRegexException.class, () -> Regex.extend(List.of(letters, base.get(0)), List.of("a")));
+        assertThrows(IllegalArgumentException.class, () -> Regex.extend(base, List.of("a"), Pattern.CANON_EQ));
+    }
 }
@@ -41,4 +41,41 @@ class PerformanceTest {
         var regex = Regex.compile("[\\x{0}-\\x{10FFFA}]", Pattern.CANON_EQ);
         System.out.printf("compilation time of %s: %s%n", regex, Duration.ofNanos(System.nanoTime() - start));
     }
+
+    @Test
+    void testNativeMatcher() {
+        var cases = List.of(
+                List.of("[a-zA-Z0-9._%+-]+@[a-zA-Z0-9.-]+\\.[a-zA-Z]{2,6}", "some.user+tag@subdomain.example.com"),
+                // too large for a single generated method
+                List.of(
+                        "(get|post|put|delete|patch) /api/v[1-3]/"
+                                + "(users|orders|products|invoices|customers|payments|shipments|reports|settings)"
+                                + "/[0-9]+(/(items|history|notes|attachments|comments|events))?",
+                        "delete /api/v2/payments/12345/attachments"));
+        for (var testCase : cases) {
+            var regex = Regex.compile(testCase.get(0));
+            var input = testCase.get(1);
+            var start1 = System.nanoTime();
+            var matcher = regex.toNativeMatcher();
+            System.out.println("native matcher generation time: " + Duration.ofNanos(System.nanoTime() - start1));
+            int iterations = 500_000;
+            for (int round = 0; round < 5; round++) {
+                var start2 = System.nanoTime();
+                for (int i = 0; i < iterations; i++) {
+                    if (!regex.matches(input)) {
+                        throw new AssertionError();
+                    }
+                }
+                var elapsed2 = Duration.ofNanos(System.nanoTime() - start2);
+                var start3 = System.nanoTime();
+                for (int i = 0; i < iterations; i++) {
+                    if (!matcher.test(input)) {
+                        throw new AssertionError();
+                    }
+                }
+                var elapsed3 = Duration.ofNanos(System.nanoTime() - start3);
+                System.out.printf("%d matches: interpreted: %s, native: %s%n", iterations, elapsed2, elapsed3);
+            }
+        }
+    }
 }
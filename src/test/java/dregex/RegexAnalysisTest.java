@@ -0,0 +1,107 @@
+package dregex;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import dregex.RegexAnalysis.Hazard.Kind;
+import java.util.List;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.Test;
+
+class RegexAnalysisTest {
+
+    /**
+     * Assert that the estimate is within an order of magnitude of the actual size.
+     */
+    private static void assertEstimate(String regex) {
+        var analysis = Regex.analyze(regex);
+        long actual = Regex.compile(regex).getCompileStats().get().getDfaStateCount();
+        long estimate = analysis.getEstimatedDfaStates();
+        assertTrue(
+                estimate >= actual / 10 && estimate <= actual * 10,
+                String.format("%s: estimate %d, actual %d", regex, estimate, actual));
+    }
+
+    @Test
+    void testLinearExpressions() {
+        for (var regex : List.of(
+                "abc",
+                "[a-z]+@[a-z]+\\.com",
+                "(get|post|put|delete)/api/v[0-9]+/(users|orders|items)/[0-9]+",
+                ".*[ab]{25}",
+                ".*a{30}",
+                "(a|b)*(a|b){12}",
+                "[a-z]{2000}")) {
+            assertEstimate(regex);
+            assertTrue(Regex.analyze(regex).getHazards().isEmpty(), regex);
+        }
+    }
+
+    @Test
+    void testOverlappingCountedRepetition() {
+        for (var regex : List.of("(a|b)*a(a|b){12}", ".*a.{10}", "[a-z]*x[a-z]{10}")) {
+            assertEstimate(regex);
+            var hazards = Regex.analyze(regex).getHazards();
+            assertEquals(1, hazards.size(), regex);
+            assertEquals(Kind.OverlappingCountedRepetition, hazards.get(0).getKind());
+        }
+        var analysis = Regex.analyze("(a|b)*a(a|b){40}");
+        assertEquals(1L << 41, analysis.getEstimatedDfaStates());
+        assertEquals("(a|b){40}", analysis.getHazards().get(0).getSubexpression());
+        assertFalse(analysis.isWithin(CompileLimits.none().withMaxDfaStates(1_000_000)));
+        assertTrue(Regex.analyze("(a|b)*a(a|b){4}").isWithin(CompileLimits.none().withMaxDfaStates(100)));
+    }
+
+    @Test
+    void testWindowAcrossPositions() {
+        for (var regex : List.of("(a|b)*a" + "(a|b)".repeat(10), "(?:[ab]*a)[ab]{10}", "(.*a.{6}|.*b.{6})")) {
+            assertEstimate(regex);
+            var hazards = Regex.analyze(regex).getHazards();
+            assertFalse(hazards.isEmpty(), regex);
+            assertEquals(Kind.OverlappingCountedRepetition, hazards.get(0).getKind());
+        }
+        assertEquals(1L << 11, Regex.analyze("(a|b)*a" + "(a|b)".repeat(10)).getEstimatedDfaStates());
+        assertEquals(1L << 11, Regex.analyze("(?:[ab]*a)[ab]{10}").getEstimatedDfaStates());
+        var analysis = Regex.analyze("(a|b)*a(a|b){3}(a|b){7}");
+        assertEquals(1, analysis.getHazards().size());
+        assertEquals("(a|b){3}(a|b){7}", analysis.getHazards().get(0).getSubexpression());
+        // a position that the unbounded repetition cannot match ends it
+        assertTrue(Regex.analyze("(a|b)*ac(a|b){10}").getHazards().isEmpty());
+    }
+
+    @Test
+    void testLookarounds() {
+        var analysis = Regex.analyze("(?!.*admin)/[a-z]+/(?!xx)[a-z0-9]{4,12}");
+        assertEquals(1, analysis.getMaxLookaroundDepth());
+        assertEquals(2, analysis.getHazards().size());
+        assertTrue(analysis.getHazards().stream().allMatch(h -> h.getKind() == Kind.Lookaround));
+        assertEquals("(?!xx)", analysis.getHazards().get(1).getSubexpression());
+
+        var nested = Regex.analyze("(?=a(?!b)).*");
+        assertEquals(2, nested.getMaxLookaroundDepth());
+
+        var repeated = Regex.analyze("((?!aa)a)+");
+        assertEquals(Kind.LookaroundInRepetition, repeated.getHazards().get(0).getKind());
+    }
+
+    @Test
+    void testLargeRepetition() {
+        var analysis = Regex.analyze("([a-z]{100}){200}x");
+        assertEquals(20_001, analysis.getPositionCount());
+        assertEquals(1, analysis.getHazards().size());
+        var hazard = analysis.getHazards().get(0);
+        assertEquals(Kind.LargeRepetition, hazard.getKind());
+        assertEquals("([a-z]{100}){200}", hazard.getSubexpression());
+    }
+
+    @Test
+    void testFlags() {
+        // case insensitivity makes characters sets, but does not add positions
+        var analysis = Regex.analyze("abc", Pattern.CASE_INSENSITIVE);
+        assertEquals(3, analysis.getPositionCount());
+        assertEquals(4, analysis.getEstimatedDfaStates());
+        assertThrows(InvalidRegexException.class, () -> Regex.analyze("(a"));
+    }
+}
@@ -0,0 +1,154 @@
+package dregex;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.Test;
+
+class RegexCacheTest {
+
+    @Test
+    void testHitsAndMisses() {
+        var cache = new RegexCache(10);
+        var r1 = cache.compile("[a-z]+");
+        var r2 = cache.compile("[a-z]+");
+        var r3 = cache.compile("[a-z]+", Pattern.CASE_INSENSITIVE);
+        assertSame(r1, r2);
+        assertNotSame(r1, r3);
+        assertTrue(r3.matches("ABC"));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void testBatchesAreCompatible() {
+        var cache = new RegexCache(10);
+        var regexes = cache.compile(List.of("[a-z]+", "[A-Z]+"));
+        var again = cache.compile(List.of("[a-z]+", "[A-Z]+"));
+        assertSame(regexes.get(0), again.get(0));
+        assertTrue(regexes.get(0).isCompatible(again.get(1)));
+        assertFalse(again.get(0).doIntersect(regexes.get(1)));
+    }
+
+    @Test
+    void testRequestsAreCompatible() {
+        var cache = new RegexCache(10);
+        var letters = cache.compile("[a-z]+");
+        var digits = cache.compile("[0-9]+");
+        var upper = cache.compile("[a-z]+", Pattern.CASE_INSENSITIVE);
+        // the universe was extended by the later requests, so the earlier regexes are requested again
+        assertFalse(letters.isCompatible(upper));
+        letters = cache.compile("[a-z]+");
+        digits = cache.compile("[0-9]+");
+        assertSame(letters, cache.compile("[a-z]+"));
+        assertTrue(letters.isCompatible(digits));
+        assertTrue(letters.isCompatible(upper));
+        assertFalse(letters.doIntersect(digits));
+        assertTrue(letters.isProperSubsetOf(upper));
+        assertTrue(letters.union(digits).matches("abc"));
+        assertEquals(3, cache.getMissCount());
+
+        // canonical equivalence needs its own universe
+        var canonical = cache.compile("[a-z]+", Pattern.CANON_EQ);
+        assertFalse(canonical.isCompatible(letters));
+        assertTrue(cache.compile("[a-z]+").isCompatible(upper));
+    }
+
+    @Test
+    void testEviction() {
+        var cache = new RegexCache(2);
+        cache.compile("a");
+        cache.compile("b");
+        cache.compile("a"); // "b" is now the least recently used
+        var c = cache.compile("c");
+        assertEquals(2, cache.size());
+        // "a" is still cached, translated to the universe extended by "c"
+        assertTrue(cache.compile("a").isCompatible(c));
+        assertEquals(3, cache.getMissCount());
+        cache.compile("b");
+        assertEquals(4, cache.getMissCount());
+    }
+
+    private static int alphabetSize(Regex regex) {
+        return regex.getImpl().getUniverse().alphabetSize();
+    }
+
+    @Test
+    void testRebuildAfterEvictions() {
+        var cache = new RegexCache(2);
+        var first = cache.compile("[a-c]+");
+        cache.compile("[d-f]+");
+        var third = cache.compile("[g-i]+");
+        assertEquals(3, alphabetSize(third));
+        // second eviction: the universe is rebuilt from the remaining entries, without the evicted boundaries
+        var upper = cache.compile("[A-Z]+");
+        assertEquals(alphabetSize(Regex.compile(List.of("[g-i]+", "[A-Z]+")).get(0)), alphabetSize(upper));
+        assertFalse(third.isCompatible(upper));
+        assertFalse(first.isCompatible(upper));
+        // the remaining entries are translated to the rebuilt universe
+        var translated = cache.compile(List.of("[g-i]+", "[A-Z]+"));
+        assertTrue(translated.get(0).isCompatible(translated.get(1)));
+        assertTrue(translated.get(0).matches("ghi"));
+        assertFalse(translated.get(0).matches("abc"));
+        assertFalse(translated.get(0).doIntersect(translated.get(1)));
+        assertTrue(translated.get(0).union(translated.get(1)).matches("GH"));
+        assertEquals(4, cache.getMissCount());
+    }
+
+    @Test
+    void testClearRebuildsUniverse() {
+        var cache = new RegexCache(10);
+        cache.compile(List.of("[a-c]+", "[d-f]+", "[g-i]+"));
+        cache.clear();
+        var x = cache.compile("x");
+        assertEquals(alphabetSize(Regex.compile("x")), alphabetSize(x));
+        assertTrue(x.matches("x"));
+    }
+
+    @Test
+    void testInvalidRegexesAreNotCached() {
+        var cache = new RegexCache(10);
+        assertThrows(InvalidRegexException.class, () -> cache.compile("\\1"));
+        assertThrows(InvalidRegexException.class, () -> cache.compile("\\1"));
+        assertEquals(0, cache.size());
+        assertEquals(2, cache.getMissCount());
+        // the valid expressions of a request are cached, even if others fail
+        assertThrows(InvalidRegexException.class, () -> cache.compile(List.of("a", "\\1", "b")));
+        assertEquals(2, cache.size());
+        var ab = cache.compile(List.of("a", "b"));
+        assertTrue(ab.get(0).isCompatible(ab.get(1)));
+        assertEquals(5, cache.getMissCount());
+    }
+
+    @Test
+    void testSingleFlight() throws Exception {
+        var cache = new RegexCache(10);
+        var executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<Regex>> tasks = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                tasks.add(() -> cache.compile("(?!x+c)[a-zA-Z0-9]{20}.*"));
+            }
+            var futures = executor.invokeAll(tasks);
+            var first = futures.get(0).get();
+            for (Future<Regex> future : futures) {
+                assertSame(first, future.get());
+            }
+            assertEquals(1, cache.getMissCount());
+            assertEquals(31, cache.getHitCount());
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
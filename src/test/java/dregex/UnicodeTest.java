@@ -1,5 +1,6 @@
 package dregex;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -7,8 +8,11 @@ import dregex.impl.database.UnicodeBlocks;
 import dregex.impl.database.UnicodeScripts;
 import java.lang.Character.UnicodeBlock;
 import java.lang.Character.UnicodeScript;
+import java.text.Normalizer;
+import java.util.List;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import org.junit.jupiter.api.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -116,7 +120,7 @@ class UnicodeTest {
          * Exhaustively test all combinations of Unicode blocks and code points against
          * the java.util.regex implementation.
          */
-        for (var block : UnicodeBlocks.charSets.keySet().stream().sorted().collect(Collectors.toList())) {
+        for (var block : UnicodeBlocks.names().stream().sorted().collect(Collectors.toList())) {
 
             boolean blockExistsInJava;
             try {
@@ -195,7 +199,7 @@ class UnicodeTest {
          * Exhaustively test all combinations of Unicode scripts and code points against
          * the java.util.regex implementation.
          */
-        for (var script : UnicodeScripts.chatSets.keySet().stream().sorted().collect(Collectors.toList())) {
+        for (var script : UnicodeScripts.names().stream().sorted().collect(Collectors.toList())) {
 
             boolean scriptExistsInJava;
             try {
@@ -303,6 +307,76 @@ class UnicodeTest {
         }
     }
 
+    /**
+     * The binary properties, canonical decompositions and case foldings are generated from the Unicode data of the JVM
+     * that builds the library, so check a sample of them against the running one.
+     */
+    @Test
+    void testJvmTablesAgainstJavaRegex() {
+        var properties = List.of(
+                "Alphabetic",
+                "Ideographic",
+                "Letter",
+                "Lowercase",
+                "Uppercase",
+                "Titlecase",
+                "Punctuation",
+                "Control",
+                "White_Space",
+                "Digit",
+                "Hex_Digit",
+                "Join_Control",
+                "Noncharacter_Code_Point",
+                "Assigned");
+        for (var property : properties) {
+            var regex = Regex.compile("\\p{Is" + property + "}");
+            var pattern = Pattern.compile("\\p{Is" + property + "}");
+            for (int codePoint = 0; codePoint <= Character.MAX_CODE_POINT; codePoint += 37) {
+                var string = Character.toString(codePoint);
+                assertEquals(
+                        pattern.matcher(string).matches(),
+                        regex.matches(string),
+                        () -> String.format("%s: %x", property, string.codePointAt(0)));
+            }
+        }
+
+        int sampled = 0;
+        for (int codePoint = 0; codePoint <= Character.MAX_CODE_POINT; codePoint++) {
+            var string = Character.toString(codePoint);
+            var decomposed = Normalizer.normalize(string, Normalizer.Form.NFD);
+            if (decomposed.codePointCount(0, decomposed.length()) > 1 && sampled++ % 50 == 0) {
+                var regex = Regex.compile(string, Pattern.CANON_EQ);
+                var pattern = Pattern.compile(string, Pattern.CANON_EQ);
+                assertEquals(pattern.matcher(decomposed).matches(), regex.matches(decomposed), string);
+                assertEquals(pattern.matcher(string).matches(), regex.matches(string), string);
+            }
+        }
+
+        sampled = 0;
+        for (int i = 0; i <= Character.MAX_CODE_POINT; i++) {
+            int codePoint = i;
+            var others = IntStream.of(
+                            Character.toUpperCase(codePoint),
+                            Character.toLowerCase(codePoint),
+                            Character.toTitleCase(codePoint))
+                    .filter(other -> other != codePoint)
+                    .toArray();
+            if (others.length > 0 && sampled++ % 20 == 0) {
+                var string = Character.toString(codePoint);
+                int flags = Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
+                var regex = Regex.compile(string, flags);
+                var pattern = Pattern.compile(string, flags);
+                for (int other : others) {
+                    var otherString = Character.toString(other);
+                    assertEquals(
+                            pattern.matcher(otherString).matches(),
+                            regex.matches(otherString),
+                            () -> String.format("%x: %x", codePoint, other));
+                }
+            }
+        }
+    }
+
     @Test
     void testLinebreak() {
 
@@ -0,0 +1,34 @@
+package dregex.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import dregex.impl.database.CanonicalDecompositions;
+import java.text.Normalizer;
+import org.junit.jupiter.api.Test;
+
+public class CanonicalDecompositionsTest {
+
+    @Test
+    public void testAgainstNormalizer() {
+        var decompositions = CanonicalDecompositions.decompositionsIn(Character.MIN_CODE_POINT, Character.MAX_CODE_POINT);
+        for (int codePoint = Character.MIN_CODE_POINT; codePoint <= Character.MAX_CODE_POINT; codePoint++) {
+            var normalized = Normalizer.normalize(Character.toString(codePoint), Normalizer.Form.NFD)
+                    .codePoints()
+                    .toArray();
+            if (normalized.length > 1) {
+                assertArrayEquals(normalized, decompositions.get(codePoint), Integer.toHexString(codePoint));
+            } else {
+                assertFalse(decompositions.containsKey(codePoint), Integer.toHexString(codePoint));
+            }
+        }
+    }
+
+    @Test
+    public void testRange() {
+        var decompositions = CanonicalDecompositions.decompositionsIn(0xC0, 0xC5);
+        assertEquals(6, decompositions.size());
+        assertArrayEquals(new int[] {'A', 0x30A}, decompositions.get(0xC5));
+        assertTrue(CanonicalDecompositions.decompositionsIn('a', 'z').isEmpty());
+        assertArrayEquals(new int[] {0x1100, 0x1161}, CanonicalDecompositions.decompositionsIn(0xAC00, 0xAC00).get(0xAC00));
+    }
+}
@@ -0,0 +1,61 @@
+package dregex.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import dregex.impl.ClassFileWriter.Code;
+import dregex.impl.ClassFileWriter.Label;
+import java.util.function.Predicate;
+import org.junit.jupiter.api.Test;
+
+public class ClassFileWriterTest {
+
+    private static final class TestClassLoader extends ClassLoader {
+
+        TestClassLoader() {
+            super(ClassFileWriterTest.class.getClassLoader());
+        }
+
+        Class<?> define(String name, byte[] bytes) {
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testLabelsAtTheSamePosition() throws Exception {
+        var classFile = new ClassFileWriter();
+        int objectClass = classFile.classRef("java/lang/Object");
+        var init = new Code(1, 1, new byte[0], 0);
+        init.aload(0);
+        init.op(0xb7, classFile.methodRef("java/lang/Object", "<init>", "()V")); // invokespecial
+        init.op(Code.RETURN);
+        classFile.addMethod(ClassFileWriter.ACC_PUBLIC, "<init>", "()V", init);
+
+        var frameLocals = new byte[] {
+            7, (byte) (objectClass >> 8), (byte) objectClass, // this
+            7, (byte) (objectClass >> 8), (byte) objectClass // argument
+        };
+        var test = new Code(1, 2, frameLocals, 2);
+        var first = new Label();
+        var second = new Label();
+        test.aload(1);
+        test.jump(0xc7, first); // ifnonnull
+        test.jump(Code.GOTO, second);
+        // both labels get the same frame, not one with a negative offset
+        test.place(first);
+        test.place(second);
+        test.op(Code.ICONST_1);
+        test.op(Code.IRETURN);
+        classFile.addMethod(ClassFileWriter.ACC_PUBLIC, "test", "(Ljava/lang/Object;)Z", test);
+
+        var bytes = classFile.toBytes(
+                ClassFileWriter.ACC_PUBLIC | ClassFileWriter.ACC_FINAL | ClassFileWriter.ACC_SUPER,
+                "dregex/impl/SharedLabels",
+                "java/lang/Object",
+                "java/util/function/Predicate");
+        var generated = new TestClassLoader().define("dregex.impl.SharedLabels", bytes);
+        var predicate = (Predicate<Object>) generated.getConstructor().newInstance();
+        assertTrue(predicate.test("a"));
+        assertTrue(predicate.test(null));
+    }
+}
@@ -0,0 +1,33 @@
+package dregex.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import dregex.impl.database.CodePointTable;
+import dregex.impl.database.JvmUnicode;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class CodePointTableTest {
+
+    private static void assertSameEntries(CodePointTable.Slice expected, CodePointTable.Slice actual) {
+        assertArrayEquals(
+                Arrays.copyOfRange(expected.codePoints, expected.start, expected.end),
+                Arrays.copyOfRange(actual.codePoints, actual.start, actual.end));
+        assertArrayEquals(
+                Arrays.copyOfRange(expected.values, expected.start, expected.end),
+                Arrays.copyOfRange(actual.values, actual.start, actual.end));
+    }
+
+    @Test
+    public void testComputedAsLoaded() {
+        // the tests run with the JVM that generated the tables
+        var loaded = CodePointTable.load("/UnicodeCaseFoldings.bin", JvmUnicode::caseFolding);
+        var computed = CodePointTable.computed(JvmUnicode::caseFolding);
+        // within a page, across pages, and empty
+        for (var range : List.of(new int[] {'a', 'z'}, new int[] {0x3FF, 0x1001}, new int[] {0xE000, 0xE0FF})) {
+            assertSameEntries(loaded.slice(range[0], range[1]), computed.slice(range[0], range[1]));
+        }
+        assertEquals(26, computed.slice('A', 'Z').end - computed.slice('A', 'Z').start);
+    }
+}
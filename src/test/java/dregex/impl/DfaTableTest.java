@@ -0,0 +1,65 @@
+package dregex.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+public class DfaTableTest {
+
+    private static List<CompiledRegex> compile(List<String> regexes) {
+        var flags = new RegexParser.Flags();
+        var parsed = regexes.stream().map(r -> RegexParser.parse(r, flags)).collect(Collectors.toList());
+        var universe = new Universe(parsed.stream().map(p -> p.getTree()).collect(Collectors.toList()), false);
+        return parsed.stream()
+                .map(p -> new CompiledRegex(p.getLiteral(), p.getTree(), universe))
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    public void testClassCompression() {
+        // the other regexes split the letters in many intervals, that the first one does not distinguish
+        var regexes = compile(List.of("\\p{L}+[0-9]", "[a-f]", "[k-p]", "[α-ω]", "x|y|z", "[3-5]"));
+        var table = regexes.get(0).getTable();
+        assertTrue(regexes.get(0).getDfa().allChars().size() > 10);
+        // letters and digits
+        assertEquals(2, table.classCount());
+        assertEquals(table.classOf('a'), table.classOf('ω'));
+        assertEquals(table.classOf('0'), table.classOf('4'));
+        assertNotEquals(table.classOf('a'), table.classOf('4'));
+        assertEquals(-1, table.classOf('-'));
+
+        var regex = regexes.get(0);
+        assertTrue(regex.matchAndReport("abcαβγ9").matches());
+        assertFalse(regex.matchAndReport("abc-9").matches());
+        assertEquals(3, regex.matchAndReport("abc-9").getPosition());
+        assertEquals(6, regex.matchAndReport("abc𝐀x99").getPosition());
+    }
+
+    @Test
+    public void testTableBuiltOnce() {
+        var regexes = compile(List.of("[a-z]+", "[0-9]+"));
+        var union = regexes.get(0).union(regexes.get(1));
+        var table = union.getTable();
+        assertSame(table, union.getTable());
+        assertTrue(union.matches("abc"));
+        assertTrue(union.matches("123"));
+        assertFalse(union.matches("a1"));
+    }
+
+    @Test
+    public void testTableSizeOverflow() {
+        assertEquals(6, DfaTable.transitionTableSize(2, 3));
+        assertThrows(IllegalStateException.class, () -> DfaTable.transitionTableSize(70_000, 70_000));
+    }
+
+    @Test
+    public void testEmptyDfa() {
+        var table = new DfaTable(Dfa.nothingDfa);
+        assertEquals(1, table.stateCount());
+        assertEquals(0, table.classCount());
+        assertEquals(-1, table.step(table.initialState(), 'a'));
+        assertFalse(table.isAccepting(table.initialState()));
+    }
+}
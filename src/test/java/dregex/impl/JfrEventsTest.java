@@ -0,0 +1,99 @@
+package dregex.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import dregex.Regex;
+import dregex.impl.tree.Lit;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+public class JfrEventsTest {
+
+    private static List<RecordedEvent> record(Runnable runnable) throws Exception {
+        var file = Files.createTempFile("dregex", ".jfr");
+        try (var recording = new Recording()) {
+            for (var name : List.of(
+                    "dregex.Compile",
+                    "dregex.Determinization",
+                    "dregex.Minimization",
+                    "dregex.ProductConstruction",
+                    "dregex.UnreachableStatePruning",
+                    "dregex.SetOperation")) {
+                recording.enable(name).withoutThreshold();
+            }
+            recording.start();
+            runnable.run();
+            recording.stop();
+            recording.dump(file);
+            return RecordingFile.readAllEvents(file);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static List<RecordedEvent> ofType(List<RecordedEvent> events, String name) {
+        return events.stream()
+                .filter(e -> e.getEventType().getName().equals(name))
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    public void testCompileEvents() throws Exception {
+        var pattern = "(?!xx)[a-z]+";
+        var events = record(() -> Regex.compile(pattern, Pattern.CASE_INSENSITIVE));
+
+        var compile = ofType(events, "dregex.Compile");
+        assertEquals(1, compile.size());
+        assertEquals(pattern, compile.get(0).getString("pattern"));
+        assertEquals(Pattern.CASE_INSENSITIVE, compile.get(0).getInt("flags"));
+        assertTrue(compile.get(0).getInt("dfaStates") > 0);
+        assertTrue(compile.get(0).getLong("nfaStates") > 0);
+
+        // the regex and the two operands of the lookaround
+        var determinizations = ofType(events, "dregex.Determinization");
+        assertEquals(3, determinizations.size());
+        for (var event : determinizations) {
+            assertEquals(pattern, event.getString("pattern"));
+        }
+
+        var products = ofType(events, "dregex.ProductConstruction");
+        assertEquals(1, products.size());
+        assertEquals("difference", products.get(0).getString("operation"));
+        assertEquals(1, ofType(events, "dregex.UnreachableStatePruning").size());
+    }
+
+    @Test
+    public void testOperationEvents() throws Exception {
+        var regexes = Regex.compile(List.of("[a-z]+", "[a-c]+"));
+        var events = record(() -> regexes.get(0).diff(regexes.get(1)));
+        var operations = ofType(events, "dregex.SetOperation");
+        assertEquals(1, operations.size());
+        assertEquals("difference", operations.get(0).getString("operation"));
+        assertEquals("[a-z]+", operations.get(0).getString("leftPattern"));
+        assertEquals("[a-c]+", operations.get(0).getString("rightPattern"));
+        assertEquals(1, ofType(events, "dregex.ProductConstruction").size());
+    }
+
+    @Test
+    public void testMinimizationEvent() throws Exception {
+        var tree = new Lit('a');
+        var dfa = new Compiler(new Universe(List.of(tree), false)).fromTree(tree);
+        var events = record(() -> DfaAlgorithms.minimize(dfa));
+        var minimizations = ofType(events, "dregex.Minimization");
+        assertEquals(1, minimizations.size());
+        assertEquals(2, minimizations.get(0).getInt("statesAfter"));
+    }
+
+    @Test
+    public void testTruncation() {
+        var pattern = "a".repeat(JfrEvents.maxPatternLength + 1);
+        assertEquals(JfrEvents.maxPatternLength + 1, JfrEvents.truncate(pattern).length());
+        assertEquals("abc", JfrEvents.truncate("abc"));
+    }
+}
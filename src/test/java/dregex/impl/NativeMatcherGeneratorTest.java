@@ -0,0 +1,83 @@
+package dregex.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+public class NativeMatcherGeneratorTest {
+
+    private static DfaTable table(String regex) {
+        var parsed = RegexParser.parse(regex, new RegexParser.Flags());
+        var universe = new Universe(List.of(parsed.getTree()), false);
+        return new CompiledRegex(parsed.getLiteral(), parsed.getTree(), universe).toDfaTable();
+    }
+
+    /**
+     * Return the length of the code of every method of a class file.
+     */
+    private static Map<String, Integer> codeLengths(byte[] classFile) throws IOException {
+        var in = new DataInputStream(new ByteArrayInputStream(classFile));
+        in.skipBytes(8); // magic and version
+        int poolCount = in.readUnsignedShort();
+        var utf8 = new HashMap<Integer, String>();
+        for (int i = 1; i < poolCount; i++) {
+            int tag = in.readUnsignedByte();
+            if (tag == 1) {
+                utf8.put(i, in.readUTF());
+            } else if (tag == 7) {
+                in.skipBytes(2);
+            } else if (tag == 3 || tag == 10 || tag == 11 || tag == 12) {
+                in.skipBytes(4);
+            } else {
+                fail("unexpected constant tag: " + tag);
+            }
+        }
+        in.skipBytes(6); // access, this and super
+        in.skipBytes(2 * in.readUnsignedShort()); // interfaces
+        assertEquals(0, in.readUnsignedShort()); // fields
+        int methodCount = in.readUnsignedShort();
+        var ret = new HashMap<String, Integer>();
+        for (int i = 0; i < methodCount; i++) {
+            in.skipBytes(2); // access
+            var name = utf8.get(in.readUnsignedShort());
+            in.skipBytes(2); // descriptor
+            int attributeCount = in.readUnsignedShort();
+            for (int j = 0; j < attributeCount; j++) {
+                var attribute = utf8.get(in.readUnsignedShort());
+                int length = in.readInt();
+                if (attribute.equals("Code")) {
+                    in.skipBytes(4); // max stack and locals
+                    ret.put(name, in.readInt());
+                    in.skipBytes(length - 8);
+                } else {
+                    in.skipBytes(length);
+                }
+            }
+        }
+        return ret;
+    }
+
+    @Test
+    public void testMethodSizes() throws IOException {
+        var regexes = Map.of(
+                "(a|b)*a(a|b){8}", "group1",
+                "[a-z0-9]{3000}", "group1",
+                "(\\p{L}|\\p{N})+\\p{Lu}", "ranges0");
+        for (var regex : regexes.keySet()) {
+            var codeLengths = codeLengths(NativeMatcherGenerator.generateClass(table(regex), "dregex/impl/Sizes"));
+            // split in several methods
+            assertTrue(codeLengths.containsKey(regexes.get(regex)), () -> regex + ": " + codeLengths.keySet());
+            for (var entry : codeLengths.entrySet()) {
+                assertTrue(
+                        entry.getValue() <= NativeMatcherGenerator.maxMethodBytes,
+                        () -> regex + ": " + entry.getKey() + " has " + entry.getValue() + " bytes");
+            }
+        }
+    }
+}
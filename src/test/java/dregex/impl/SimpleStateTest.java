@@ -0,0 +1,42 @@
+package dregex.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+
+class SimpleStateTest {
+
+    @Test
+    void testUniqueIdsAcrossThreads() throws InterruptedException, ExecutionException {
+        int threads = 8;
+        int statesPerThread = 10_000;
+        var executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<List<SimpleState>>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    var states = new ArrayList<SimpleState>();
+                    for (int i = 0; i < statesPerThread; i++) {
+                        states.add(new SimpleState());
+                    }
+                    return states;
+                }));
+            }
+            var ids = new HashSet<Long>();
+            for (var future : futures) {
+                for (var state : future.get()) {
+                    ids.add(state.id);
+                }
+            }
+            assertEquals(threads * statesPerThread, ids.size());
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
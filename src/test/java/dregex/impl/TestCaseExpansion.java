@@ -4,7 +4,12 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import org.junit.jupiter.api.Test;
 
+import dregex.impl.tree.AbstractRange;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
 
 public class TestCaseExpansion {
 
@@ -29,6 +34,53 @@ public class TestCaseExpansion {
         assertArrayEqualIgnoreOrder(new int[]{'Ǆ', 'ǅ', 'ǆ'}, CaseExpansion.Unicode.expand('ǆ'));
     }
 
+    @Test
+    public void testRangeExpansion() {
+        var random = new Random(0);
+        for (var caseExpansion : List.of(CaseExpansion.Ascii, CaseExpansion.Unicode)) {
+            var table = CaseFoldingTable.of(caseExpansion);
+            List<int[]> ranges = new ArrayList<>();
+            ranges.add(new int[]{0, Character.MAX_CODE_POINT});
+            ranges.add(new int[]{'A', 'Z'});
+            ranges.add(new int[]{'Z', 'a'});
+            ranges.add(new int[]{0x1C4, 0x1C4});
+            ranges.add(new int[]{0x130, 0x131});
+            for (int i = 0; i < 200; i++) {
+                int from = random.nextInt(0x11000);
+                ranges.add(new int[]{from, from + random.nextInt(1 << random.nextInt(12))});
+            }
+            for (int[] range : ranges) {
+                assertEquals(
+                        bruteForceExpansion(caseExpansion, range[0], range[1]),
+                        table.expand(range[0], range[1]),
+                        () -> String.format("%s: [%x-%x]", caseExpansion, range[0], range[1]));
+            }
+        }
+    }
+
+    private static List<AbstractRange> bruteForceExpansion(CaseExpansion caseExpansion, int from, int to) {
+        var codePoints = new TreeSet<Integer>();
+        for (int codePoint = from; codePoint <= to; codePoint++) {
+            for (int expanded : caseExpansion.expand(codePoint)) {
+                codePoints.add(expanded);
+            }
+        }
+        List<AbstractRange> ranges = new ArrayList<>();
+        int openRangeFrom = codePoints.first();
+        int openRangeTo = openRangeFrom;
+        for (int codePoint : codePoints.tailSet(openRangeFrom, false)) {
+            if (codePoint == openRangeTo + 1) {
+                openRangeTo = codePoint;
+            } else {
+                ranges.add(AbstractRange.of(openRangeFrom, openRangeTo));
+                openRangeFrom = codePoint;
+                openRangeTo = codePoint;
+            }
+        }
+        ranges.add(AbstractRange.of(openRangeFrom, openRangeTo));
+        return ranges;
+    }
+
     private static void assertArrayEqualIgnoreOrder(int[] left, int[] right) {
         left = left.clone();
         right = right.clone();